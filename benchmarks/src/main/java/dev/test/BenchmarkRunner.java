@@ -0,0 +1,37 @@
+package dev.test;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.util.concurrent.Callable;
+
+@Command(name = "benchmarks", mixinStandardHelpOptions = true,
+    description = "Runs the JMH suites and writes machine-readable JSON results")
+public class BenchmarkRunner implements Callable<Integer> {
+    @Option(names = {"-i", "--include"}, description = "Regex of benchmarks to run", defaultValue = "dev\\.test\\..*Benchmark")
+    private String include;
+
+    @Option(names = {"-o", "--output"}, description = "JSON result file", defaultValue = "jmh-results.json")
+    private String output;
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new BenchmarkRunner()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public Integer call() throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(include)
+            .resultFormat(ResultFormatType.JSON)
+            .result(output)
+            .build()).run();
+
+        return 0;
+    }
+}
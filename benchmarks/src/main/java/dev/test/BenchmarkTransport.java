@@ -0,0 +1,115 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.Publication;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+
+/**
+ * Embedded driver and channel setup shared by the benchmarks, so every suite runs the same way over {@code aeron:ipc}
+ * and over UDP loopback.
+ */
+final class BenchmarkTransport {
+    static final String IPC = "ipc";
+    static final String UDP = "udp";
+    static final String JVM_ADD_OPENS = "--add-opens=java.base/jdk.internal.misc=ALL-UNNAMED";
+
+    private static final String TERM_LENGTH = "term-length=16m";
+
+    private BenchmarkTransport() {
+    }
+
+    static String channel(String transport, int port) {
+        if (IPC.equals(transport)) {
+            return "aeron:ipc?" + TERM_LENGTH;
+        }
+
+        return "aeron:udp?endpoint=localhost:" + port + "|" + TERM_LENGTH;
+    }
+
+    static MediaDriver launchDriver() {
+        return MediaDriver.launchEmbedded(new MediaDriver.Context()
+            .threadingMode(ThreadingMode.DEDICATED)
+            .conductorIdleStrategy(new BusySpinIdleStrategy())
+            .senderIdleStrategy(new BusySpinIdleStrategy())
+            .receiverIdleStrategy(new BusySpinIdleStrategy())
+            .termBufferSparseFile(false)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true));
+    }
+
+    static Aeron connect(MediaDriver driver) {
+        return Aeron.connect(new Aeron.Context()
+            .aeronDirectoryName(driver.aeronDirectoryName())
+            .idleStrategy(new BusySpinIdleStrategy()));
+    }
+
+    static void awaitConnected(Publication publication, Subscription subscription) {
+        while (!publication.isConnected() || !subscription.isConnected()) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Offer until the message is accepted, failing fast if the publication can never accept it.
+     */
+    static long offer(Publication publication, DirectBuffer buffer, int length) {
+        return offer(publication, buffer, 0, length);
+    }
+
+    static long offer(Publication publication, DirectBuffer buffer, int offset, int length) {
+        long result;
+        while ((result = publication.offer(buffer, offset, length)) < 0) {
+            if (result == Publication.CLOSED || result == Publication.MAX_POSITION_EXCEEDED) {
+                throw new IllegalStateException("offer failed: " + result);
+            }
+            Thread.onSpinWait();
+        }
+
+        return result;
+    }
+
+    /**
+     * Daemon thread that runs a task in a loop until stopped, used to drain or feed the side of a stream that is not
+     * being measured.
+     */
+    static final class BackgroundLoop implements AutoCloseable {
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        BackgroundLoop(String name, Runnable task) {
+            this(name, () -> {
+            }, task);
+        }
+
+        /**
+         * @param name    of the thread.
+         * @param onStart run once on the new thread before the loop, such as to pin it.
+         * @param task    run in a loop.
+         */
+        BackgroundLoop(String name, Runnable onStart, Runnable task) {
+            thread = new Thread(() -> {
+                onStart.run();
+                while (running) {
+                    task.run();
+                }
+            });
+            thread.setName(name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void close() {
+            running = false;
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package dev.test;
+
+import io.aeron.driver.CongestionControl;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.driver.ext.CubicCongestionControl;
+import io.aeron.driver.media.UdpChannel;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.SystemNanoClock;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.CountersManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the congestion control hooks the receiver calls on every duty cycle, {@link MyCC} and {@link DelayCC} against
+ * plain {@link CubicCongestionControl}. A background thread drains {@link MyCC#JOURNAL} so samples take the append path
+ * rather than the dropped path. Queueing delay and throughput over a real stream are compared by
+ * {@link CongestionControlComparison}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkTransport.JVM_ADD_OPENS)
+@State(Scope.Benchmark)
+public class CongestionControlBenchmark {
+    private static final int TERM_LENGTH = 64 * 1024;
+    private static final int MTU_LENGTH = 1408;
+
+    @Param({"cubic", "mycc", "delay"})
+    private String congestionControl;
+
+    private MediaDriver driver;
+    private CongestionControl cc;
+    private BenchmarkTransport.BackgroundLoop journalDrainer;
+    private InetSocketAddress sourceAddress;
+    private long position;
+    private long rttNs = 50_000;
+
+    @Setup
+    public void setup() {
+        // a launched driver provides a concluded context for the constructors
+        driver = MediaDriver.launchEmbedded(new MediaDriver.Context()
+            .threadingMode(ThreadingMode.SHARED)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true));
+
+        final CountersManager countersManager = new CountersManager(
+            new UnsafeBuffer(ByteBuffer.allocateDirect(256 * 1024)),
+            new UnsafeBuffer(ByteBuffer.allocateDirect(64 * 1024)));
+        final UdpChannel udpChannel = UdpChannel.parse("aeron:udp?endpoint=localhost:20135");
+        final InetSocketAddress controlAddress = new InetSocketAddress("localhost", 20136);
+        sourceAddress = new InetSocketAddress("localhost", 20137);
+
+        if ("mycc".equals(congestionControl)) {
+            cc = new MyCC(1, udpChannel, 1001, 1, TERM_LENGTH, MTU_LENGTH, controlAddress, sourceAddress,
+                SystemNanoClock.INSTANCE, driver.context(), countersManager);
+        } else if ("delay".equals(congestionControl)) {
+            cc = new DelayCC(1, udpChannel, 1001, 1, TERM_LENGTH, MTU_LENGTH, controlAddress, sourceAddress,
+                SystemNanoClock.INSTANCE, driver.context(), countersManager);
+        } else {
+            cc = new CubicCongestionControl(1, udpChannel, 1001, 1, TERM_LENGTH, MTU_LENGTH, controlAddress,
+                sourceAddress, SystemNanoClock.INSTANCE, driver.context(), countersManager);
+        }
+
+        journalDrainer = new BenchmarkTransport.BackgroundLoop(
+            "journal-drainer", () -> MyCC.JOURNAL.read((msgTypeId, buffer, index, length) -> {
+            }, 256));
+    }
+
+    @TearDown
+    public void tearDown() {
+        journalDrainer.close();
+        CloseHelper.closeAll(cc, driver);
+    }
+
+    @Benchmark
+    public boolean shouldMeasureRtt() {
+        return cc.shouldMeasureRtt(System.nanoTime());
+    }
+
+    @Benchmark
+    public long onRttMeasurement() {
+        rttNs = 40_000 + (rttNs + 7_919) % 20_000;
+        cc.onRttMeasurement(System.nanoTime(), rttNs, sourceAddress);
+        return rttNs;
+    }
+
+    @Benchmark
+    public long onTrackRebuild() {
+        final long lastSmPosition = position;
+        position += MTU_LENGTH;
+        return cc.onTrackRebuild(
+            System.nanoTime(), lastSmPosition, lastSmPosition, position, lastSmPosition, position, false);
+    }
+}
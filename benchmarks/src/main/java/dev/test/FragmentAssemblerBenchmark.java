@@ -0,0 +1,84 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.FragmentAssembler;
+import io.aeron.Publication;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.logbuffer.FragmentHandler;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of wrapping a handler in a {@link FragmentAssembler} compared with a raw {@link FragmentHandler}. Message
+ * lengths above the MTU are fragmented, so the raw handler sees fragments while the assembler sees whole messages.
+ * The {@code bytes} counter gives delivered payload bytes per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkTransport.JVM_ADD_OPENS)
+@State(Scope.Benchmark)
+public class FragmentAssemblerBenchmark {
+    private static final int STREAM_ID = 1001;
+    private static final int FRAGMENT_LIMIT = 100;
+
+    @Param({BenchmarkTransport.IPC, BenchmarkTransport.UDP})
+    private String transport;
+
+    @Param({"raw", "assembler"})
+    private String handlerType;
+
+    @Param({"32", "1024", "8192"})
+    private int messageLength;
+
+    private MediaDriver driver;
+    private Aeron aeron;
+    private Publication publication;
+    private Subscription subscription;
+    private BenchmarkTransport.BackgroundLoop feeder;
+    private FragmentHandler handler;
+    private long checksum;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public long bytes;
+    }
+
+    @Setup
+    public void setup() {
+        driver = BenchmarkTransport.launchDriver();
+        aeron = BenchmarkTransport.connect(driver);
+
+        final String channel = BenchmarkTransport.channel(transport, 20134);
+        subscription = aeron.addSubscription(channel, STREAM_ID);
+        publication = aeron.addPublication(channel, STREAM_ID);
+        BenchmarkTransport.awaitConnected(publication, subscription);
+
+        final FragmentHandler rawHandler = (buffer, offset, length, header) -> checksum += length;
+        handler = "assembler".equals(handlerType) ? new FragmentAssembler(rawHandler) : rawHandler;
+
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(messageLength));
+        feeder = new BenchmarkTransport.BackgroundLoop("feeder", () -> publication.offer(buffer, 0, messageLength));
+    }
+
+    @TearDown
+    public void tearDown() {
+        feeder.close();
+        CloseHelper.closeAll(publication, subscription, aeron, driver);
+    }
+
+    @Benchmark
+    public long poll(Bytes bytes) {
+        final long before = checksum;
+        subscription.poll(handler, FRAGMENT_LIMIT);
+        bytes.bytes += checksum - before;
+        return checksum;
+    }
+}
@@ -0,0 +1,48 @@
+package dev.test;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding and decoding a {@link ProbeCodec} probe in place, which should not depend on the padded message
+ * length since padding is never touched.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkTransport.JVM_ADD_OPENS)
+@State(Scope.Thread)
+public class ProbeCodecBenchmark {
+    @Param({"8", "32", "1024", "65536"})
+    private int messageLength;
+
+    private final ProbeCodec.Encoder encoder = new ProbeCodec.Encoder();
+    private final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+    private UnsafeBuffer buffer;
+    private long sequence;
+
+    @Setup
+    public void setup() {
+        buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(messageLength));
+    }
+
+    @Benchmark
+    public long encode() {
+        encoder.wrap(buffer, 0, messageLength)
+            .sendTimestampNs(System.nanoTime())
+            .sequence(sequence++)
+            .echoTimestampNs(ProbeCodec.ECHO_TIMESTAMP_NULL)
+            .senderId(1);
+        return sequence;
+    }
+
+    @Benchmark
+    public long decode() {
+        decoder.wrap(buffer, 0, messageLength);
+        return decoder.sendTimestampNs() + decoder.sequence() + decoder.echoTimestampNs() + decoder.senderId();
+    }
+}
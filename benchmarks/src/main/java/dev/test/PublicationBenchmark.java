@@ -0,0 +1,111 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.ExclusivePublication;
+import io.aeron.Publication;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.logbuffer.FragmentHandler;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per accepted message of {@link Publication#offer} vs {@link Publication#tryClaim} on a concurrent publication
+ * and on an {@link ExclusivePublication}, with a background thread draining both streams.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkTransport.JVM_ADD_OPENS)
+@State(Scope.Benchmark)
+public class PublicationBenchmark {
+    private static final int CONCURRENT_STREAM_ID = 1001;
+    private static final int EXCLUSIVE_STREAM_ID = 1002;
+
+    @Param({BenchmarkTransport.IPC, BenchmarkTransport.UDP})
+    private String transport;
+
+    @Param({"32", "256"})
+    private int messageLength;
+
+    private MediaDriver driver;
+    private Aeron aeron;
+    private Publication publication;
+    private ExclusivePublication exclusivePublication;
+    private Subscription subscription;
+    private Subscription exclusiveSubscription;
+    private BenchmarkTransport.BackgroundLoop drainer;
+    private UnsafeBuffer buffer;
+    private final BufferClaim bufferClaim = new BufferClaim();
+
+    @Setup
+    public void setup() {
+        driver = BenchmarkTransport.launchDriver();
+        aeron = BenchmarkTransport.connect(driver);
+
+        final String channel = BenchmarkTransport.channel(transport, 20131);
+        final String exclusiveChannel = BenchmarkTransport.channel(transport, 20132);
+        subscription = aeron.addSubscription(channel, CONCURRENT_STREAM_ID);
+        exclusiveSubscription = aeron.addSubscription(exclusiveChannel, EXCLUSIVE_STREAM_ID);
+        publication = aeron.addPublication(channel, CONCURRENT_STREAM_ID);
+        exclusivePublication = aeron.addExclusivePublication(exclusiveChannel, EXCLUSIVE_STREAM_ID);
+        BenchmarkTransport.awaitConnected(publication, subscription);
+        BenchmarkTransport.awaitConnected(exclusivePublication, exclusiveSubscription);
+
+        buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(messageLength));
+        final FragmentHandler sink = (buffer, offset, length, header) -> {
+        };
+        drainer = new BenchmarkTransport.BackgroundLoop("drainer", () -> {
+            subscription.poll(sink, 256);
+            exclusiveSubscription.poll(sink, 256);
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        drainer.close();
+        CloseHelper.closeAll(publication, exclusivePublication, subscription, exclusiveSubscription, aeron, driver);
+    }
+
+    @Benchmark
+    public long offer() {
+        buffer.putLong(0, System.nanoTime());
+        return BenchmarkTransport.offer(publication, buffer, messageLength);
+    }
+
+    @Benchmark
+    public long tryClaim() {
+        return claim(publication);
+    }
+
+    @Benchmark
+    public long exclusiveOffer() {
+        buffer.putLong(0, System.nanoTime());
+        return BenchmarkTransport.offer(exclusivePublication, buffer, messageLength);
+    }
+
+    @Benchmark
+    public long exclusiveTryClaim() {
+        return claim(exclusivePublication);
+    }
+
+    private long claim(Publication publication) {
+        long result;
+        while ((result = publication.tryClaim(messageLength, bufferClaim)) < 0) {
+            if (result == Publication.CLOSED || result == Publication.MAX_POSITION_EXCEEDED) {
+                throw new IllegalStateException("tryClaim failed: " + result);
+            }
+            Thread.onSpinWait();
+        }
+
+        bufferClaim.buffer().putLong(bufferClaim.offset(), System.nanoTime());
+        bufferClaim.commit();
+        return result;
+    }
+}
@@ -0,0 +1,77 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.Publication;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.logbuffer.FragmentHandler;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link Subscription#poll} with different fragment limits while a background thread keeps the stream
+ * full. The {@code fragments} counter gives fragments per second next to polls per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkTransport.JVM_ADD_OPENS)
+@State(Scope.Benchmark)
+public class SubscriptionPollBenchmark {
+    private static final int STREAM_ID = 1001;
+    private static final int MESSAGE_LENGTH = 32;
+
+    @Param({BenchmarkTransport.IPC, BenchmarkTransport.UDP})
+    private String transport;
+
+    @Param({"1", "10", "100", "1000"})
+    private int fragmentLimit;
+
+    private MediaDriver driver;
+    private Aeron aeron;
+    private Publication publication;
+    private Subscription subscription;
+    private BenchmarkTransport.BackgroundLoop feeder;
+    private long checksum;
+    private final FragmentHandler handler = (buffer, offset, length, header) -> checksum += buffer.getLong(offset);
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Fragments {
+        public long fragments;
+    }
+
+    @Setup
+    public void setup() {
+        driver = BenchmarkTransport.launchDriver();
+        aeron = BenchmarkTransport.connect(driver);
+
+        final String channel = BenchmarkTransport.channel(transport, 20133);
+        subscription = aeron.addSubscription(channel, STREAM_ID);
+        publication = aeron.addPublication(channel, STREAM_ID);
+        BenchmarkTransport.awaitConnected(publication, subscription);
+
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(MESSAGE_LENGTH));
+        feeder = new BenchmarkTransport.BackgroundLoop("feeder", () -> {
+            buffer.putLong(0, System.nanoTime());
+            publication.offer(buffer, 0, MESSAGE_LENGTH);
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        feeder.close();
+        CloseHelper.closeAll(publication, subscription, aeron, driver);
+    }
+
+    @Benchmark
+    public long poll(Fragments fragments) {
+        fragments.fragments += subscription.poll(handler, fragmentLimit);
+        return checksum;
+    }
+}
@@ -0,0 +1,106 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.Publication;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.FragmentHandler;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip latency distribution of a ping-pong with every thread floating vs pinned by {@link ThreadLayout}: the
+ * driver's conductor, sender and receiver, the benchmark thread sending pings and the thread echoing them. Sample time
+ * mode reports the tail percentiles, where the jitter from busy spinning threads competing for CPUs shows up. The
+ * placement of each thread is printed at the end of the trial.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = BenchmarkTransport.JVM_ADD_OPENS)
+@State(Scope.Benchmark)
+public class ThreadLayoutBenchmark {
+    private static final int PING_STREAM_ID = 1001;
+    private static final int PONG_STREAM_ID = 1002;
+    private static final int MESSAGE_LENGTH = 32;
+    private static final String PING = "ping";
+    private static final String PONG = "pong";
+
+    @Param({BenchmarkTransport.IPC, BenchmarkTransport.UDP})
+    private String transport;
+
+    @Param({"", ThreadLayout.AUTO})
+    private String layout;
+
+    private ThreadLayout threadLayout;
+    private MediaDriver driver;
+    private Aeron aeron;
+    private Publication pingPublication;
+    private Subscription pingSubscription;
+    private Publication pongPublication;
+    private Subscription pongSubscription;
+    private BenchmarkTransport.BackgroundLoop ponger;
+    private UnsafeBuffer buffer;
+    private boolean received;
+    private final FragmentHandler pongHandler = (buffer, offset, length, header) -> received = true;
+
+    @Setup
+    public void setup() {
+        threadLayout = ThreadLayout.parse(layout,
+            ThreadLayout.CONDUCTOR, ThreadLayout.SENDER, ThreadLayout.RECEIVER, PING, PONG);
+        threadLayout.printPlan(System.out);
+        threadLayout.pinCurrentThread(PING);
+
+        driver = MediaDriver.launchEmbedded(threadLayout.apply(new MediaDriver.Context()
+            .threadingMode(ThreadingMode.DEDICATED)
+            .conductorIdleStrategy(new BusySpinIdleStrategy())
+            .senderIdleStrategy(new BusySpinIdleStrategy())
+            .receiverIdleStrategy(new BusySpinIdleStrategy())
+            .termBufferSparseFile(false)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true)));
+        aeron = BenchmarkTransport.connect(driver);
+
+        final String pingChannel = BenchmarkTransport.channel(transport, 20134);
+        final String pongChannel = BenchmarkTransport.channel(transport, 20135);
+        pingSubscription = aeron.addSubscription(pingChannel, PING_STREAM_ID);
+        pongSubscription = aeron.addSubscription(pongChannel, PONG_STREAM_ID);
+        pingPublication = aeron.addPublication(pingChannel, PING_STREAM_ID);
+        pongPublication = aeron.addPublication(pongChannel, PONG_STREAM_ID);
+        BenchmarkTransport.awaitConnected(pingPublication, pingSubscription);
+        BenchmarkTransport.awaitConnected(pongPublication, pongSubscription);
+
+        buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(MESSAGE_LENGTH));
+        final FragmentHandler echo = (buffer, offset, length, header) ->
+            BenchmarkTransport.offer(pongPublication, buffer, offset, length);
+        ponger = new BenchmarkTransport.BackgroundLoop(
+            "ponger", () -> threadLayout.pinCurrentThread(PONG), () -> pingSubscription.poll(echo, 1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        threadLayout.report(System.out);
+        ponger.close();
+        CloseHelper.closeAll(pingPublication, pongPublication, pingSubscription, pongSubscription, aeron, driver);
+    }
+
+    @Benchmark
+    public boolean roundTrip() {
+        received = false;
+        buffer.putLong(0, System.nanoTime());
+        BenchmarkTransport.offer(pingPublication, buffer, MESSAGE_LENGTH);
+        while (!received) {
+            if (pongSubscription.poll(pongHandler, 1) == 0) {
+                Thread.onSpinWait();
+            }
+        }
+        return received;
+    }
+}
@@ -0,0 +1,232 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentInvoker;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.AgentTerminationException;
+import org.agrona.concurrent.CompositeAgent;
+import org.agrona.concurrent.IdleStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+/**
+ * Runs application {@link Agent}s next to an embedded media driver in one of three layouts:
+ * <ul>
+ *     <li>{@code dedicated}: the driver's conductor, sender and receiver each have a thread, the client conductor has
+ *     its own and each application agent runs on its own {@link AgentRunner}.</li>
+ *     <li>{@code shared}: as {@code dedicated} but the driver's agents share one thread.</li>
+ *     <li>{@code invoker}: the driver and the client conductor are driven through their {@link AgentInvoker}s and
+ *     composed with the application agents on a single runner, so everything runs on one thread.</li>
+ * </ul>
+ * Agents stop by throwing {@link AgentTerminationException} from {@link Agent#doWork()}.
+ * <p>
+ * Publications and subscriptions may be added from any thread before {@link #start}; in {@code invoker} mode the
+ * calling thread services the driver while it waits for them, and they must not be added or closed again until the
+ * agents have terminated or the host is {@link #stop() stopped}.
+ */
+public final class AgentHost implements AutoCloseable {
+    public static final String DEDICATED = "dedicated";
+    public static final String SHARED = "shared";
+    public static final String INVOKER = "invoker";
+    public static final String MODES = "dedicated, shared, invoker";
+
+    private final String mode;
+    private final MediaDriver driver;
+    private final Aeron aeron;
+    private final List<AgentRunner> runners = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+
+    private AgentHost(String mode, MediaDriver driver, Aeron aeron) {
+        this.mode = mode;
+        this.driver = driver;
+        this.aeron = aeron;
+    }
+
+    /**
+     * @param mode one of {@link #MODES}.
+     * @return the driver threading mode for the layout.
+     */
+    static ThreadingMode threadingMode(String mode) {
+        switch (mode.toLowerCase()) {
+            case DEDICATED:
+                return ThreadingMode.DEDICATED;
+            case SHARED:
+                return ThreadingMode.SHARED;
+            case INVOKER:
+                return ThreadingMode.INVOKER;
+            default:
+                throw new IllegalArgumentException("Unknown agent mode '" + mode + "', expected one of: " + MODES);
+        }
+    }
+
+    /**
+     * Launch a driver in the context's directory, the default Aeron directory unless set, with the threading mode for
+     * the layout and connect a client to it. Tools such as {@code rtt-stat} find the driver there by default.
+     *
+     * @param mode          one of {@link #MODES}.
+     * @param driverContext for the driver; its threading mode is replaced.
+     * @param aeronContext  for the client; its directory, and in {@code invoker} mode its invokers, are replaced.
+     * @return the host.
+     */
+    public static AgentHost launch(String mode, MediaDriver.Context driverContext, Aeron.Context aeronContext) {
+        return launch(mode, driverContext, aeronContext, false);
+    }
+
+    /**
+     * As {@link #launch(String, MediaDriver.Context, Aeron.Context)} but in a unique directory, so several hosts can
+     * run side by side.
+     */
+    public static AgentHost launchEmbedded(String mode, MediaDriver.Context driverContext, Aeron.Context aeronContext) {
+        return launch(mode, driverContext, aeronContext, true);
+    }
+
+    private static AgentHost launch(
+        String mode, MediaDriver.Context driverContext, Aeron.Context aeronContext, boolean embedded) {
+        final String name = mode.toLowerCase();
+        driverContext.threadingMode(threadingMode(name));
+        final MediaDriver driver = embedded ? MediaDriver.launchEmbedded(driverContext) : MediaDriver.launch(driverContext);
+        aeronContext.aeronDirectoryName(driver.aeronDirectoryName());
+        if (INVOKER.equals(name)) {
+            aeronContext.useConductorAgentInvoker(true).driverAgentInvoker(driver.sharedAgentInvoker());
+        }
+
+        try {
+            return new AgentHost(name, driver, Aeron.connect(aeronContext));
+        } catch (RuntimeException e) {
+            CloseHelper.quietClose(driver);
+            throw e;
+        }
+    }
+
+    public String mode() {
+        return mode;
+    }
+
+    public Aeron aeron() {
+        return aeron;
+    }
+
+    public String aeronDirectoryName() {
+        return driver.aeronDirectoryName();
+    }
+
+    /**
+     * Start agents on plain threads.
+     *
+     * @see #start(Supplier, ThreadFactory, Agent...)
+     */
+    public void start(Supplier<IdleStrategy> idleStrategySupplier, Agent... agents) {
+        start(idleStrategySupplier, Thread::new, agents);
+    }
+
+    /**
+     * Start agents, each on its own runner, or in {@code invoker} mode all on one runner after the driver and client
+     * invokers. With no agents, {@code invoker} mode still starts a runner for the invokers so the calling thread can
+     * drive a publication itself. {@code invoker} mode can only be started once.
+     *
+     * @param idleStrategySupplier new idle strategy for each runner.
+     * @param threadFactory        for the runner threads, which are named after their agent.
+     * @param agents               to run.
+     */
+    public void start(Supplier<IdleStrategy> idleStrategySupplier, ThreadFactory threadFactory, Agent... agents) {
+        if (!INVOKER.equals(mode)) {
+            for (final Agent agent : agents) {
+                startRunner(idleStrategySupplier.get(), threadFactory, agent);
+            }
+            return;
+        }
+
+        if (!runners.isEmpty()) {
+            throw new IllegalStateException("invoker mode runs every agent on one runner, which is already started");
+        }
+        final Agent[] composed = new Agent[agents.length + 2];
+        composed[0] = new InvokerAgent("media-driver", driver.sharedAgentInvoker());
+        composed[1] = new InvokerAgent("aeron-client", aeron.conductorAgentInvoker());
+        System.arraycopy(agents, 0, composed, 2, agents.length);
+        startRunner(idleStrategySupplier.get(), threadFactory, new CompositeAgent(composed));
+    }
+
+    /**
+     * @return threads doing work for this host: driver, client conductor and runners.
+     */
+    public int threadCount() {
+        switch (mode) {
+            case DEDICATED:
+                return 4 + threads.size();
+            case SHARED:
+                return 2 + threads.size();
+            default:
+                return threads.size();
+        }
+    }
+
+    /**
+     * Wait for every started agent to terminate. A runner holding only the {@code invoker} mode invokers never does,
+     * use {@link #stop()} for it.
+     */
+    public void awaitTermination() {
+        try {
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stop the runners and wait for their agents to close. In {@code invoker} mode the driver must not be invoked from
+     * two threads at once, so call this before adding or closing publications or subscriptions again.
+     */
+    public void stop() {
+        CloseHelper.closeAll(runners);
+    }
+
+    private void startRunner(IdleStrategy idleStrategy, ThreadFactory threadFactory, Agent agent) {
+        final AgentRunner runner = new AgentRunner(idleStrategy, AgentHost::onError, null, agent);
+        final Thread thread = threadFactory.newThread(runner);
+        thread.setName(agent.roleName());
+        runners.add(runner);
+        threads.add(thread);
+        thread.start();
+    }
+
+    private static void onError(Throwable error) {
+        if (!(error instanceof AgentTerminationException)) {
+            System.err.printf("[ERROR][AGENT] %s%n", error);
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+        CloseHelper.closeAll(aeron, driver);
+    }
+
+    private static final class InvokerAgent implements Agent {
+        private final String roleName;
+        private final AgentInvoker invoker;
+
+        private InvokerAgent(String roleName, AgentInvoker invoker) {
+            this.roleName = roleName;
+            this.invoker = invoker;
+        }
+
+        @Override
+        public int doWork() {
+            return invoker.invoke();
+        }
+
+        @Override
+        public String roleName() {
+            return roleName;
+        }
+    }
+}
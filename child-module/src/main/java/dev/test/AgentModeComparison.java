@@ -0,0 +1,178 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.ExclusivePublication;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.SigInt;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the same in-process ping-pong, a {@link PingAgent} and an {@link EchoAgent}, under each {@link AgentHost} mode
+ * and prints one table. In {@code dedicated} mode the driver, client conductor and each agent have their own threads;
+ * in {@code invoker} mode the driver, client conductor, pinger and echo all share one thread, which removes every
+ * cross-thread hand-off but makes each duty cycle do all of the work.
+ */
+@Command(name = "agent-compare", mixinStandardHelpOptions = true,
+    description = "Compares ping-pong RTT with the driver and agents on dedicated, shared and invoker threads")
+public class AgentModeComparison implements Runnable {
+    private static final int PING_STREAM_ID = 1025;
+    private static final int PONG_STREAM_ID = 1026;
+
+    @Option(names = {"-m", "--modes"}, split = ",", description = "Agent modes to run: " + AgentHost.MODES,
+        defaultValue = "dedicated,shared,invoker")
+    private List<String> modes;
+
+    @Option(names = {"-t", "--transport"}, description = "ipc or udp", defaultValue = "udp")
+    private String transport;
+
+    @Option(names = {"--host"}, description = "Loopback host for udp", defaultValue = "localhost")
+    private String host;
+
+    @Option(names = {"--ping-port"}, description = "UDP port for pings", defaultValue = "20801")
+    private int pingPort;
+
+    @Option(names = {"--pong-port"}, description = "UDP port for pongs", defaultValue = "20802")
+    private int pongPort;
+
+    @Option(names = {"-l", "--message-length"}, description = "Probe message length in bytes", defaultValue = "32")
+    private int messageLength;
+
+    @Option(names = {"--window"}, description = "Maximum outstanding pings", defaultValue = "1")
+    private int window;
+
+    @Option(names = {"--idle"}, description = "Idle strategy for the agent runners: " + IdleStrategies.NAMES, defaultValue = "busy")
+    private String idleStrategyName;
+
+    @Option(names = {"-w", "--warmup"}, description = "Warmup seconds per mode", defaultValue = "5")
+    private int warmupSeconds;
+
+    @Option(names = {"-d", "--duration"}, description = "Measured seconds per mode", defaultValue = "10")
+    private int durationSeconds;
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new AgentModeComparison()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        SigInt.register(() -> running.set(false));
+        messageLength = ProbeCodec.messageLength(messageLength);
+
+        final List<Result> results = new ArrayList<>();
+        for (final String mode : modes) {
+            if (!running.get()) {
+                break;
+            }
+
+            System.out.printf("[AGENT] Running %s over %s: %ds warmup + %ds measured, idle %s%n",
+                mode, transport, warmupSeconds, durationSeconds, idleStrategyName);
+            try {
+                results.add(pingPong(mode));
+            } catch (IllegalArgumentException e) {
+                System.err.printf("[WARN][AGENT] %s%n", e.getMessage());
+            }
+        }
+
+        printResults(results);
+    }
+
+    private String channel(int port) {
+        return "ipc".equals(transport) ? "aeron:ipc" : "aeron:udp?endpoint=" + host + ":" + port;
+    }
+
+    private Result pingPong(String mode) {
+        final Result result = new Result(mode);
+        final AtomicBoolean agentsRunning = new AtomicBoolean(true);
+        final LatencyRecorder recorder = new LatencyRecorder();
+        final MediaDriver.Context driverContext = new MediaDriver.Context()
+            .conductorIdleStrategy(new BusySpinIdleStrategy())
+            .senderIdleStrategy(new BusySpinIdleStrategy())
+            .receiverIdleStrategy(new BusySpinIdleStrategy())
+            .sharedIdleStrategy(new BusySpinIdleStrategy())
+            .termBufferSparseFile(false)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true);
+
+        try (AgentHost agentHost = AgentHost.launchEmbedded(mode, driverContext,
+                new Aeron.Context().idleStrategy(new BusySpinIdleStrategy()))) {
+            final Aeron aeron = agentHost.aeron();
+            final ExclusivePublication pingPublication = aeron.addExclusivePublication(channel(pingPort), PING_STREAM_ID);
+            final Subscription pingSubscription = aeron.addSubscription(channel(pingPort), PING_STREAM_ID);
+            final ExclusivePublication pongPublication = aeron.addExclusivePublication(channel(pongPort), PONG_STREAM_ID);
+            final Subscription pongSubscription = aeron.addSubscription(channel(pongPort), PONG_STREAM_ID);
+
+            final PingAgent pingAgent = new PingAgent(pingPublication, pongSubscription, messageLength, window,
+                recorder, null, PONG_STREAM_ID, Long.MAX_VALUE, 0, agentsRunning);
+            final EchoAgent echoAgent = new EchoAgent(pingSubscription, pongPublication, Long.MAX_VALUE, 0, agentsRunning);
+            agentHost.start(() -> IdleStrategies.of(idleStrategyName), pingAgent, echoAgent);
+            result.threads = agentHost.threadCount();
+
+            awaitSeconds(warmupSeconds);
+            recorder.intervalHistogram();
+            final long startNs = System.nanoTime();
+            awaitSeconds(durationSeconds);
+            result.rtt.add(recorder.intervalHistogram());
+            result.roundTripsPerSecond = result.rtt.totalCount() * 1e9 / (System.nanoTime() - startNs);
+
+            agentsRunning.set(false);
+            agentHost.awaitTermination();
+        }
+
+        result.rtt.printSummary(System.out, "[AGENT][" + mode + "] rtt");
+        return result;
+    }
+
+    private void awaitSeconds(int seconds) {
+        final long deadlineNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while (running.get() && System.nanoTime() < deadlineNs) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void printResults(List<Result> results) {
+        System.out.printf("%n%-10s %8s %10s %12s %10s %10s %10s %10s %10s%n",
+            "mode", "threads", "samples", "rtt/s", "mean(us)", "p50(us)", "p99(us)", "p99.9(us)", "max(us)");
+        for (final Result result : results) {
+            final LatencyHistogram rtt = result.rtt;
+            if (rtt.totalCount() == 0) {
+                System.out.printf("%-10s %8d %10s%n", result.mode, result.threads, "no data");
+                continue;
+            }
+
+            System.out.printf("%-10s %8d %10d %12.0f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                result.mode, result.threads, rtt.totalCount(), result.roundTripsPerSecond, rtt.mean() / 1000.0,
+                rtt.valueAtPercentile(50.0) / 1000.0,
+                rtt.valueAtPercentile(99.0) / 1000.0,
+                rtt.valueAtPercentile(99.9) / 1000.0,
+                rtt.maxValue() / 1000.0);
+        }
+    }
+
+    private static final class Result {
+        private final String mode;
+        private final LatencyHistogram rtt = new LatencyHistogram();
+        private int threads;
+        private double roundTripsPerSecond;
+
+        private Result(String mode) {
+            this.mode = mode;
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.ExclusivePublication;
+import io.aeron.FragmentAssembler;
+import io.aeron.Subscription;
+import io.aeron.archive.Archive;
+import io.aeron.archive.ArchiveThreadingMode;
+import io.aeron.archive.ArchivingMediaDriver;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.archive.codecs.SourceLocation;
+import io.aeron.archive.status.RecordingPos;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SigInt;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.CountersReader;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs an {@link Archive} alongside an embedded driver and measures what recording costs the live stream, then how
+ * fast recordings replay from disk.
+ * <p>
+ * The live phases publish probes at a fixed rate and then unthrottled, first without and then with the archive
+ * recording the stream through a local spy. The archive's spy position counts towards the publisher's limit, so a
+ * recorder that cannot keep up with the disk shows up as back pressure and lower throughput on the live path.
+ * <p>
+ * The replay phases record a fixed volume over IPC at each message size and then replay it from the start several
+ * times. Replay start latency is the time from asking the archive for a replay to polling its first message; replay
+ * throughput is measured from the first message to the last.
+ */
+@Command(name = "archive-bench", mixinStandardHelpOptions = true,
+    description = "Measures the cost of recording a live stream and the throughput and start latency of replays")
+public class ArchiveBenchmark implements Runnable {
+    private static final int LIVE_STREAM_ID = 1020;
+    private static final int RECORDING_STREAM_ID = 1021;
+    private static final int REPLAY_STREAM_ID = 1022;
+    private static final int CONTROL_STREAM_ID = 1023;
+    private static final String CONTROL_CHANNEL = "aeron:ipc";
+    private static final String REPLICATION_CHANNEL = "aeron:udp?endpoint=localhost:0";
+    private static final int FRAGMENT_LIMIT = 256;
+    private static final long DRAIN_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(5);
+    private static final long RECORDING_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(30);
+
+    @Option(names = {"--archive-dir"}, description = "Archive directory, on the disk to measure; emptied on start")
+    private File archiveDir = new File(System.getProperty("java.io.tmpdir"), "aeron-archive-bench");
+
+    @Option(names = {"-c", "--channel"}, description = "Channel for the live stream", defaultValue = "aeron:udp?endpoint=localhost:20970")
+    private String channel;
+
+    @Option(names = {"-r", "--rate"}, description = "Rate in msg/s for the live latency phase", defaultValue = "10000")
+    private long rate;
+
+    @Option(names = {"-l", "--message-length"}, description = "Live message length in bytes, at least 8", defaultValue = "32")
+    private int messageLength;
+
+    @Option(names = {"-w", "--warmup"}, description = "Warmup seconds before each live phase", defaultValue = "2")
+    private int warmupSeconds;
+
+    @Option(names = {"-d", "--duration"}, description = "Seconds for each of the live latency and throughput phases", defaultValue = "5")
+    private int durationSeconds;
+
+    @Option(names = {"-s", "--sizes"}, split = ",", description = "Message sizes in bytes for the replay phases",
+        defaultValue = "32,256,1024,4096,16384")
+    private int[] sizes;
+
+    @Option(names = {"--recording-mb"}, description = "Megabytes recorded at each replay size", defaultValue = "256")
+    private int recordingMegabytes;
+
+    @Option(names = {"--replays"}, description = "Replays of each recording", defaultValue = "5")
+    private int replays;
+
+    @Option(names = {"--replay-channel"}, description = "Channel replays are sent on", defaultValue = "aeron:ipc")
+    private String replayChannel;
+
+    @Option(names = {"--term-length"}, description = "Term length of the recorded IPC publication", defaultValue = "16m")
+    private String termLength;
+
+    @Option(names = {"--file-sync"}, description = "Archive file sync level: 0 none, 1 data, 2 data and metadata", defaultValue = "0")
+    private int fileSyncLevel;
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new ArchiveBenchmark()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        SigInt.register(() -> running.set(false));
+        messageLength = ProbeCodec.messageLength(messageLength);
+
+        final MediaDriver.Context driverContext = new MediaDriver.Context()
+            .threadingMode(ThreadingMode.DEDICATED)
+            .conductorIdleStrategy(new BusySpinIdleStrategy())
+            .senderIdleStrategy(new BusySpinIdleStrategy())
+            .receiverIdleStrategy(new BusySpinIdleStrategy())
+            .termBufferSparseFile(false)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true);
+        final Archive.Context archiveContext = new Archive.Context()
+            .archiveDir(archiveDir)
+            .deleteArchiveOnStart(true)
+            .threadingMode(ArchiveThreadingMode.DEDICATED)
+            .controlChannelEnabled(false)
+            .localControlChannel(CONTROL_CHANNEL)
+            .localControlStreamId(CONTROL_STREAM_ID)
+            .replicationChannel(REPLICATION_CHANNEL)
+            .recordingEventsEnabled(false)
+            .fileSyncLevel(fileSyncLevel)
+            .catalogFileSyncLevel(fileSyncLevel);
+
+        final List<LiveResult> liveResults = new ArrayList<>();
+        final List<ReplayResult> replayResults = new ArrayList<>();
+        System.out.printf("[ARCHIVE] Recording to %s, file sync level %d%n", archiveDir, fileSyncLevel);
+        try (ArchivingMediaDriver archivingDriver = ArchivingMediaDriver.launch(driverContext, archiveContext);
+             Aeron aeron = Aeron.connect(new Aeron.Context()
+                 .aeronDirectoryName(archivingDriver.mediaDriver().aeronDirectoryName())
+                 .idleStrategy(new BusySpinIdleStrategy()));
+             AeronArchive archive = AeronArchive.connect(new AeronArchive.Context()
+                 .aeron(aeron)
+                 .controlRequestChannel(CONTROL_CHANNEL)
+                 .controlRequestStreamId(CONTROL_STREAM_ID)
+                 .controlResponseChannel(CONTROL_CHANNEL)
+                 .idleStrategy(new BusySpinIdleStrategy()))) {
+            liveResults.add(runLive(aeron, archive, false));
+            if (running.get()) {
+                liveResults.add(runLive(aeron, archive, true));
+            }
+
+            for (final int size : sizes) {
+                if (!running.get()) {
+                    break;
+                }
+                if (size < ProbeCodec.MIN_LENGTH) {
+                    System.out.printf("[WARN][ARCHIVE] Skipping %d bytes, sizes must be at least %d%n",
+                        size, ProbeCodec.MIN_LENGTH);
+                    continue;
+                }
+
+                final ReplayResult result = runReplay(aeron, archive, size);
+                if (result != null) {
+                    replayResults.add(result);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        printLiveResults(liveResults);
+        printReplayResults(replayResults);
+    }
+
+    private LiveResult runLive(Aeron aeron, AeronArchive archive, boolean recording) throws InterruptedException {
+        final LiveResult result = new LiveResult(recording ? "recorded" : "live");
+        final AtomicBoolean subscribing = new AtomicBoolean(true);
+        try (Subscription subscription = aeron.addSubscription(channel, LIVE_STREAM_ID);
+             ExclusivePublication publication = aeron.addExclusivePublication(channel, LIVE_STREAM_ID)) {
+            final LiveSubscriber subscriber = new LiveSubscriber(subscription, subscribing);
+            final Thread subscriberThread = new Thread(subscriber, "archive-bench-sub");
+            subscriberThread.start();
+            while (running.get() && !publication.isConnected()) {
+                Thread.onSpinWait();
+            }
+
+            long subscriptionId = 0;
+            int counterId = CountersReader.NULL_COUNTER_ID;
+            if (recording) {
+                subscriptionId = archive.startRecording(channel, LIVE_STREAM_ID, SourceLocation.LOCAL);
+                counterId = awaitRecordingCounter(aeron.countersReader(), publication.sessionId(), archive.archiveId());
+            }
+
+            try {
+                System.out.printf("%n[ARCHIVE] %s: %ds warmup, %ds at %d msg/s, %ds unthrottled, %d byte messages%n",
+                    result.label, warmupSeconds, durationSeconds, rate, durationSeconds, messageLength);
+                final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(messageLength));
+                new FixedRateLoadGenerator(publication, buffer, messageLength, running, 1, warmupSeconds, Long.MAX_VALUE)
+                    .runFor(rate);
+                subscriber.drain();
+                subscriber.latency.intervalHistogram();
+
+                new FixedRateLoadGenerator(publication, buffer, messageLength, running, 1, durationSeconds, Long.MAX_VALUE)
+                    .runFor(rate);
+                subscriber.drain();
+                result.latency.add(subscriber.latency.intervalHistogram());
+
+                final long receivedBefore = subscriber.received.get();
+                final long startNs = System.nanoTime();
+                result.backPressured = publishFor(publication, buffer, messageLength, durationSeconds);
+                subscriber.drain();
+                result.messagesPerSecond = (subscriber.received.get() - receivedBefore) / ((System.nanoTime() - startNs) / 1e9);
+
+                if (recording && counterId != CountersReader.NULL_COUNTER_ID) {
+                    final long catchUpStartNs = System.nanoTime();
+                    awaitPosition(aeron.countersReader(), counterId, publication.position());
+                    result.catchUpNs = System.nanoTime() - catchUpStartNs;
+                    result.recordedBytes = aeron.countersReader().getCounterValue(counterId);
+                }
+            } finally {
+                if (recording) {
+                    archive.stopRecording(subscriptionId);
+                }
+                subscribing.set(false);
+                subscriberThread.join();
+            }
+        }
+
+        return result;
+    }
+
+    private ReplayResult runReplay(Aeron aeron, AeronArchive archive, int size) {
+        final String recordingChannel = "aeron:ipc?term-length=" + termLength;
+        final long messages = Math.max(1, (long) recordingMegabytes * 1024 * 1024 / size);
+        final ReplayResult result = new ReplayResult(size, messages);
+        final long recordingId;
+        final long recordedPosition;
+
+        try (ExclusivePublication publication = aeron.addExclusivePublication(recordingChannel, RECORDING_STREAM_ID)) {
+            if (size > publication.maxMessageLength()) {
+                System.out.printf("[WARN][ARCHIVE] Skipping %d bytes, larger than the %d byte maximum for %s%n",
+                    size, publication.maxMessageLength(), recordingChannel);
+                return null;
+            }
+
+            final long subscriptionId = archive.startRecording(recordingChannel, RECORDING_STREAM_ID, SourceLocation.LOCAL);
+            try {
+                final CountersReader counters = aeron.countersReader();
+                final int counterId = awaitRecordingCounter(counters, publication.sessionId(), archive.archiveId());
+                if (counterId == CountersReader.NULL_COUNTER_ID) {
+                    return null;
+                }
+                recordingId = RecordingPos.getRecordingId(counters, counterId);
+
+                System.out.printf("%n[ARCHIVE] Recording %d messages of %d bytes%n", messages, size);
+                final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(size));
+                final ProbeCodec.Encoder encoder = new ProbeCodec.Encoder().wrap(buffer, 0, size)
+                    .senderId(publication.sessionId());
+                final long startNs = System.nanoTime();
+                for (long sequence = 0; sequence < messages && running.get(); sequence++) {
+                    encoder.sendTimestampNs(System.nanoTime()).sequence(sequence);
+                    while (publication.offer(buffer, 0, size) < 0) {
+                        if (!running.get()) {
+                            return null;
+                        }
+                        Thread.onSpinWait();
+                    }
+                }
+                recordedPosition = publication.position();
+                awaitPosition(counters, counterId, recordedPosition);
+                result.recordMegabytesPerSecond =
+                    publication.position() / (1024.0 * 1024.0) / ((System.nanoTime() - startNs) / 1e9);
+            } finally {
+                archive.stopRecording(subscriptionId);
+            }
+        }
+
+        awaitStopPosition(archive, recordingId);
+        final long startPosition = archive.getStartPosition(recordingId);
+        final long length = recordedPosition - startPosition;
+        for (int i = 0; i < replays && running.get(); i++) {
+            replay(archive, recordingId, startPosition, length, result);
+        }
+        archive.purgeRecording(recordingId);
+
+        return result;
+    }
+
+    private void replay(AeronArchive archive, long recordingId, long startPosition, long length, ReplayResult result) {
+        final ReplayCounter counter = new ReplayCounter();
+        final FragmentHandler handler = new FragmentAssembler(counter);
+
+        final long requestNs = System.nanoTime();
+        try (Subscription subscription = archive.replay(recordingId, startPosition, length, replayChannel, REPLAY_STREAM_ID)) {
+            final long deadlineNs = requestNs + RECORDING_TIMEOUT_NS;
+            while (running.get() && counter.received < result.messages) {
+                if (subscription.poll(handler, FRAGMENT_LIMIT) == 0) {
+                    if (System.nanoTime() > deadlineNs) {
+                        System.out.printf("[WARN][ARCHIVE] Replay of %d bytes timed out after %d of %d messages%n",
+                            result.size, counter.received, result.messages);
+                        return;
+                    }
+                    Thread.onSpinWait();
+                }
+            }
+        }
+
+        final long endNs = System.nanoTime();
+        if (counter.received == result.messages) {
+            result.startLatency.recordValue(counter.firstNs - requestNs);
+            result.replayedMessages += result.messages;
+            result.replayNs += endNs - counter.firstNs;
+        }
+    }
+
+    private long publishFor(ExclusivePublication publication, UnsafeBuffer buffer, int length, int seconds) {
+        final ProbeCodec.Encoder encoder = new ProbeCodec.Encoder().wrap(buffer, 0, length)
+            .senderId(publication.sessionId());
+        final long endNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long backPressured = 0;
+        long sequence = 0;
+        while (running.get() && System.nanoTime() < endNs) {
+            encoder.sendTimestampNs(System.nanoTime()).sequence(sequence);
+            if (publication.offer(buffer, 0, length) > 0) {
+                sequence++;
+            } else {
+                backPressured++;
+                Thread.onSpinWait();
+            }
+        }
+        return backPressured;
+    }
+
+    private int awaitRecordingCounter(CountersReader counters, int sessionId, long archiveId) {
+        final long deadlineNs = System.nanoTime() + RECORDING_TIMEOUT_NS;
+        int counterId;
+        while ((counterId = RecordingPos.findCounterIdBySession(counters, sessionId, archiveId)) ==
+            CountersReader.NULL_COUNTER_ID) {
+            if (!running.get() || System.nanoTime() > deadlineNs) {
+                System.err.printf("[ERROR][ARCHIVE] No recording started for session %d%n", sessionId);
+                return CountersReader.NULL_COUNTER_ID;
+            }
+            Thread.onSpinWait();
+        }
+        return counterId;
+    }
+
+    private void awaitPosition(CountersReader counters, int counterId, long position) {
+        final long deadlineNs = System.nanoTime() + RECORDING_TIMEOUT_NS;
+        while (running.get() && counters.getCounterValue(counterId) < position) {
+            if (System.nanoTime() > deadlineNs) {
+                System.out.printf("[WARN][ARCHIVE] Recording stalled at %d of %d bytes%n",
+                    counters.getCounterValue(counterId), position);
+                return;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * The archive applies a stop asynchronously; wait for it so the recording can be purged after replay.
+     */
+    private void awaitStopPosition(AeronArchive archive, long recordingId) {
+        final long deadlineNs = System.nanoTime() + RECORDING_TIMEOUT_NS;
+        while (running.get() && archive.getStopPosition(recordingId) == AeronArchive.NULL_POSITION) {
+            if (System.nanoTime() > deadlineNs) {
+                System.out.printf("[WARN][ARCHIVE] Recording %d has not stopped%n", recordingId);
+                return;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void printLiveResults(List<LiveResult> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+
+        System.out.printf("%n%-10s %10s %10s %10s %10s %12s %14s %14s %14s%n",
+            "stream", "p50(us)", "p99(us)", "p99.9(us)", "max(us)", "msgs/s", "back pressure", "catch-up(ms)",
+            "recorded(MB)");
+        final LiveResult baseline = results.get(0);
+        for (final LiveResult result : results) {
+            final LatencyHistogram latency = result.latency;
+            if (latency.totalCount() == 0) {
+                System.out.printf("%-10s %10s%n", result.label, "no data");
+                continue;
+            }
+            System.out.printf("%-10s %10.1f %10.1f %10.1f %10.1f %,12.0f %14d %14s %14s%n",
+                result.label,
+                latency.valueAtPercentile(50.0) / 1000.0,
+                latency.valueAtPercentile(99.0) / 1000.0,
+                latency.valueAtPercentile(99.9) / 1000.0,
+                latency.maxValue() / 1000.0,
+                result.messagesPerSecond,
+                result.backPressured,
+                result.recordedBytes > 0 ? String.format("%.1f", result.catchUpNs / 1e6) : "-",
+                result.recordedBytes > 0 ? String.format("%.1f", result.recordedBytes / (1024.0 * 1024.0)) : "-");
+        }
+
+        if (results.size() > 1 && baseline.latency.totalCount() > 0 && results.get(1).latency.totalCount() > 0) {
+            final LiveResult recorded = results.get(1);
+            System.out.printf("[ARCHIVE] Recording adds %.1f us at p50, %.1f us at p99 and changes throughput by %+.1f%%%n",
+                (recorded.latency.valueAtPercentile(50.0) - baseline.latency.valueAtPercentile(50.0)) / 1000.0,
+                (recorded.latency.valueAtPercentile(99.0) - baseline.latency.valueAtPercentile(99.0)) / 1000.0,
+                100.0 * (recorded.messagesPerSecond - baseline.messagesPerSecond) / baseline.messagesPerSecond);
+        }
+    }
+
+    private static void printReplayResults(List<ReplayResult> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+
+        System.out.printf("%n%8s %10s %12s %8s %14s %14s %12s %12s%n",
+            "bytes", "messages", "record MB/s", "replays", "start p50(us)", "start max(us)", "msgs/s", "MB/s");
+        for (final ReplayResult result : results) {
+            if (result.startLatency.totalCount() == 0) {
+                System.out.printf("%8d %10d %12.1f %8s%n", result.size, result.messages, result.recordMegabytesPerSecond,
+                    "no data");
+                continue;
+            }
+            final double messagesPerSecond = result.replayedMessages / (result.replayNs / 1e9);
+            System.out.printf("%8d %10d %12.1f %8d %14.1f %14.1f %,12.0f %12.1f%n",
+                result.size, result.messages, result.recordMegabytesPerSecond, result.startLatency.totalCount(),
+                result.startLatency.valueAtPercentile(50.0) / 1000.0,
+                result.startLatency.maxValue() / 1000.0,
+                messagesPerSecond,
+                messagesPerSecond * result.size / (1024 * 1024));
+        }
+    }
+
+    private static final class LiveResult {
+        private final String label;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private double messagesPerSecond;
+        private long backPressured;
+        private long catchUpNs;
+        private long recordedBytes;
+
+        private LiveResult(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final class ReplayResult {
+        private final int size;
+        private final long messages;
+        private final LatencyHistogram startLatency = new LatencyHistogram();
+        private double recordMegabytesPerSecond;
+        private long replayedMessages;
+        private long replayNs;
+
+        private ReplayResult(int size, long messages) {
+            this.size = size;
+            this.messages = messages;
+        }
+    }
+
+    /**
+     * Counts the messages of a replay and when the first one arrived.
+     */
+    private static final class ReplayCounter implements FragmentHandler {
+        private long received;
+        private long firstNs;
+
+        @Override
+        public void onFragment(DirectBuffer buffer, int offset, int length, Header header) {
+            if (received++ == 0) {
+                firstNs = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Records one-way latency of the live stream until told to stop.
+     */
+    private final class LiveSubscriber implements Runnable {
+        private final Subscription subscription;
+        private final AtomicBoolean subscribing;
+        private final LatencyRecorder latency = new LatencyRecorder();
+        private final AtomicLong received = new AtomicLong();
+        private final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+        private long receivedCount;
+
+        private LiveSubscriber(Subscription subscription, AtomicBoolean subscribing) {
+            this.subscription = subscription;
+            this.subscribing = subscribing;
+        }
+
+        @Override
+        public void run() {
+            final IdleStrategy idleStrategy = new BusySpinIdleStrategy();
+            final FragmentHandler handler = (buffer, offset, length, header) -> {
+                latency.recordValue(System.nanoTime() - decoder.wrap(buffer, offset, length).sendTimestampNs());
+                received.lazySet(++receivedCount);
+            };
+            while (subscribing.get()) {
+                idleStrategy.idle(subscription.poll(handler, FRAGMENT_LIMIT));
+            }
+        }
+
+        /**
+         * Wait until nothing more has arrived for a short while so one phase does not bleed into the next.
+         */
+        private void drain() {
+            final long deadlineNs = System.nanoTime() + DRAIN_TIMEOUT_NS;
+            long last = -1;
+            long current;
+            while (running.get() && (current = received.get()) != last && System.nanoTime() < deadlineNs) {
+                last = current;
+                try {
+                    TimeUnit.MILLISECONDS.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package dev.test;
+
+import io.aeron.driver.ext.LossGenerator;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.net.InetSocketAddress;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-state Gilbert-Elliott loss for the driver's debug channel endpoints. In the bad state every frame is dropped,
+ * in the good state none are; the transition probabilities are chosen so that the long run loss rate and the mean
+ * length of a burst of consecutive drops match what was asked for. A mean burst length of 1 or less gives independent
+ * random loss instead, each frame dropped with the loss rate regardless of the one before.
+ * <p>
+ * Each instance is called from a single driver thread; the frame and drop counts may be read from any thread.
+ */
+public final class BurstLossGenerator implements LossGenerator {
+    private final double enterBadProbability;
+    private final double leaveBadProbability;
+    private final SplittableRandom random;
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long frameCount;
+    private long droppedCount;
+    private boolean isBad;
+
+    /**
+     * @param lossRate        long run fraction of frames dropped, in [0, 1).
+     * @param meanBurstLength mean number of consecutive frames dropped, or 1 or less for independent loss. A burst
+     *                        must be followed by at least one delivered frame, so above 1 the loss rate can be at
+     *                        most {@code meanBurstLength / (meanBurstLength + 1)}.
+     * @param seed            for repeatable runs.
+     */
+    public BurstLossGenerator(double lossRate, double meanBurstLength, long seed) {
+        if (lossRate < 0 || lossRate >= 1) {
+            throw new IllegalArgumentException("lossRate must be in [0, 1): " + lossRate);
+        }
+
+        if (meanBurstLength <= 1.0) {
+            // both states drop the next frame with the loss rate, so each frame is dropped independently
+            this.enterBadProbability = lossRate;
+            this.leaveBadProbability = 1.0 - lossRate;
+        } else {
+            this.leaveBadProbability = 1.0 / meanBurstLength;
+            this.enterBadProbability = lossRate * leaveBadProbability / (1.0 - lossRate);
+            if (enterBadProbability > 1.0) {
+                throw new IllegalArgumentException("lossRate " + lossRate + " is not reachable with mean burst length " +
+                    meanBurstLength + ", at most " + meanBurstLength / (meanBurstLength + 1.0));
+            }
+        }
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public boolean shouldDropFrame(InetSocketAddress address, UnsafeBuffer buffer, int length) {
+        if (enterBadProbability == 0) {
+            frames.lazySet(++frameCount);
+            return false;
+        }
+
+        isBad = random.nextDouble() < (isBad ? 1.0 - leaveBadProbability : enterBadProbability);
+        frames.lazySet(++frameCount);
+        if (isBad) {
+            dropped.lazySet(++droppedCount);
+        }
+
+        return isBad;
+    }
+
+    @Override
+    public boolean shouldDropFrame(
+        InetSocketAddress address,
+        UnsafeBuffer buffer,
+        int streamId,
+        int sessionId,
+        int termId,
+        int termOffset,
+        int length) {
+        return shouldDropFrame(address, buffer, length);
+    }
+
+    public long frames() {
+        return frames.get();
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+}
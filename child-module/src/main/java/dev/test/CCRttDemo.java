@@ -3,12 +3,11 @@ package dev.test;
 import io.aeron.*;
 import io.aeron.driver.*;
 import org.agrona.concurrent.SigInt;
-import org.agrona.concurrent.UnsafeBuffer;
-import org.agrona.concurrent.status.CountersReader;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @Command(name = "ccrtt", mixinStandardHelpOptions = true,
@@ -28,6 +27,23 @@ public class CCRttDemo implements Runnable {
     private static final String CHANNEL_PREFIX = "aeron:udp?endpoint=";
     private static final int FRAGMENT_LIMIT = 10;
 
+    @Option(names = {"-l", "--message-length"}, description = "Probe message length in bytes", defaultValue = "32")
+    private int messageLength;
+
+    @Option(names = {"--agent-mode"}, description = "Threads for the driver and the pub or sub agent: " + AgentHost.MODES, defaultValue = AgentHost.DEDICATED)
+    private String agentMode;
+
+    @Option(names = {"--idle"}, description = "Idle strategy for the pub or sub agent: " + IdleStrategies.NAMES, defaultValue = "backoff")
+    private String idleStrategyName;
+
+    private static final long PUBLISH_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+    private long lastSequence = ProbeCodec.SEQUENCE_NULL;
+    private long lastLatencyNs;
+    private int lastLength;
+    private int lastSessionId;
+
     public static void main(String[] args) {
         int exitCode = new CommandLine(new CCRttDemo()).execute(args);
         System.exit(exitCode);
@@ -58,9 +74,11 @@ public class CCRttDemo implements Runnable {
             System.out.println("New image available: " + image.sourceIdentity());
         });
 
-        try (MediaDriver driver = MediaDriver.launch(ctx);
-             Aeron aeron = Aeron.connect(aeronCtx)) {
-            System.out.println("MediaDriver and Aeron initialized");
+        try (AgentHost agentHost = AgentHost.launch(agentMode, ctx, aeronCtx);
+             RttSampleConsumer rttSampleConsumer = new RttSampleConsumer(MyCC.JOURNAL, 1)) {
+            System.out.println("MediaDriver and Aeron initialized in " + agentHost.aeronDirectoryName() +
+                ", agent mode " + agentHost.mode());
+            final Aeron aeron = agentHost.aeron();
             
             Publication publication = null;
             Subscription subscription = null;
@@ -81,42 +99,25 @@ public class CCRttDemo implements Runnable {
             SigInt.register(() -> running.set(false));
 
             if ("pub".equals(mode)) {
-                runPublisher(publication, running, aeron);
+                runPublisher(agentHost, publication, running);
             } else if ("sub".equals(mode)) {
-                runSubscriber(subscription, running);
+                runSubscriber(agentHost, subscription, running);
             }
         }
     }
 
-    private void runPublisher(Publication publication, AtomicBoolean running, Aeron aeron) {
+    private void runPublisher(AgentHost agentHost, Publication publication, AtomicBoolean running) {
         System.out.println("Starting publisher");
         System.out.println("Publication - Session ID: " + publication.sessionId());
 
-        final CountersReader countersReader = aeron.countersReader();
-        byte[] message = "RTT Test Message".getBytes();
-        UnsafeBuffer unsafeBuffer = new UnsafeBuffer(message);
-        long messageCount = 0;
-
-        while (running.get()) {
-            System.out.println("\nAttempting to publish message #" + (messageCount + 1));
-            MyCC.printAllRttMeasurements();
-            
-            long result = publication.offer(unsafeBuffer);
-            logPublicationResult("", result, messageCount);
-            
-            messageCount++;
-
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                System.out.println("Publisher interrupted");
-                Thread.currentThread().interrupt();
-                break;
-            }
-        }
+        final PublisherAgent publisher = new PublisherAgent("ccrtt-publisher", publication,
+            ProbeCodec.messageLength(messageLength), PUBLISH_INTERVAL_NS, running,
+            (result, messagesSent) -> logPublicationResult("", result, messagesSent));
+        agentHost.start(() -> IdleStrategies.of(idleStrategyName), publisher);
+        agentHost.awaitTermination();
     }
 
-    private void logPublicationResult(String channelType, long result, long messageCount) {
+    private void logPublicationResult(String channelType, long result, long messagesSent) {
         String resultMessage;
         if (result == Publication.BACK_PRESSURED) resultMessage = "BACK_PRESSURED";
         else if (result == Publication.NOT_CONNECTED) resultMessage = "NOT_CONNECTED";
@@ -125,40 +126,36 @@ public class CCRttDemo implements Runnable {
         else if (result == Publication.MAX_POSITION_EXCEEDED) resultMessage = "MAX_POSITION_EXCEEDED";
         else resultMessage = result > 0 ? "SUCCESS (bytes written: " + result + ")" : "UNKNOWN ERROR";
         
-        System.out.printf("%s publication attempt %d - Result: %s%n", channelType, messageCount + 1, resultMessage);
+        System.out.printf("%s publication result: %s, messages sent: %d%n", channelType, resultMessage, messagesSent);
     }
 
-    private void runSubscriber(Subscription subscription, AtomicBoolean running) {
+    private void runSubscriber(AgentHost agentHost, Subscription subscription, AtomicBoolean running) {
         System.out.println("Starting subscriber...");
         
         final FragmentAssembler assembler = createFragmentAssembler("");
-
-        while (running.get()) {
-            int fragmentsRead = subscription.poll(assembler, FRAGMENT_LIMIT);
-            
-            if (fragmentsRead > 0) {
-                System.out.printf("Poll returned: %d fragments%n", fragmentsRead);
-            }
-            
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
-        }
+        final SubscriberAgent subscriber = new SubscriberAgent("ccrtt-subscriber", subscription, assembler,
+            FRAGMENT_LIMIT, running, fragmentsRead -> {
+                if (fragmentsRead > 0) {
+                    System.out.printf("Poll returned: %d fragments%n", fragmentsRead);
+                    System.out.println("\n=== Message Received ===");
+                    System.out.println("Sequence: " + lastSequence);
+                    System.out.printf("Latency: %.1f us%n", lastLatencyNs / 1000.0);
+                    System.out.println("Length: " + lastLength);
+                    System.out.println("Session ID: " + lastSessionId);
+                    System.out.println("=====================\n");
+                }
+            });
+        agentHost.start(() -> IdleStrategies.of(idleStrategyName), subscriber);
+        agentHost.awaitTermination();
     }
 
     private FragmentAssembler createFragmentAssembler(String channelType) {
         return new FragmentAssembler((buffer, offset, length, header) -> {
-            byte[] received = new byte[length];
-            buffer.getBytes(offset, received);
-            System.out.println("\n=== Message Received ===");
-            System.out.println("Content: " + new String(received));
-            System.out.println("Length: " + length);
-            System.out.println("Session ID: " + header.sessionId());
-            System.out.println("Term ID: " + header.termId());
-            System.out.println("=====================\n");
+            decoder.wrap(buffer, offset, length);
+            lastLatencyNs = System.nanoTime() - decoder.sendTimestampNs();
+            lastSequence = decoder.sequence();
+            lastLength = length;
+            lastSessionId = header.sessionId();
         });
     }
 }
\ No newline at end of file
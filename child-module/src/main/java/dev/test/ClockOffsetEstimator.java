@@ -0,0 +1,179 @@
+package dev.test;
+
+/**
+ * NTP-style estimate of the offset and drift of a remote clock from four-timestamp probe exchanges.
+ * <p>
+ * For a probe sent at local {@code t1}, received remotely at {@code t2}, answered remotely at {@code t3} and received
+ * back locally at {@code t4}, the offset of the remote clock is {@code ((t2 - t1) + (t3 - t4)) / 2} and the round trip
+ * spent on the network is {@code (t4 - t1) - (t3 - t2)}. Any asymmetry between the two paths is an error of at most
+ * half that round trip, so only the sample with the smallest round trip in each filter window is kept. A least squares
+ * line through the kept samples of the last {@code windows} windows gives the drift, and the offset at any local time.
+ * <p>
+ * The uncertainty reported is half the smallest kept round trip, the bound on the asymmetry error, plus the RMS
+ * residual of the line. Not thread safe; all calls must come from one thread.
+ */
+public final class ClockOffsetEstimator {
+    private final long windowNs;
+    private final long[] windowTimeNs;
+    private final long[] windowOffsetNs;
+    private final long[] windowDelayNs;
+
+    private int windowCount;
+    private int windowIndex;
+    private long currentWindowStartNs;
+    private long currentTimeNs;
+    private long currentOffsetNs;
+    private long currentDelayNs = Long.MAX_VALUE;
+    private long sampleCount;
+    private long lastOffsetNs;
+    private long lastDelayNs;
+
+    private boolean hasEstimate;
+    private long referenceNs;
+    private double interceptNs;
+    private double slope;
+    private double residualNs;
+    private long minDelayNs;
+
+    /**
+     * @param windowNs length of each filter window, the minimum round trip sample of which is kept.
+     * @param windows  number of kept samples the drift and offset are fitted to, at least 1.
+     */
+    public ClockOffsetEstimator(long windowNs, int windows) {
+        if (windowNs <= 0 || windows < 1) {
+            throw new IllegalArgumentException("windowNs and windows must be positive: " + windowNs + ", " + windows);
+        }
+
+        this.windowNs = windowNs;
+        this.windowTimeNs = new long[windows];
+        this.windowOffsetNs = new long[windows];
+        this.windowDelayNs = new long[windows];
+    }
+
+    /**
+     * Add the timestamps of one completed probe exchange.
+     *
+     * @param t1 local time the probe was sent.
+     * @param t2 remote time the probe was received.
+     * @param t3 remote time the reply was sent.
+     * @param t4 local time the reply was received.
+     */
+    public void onSample(long t1, long t2, long t3, long t4) {
+        final long delayNs = Math.max(0, (t4 - t1) - (t3 - t2));
+        final long offsetNs = ((t2 - t1) + (t3 - t4)) / 2;
+        final long midpointNs = t1 + (t4 - t1) / 2;
+        sampleCount++;
+        lastOffsetNs = offsetNs;
+        lastDelayNs = delayNs;
+
+        if (currentDelayNs == Long.MAX_VALUE) {
+            currentWindowStartNs = midpointNs;
+        } else if (midpointNs - currentWindowStartNs >= windowNs) {
+            closeWindow();
+            currentWindowStartNs = midpointNs;
+        }
+
+        if (delayNs < currentDelayNs) {
+            currentTimeNs = midpointNs;
+            currentOffsetNs = offsetNs;
+            currentDelayNs = delayNs;
+            if (windowCount == 0) {
+                // nothing kept yet, so use the best sample of the first window until it closes
+                hasEstimate = true;
+                referenceNs = midpointNs;
+                interceptNs = offsetNs;
+                slope = 0;
+                residualNs = 0;
+                minDelayNs = delayNs;
+            }
+        }
+    }
+
+    private void closeWindow() {
+        windowTimeNs[windowIndex] = currentTimeNs;
+        windowOffsetNs[windowIndex] = currentOffsetNs;
+        windowDelayNs[windowIndex] = currentDelayNs;
+        windowIndex = (windowIndex + 1) % windowTimeNs.length;
+        windowCount = Math.min(windowCount + 1, windowTimeNs.length);
+        currentDelayNs = Long.MAX_VALUE;
+        fit();
+    }
+
+    private void fit() {
+        referenceNs = windowTimeNs[(windowIndex + windowTimeNs.length - 1) % windowTimeNs.length];
+        long minDelay = Long.MAX_VALUE;
+        double sumX = 0;
+        double sumY = 0;
+        for (int i = 0; i < windowCount; i++) {
+            sumX += windowTimeNs[i] - referenceNs;
+            sumY += windowOffsetNs[i];
+            minDelay = Math.min(minDelay, windowDelayNs[i]);
+        }
+
+        final double meanX = sumX / windowCount;
+        final double meanY = sumY / windowCount;
+        double sxx = 0;
+        double sxy = 0;
+        for (int i = 0; i < windowCount; i++) {
+            final double dx = windowTimeNs[i] - referenceNs - meanX;
+            sxx += dx * dx;
+            sxy += dx * (windowOffsetNs[i] - meanY);
+        }
+
+        slope = sxx > 0 ? sxy / sxx : 0;
+        interceptNs = meanY - slope * meanX;
+
+        double sumSquares = 0;
+        for (int i = 0; i < windowCount; i++) {
+            final double residual = windowOffsetNs[i] - (interceptNs + slope * (windowTimeNs[i] - referenceNs));
+            sumSquares += residual * residual;
+        }
+        residualNs = Math.sqrt(sumSquares / windowCount);
+        minDelayNs = minDelay;
+        hasEstimate = true;
+    }
+
+    public boolean hasEstimate() {
+        return hasEstimate;
+    }
+
+    /**
+     * Offset of the remote clock at a local time, so that {@code remoteNs - offsetNs(localNs)} is the local time.
+     *
+     * @param localNs local time to estimate the offset at.
+     * @return remote minus local clock in nanoseconds, or 0 before the first sample.
+     */
+    public long offsetNs(long localNs) {
+        return (long) (interceptNs + slope * (localNs - referenceNs));
+    }
+
+    /**
+     * @return drift of the remote clock relative to the local one in parts per million.
+     */
+    public double driftPpm() {
+        return slope * 1e6;
+    }
+
+    /**
+     * @return bound on the error of {@link #offsetNs(long)} in nanoseconds.
+     */
+    public long uncertaintyNs() {
+        return hasEstimate ? minDelayNs / 2 + (long) residualNs : Long.MAX_VALUE;
+    }
+
+    public long minDelayNs() {
+        return minDelayNs;
+    }
+
+    public long sampleCount() {
+        return sampleCount;
+    }
+
+    public long lastOffsetNs() {
+        return lastOffsetNs;
+    }
+
+    public long lastDelayNs() {
+        return lastDelayNs;
+    }
+}
@@ -0,0 +1,346 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.ExclusivePublication;
+import io.aeron.Subscription;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.BitUtil;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probe exchange over a dedicated pair of Aeron streams that feeds a {@link ClockOffsetEstimator}, so a process can
+ * turn timestamps taken by another process's {@link System#nanoTime()} into its own time base.
+ * <p>
+ * The {@link Client} sends a probe carrying a sequence number and its send time every {@link #PROBE_INTERVAL_NS},
+ * with one probe outstanding at a time. The {@link Responder} adds its receive and reply times and echoes it back.
+ * Both run on their own busy spinning thread so probe timestamps are not delayed by the work they measure.
+ */
+public final class ClockSync {
+    public static final long PROBE_INTERVAL_NS = TimeUnit.MILLISECONDS.toNanos(10);
+    public static final long PROBE_TIMEOUT_NS = TimeUnit.MILLISECONDS.toNanos(100);
+    public static final long FILTER_WINDOW_NS = TimeUnit.SECONDS.toNanos(1);
+    public static final int FILTER_WINDOWS = 30;
+
+    private static final int SEQUENCE_OFFSET = 0;
+    private static final int T1_OFFSET = SEQUENCE_OFFSET + BitUtil.SIZE_OF_LONG;
+    private static final int T2_OFFSET = T1_OFFSET + BitUtil.SIZE_OF_LONG;
+    private static final int T3_OFFSET = T2_OFFSET + BitUtil.SIZE_OF_LONG;
+    private static final int MESSAGE_LENGTH = T3_OFFSET + BitUtil.SIZE_OF_LONG;
+    private static final int FRAGMENT_LIMIT = 10;
+
+    private ClockSync() {
+    }
+
+    /**
+     * Latest estimate, updated in place by the client thread whenever the filtered estimate changes so the reply path
+     * does not allocate. Readers on other threads retry while an update is in progress, as with a sequence lock.
+     */
+    public static final class Estimate {
+        private volatile long version;
+        private long referenceNs;
+        private long offsetNs;
+        private double driftPpm;
+        private long uncertaintyNs;
+
+        private Estimate() {
+        }
+
+        private void update(long referenceNs, long offsetNs, double driftPpm, long uncertaintyNs) {
+            final long version = this.version;
+            this.version = version + 1;
+            VarHandle.storeStoreFence();
+            this.referenceNs = referenceNs;
+            this.offsetNs = offsetNs;
+            this.driftPpm = driftPpm;
+            this.uncertaintyNs = uncertaintyNs;
+            this.version = version + 2;
+        }
+
+        /**
+         * @return true once the first probe has been answered.
+         */
+        public boolean isValid() {
+            return version > 0;
+        }
+
+        /**
+         * Convert a remote timestamp to local time.
+         *
+         * @param remoteNs timestamp taken with the remote process's clock.
+         * @return the same instant on the local clock.
+         */
+        public long toLocalNs(long remoteNs) {
+            long version;
+            long result;
+            do {
+                version = awaitStableVersion();
+                final long localNs = remoteNs - offsetNs;
+                result = remoteNs - offsetNs - (long) ((localNs - referenceNs) * driftPpm / 1e6);
+                VarHandle.loadLoadFence();
+            } while (version != this.version);
+
+            return result;
+        }
+
+        /**
+         * @param localNs local time to estimate the offset at.
+         * @return remote minus local clock in nanoseconds.
+         */
+        public long offsetNs(long localNs) {
+            long version;
+            long result;
+            do {
+                version = awaitStableVersion();
+                result = offsetNs + (long) ((localNs - referenceNs) * driftPpm / 1e6);
+                VarHandle.loadLoadFence();
+            } while (version != this.version);
+
+            return result;
+        }
+
+        public double driftPpm() {
+            long version;
+            double result;
+            do {
+                version = awaitStableVersion();
+                result = driftPpm;
+                VarHandle.loadLoadFence();
+            } while (version != this.version);
+
+            return result;
+        }
+
+        public long uncertaintyNs() {
+            long version;
+            long result;
+            do {
+                version = awaitStableVersion();
+                result = uncertaintyNs;
+                VarHandle.loadLoadFence();
+            } while (version != this.version);
+
+            return result;
+        }
+
+        private long awaitStableVersion() {
+            long version;
+            while (((version = this.version) & 1) != 0) {
+                Thread.onSpinWait();
+            }
+
+            return version;
+        }
+    }
+
+    /**
+     * Answers probes from a {@link Client}, stamping the receive and reply times with the local clock.
+     */
+    public static final class Responder implements AutoCloseable {
+        private final Subscription subscription;
+        private final ExclusivePublication publication;
+        private final BufferClaim bufferClaim = new BufferClaim();
+        private final Thread thread;
+        private volatile boolean isRunning = true;
+        private long probesAnswered;
+
+        /**
+         * @param aeron          to add the streams to.
+         * @param requestChannel probes are received on.
+         * @param replyChannel   replies are sent on.
+         * @param streamId       of both streams.
+         */
+        public Responder(Aeron aeron, String requestChannel, String replyChannel, int streamId) {
+            this.subscription = aeron.addSubscription(requestChannel, streamId);
+            this.publication = aeron.addExclusivePublication(replyChannel, streamId);
+            this.thread = new Thread(this::run, "clock-sync-responder");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        private void run() {
+            final IdleStrategy idleStrategy = new BusySpinIdleStrategy();
+            final FragmentHandler handler = this::onProbe;
+            while (isRunning) {
+                idleStrategy.idle(subscription.poll(handler, FRAGMENT_LIMIT));
+            }
+        }
+
+        private void onProbe(DirectBuffer buffer, int offset, int length, Header header) {
+            final long receivedNs = System.nanoTime();
+            if (length < MESSAGE_LENGTH) {
+                return;
+            }
+
+            // a probe that cannot be answered straight away is dropped; the client times it out
+            if (publication.tryClaim(MESSAGE_LENGTH, bufferClaim) > 0) {
+                final MutableDirectBuffer reply = bufferClaim.buffer();
+                final int replyOffset = bufferClaim.offset();
+                reply.putLong(replyOffset + SEQUENCE_OFFSET, buffer.getLong(offset + SEQUENCE_OFFSET));
+                reply.putLong(replyOffset + T1_OFFSET, buffer.getLong(offset + T1_OFFSET));
+                reply.putLong(replyOffset + T2_OFFSET, receivedNs);
+                reply.putLong(replyOffset + T3_OFFSET, System.nanoTime());
+                bufferClaim.commit();
+                probesAnswered++;
+            }
+        }
+
+        @Override
+        public void close() {
+            isRunning = false;
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            System.out.printf("[CLOCK] Answered %d probes%n", probesAnswered);
+            CloseHelper.closeAll(publication, subscription);
+        }
+    }
+
+    /**
+     * Sends probes to a {@link Responder}, filters the replies with a {@link ClockOffsetEstimator} and publishes the
+     * estimate for other threads. The one-way delay of each probe in both directions, corrected with the estimate at
+     * the time, is printed with the estimate every report interval.
+     */
+    public static final class Client implements AutoCloseable {
+        private final ExclusivePublication publication;
+        private final Subscription subscription;
+        private final long reportIntervalNs;
+        private final ClockOffsetEstimator estimator = new ClockOffsetEstimator(FILTER_WINDOW_NS, FILTER_WINDOWS);
+        private final LatencyHistogram outbound = new LatencyHistogram();
+        private final LatencyHistogram inbound = new LatencyHistogram();
+        private final UnsafeBuffer probeBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(MESSAGE_LENGTH));
+        private final Thread thread;
+        private volatile boolean isRunning = true;
+        private final Estimate estimate = new Estimate();
+        private long sequence;
+        private boolean probeOutstanding;
+        private long probeSentNs;
+        private long timeouts;
+
+        /**
+         * @param aeron           to add the streams to.
+         * @param requestChannel  probes are sent on.
+         * @param replyChannel    replies are received on.
+         * @param streamId        of both streams.
+         * @param intervalSeconds between printed reports.
+         */
+        public Client(Aeron aeron, String requestChannel, String replyChannel, int streamId, int intervalSeconds) {
+            this.publication = aeron.addExclusivePublication(requestChannel, streamId);
+            try {
+                this.subscription = aeron.addSubscription(replyChannel, streamId);
+            } catch (RuntimeException e) {
+                CloseHelper.quietClose(publication);
+                throw e;
+            }
+            this.reportIntervalNs = TimeUnit.SECONDS.toNanos(Math.max(intervalSeconds, 1));
+            this.thread = new Thread(this::run, "clock-sync-client");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        /**
+         * @return the latest estimate, valid once the first probe has been answered.
+         */
+        public Estimate estimate() {
+            return estimate;
+        }
+
+        private void run() {
+            final IdleStrategy idleStrategy = new BusySpinIdleStrategy();
+            final FragmentHandler handler = this::onReply;
+            long nextProbeNs = System.nanoTime();
+            long nextReportNs = nextProbeNs + reportIntervalNs;
+            while (isRunning) {
+                final long nowNs = System.nanoTime();
+                if (probeOutstanding && nowNs - probeSentNs > PROBE_TIMEOUT_NS) {
+                    probeOutstanding = false;
+                    timeouts++;
+                }
+                if (!probeOutstanding && nowNs >= nextProbeNs && sendProbe()) {
+                    nextProbeNs = nowNs + PROBE_INTERVAL_NS;
+                }
+                if (nowNs >= nextReportNs) {
+                    nextReportNs += reportIntervalNs;
+                    report();
+                }
+
+                idleStrategy.idle(subscription.poll(handler, FRAGMENT_LIMIT));
+            }
+        }
+
+        private boolean sendProbe() {
+            final long sentNs = System.nanoTime();
+            probeBuffer.putLong(SEQUENCE_OFFSET, sequence + 1);
+            probeBuffer.putLong(T1_OFFSET, sentNs);
+            if (publication.offer(probeBuffer, 0, MESSAGE_LENGTH) > 0) {
+                sequence++;
+                probeSentNs = sentNs;
+                probeOutstanding = true;
+                return true;
+            }
+
+            return false;
+        }
+
+        private void onReply(DirectBuffer buffer, int offset, int length, Header header) {
+            final long t4 = System.nanoTime();
+            if (length < MESSAGE_LENGTH || buffer.getLong(offset + SEQUENCE_OFFSET) != sequence) {
+                return;
+            }
+
+            probeOutstanding = false;
+            final long t1 = buffer.getLong(offset + T1_OFFSET);
+            final long t2 = buffer.getLong(offset + T2_OFFSET);
+            final long t3 = buffer.getLong(offset + T3_OFFSET);
+            final long previousUncertaintyNs = estimator.uncertaintyNs();
+            final long previousOffsetNs = estimator.offsetNs(t4);
+            estimator.onSample(t1, t2, t3, t4);
+
+            final long offsetNs = estimator.offsetNs(t4);
+            if (!estimate.isValid() || offsetNs != previousOffsetNs || estimator.uncertaintyNs() != previousUncertaintyNs) {
+                estimate.update(t4, offsetNs, estimator.driftPpm(), estimator.uncertaintyNs());
+            }
+            outbound.recordValue(t2 - t1 - offsetNs);
+            inbound.recordValue(t4 - t3 + offsetNs);
+        }
+
+        private void report() {
+            if (outbound.totalCount() == 0) {
+                System.out.printf("[CLOCK] No replies in the last interval, %d probes timed out%n", timeouts);
+                return;
+            }
+
+            System.out.printf("[CLOCK] offset %.1fus +/- %.1fus drift %.3fppm min rtt %.1fus samples %d timeouts %d; " +
+                "one-way out min/p50 %.1f/%.1fus back min/p50 %.1f/%.1fus%n",
+                estimator.offsetNs(System.nanoTime()) / 1000.0, estimator.uncertaintyNs() / 1000.0,
+                estimator.driftPpm(), estimator.minDelayNs() / 1000.0, estimator.sampleCount(), timeouts,
+                outbound.minValue() / 1000.0, outbound.valueAtPercentile(50.0) / 1000.0,
+                inbound.minValue() / 1000.0, inbound.valueAtPercentile(50.0) / 1000.0);
+            outbound.reset();
+            inbound.reset();
+        }
+
+        @Override
+        public void close() {
+            isRunning = false;
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            CloseHelper.closeAll(subscription, publication);
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package dev.test;
+
+import io.aeron.ExclusivePublication;
+import io.aeron.Image;
+import io.aeron.archive.Archive;
+import io.aeron.archive.ArchiveThreadingMode;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.cluster.ClusteredMediaDriver;
+import io.aeron.cluster.ConsensusModule;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.client.EgressListener;
+import io.aeron.cluster.codecs.CloseReason;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.cluster.service.ClusteredService;
+import io.aeron.cluster.service.ClusteredServiceContainer;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.SigInt;
+import org.agrona.concurrent.UnsafeBuffer;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Starts a cluster of nodes on loopback in this process, each with its own driver, archive, consensus module and
+ * an echo {@link ClusteredService}, and measures the round trip of probes sent through {@link AeronCluster} ingress
+ * and returned on egress. Every probe is sequenced into the replicated log and committed by a majority before the
+ * leader's service echoes it, so the round trip includes consensus.
+ * <p>
+ * Probes are sent at a fixed rate against an intended-start-time schedule, as in {@link FixedRateLoadGenerator}, so
+ * a leader election stalls the schedule and shows up in the latency rather than as a pause in sending. With
+ * {@code --kill-after} the leader is closed mid-run without telling its peers. Latency and throughput are then
+ * reported separately for probes sent before the kill, during the failover and after it. The failover lasts until
+ * the first probe sent after the kill is echoed.
+ */
+@Command(name = "cluster-echo", mixinStandardHelpOptions = true,
+    description = "Measures ingress to egress round trip through a local cluster, across a leader failover")
+public class ClusterEchoDemo implements Runnable {
+    private static final String LOG_CHANNEL = "aeron:udp?term-length=4m";
+    private static final String REPLICATION_CHANNEL = "aeron:udp?endpoint=localhost:0";
+    private static final String EGRESS_CHANNEL = "aeron:udp?endpoint=localhost:0";
+    private static final long DRAIN_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(2);
+
+    @Option(names = {"-n", "--nodes"}, description = "Cluster members, an odd number", defaultValue = "3")
+    private int nodeCount;
+
+    @Option(names = {"--base-port"}, description = "First port; member i uses ten ports from base + 10 * i", defaultValue = "20200")
+    private int basePort;
+
+    @Option(names = {"--cluster-dir"}, description = "Directory for the members' drivers, archives and cluster state; emptied on start")
+    private File clusterDir = new File(System.getProperty("java.io.tmpdir"), "aeron-cluster-echo");
+
+    @Option(names = {"-r", "--rate"}, description = "Probe rate in msg/s", defaultValue = "10000")
+    private long rate;
+
+    @Option(names = {"-l", "--message-length"}, description = "Probe length in bytes, at least 8", defaultValue = "32")
+    private int messageLength;
+
+    @Option(names = {"-w", "--warmup"}, description = "Warmup seconds", defaultValue = "5")
+    private int warmupSeconds;
+
+    @Option(names = {"-d", "--duration"}, description = "Measured seconds", defaultValue = "30")
+    private int durationSeconds;
+
+    @Option(names = {"--kill-after"}, description = "Seconds into the measured run to kill the leader, 0 to never", defaultValue = "10")
+    private int killAfterSeconds;
+
+    @Option(names = {"--heartbeat-timeout-ms"}, description = "Leader heartbeat timeout, which bounds how fast a dead leader is detected", defaultValue = "1000")
+    private long heartbeatTimeoutMs;
+
+    @Option(names = {"-i", "--interval"}, description = "Seconds between progress lines", defaultValue = "1")
+    private int intervalSeconds;
+
+    @Option(names = {"--idle"}, description = "Idle strategy for the members' threads: " + IdleStrategies.NAMES, defaultValue = "backoff")
+    private String idleStrategyName;
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new ClusterEchoDemo()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        SigInt.register(() -> running.set(false));
+        messageLength = ProbeCodec.messageLength(messageLength);
+
+        final ClusterNode[] nodes = new ClusterNode[nodeCount];
+        MediaDriver clientDriver = null;
+        AeronCluster cluster = null;
+        try {
+            final String members = clusterMembers();
+            for (int i = 0; i < nodeCount; i++) {
+                nodes[i] = launchNode(i, members);
+            }
+
+            clientDriver = MediaDriver.launchEmbedded(new MediaDriver.Context()
+                .threadingMode(ThreadingMode.DEDICATED)
+                .conductorIdleStrategy(new BusySpinIdleStrategy())
+                .senderIdleStrategy(new BusySpinIdleStrategy())
+                .receiverIdleStrategy(new BusySpinIdleStrategy())
+                .termBufferSparseFile(false)
+                .dirDeleteOnStart(true)
+                .dirDeleteOnShutdown(true));
+
+            final EchoClient client = new EchoClient(nodes);
+            System.out.printf("[CLUSTER] %d members on %s, connecting%n", nodeCount, ingressEndpoints());
+            cluster = AeronCluster.connect(new AeronCluster.Context()
+                .aeronDirectoryName(clientDriver.aeronDirectoryName())
+                .egressListener(client)
+                .egressChannel(EGRESS_CHANNEL)
+                .ingressChannel("aeron:udp")
+                .ingressEndpoints(ingressEndpoints())
+                .messageTimeoutNs(TimeUnit.SECONDS.toNanos(10)));
+            System.out.printf("[CLUSTER] Connected to leader %d%n", cluster.leaderMemberId());
+
+            client.run(cluster);
+        } finally {
+            CloseHelper.closeAll(cluster, clientDriver);
+            for (int i = nodeCount - 1; i >= 0; i--) {
+                CloseHelper.close(nodes[i]);
+            }
+        }
+    }
+
+    private int port(int memberId, int offset) {
+        return basePort + 10 * memberId + offset;
+    }
+
+    /**
+     * Members as {@code id,ingress,consensus,log,catchup,archive} endpoints separated by {@code |}.
+     */
+    private String clusterMembers() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < nodeCount; i++) {
+            if (i > 0) {
+                builder.append('|');
+            }
+            builder.append(i);
+            for (int offset = 0; offset < 5; offset++) {
+                builder.append(",localhost:").append(port(i, offset));
+            }
+        }
+        return builder.toString();
+    }
+
+    private String ingressEndpoints() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < nodeCount; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(i).append("=localhost:").append(port(i, 0));
+        }
+        return builder.toString();
+    }
+
+    private ClusterNode launchNode(int memberId, String members) {
+        final File nodeDir = new File(clusterDir, "node-" + memberId);
+        final String aeronDir = new File(nodeDir, "driver").getPath();
+        final File consensusDir = new File(nodeDir, "cluster");
+
+        final MediaDriver.Context driverContext = new MediaDriver.Context()
+            .aeronDirectoryName(aeronDir)
+            .threadingMode(ThreadingMode.SHARED)
+            .sharedIdleStrategy(IdleStrategies.of(idleStrategyName))
+            .termBufferSparseFile(false)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true);
+        final Archive.Context archiveContext = new Archive.Context()
+            .aeronDirectoryName(aeronDir)
+            .archiveDir(new File(nodeDir, "archive"))
+            .archiveId(memberId)
+            .controlChannel("aeron:udp?endpoint=localhost:" + port(memberId, 4))
+            .localControlChannel("aeron:ipc")
+            .replicationChannel(REPLICATION_CHANNEL)
+            .recordingEventsEnabled(false)
+            .deleteArchiveOnStart(true)
+            .threadingMode(ArchiveThreadingMode.SHARED)
+            .idleStrategySupplier(() -> IdleStrategies.of(idleStrategyName));
+        final long heartbeatTimeoutNs = TimeUnit.MILLISECONDS.toNanos(heartbeatTimeoutMs);
+        final ConsensusModule.Context consensusContext = new ConsensusModule.Context()
+            .aeronDirectoryName(aeronDir)
+            .clusterMemberId(memberId)
+            .clusterMembers(members)
+            .clusterDir(consensusDir)
+            .ingressChannel("aeron:udp")
+            .logChannel(LOG_CHANNEL)
+            .replicationChannel(REPLICATION_CHANNEL)
+            .archiveContext(archiveClientContext(aeronDir, archiveContext))
+            .leaderHeartbeatTimeoutNs(heartbeatTimeoutNs)
+            .leaderHeartbeatIntervalNs(heartbeatTimeoutNs / 10)
+            .startupCanvassTimeoutNs(heartbeatTimeoutNs * 2)
+            .idleStrategySupplier(() -> IdleStrategies.of(idleStrategyName))
+            .errorHandler(e -> System.err.printf("[ERROR][CLUSTER][%d] %s%n", memberId, e))
+            .deleteDirOnStart(true);
+        final ClusteredServiceContainer.Context serviceContext = new ClusteredServiceContainer.Context()
+            .aeronDirectoryName(aeronDir)
+            .archiveContext(archiveClientContext(aeronDir, archiveContext))
+            .clusterDir(consensusDir)
+            .clusteredService(new EchoService())
+            .idleStrategySupplier(() -> IdleStrategies.of(idleStrategyName))
+            .errorHandler(e -> System.err.printf("[ERROR][CLUSTER][%d] %s%n", memberId, e));
+
+        final ClusteredMediaDriver clusteredDriver =
+            ClusteredMediaDriver.launch(driverContext, archiveContext, consensusContext);
+        return new ClusterNode(memberId, clusteredDriver, ClusteredServiceContainer.launch(serviceContext));
+    }
+
+    private static AeronArchive.Context archiveClientContext(String aeronDir, Archive.Context archiveContext) {
+        return new AeronArchive.Context()
+            .aeronDirectoryName(aeronDir)
+            .controlRequestChannel(archiveContext.localControlChannel())
+            .controlResponseChannel(archiveContext.localControlChannel());
+    }
+
+    private static final class ClusterNode implements AutoCloseable {
+        private final int memberId;
+        private final ClusteredMediaDriver clusteredDriver;
+        private final ClusteredServiceContainer serviceContainer;
+        private boolean closed;
+
+        private ClusterNode(int memberId, ClusteredMediaDriver clusteredDriver, ClusteredServiceContainer serviceContainer) {
+            this.memberId = memberId;
+            this.clusteredDriver = clusteredDriver;
+            this.serviceContainer = serviceContainer;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                CloseHelper.closeAll(serviceContainer, clusteredDriver);
+            }
+        }
+    }
+
+    /**
+     * Stateless service that sends every message back to the session it came from. Only the leader's sessions are
+     * connected; on followers {@link ClientSession#offer} returns {@link ClientSession#MOCKED_OFFER}.
+     */
+    static final class EchoService implements ClusteredService {
+        private Cluster cluster;
+
+        @Override
+        public void onStart(Cluster cluster, Image snapshotImage) {
+            this.cluster = cluster;
+        }
+
+        @Override
+        public void onSessionOpen(ClientSession session, long timestamp) {
+        }
+
+        @Override
+        public void onSessionClose(ClientSession session, long timestamp, CloseReason closeReason) {
+        }
+
+        @Override
+        public void onSessionMessage(
+            ClientSession session, long timestamp, DirectBuffer buffer, int offset, int length, Header header) {
+            while (session.offer(buffer, offset, length) < 0) {
+                cluster.idleStrategy().idle();
+            }
+        }
+
+        @Override
+        public void onTimerEvent(long correlationId, long timestamp) {
+        }
+
+        @Override
+        public void onTakeSnapshot(ExclusivePublication snapshotPublication) {
+        }
+
+        @Override
+        public void onRoleChange(Cluster.Role newRole) {
+            System.out.printf("[CLUSTER][%d] %s%n", cluster.memberId(), newRole);
+        }
+
+        @Override
+        public void onTerminate(Cluster cluster) {
+        }
+    }
+
+    /**
+     * Sends probes and records their round trip, all on the calling thread as {@link AeronCluster} is not thread safe.
+     */
+    private final class EchoClient implements EgressListener {
+        private final ClusterNode[] nodes;
+        private final LatencyHistogram interval = new LatencyHistogram();
+        private final LatencyHistogram before = new LatencyHistogram();
+        private final LatencyHistogram failover = new LatencyHistogram();
+        private final LatencyHistogram after = new LatencyHistogram();
+        private final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+        private AeronCluster cluster;
+        private long measureStartNs = Long.MAX_VALUE;
+        private long measureEndNs;
+        private long firstMeasuredSequence = Long.MAX_VALUE;
+        private long killNs = Long.MAX_VALUE;
+        private long recoveredNs;
+        private long nextReportNs;
+        private long intervalReceived;
+        private long measuredSent;
+        private long measuredReceived;
+        private int leaderMemberId;
+
+        private EchoClient(ClusterNode[] nodes) {
+            this.nodes = nodes;
+        }
+
+        private void run(AeronCluster cluster) {
+            this.cluster = cluster;
+            leaderMemberId = cluster.leaderMemberId();
+            final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(messageLength));
+            final ProbeCodec.Encoder encoder = new ProbeCodec.Encoder().wrap(buffer, 0, messageLength);
+            final long intervalNs = Math.max(1, TimeUnit.SECONDS.toNanos(1) / Math.max(rate, 1));
+            final long startNs = System.nanoTime();
+            measureStartNs = startNs + TimeUnit.SECONDS.toNanos(warmupSeconds);
+            measureEndNs = measureStartNs + TimeUnit.SECONDS.toNanos(durationSeconds);
+            final long killAtNs = killAfterSeconds > 0 ?
+                measureStartNs + TimeUnit.SECONDS.toNanos(killAfterSeconds) : Long.MAX_VALUE;
+            nextReportNs = measureStartNs + TimeUnit.SECONDS.toNanos(intervalSeconds);
+            System.out.printf("[CLUSTER] %ds warmup + %ds measured at %d msg/s, %d byte probes%s%n",
+                warmupSeconds, durationSeconds, rate, messageLength,
+                killAtNs != Long.MAX_VALUE ? ", killing the leader after " + killAfterSeconds + "s" : "");
+
+            long intendedNs = startNs;
+            long sequence = 0;
+            while (running.get() && !cluster.isClosed() && intendedNs < measureEndNs) {
+                final long nowNs = System.nanoTime();
+                if (nowNs >= killAtNs && killNs == Long.MAX_VALUE) {
+                    killLeader(nowNs);
+                }
+                if (nowNs < intendedNs) {
+                    poll(nowNs);
+                    continue;
+                }
+
+                if (intendedNs >= measureStartNs && firstMeasuredSequence == Long.MAX_VALUE) {
+                    firstMeasuredSequence = sequence;
+                }
+                encoder.sendTimestampNs(intendedNs).sequence(sequence);
+                long result;
+                while ((result = cluster.offer(buffer, 0, messageLength)) < 0) {
+                    if (!running.get() || cluster.isClosed()) {
+                        break;
+                    }
+                    poll(System.nanoTime());
+                }
+                if (result < 0) {
+                    break;
+                }
+                if (sequence++ >= firstMeasuredSequence) {
+                    measuredSent++;
+                }
+                intendedNs += intervalNs;
+            }
+
+            final long deadlineNs = System.nanoTime() + DRAIN_TIMEOUT_NS;
+            while (running.get() && !cluster.isClosed() && measuredReceived < measuredSent &&
+                System.nanoTime() < deadlineNs) {
+                poll(System.nanoTime());
+            }
+            printResults();
+        }
+
+        private void poll(long nowNs) {
+            if (cluster.pollEgress() == 0) {
+                Thread.onSpinWait();
+            }
+            if (nowNs >= nextReportNs) {
+                System.out.printf("[CLUSTER] t=%ds leader=%d received=%d p50=%.1fus p99=%.1fus max=%.1fus%n",
+                    TimeUnit.NANOSECONDS.toSeconds(nowNs - measureStartNs), leaderMemberId, intervalReceived,
+                    interval.valueAtPercentile(50.0) / 1000.0, interval.valueAtPercentile(99.0) / 1000.0,
+                    interval.maxValue() / 1000.0);
+                interval.reset();
+                intervalReceived = 0;
+                nextReportNs += TimeUnit.SECONDS.toNanos(intervalSeconds);
+            }
+        }
+
+        private void killLeader(long nowNs) {
+            final int leader = cluster.leaderMemberId();
+            System.out.printf("[CLUSTER] Killing leader %d%n", leader);
+            killNs = nowNs;
+            nodes[leader].close();
+        }
+
+        @Override
+        public void onMessage(
+            long clusterSessionId, long timestamp, DirectBuffer buffer, int offset, int length, Header header) {
+            final long nowNs = System.nanoTime();
+            decoder.wrap(buffer, offset, length);
+            final long sentNs = decoder.sendTimestampNs();
+            final long latencyNs = nowNs - sentNs;
+            if (decoder.sequence() < firstMeasuredSequence) {
+                return;
+            }
+
+            measuredReceived++;
+            intervalReceived++;
+            interval.recordValue(latencyNs);
+            if (sentNs < killNs) {
+                before.recordValue(latencyNs);
+                return;
+            }
+
+            if (recoveredNs == 0) {
+                recoveredNs = nowNs;
+            }
+            (sentNs < recoveredNs ? failover : after).recordValue(latencyNs);
+        }
+
+        @Override
+        public void onNewLeader(long clusterSessionId, long leadershipTermId, int leaderMemberId, String ingressEndpoints) {
+            this.leaderMemberId = leaderMemberId;
+            System.out.printf("[CLUSTER] New leader %d in term %d%s%n", leaderMemberId, leadershipTermId,
+                killNs != Long.MAX_VALUE ?
+                String.format(", %.1f ms after the kill", (System.nanoTime() - killNs) / 1e6) : "");
+        }
+
+        private void printResults() {
+            final long endNs = Math.min(System.nanoTime(), measureEndNs);
+            System.out.printf("%n%-10s %10s %12s %10s %10s %10s %10s%n",
+                "phase", "received", "msgs/s", "p50(us)", "p99(us)", "p99.9(us)", "max(us)");
+            if (killNs == Long.MAX_VALUE) {
+                printPhase("steady", before, endNs - measureStartNs);
+            } else {
+                printPhase("before", before, killNs - measureStartNs);
+                if (recoveredNs > 0) {
+                    printPhase("failover", failover, recoveredNs - killNs);
+                    printPhase("after", after, endNs - recoveredNs);
+                    System.out.printf("[CLUSTER] Failover took %.1f ms from the kill to the first echo of a new probe%n",
+                        (recoveredNs - killNs) / 1e6);
+                } else {
+                    System.out.println("[WARN][CLUSTER] No probe sent after the kill was echoed");
+                }
+            }
+            System.out.printf("[CLUSTER] Sent %d, received %d, lost %d%n",
+                measuredSent, measuredReceived, measuredSent - measuredReceived);
+        }
+
+        private void printPhase(String phase, LatencyHistogram latency, long phaseNs) {
+            if (latency.totalCount() == 0) {
+                System.out.printf("%-10s %10d %12s%n", phase, 0, "no data");
+                return;
+            }
+            System.out.printf("%-10s %10d %,12.0f %10.1f %10.1f %10.1f %10.1f%n",
+                phase, latency.totalCount(), latency.totalCount() / Math.max(phaseNs / 1e9, 1e-9),
+                latency.valueAtPercentile(50.0) / 1000.0,
+                latency.valueAtPercentile(99.0) / 1000.0,
+                latency.valueAtPercentile(99.9) / 1000.0,
+                latency.maxValue() / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.ExclusivePublication;
+import io.aeron.Publication;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SigInt;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.CountersReader;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams as fast as the receiver window allows over UDP loopback with each congestion control in turn and prints
+ * one table of throughput and queueing delay. Each message carries the time it was offered, so the one-way latency
+ * above its minimum is the time spent queued in the term buffer, the socket buffers and, with {@code --bottleneck-mbit},
+ * the netem queue. A loss-driven window such as Cubic fills the queue; a delay-based one such as {@link DelayCC} should
+ * keep it short at a similar throughput.
+ * <p>
+ * Window, minimum RTT and bottleneck bandwidth come from {@link RttCounters} and are only published by {@link MyCC}
+ * and {@link DelayCC}; use {@code mycc} to see Cubic's window.
+ */
+@Command(name = "cc-compare", mixinStandardHelpOptions = true,
+    description = "Compares throughput and queueing delay of congestion controls on a saturated stream")
+public class CongestionControlComparison implements Runnable {
+    private static final int STREAM_ID = 1015;
+    private static final int FRAGMENT_LIMIT = 256;
+
+    @Option(names = {"--cc"}, split = ",", description = "Congestion controls to run: " + CongestionControls.NAMES,
+        defaultValue = "cubic,delay")
+    private List<String> congestionControls;
+
+    @Option(names = {"--host"}, description = "Loopback host", defaultValue = "localhost")
+    private String host;
+
+    @Option(names = {"-p", "--port"}, description = "Port for the stream", defaultValue = "20950")
+    private int port;
+
+    @Option(names = {"-r", "--rate"}, description = "Publish rate in msg/s, 0 to offer as fast as possible", defaultValue = "0")
+    private long rate;
+
+    @Option(names = {"-l", "--message-length"}, description = "Message length in bytes, at least 8", defaultValue = "1024")
+    private int messageLength;
+
+    @Option(names = {"-w", "--warmup"}, description = "Warmup seconds per congestion control", defaultValue = "3")
+    private int warmupSeconds;
+
+    @Option(names = {"-d", "--duration"}, description = "Measured seconds per congestion control", defaultValue = "10")
+    private int durationSeconds;
+
+    @Option(names = {"--bottleneck-mbit"}, description = "Rate limit added with tc netem, 0 for none", defaultValue = "0")
+    private double bottleneckMbit;
+
+    @Option(names = {"--delay-ms"}, description = "Delay added with tc netem, 0 for none", defaultValue = "0")
+    private double delayMs;
+
+    @Option(names = {"--netem-device"}, description = "Device to apply netem to", defaultValue = "lo")
+    private String netemDevice;
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new CongestionControlComparison()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        SigInt.register(() -> running.set(false));
+        messageLength = ProbeCodec.messageLength(messageLength);
+        if (!Boolean.getBoolean("aeron.CubicCongestionControl.measureRtt")) {
+            System.out.println("[WARN] -Daeron.CubicCongestionControl.measureRtt=true is not set, only delay measures RTT");
+        }
+
+        final boolean useNetem = bottleneckMbit > 0 || delayMs > 0;
+        final List<Result> results = new ArrayList<>();
+        try (NetemImpairment netem = useNetem ?
+            NetemImpairment.apply(netemDevice, delayMs, 0, 0, bottleneckMbit) : null) {
+            if (useNetem && !netem.isApplied()) {
+                System.out.println("[WARN] netem could not be applied, running without a bottleneck");
+            }
+
+            for (final String congestionControl : congestionControls) {
+                if (!running.get()) {
+                    break;
+                }
+
+                System.out.printf("[CC] Running %s: %ds warmup + %ds measured, %d byte messages, rate %s%n",
+                    congestionControl, warmupSeconds, durationSeconds, messageLength,
+                    rate > 0 ? rate + " msg/s" : "unthrottled");
+                results.add(runOne(congestionControl));
+            }
+        }
+
+        printResults(results);
+    }
+
+    private Result runOne(String congestionControl) {
+        final Result result = new Result(congestionControl);
+        final MediaDriver.Context driverContext = new MediaDriver.Context()
+            .threadingMode(ThreadingMode.DEDICATED)
+            .conductorIdleStrategy(new BusySpinIdleStrategy())
+            .senderIdleStrategy(new BusySpinIdleStrategy())
+            .receiverIdleStrategy(new BusySpinIdleStrategy())
+            .termBufferSparseFile(false)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true)
+            .congestControlSupplier(CongestionControls.supplier(congestionControl));
+
+        final String channel = "aeron:udp?endpoint=" + host + ":" + port;
+        final AtomicBoolean publishing = new AtomicBoolean(true);
+        final AtomicBoolean measuring = new AtomicBoolean(false);
+        final AtomicLong receivedMessages = new AtomicLong();
+        try (RttSampleConsumer rttSampleConsumer = CongestionControls.journalConsumer(congestionControl);
+             MediaDriver driver = MediaDriver.launchEmbedded(driverContext);
+             Aeron aeron = Aeron.connect(new Aeron.Context()
+                 .aeronDirectoryName(driver.aeronDirectoryName())
+                 .idleStrategy(new BusySpinIdleStrategy()));
+             Subscription subscription = aeron.addSubscription(channel, STREAM_ID);
+             ExclusivePublication publication = aeron.addExclusivePublication(channel, STREAM_ID)) {
+            final Thread subscriberThread = new Thread(
+                () -> runSubscriber(subscription, publishing, measuring, receivedMessages, result.latency), "cc-compare-sub");
+            subscriberThread.start();
+
+            while (running.get() && !publication.isConnected()) {
+                Thread.onSpinWait();
+            }
+
+            final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(messageLength));
+            publish(publication, buffer, TimeUnit.SECONDS.toNanos(warmupSeconds), result);
+
+            result.backPressured = 0;
+            measuring.set(true);
+            final long startNs = System.nanoTime();
+            publish(publication, buffer, TimeUnit.SECONDS.toNanos(durationSeconds), result);
+            readCounters(aeron.countersReader(), result);
+            measuring.set(false);
+            result.elapsedNs = System.nanoTime() - startNs;
+
+            publishing.set(false);
+            subscriberThread.join();
+            result.messages = receivedMessages.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            System.err.printf("[ERROR][CC] %s failed: %s%n", congestionControl, e);
+        } finally {
+            publishing.set(false);
+        }
+
+        return result;
+    }
+
+    private void publish(ExclusivePublication publication, UnsafeBuffer buffer, long durationNs, Result result) {
+        final long intervalNs = rate > 0 ? Math.max(1, TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+        final ProbeCodec.Encoder encoder = new ProbeCodec.Encoder().wrap(buffer, 0, messageLength)
+            .senderId(publication.sessionId());
+        final long endNs = System.nanoTime() + durationNs;
+        long nextNs = System.nanoTime();
+        long sequence = 0;
+        long nowNs;
+        while (running.get() && (nowNs = System.nanoTime()) < endNs) {
+            if (nowNs < nextNs) {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            encoder.sendTimestampNs(nowNs).sequence(sequence);
+            final long position = publication.offer(buffer, 0, messageLength);
+            if (position > 0) {
+                sequence++;
+                nextNs = Math.max(nextNs + intervalNs, nowNs - intervalNs);
+            } else if (position == Publication.BACK_PRESSURED) {
+                result.backPressured++;
+            } else if (position == Publication.CLOSED || position == Publication.MAX_POSITION_EXCEEDED) {
+                System.err.printf("[ERROR][CC] Offer failed with %d, stopping%n", position);
+                running.set(false);
+            }
+        }
+    }
+
+    private static void runSubscriber(
+        Subscription subscription,
+        AtomicBoolean publishing,
+        AtomicBoolean measuring,
+        AtomicLong receivedMessages,
+        LatencyHistogram latency) {
+        final IdleStrategy idleStrategy = new BusySpinIdleStrategy();
+        final LatencyHandler handler = new LatencyHandler(measuring, receivedMessages, latency);
+
+        while (publishing.get()) {
+            idleStrategy.idle(subscription.poll(handler, FRAGMENT_LIMIT));
+        }
+    }
+
+    private static void readCounters(CountersReader countersReader, Result result) {
+        result.windowLength = RttCounters.firstValue(countersReader, RttCounters.CWND_TYPE_ID, 0);
+        result.minRttNs = RttCounters.firstValue(countersReader, RttCounters.MIN_RTT_TYPE_ID, 0);
+        result.smoothedRttNs = RttCounters.firstValue(countersReader, RttCounters.SMOOTHED_RTT_TYPE_ID, 0);
+        result.bottleneckBandwidth = RttCounters.firstValue(countersReader, RttCounters.BOTTLENECK_BANDWIDTH_TYPE_ID, 0);
+    }
+
+    private void printResults(List<Result> results) {
+        System.out.printf("%n%-8s %12s %10s %10s %10s %10s %10s %12s %12s %10s %10s %10s %12s%n",
+            "cc", "msgs/s", "MB/s", "min(us)", "p50(us)", "p99(us)", "max(us)", "queue p50", "queue p99",
+            "cwnd", "minrtt(us)", "srtt(us)", "btlbw(MB/s)");
+        for (final Result result : results) {
+            final LatencyHistogram latency = result.latency;
+            if (latency.totalCount() == 0 || result.elapsedNs == 0) {
+                System.out.printf("%-8s %12s%n", result.congestionControl, "no data");
+                continue;
+            }
+
+            final double seconds = result.elapsedNs / 1e9;
+            final double minUs = latency.minValue() / 1000.0;
+            final double p50Us = latency.valueAtPercentile(50.0) / 1000.0;
+            final double p99Us = latency.valueAtPercentile(99.0) / 1000.0;
+            System.out.printf("%-8s %12.0f %10.1f %10.1f %10.1f %10.1f %10.1f %12.1f %12.1f %10s %10s %10s %12s%n",
+                result.congestionControl,
+                result.messages / seconds,
+                result.messages * (double) messageLength / seconds / (1024 * 1024),
+                minUs, p50Us, p99Us, latency.maxValue() / 1000.0,
+                p50Us - minUs, p99Us - minUs,
+                result.windowLength > 0 ? Long.toString(result.windowLength) : "-",
+                result.minRttNs > 0 ? String.format("%.1f", result.minRttNs / 1000.0) : "-",
+                result.smoothedRttNs > 0 ? String.format("%.1f", result.smoothedRttNs / 1000.0) : "-",
+                result.bottleneckBandwidth > 0 ?
+                    String.format("%.1f", result.bottleneckBandwidth / (1024.0 * 1024.0)) : "-");
+        }
+        for (final Result result : results) {
+            System.out.printf("[CC][%s] back pressured offers: %d%n", result.congestionControl, result.backPressured);
+        }
+    }
+
+    private static final class Result {
+        private final String congestionControl;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private long messages;
+        private long elapsedNs;
+        private long backPressured;
+        private long windowLength;
+        private long minRttNs;
+        private long smoothedRttNs;
+        private long bottleneckBandwidth;
+
+        private Result(String congestionControl) {
+            this.congestionControl = congestionControl;
+        }
+    }
+
+    /**
+     * Records latency and counts the messages received while measuring.
+     */
+    private static final class LatencyHandler implements FragmentHandler {
+        private final AtomicBoolean measuring;
+        private final AtomicLong receivedMessages;
+        private final LatencyHistogram latency;
+        private final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+        private long receivedCount;
+
+        private LatencyHandler(AtomicBoolean measuring, AtomicLong receivedMessages, LatencyHistogram latency) {
+            this.measuring = measuring;
+            this.receivedMessages = receivedMessages;
+            this.latency = latency;
+        }
+
+        @Override
+        public void onFragment(DirectBuffer buffer, int offset, int length, Header header) {
+            final long latencyNs = System.nanoTime() - decoder.wrap(buffer, offset, length).sendTimestampNs();
+            if (measuring.get()) {
+                latency.recordValue(latencyNs);
+                receivedMessages.lazySet(++receivedCount);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package dev.test;
+
+import io.aeron.driver.CongestionControlSupplier;
+import io.aeron.driver.StaticWindowCongestionControl;
+import io.aeron.driver.ext.CubicCongestionControl;
+
+/**
+ * Maps the congestion control names accepted on the command line to suppliers for
+ * {@code MediaDriver.Context.congestControlSupplier}.
+ */
+public final class CongestionControls {
+    public static final String NAMES = "static, cubic, mycc, delay";
+
+    private CongestionControls() {
+    }
+
+    /**
+     * Supplier for a congestion control name.
+     *
+     * @param name one of {@link #NAMES}.
+     * @return the supplier.
+     */
+    public static CongestionControlSupplier supplier(String name) {
+        switch (name.toLowerCase()) {
+            case "static":
+                return StaticWindowCongestionControl::new;
+            case "cubic":
+                return CubicCongestionControl::new;
+            case "mycc":
+                return MyCC::new;
+            case "delay":
+                return DelayCC::new;
+            default:
+                throw new IllegalArgumentException("Unknown congestion control '" + name + "', expected one of: " + NAMES);
+        }
+    }
+
+    /**
+     * Start draining {@link MyCC#JOURNAL} when the named congestion control writes to it, so the ring does not fill
+     * up and drop samples over a long run.
+     *
+     * @param name one of {@link #NAMES}.
+     * @return the consumer to close once the driver has closed, or null when the journal is not used.
+     */
+    public static RttSampleConsumer journalConsumer(String name) {
+        return "mycc".equalsIgnoreCase(name) ? new RttSampleConsumer(MyCC.JOURNAL, 1) : null;
+    }
+}
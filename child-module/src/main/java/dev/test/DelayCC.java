@@ -0,0 +1,201 @@
+package dev.test;
+
+import io.aeron.driver.CongestionControl;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.media.UdpChannel;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.NanoClock;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.agrona.concurrent.status.CountersManager;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delay-based receiver window in the style of BBR and Vegas, for links where loss-driven Cubic lets a queue build
+ * before it backs off.
+ * <p>
+ * The model tracks the minimum RTT over a {@link #MIN_RTT_WINDOW_NS} window as the propagation delay, and the
+ * bottleneck bandwidth as the maximum received rate over the last {@link #BANDWIDTH_SAMPLES} samples of one min RTT
+ * each. Their product is the bandwidth-delay product. The window is set to {@link #CWND_GAIN_PERCENT} of it so the
+ * sender can probe for more bandwidth. Once the smoothed RTT rises more than {@link #QUEUE_THRESHOLD_PERCENT} above
+ * the minimum, or loss is seen, a queue is building and the window drops to one BDP to drain it.
+ * <p>
+ * RTT is always measured, independent of {@code aeron.CubicCongestionControl.measureRtt}. The state is published
+ * through {@link RttCounters}, including the bottleneck bandwidth, so {@link RttStat} shows it alongside {@link MyCC}.
+ * All hooks run on the receiver thread and neither allocate nor block.
+ */
+public class DelayCC implements CongestionControl {
+    static final long MIN_RTT_WINDOW_NS = TimeUnit.SECONDS.toNanos(10);
+    static final long RTT_MEASUREMENT_INTERVAL_NS = TimeUnit.MILLISECONDS.toNanos(1);
+    static final long RTT_MEASUREMENT_TIMEOUT_NS = TimeUnit.MILLISECONDS.toNanos(10);
+    static final int BANDWIDTH_SAMPLES = 10;
+    static final int CWND_GAIN_PERCENT = 200;
+    static final int QUEUE_THRESHOLD_PERCENT = 25;
+
+    private final int minWindowLength;
+    private final int maxWindowLength;
+    private final int initialWindowLength;
+    private final long[] bandwidthSamples = new long[BANDWIDTH_SAMPLES];
+    private final AtomicCounter lastRtt;
+    private final AtomicCounter minRtt;
+    private final AtomicCounter smoothedRtt;
+    private final AtomicCounter sampleCount;
+    private final AtomicCounter cwnd;
+    private final AtomicCounter bottleneckBandwidth;
+
+    private int windowLength;
+    private boolean measurementOutstanding;
+    private long lastMeasurementSentNs;
+    private long minRttNs = Long.MAX_VALUE;
+    private long minRttTimestampNs;
+    private long smoothedRttNs;
+    private long bottleneckBandwidthBytesPerSec;
+    private int bandwidthSampleIndex;
+    private long rateSampleStartNs;
+    private long rateSampleStartPosition = -1;
+
+    /**
+     * Construct a new {@link CongestionControl} instance for a received stream image.
+     *
+     * @param registrationId  for the publication image.
+     * @param udpChannel      for the publication image.
+     * @param streamId        for the publication image.
+     * @param sessionId       for the publication image.
+     * @param termLength      for the publication image.
+     * @param senderMtuLength for the publication image.
+     * @param controlAddress  for the publication image.
+     * @param sourceAddress   for the publication image.
+     * @param nanoClock       for the precise timing.
+     * @param context         for configuration options applied in the driver.
+     * @param countersManager for the driver.
+     */
+    public DelayCC(long registrationId, UdpChannel udpChannel, int streamId, int sessionId, int termLength, int senderMtuLength, InetSocketAddress controlAddress, InetSocketAddress sourceAddress, NanoClock nanoClock, MediaDriver.Context context, CountersManager countersManager) {
+        maxWindowLength = termLength / 2;
+        minWindowLength = Math.min(4 * senderMtuLength, maxWindowLength);
+        initialWindowLength = Math.max(Math.min(context.initialWindowLength(), maxWindowLength), minWindowLength);
+        windowLength = initialWindowLength;
+
+        final String channel = udpChannel.originalUriString();
+        lastRtt = RttCounters.allocate(countersManager, "delay", RttCounters.LAST_RTT_TYPE_ID, registrationId, sessionId, streamId, channel);
+        minRtt = RttCounters.allocate(countersManager, "delay", RttCounters.MIN_RTT_TYPE_ID, registrationId, sessionId, streamId, channel);
+        smoothedRtt = RttCounters.allocate(countersManager, "delay", RttCounters.SMOOTHED_RTT_TYPE_ID, registrationId, sessionId, streamId, channel);
+        sampleCount = RttCounters.allocate(countersManager, "delay", RttCounters.SAMPLE_COUNT_TYPE_ID, registrationId, sessionId, streamId, channel);
+        cwnd = RttCounters.allocate(countersManager, "delay", RttCounters.CWND_TYPE_ID, registrationId, sessionId, streamId, channel);
+        bottleneckBandwidth = RttCounters.allocate(countersManager, "delay", RttCounters.BOTTLENECK_BANDWIDTH_TYPE_ID, registrationId, sessionId, streamId, channel);
+        cwnd.setOrdered(windowLength);
+    }
+
+    @Override
+    public boolean shouldMeasureRtt(long nowNs) {
+        final long sinceLastSentNs = nowNs - lastMeasurementSentNs;
+        return measurementOutstanding ?
+            sinceLastSentNs > RTT_MEASUREMENT_TIMEOUT_NS : sinceLastSentNs >= RTT_MEASUREMENT_INTERVAL_NS;
+    }
+
+    @Override
+    public void onRttMeasurementSent(long nowNs) {
+        lastMeasurementSentNs = nowNs;
+        measurementOutstanding = true;
+    }
+
+    @Override
+    public void onRttMeasurement(long nowNs, long rttNs, InetSocketAddress srcAddress) {
+        measurementOutstanding = false;
+
+        // smoothed as in RFC 6298 with alpha = 1/8
+        smoothedRttNs = 0 == smoothedRttNs ? rttNs : smoothedRttNs + ((rttNs - smoothedRttNs) >> 3);
+        if (rttNs <= minRttNs || nowNs - minRttTimestampNs > MIN_RTT_WINDOW_NS) {
+            minRttNs = rttNs;
+            minRttTimestampNs = nowNs;
+            minRtt.setOrdered(rttNs);
+        }
+
+        lastRtt.setOrdered(rttNs);
+        smoothedRtt.setOrdered(smoothedRttNs);
+        sampleCount.incrementOrdered();
+    }
+
+    @Override
+    public long onTrackRebuild(long nowNs, long newConsumptionPosition, long lastSmPosition, long hwmPosition, long startingRebuildPosition, long endingRebuildPosition, boolean lossOccurred) {
+        sampleBandwidth(nowNs, hwmPosition);
+
+        int newWindowLength = windowLength;
+        if (minRttNs != Long.MAX_VALUE && bottleneckBandwidthBytesPerSec > 0) {
+            final double bdp = (double) bottleneckBandwidthBytesPerSec * minRttNs / TimeUnit.SECONDS.toNanos(1);
+            final boolean queueBuilding = lossOccurred ||
+                smoothedRttNs - minRttNs > minRttNs * QUEUE_THRESHOLD_PERCENT / 100;
+            final double target = queueBuilding ? bdp : bdp * CWND_GAIN_PERCENT / 100;
+            newWindowLength = (int) Math.max(minWindowLength, Math.min(maxWindowLength, target));
+        }
+
+        final boolean forceStatusMessage = newWindowLength > windowLength;
+        if (newWindowLength != windowLength) {
+            windowLength = newWindowLength;
+            cwnd.setOrdered(newWindowLength);
+        }
+
+        return CongestionControl.packOutcome(windowLength, forceStatusMessage);
+    }
+
+    private void sampleBandwidth(long nowNs, long hwmPosition) {
+        if (rateSampleStartPosition < 0) {
+            rateSampleStartNs = nowNs;
+            rateSampleStartPosition = hwmPosition;
+            return;
+        }
+
+        final long elapsedNs = nowNs - rateSampleStartNs;
+        final long sampleIntervalNs = minRttNs == Long.MAX_VALUE ?
+            RTT_MEASUREMENT_INTERVAL_NS : Math.max(minRttNs, RTT_MEASUREMENT_INTERVAL_NS);
+        if (elapsedNs < sampleIntervalNs) {
+            return;
+        }
+
+        bandwidthSamples[bandwidthSampleIndex] =
+            (long) ((double) (hwmPosition - rateSampleStartPosition) * TimeUnit.SECONDS.toNanos(1) / elapsedNs);
+        bandwidthSampleIndex = (bandwidthSampleIndex + 1) % BANDWIDTH_SAMPLES;
+        rateSampleStartNs = nowNs;
+        rateSampleStartPosition = hwmPosition;
+
+        long max = 0;
+        for (final long sample : bandwidthSamples) {
+            max = Math.max(max, sample);
+        }
+        if (max != bottleneckBandwidthBytesPerSec) {
+            bottleneckBandwidthBytesPerSec = max;
+            bottleneckBandwidth.setOrdered(max);
+        }
+    }
+
+    @Override
+    public int initialWindowLength() {
+        return initialWindowLength;
+    }
+
+    @Override
+    public int maxWindowLength() {
+        return maxWindowLength;
+    }
+
+    public int windowLength() {
+        return windowLength;
+    }
+
+    public long minRttNs() {
+        return minRttNs == Long.MAX_VALUE ? 0 : minRttNs;
+    }
+
+    public long smoothedRttNs() {
+        return smoothedRttNs;
+    }
+
+    public long bottleneckBandwidthBytesPerSec() {
+        return bottleneckBandwidthBytesPerSec;
+    }
+
+    @Override
+    public void close() {
+        CloseHelper.closeAll(lastRtt, minRtt, smoothedRtt, sampleCount, cwnd, bottleneckBandwidth);
+    }
+}
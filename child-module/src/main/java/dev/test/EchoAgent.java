@@ -0,0 +1,114 @@
+package dev.test;
+
+import io.aeron.ExclusivePublication;
+import io.aeron.Subscription;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.logbuffer.ControlledFragmentHandler;
+import io.aeron.logbuffer.ControlledFragmentHandler.Action;
+import io.aeron.logbuffer.Header;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentTerminationException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ponger side of a ping/pong round trip. Echoes each ping through {@link ExclusivePublication#tryClaim} with the
+ * original send timestamp and sequence and its own echo timestamp. A back-pressured echo aborts the fragment so it is
+ * delivered again on the next duty cycle, rather than spinning on a thread that in {@code invoker} mode also has to
+ * run the driver to relieve the back pressure.
+ */
+public final class EchoAgent implements Agent {
+    private static final int FRAGMENT_LIMIT = 10;
+
+    private final Subscription subscription;
+    private final ExclusivePublication publication;
+    private final long outlierThresholdNs;
+    private final long logIntervalNs;
+    private final AtomicBoolean running;
+    private final BufferClaim bufferClaim = new BufferClaim();
+    private final ProbeCodec.Encoder encoder = new ProbeCodec.Encoder();
+    private final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+    private final ControlledFragmentHandler pingHandler = this::onPing;
+    private long lastLogNs = System.nanoTime();
+    private long pingsEchoed;
+    private long backPressureEvents;
+
+    /**
+     * @param subscription       to receive pings on.
+     * @param publication        to echo pongs on.
+     * @param outlierThresholdNs echoes slower than this emit a {@link LatencyOutlierEvent}.
+     * @param logIntervalSeconds between status lines, 0 for none.
+     * @param running            cleared to terminate the agent.
+     */
+    public EchoAgent(
+        Subscription subscription,
+        ExclusivePublication publication,
+        long outlierThresholdNs,
+        int logIntervalSeconds,
+        AtomicBoolean running) {
+        this.subscription = subscription;
+        this.publication = publication;
+        this.outlierThresholdNs = outlierThresholdNs;
+        this.logIntervalNs = TimeUnit.SECONDS.toNanos(logIntervalSeconds);
+        this.running = running;
+    }
+
+    @Override
+    public int doWork() {
+        if (!running.get()) {
+            throw new AgentTerminationException();
+        }
+
+        final int fragments = subscription.controlledPoll(pingHandler, FRAGMENT_LIMIT);
+        logStatus();
+        return fragments;
+    }
+
+    private Action onPing(DirectBuffer buffer, int offset, int length, Header header) {
+        final long receivedNs = System.nanoTime();
+        if (publication.tryClaim(length, bufferClaim) <= 0) {
+            backPressureEvents++;
+            return Action.ABORT;
+        }
+
+        // only the probe fields are copied so the echo costs the same whatever the padding
+        decoder.wrap(buffer, offset, length);
+        encoder.wrap(bufferClaim.buffer(), bufferClaim.offset(), length)
+            .sendTimestampNs(decoder.sendTimestampNs())
+            .sequence(decoder.sequence())
+            .senderId(publication.sessionId())
+            .echoTimestampNs(System.nanoTime());
+        bufferClaim.commit();
+        pingsEchoed++;
+
+        final long echoNs = System.nanoTime() - receivedNs;
+        if (echoNs > outlierThresholdNs) {
+            LatencyOutlierEvent.emit("echo", decoder.sequence(), header.sessionId(), echoNs);
+        }
+        return Action.CONTINUE;
+    }
+
+    private void logStatus() {
+        final long nowNs = System.nanoTime();
+        if (logIntervalNs > 0 && nowNs - lastLogNs >= logIntervalNs) {
+            System.out.printf("[STATUS][pong] Ping/pong connected: %b/%b, Echoed: %d%n",
+                subscription.isConnected(), publication.isConnected(), pingsEchoed);
+            lastLogNs = nowNs;
+        }
+    }
+
+    public long pingsEchoed() {
+        return pingsEchoed;
+    }
+
+    public long backPressureEvents() {
+        return backPressureEvents;
+    }
+
+    @Override
+    public String roleName() {
+        return "echo";
+    }
+}
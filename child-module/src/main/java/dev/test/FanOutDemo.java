@@ -0,0 +1,327 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.CommonContext;
+import io.aeron.Image;
+import io.aeron.Publication;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.FragmentHandler;
+import org.agrona.BitUtil;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SigInt;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.CountersReader;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One dynamic multi-destination-cast publisher fanning out to N local receivers, each with its own media driver,
+ * directory and port. Reports per-receiver latency and congestion control RTT, which receiver held back the min
+ * flow control window most often, and with {@code --sweep} how tail latency grows with the number of receivers.
+ */
+@Command(name = "fan-out", mixinStandardHelpOptions = true,
+    description = "Measures latency and RTT for one MDC publisher fanning out to N receivers")
+public class FanOutDemo implements Runnable {
+    private static final int STREAM_ID = 1001;
+    private static final int FRAGMENT_LIMIT = 10;
+    private static final int MESSAGE_LENGTH = BitUtil.SIZE_OF_LONG;
+    private static final int[] SWEEP_RECEIVERS = {1, 2, 4, 8, 16, 32, 64};
+    private static final int CHART_WIDTH = 50;
+    private static final String TERM_LENGTH = "16m";
+    // up to 64 receiver drivers each map an image of three terms, so the sweep keeps them small and sparse
+    private static final String SWEEP_TERM_LENGTH = "1m";
+
+    @Option(names = {"-n", "--receivers"}, description = "Number of receivers", defaultValue = "4")
+    private int receiverCount;
+
+    @Option(names = {"--sweep"}, description = "Run with 1, 2, 4 ... 64 receivers and chart the tail")
+    private boolean sweep;
+
+    @Option(names = {"--host"}, description = "Host for the control and receiver endpoints", defaultValue = "localhost")
+    private String host;
+
+    @Option(names = {"--control-port"}, description = "MDC control port of the publisher", defaultValue = "20300")
+    private int controlPort;
+
+    @Option(names = {"--base-port"}, description = "Receiver i listens on base port + i", defaultValue = "20301")
+    private int basePort;
+
+    @Option(names = {"-r", "--rate"}, description = "Publish rate in msg/s", defaultValue = "10000")
+    private long rate;
+
+    @Option(names = {"-d", "--duration"}, description = "Measurement duration in seconds per run", defaultValue = "10")
+    private int durationSeconds;
+
+    @Option(names = {"--idle"}, description = "Receiver idle strategy: " + IdleStrategies.NAMES, defaultValue = "backoff")
+    private String idleStrategyName;
+
+    @Option(names = {"--fc"}, description = "Flow control strategy of the publication", defaultValue = "min")
+    private String flowControl;
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new FanOutDemo()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        if (!Boolean.getBoolean("aeron.CubicCongestionControl.measureRtt")) {
+            System.out.println("[WARN] -Daeron.CubicCongestionControl.measureRtt=true is not set, receivers will not measure RTT");
+        }
+        SigInt.register(() -> running.set(false));
+
+        if (!sweep) {
+            runWith(receiverCount);
+            return;
+        }
+
+        final List<long[]> rows = new ArrayList<>();
+        for (final int n : SWEEP_RECEIVERS) {
+            if (!running.get()) {
+                break;
+            }
+            final LatencyHistogram aggregate = runWith(n);
+            rows.add(new long[]{
+                n,
+                aggregate.valueAtPercentile(50.0),
+                aggregate.valueAtPercentile(99.0),
+                aggregate.valueAtPercentile(99.9),
+                aggregate.maxValue()});
+        }
+        printSweep(rows);
+    }
+
+    private LatencyHistogram runWith(int n) {
+        System.out.printf("%n[FANOUT] Starting run with %d receiver(s) at %d msg/s for %d s%n", n, rate, durationSeconds);
+
+        final String baseDir = CommonContext.getAeronDirectoryName() + "-fanout";
+        final String publicationChannel = "aeron:udp?control=" + host + ":" + controlPort +
+            "|control-mode=dynamic|fc=" + flowControl + "|term-length=" + (sweep ? SWEEP_TERM_LENGTH : TERM_LENGTH);
+        final List<Receiver> receivers = new ArrayList<>(n);
+        MediaDriver publisherDriver = null;
+        Aeron publisherAeron = null;
+        Publication publication = null;
+        RttSampleConsumer rttSampleConsumer = null;
+        final LatencyHistogram aggregate = new LatencyHistogram();
+
+        try {
+            rttSampleConsumer = new RttSampleConsumer(MyCC.JOURNAL, 1);
+            publisherDriver = MediaDriver.launch(new MediaDriver.Context()
+                .aeronDirectoryName(baseDir + "-pub")
+                .threadingMode(ThreadingMode.DEDICATED)
+                .conductorIdleStrategy(new BusySpinIdleStrategy())
+                .senderIdleStrategy(new BusySpinIdleStrategy())
+                .receiverIdleStrategy(new BusySpinIdleStrategy())
+                .dirDeleteOnStart(true)
+                .dirDeleteOnShutdown(true));
+            publisherAeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(publisherDriver.aeronDirectoryName()));
+            publication = publisherAeron.addPublication(publicationChannel, STREAM_ID);
+
+            for (int i = 0; i < n; i++) {
+                final String channel = "aeron:udp?endpoint=" + host + ":" + (basePort + i) +
+                    "|control=" + host + ":" + controlPort + "|control-mode=dynamic";
+                receivers.add(new Receiver(i, baseDir + "-rcv-" + i, channel, IdleStrategies.of(idleStrategyName)));
+            }
+
+            awaitConnected(publication, receivers);
+            receivers.forEach(Receiver::start);
+
+            final GoverningMonitor monitor = new GoverningMonitor(publication, receivers);
+            final FixedRateLoadGenerator generator = new FixedRateLoadGenerator(
+                publication, new UnsafeBuffer(new byte[MESSAGE_LENGTH]), MESSAGE_LENGTH, running, 1, durationSeconds,
+                TimeUnit.MILLISECONDS.toNanos(1));
+            generator.runFor(rate);
+            monitor.close();
+
+            receivers.forEach(Receiver::stop);
+            printReceivers(receivers, publication, aggregate);
+        } finally {
+            receivers.forEach(Receiver::stop);
+            CloseHelper.closeAll(receivers);
+            CloseHelper.closeAll(publication, publisherAeron, publisherDriver, rttSampleConsumer);
+        }
+
+        return aggregate;
+    }
+
+    private void awaitConnected(Publication publication, List<Receiver> receivers) {
+        final long deadlineNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (running.get() && System.nanoTime() < deadlineNs) {
+            boolean allConnected = publication.isConnected();
+            for (final Receiver receiver : receivers) {
+                allConnected &= receiver.subscription.isConnected();
+            }
+            if (allConnected) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        System.out.println("[WARN] Not all receivers connected before measuring");
+    }
+
+    private void printReceivers(List<Receiver> receivers, Publication publication, LatencyHistogram aggregate) {
+        System.out.printf("%n%8s %10s %10s %10s %10s %10s %10s %10s %12s%n",
+            "receiver", "count", "p50(us)", "p99(us)", "p99.9(us)", "max(us)", "rtt(us)", "srtt(us)", "governing");
+        for (final Receiver receiver : receivers) {
+            final LatencyHistogram latency = receiver.recorder.intervalHistogram();
+            aggregate.add(latency);
+
+            final CountersReader counters = receiver.aeron.countersReader();
+            System.out.printf("%8d %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %12d%n",
+                receiver.index,
+                latency.totalCount(),
+                latency.valueAtPercentile(50.0) / 1000.0,
+                latency.valueAtPercentile(99.0) / 1000.0,
+                latency.valueAtPercentile(99.9) / 1000.0,
+                latency.maxValue() / 1000.0,
+                RttCounters.firstValue(counters, RttCounters.LAST_RTT_TYPE_ID, 0) / 1000.0,
+                RttCounters.firstValue(counters, RttCounters.SMOOTHED_RTT_TYPE_ID, 0) / 1000.0,
+                receiver.governingCount);
+        }
+        aggregate.printSummary(System.out, "[FANOUT][" + receivers.size() + " receivers] all");
+        System.out.printf("[FANOUT] Publication position %d, governing = times the receiver had the lowest position%n",
+            publication.position());
+    }
+
+    private static void printSweep(List<long[]> rows) {
+        long maxP99 = 1;
+        for (final long[] row : rows) {
+            maxP99 = Math.max(maxP99, row[2]);
+        }
+
+        System.out.printf("%n%10s %10s %10s %10s %10s  p99%n", "receivers", "p50(us)", "p99(us)", "p99.9(us)", "max(us)");
+        for (final long[] row : rows) {
+            System.out.printf("%10d %10.1f %10.1f %10.1f %10.1f  %s%n",
+                row[0], row[1] / 1000.0, row[2] / 1000.0, row[3] / 1000.0, row[4] / 1000.0,
+                "#".repeat((int) Math.max(1, row[2] * CHART_WIDTH / maxP99)));
+        }
+    }
+
+    /**
+     * A receiver with its own driver, client, subscription and poller thread.
+     */
+    private final class Receiver implements AutoCloseable {
+        private final int index;
+        private final MediaDriver driver;
+        private final Aeron aeron;
+        private final Subscription subscription;
+        private final IdleStrategy idleStrategy;
+        private final LatencyRecorder recorder = new LatencyRecorder();
+        private final AtomicBoolean polling = new AtomicBoolean(true);
+        private Thread thread;
+        private volatile long governingCount;
+
+        private Receiver(int index, String aeronDirectoryName, String channel, IdleStrategy idleStrategy) {
+            this.index = index;
+            this.idleStrategy = idleStrategy;
+            this.driver = MediaDriver.launch(new MediaDriver.Context()
+                .aeronDirectoryName(aeronDirectoryName)
+                .threadingMode(ThreadingMode.SHARED)
+                .sharedIdleStrategy(IdleStrategies.of(idleStrategyName))
+                .termBufferSparseFile(sweep)
+                .dirDeleteOnStart(true)
+                .dirDeleteOnShutdown(true)
+                .congestControlSupplier(MyCC::new));
+            this.aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(driver.aeronDirectoryName()));
+            this.subscription = aeron.addSubscription(channel, STREAM_ID);
+        }
+
+        private void start() {
+            final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+            final FragmentHandler handler = (buffer, offset, length, header) ->
+                recorder.recordValue(System.nanoTime() - decoder.wrap(buffer, offset, length).sendTimestampNs());
+
+            thread = new Thread(() -> {
+                while (polling.get() && running.get()) {
+                    idleStrategy.idle(subscription.poll(handler, FRAGMENT_LIMIT));
+                }
+            });
+            thread.setName("fan-out-receiver-" + index);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private long position() {
+            final Image image = subscription.imageCount() > 0 ? subscription.imageAtIndex(0) : null;
+            return image == null ? Long.MAX_VALUE : image.position();
+        }
+
+        private void stop() {
+            polling.set(false);
+            if (thread != null) {
+                try {
+                    thread.join(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                thread = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            CloseHelper.closeAll(subscription, aeron, driver);
+        }
+    }
+
+    /**
+     * Samples receiver positions and counts which receiver is furthest behind, i.e. which one the min flow control
+     * strategy lets govern the publisher's window.
+     */
+    private final class GoverningMonitor implements AutoCloseable {
+        private static final long SAMPLE_INTERVAL_MS = 1;
+        private final Thread thread;
+        private volatile boolean isRunning = true;
+
+        private GoverningMonitor(Publication publication, List<Receiver> receivers) {
+            thread = new Thread(() -> {
+                while (isRunning && running.get()) {
+                    Receiver slowest = null;
+                    long slowestPosition = Long.MAX_VALUE;
+                    for (final Receiver receiver : receivers) {
+                        final long position = receiver.position();
+                        if (position < slowestPosition) {
+                            slowestPosition = position;
+                            slowest = receiver;
+                        }
+                    }
+                    if (slowest != null && slowestPosition < publication.position()) {
+                        slowest.governingCount++;
+                    }
+
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(SAMPLE_INTERVAL_MS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            });
+            thread.setName("fan-out-monitor");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void close() {
+            isRunning = false;
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
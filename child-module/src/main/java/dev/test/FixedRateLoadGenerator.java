@@ -0,0 +1,181 @@
+package dev.test;
+
+import io.aeron.Publication;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes {@link ProbeCodec} probes at a fixed rate against an intended-start-time schedule so that coordinated
+ * omission does not hide stalls. Each message carries a sequence number, the publication's session id as the sender
+ * and the time it was <em>meant</em> to be sent; when the publication is back pressured, not connected or doing an
+ * admin action the offer is retried rather than dropped, so the delay surfaces in the receiver's percentiles and in the
+ * local schedule lag.
+ * <p>
+ * When a rate step is configured the rate is raised after each step until the achieved rate falls short of the target
+ * or the p99 schedule lag exceeds the knee threshold, which is reported as the saturation knee.
+ */
+final class FixedRateLoadGenerator {
+    private static final double ACHIEVED_RATE_THRESHOLD = 0.95;
+
+    private final Publication publication;
+    private final UnsafeBuffer buffer;
+    private final int messageLength;
+    private final AtomicBoolean running;
+    private final int burst;
+    private final long stepNs;
+    private final long kneeLagNs;
+    private final LatencyHistogram scheduleLag = new LatencyHistogram();
+    private final ProbeCodec.Encoder encoder = new ProbeCodec.Encoder();
+
+    private long sequence;
+    private long sent;
+    private long backPressured;
+    private long notConnected;
+    private long adminAction;
+
+    FixedRateLoadGenerator(
+        Publication publication,
+        UnsafeBuffer buffer,
+        int messageLength,
+        AtomicBoolean running,
+        int burst,
+        int stepSeconds,
+        long kneeLagNs) {
+        this.publication = publication;
+        this.buffer = buffer;
+        this.messageLength = messageLength;
+        this.running = running;
+        this.burst = Math.max(burst, 1);
+        this.stepNs = TimeUnit.SECONDS.toNanos(Math.max(stepSeconds, 1));
+        this.kneeLagNs = kneeLagNs;
+        encoder.wrap(buffer, 0, messageLength).senderId(publication.sessionId());
+    }
+
+    /**
+     * Run at a fixed rate, or step the rate up until the knee is found or {@code maxRate} is exceeded.
+     *
+     * @param initialRate messages per second for the first step.
+     * @param rateStep    increase in messages per second after each step, or 0 to keep the rate fixed.
+     * @param maxRate     highest rate to try when stepping, or 0 for no limit.
+     */
+    void run(long initialRate, long rateStep, long maxRate) {
+        long rate = initialRate;
+        while (running.get()) {
+            final boolean saturated = runFor(rate);
+            if (rateStep > 0) {
+                if (saturated) {
+                    System.out.printf("[KNEE][PUB] Saturated at %d msg/s (burst %d), last sustainable rate %d msg/s%n",
+                        rate, burst, Math.max(rate - rateStep, 0));
+                    return;
+                }
+
+                rate += rateStep;
+                if (maxRate > 0 && rate > maxRate) {
+                    System.out.printf("[KNEE][PUB] No saturation up to %d msg/s%n", maxRate);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Run a single step at a fixed rate and print its summary. The step's schedule starts once the publication is
+     * connected, so connection time is not counted as schedule lag.
+     *
+     * @param rate messages per second.
+     * @return true if the publisher could not keep up with the rate.
+     */
+    boolean runFor(long rate) {
+        awaitConnected();
+        final long stepStartNs = System.nanoTime();
+        final long unsent = runStep(rate, stepStartNs);
+        final double elapsedSeconds = (System.nanoTime() - stepStartNs) / 1e9;
+        final double achievedRate = sent / elapsedSeconds;
+
+        System.out.printf("[STEP][PUB] target=%d msg/s achieved=%.0f msg/s sent=%d unsent=%d " +
+            "backPressured=%d notConnected=%d adminAction=%d%n",
+            rate, achievedRate, sent, unsent, backPressured, notConnected, adminAction);
+        scheduleLag.printSummary(System.out, "[STEP][PUB] schedule lag");
+
+        return unsent > 0 ||
+            achievedRate < rate * ACHIEVED_RATE_THRESHOLD ||
+            scheduleLag.valueAtPercentile(99.0) > kneeLagNs;
+    }
+
+    /**
+     * @return offers refused with {@link Publication#BACK_PRESSURED} during the last step.
+     */
+    long backPressured() {
+        return backPressured;
+    }
+
+    private void awaitConnected() {
+        if (!publication.isConnected()) {
+            System.out.println("[PUB] Waiting for a subscriber before starting the schedule");
+            while (running.get() && !publication.isConnected()) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private long runStep(long rate, long stepStartNs) {
+        resetStep();
+        final long intervalNs = Math.max(1, TimeUnit.SECONDS.toNanos(burst) / Math.max(rate, 1));
+        final long stepEndNs = stepStartNs + stepNs;
+        final long deadlineNs = stepEndNs + stepNs;
+        long intendedNs = stepStartNs;
+
+        while (running.get() && intendedNs < stepEndNs) {
+            long nowNs;
+            while ((nowNs = System.nanoTime()) < intendedNs) {
+                Thread.onSpinWait();
+            }
+            if (nowNs > deadlineNs) {
+                return (stepEndNs - intendedNs) / intervalNs * burst;
+            }
+
+            for (int i = 0; i < burst; i++) {
+                send(intendedNs);
+            }
+            intendedNs += intervalNs;
+        }
+
+        return 0;
+    }
+
+    private void send(long intendedNs) {
+        encoder.sendTimestampNs(intendedNs).sequence(sequence++);
+        long result;
+        while ((result = publication.offer(buffer, 0, messageLength)) < 0) {
+            if (result == Publication.BACK_PRESSURED) {
+                backPressured++;
+            } else if (result == Publication.NOT_CONNECTED) {
+                notConnected++;
+            } else if (result == Publication.ADMIN_ACTION) {
+                adminAction++;
+            } else {
+                System.err.printf("[ERROR][PUB] Offer failed with %d, stopping%n", result);
+                running.set(false);
+                return;
+            }
+
+            if (!running.get()) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+
+        sent++;
+        scheduleLag.recordValue(System.nanoTime() - intendedNs);
+    }
+
+    private void resetStep() {
+        scheduleLag.reset();
+        sent = 0;
+        backPressured = 0;
+        notConnected = 0;
+        adminAction = 0;
+    }
+}
@@ -0,0 +1,41 @@
+package dev.test;
+
+import org.agrona.concurrent.BackoffIdleStrategy;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.NoOpIdleStrategy;
+import org.agrona.concurrent.SleepingMillisIdleStrategy;
+import org.agrona.concurrent.YieldingIdleStrategy;
+
+/**
+ * Maps the idle strategy names accepted on the command line to Agrona {@link IdleStrategy} instances.
+ */
+public final class IdleStrategies {
+    public static final String NAMES = "busy, noop, yield, backoff, sleep";
+
+    private IdleStrategies() {
+    }
+
+    /**
+     * New idle strategy for a name. Each call returns a new instance as strategies hold per-thread state.
+     *
+     * @param name one of {@link #NAMES}.
+     * @return the idle strategy.
+     */
+    public static IdleStrategy of(String name) {
+        switch (name.toLowerCase()) {
+            case "busy":
+                return new BusySpinIdleStrategy();
+            case "noop":
+                return new NoOpIdleStrategy();
+            case "yield":
+                return new YieldingIdleStrategy();
+            case "backoff":
+                return new BackoffIdleStrategy();
+            case "sleep":
+                return new SleepingMillisIdleStrategy(1);
+            default:
+                throw new IllegalArgumentException("Unknown idle strategy '" + name + "', expected one of: " + NAMES);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.ExclusivePublication;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.driver.ext.DebugReceiveChannelEndpoint;
+import io.aeron.driver.ext.DebugSendChannelEndpoint;
+import io.aeron.driver.status.SystemCounterDescriptor;
+import io.aeron.driver.status.SystemCounters;
+import io.aeron.logbuffer.FragmentHandler;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SigInt;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.CountersReader;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs a fixed-rate stream over UDP loopback through a driver whose receive endpoint drops frames, to see how
+ * {@link MyCC} or {@link DelayCC} and the tail latency behave under loss. Data frames and outgoing status messages and
+ * NAKs are dropped by separate {@link BurstLossGenerator}s in Aeron's debug channel endpoints. Delay, jitter and
+ * reordering are added with {@link NetemImpairment} since the debug endpoints can only drop.
+ * <p>
+ * Every second the RTT and window from the {@link RttCounters}, the NAK, retransmit and gap fill system counters and
+ * the frames dropped are printed; the subscriber reports latency percentiles.
+ */
+@Command(name = "impair", mixinStandardHelpOptions = true,
+    description = "Measures congestion control and latency under injected loss, delay and reordering")
+public class ImpairmentDemo implements Runnable {
+    private static final int STREAM_ID = 1008;
+    private static final int FRAGMENT_LIMIT = 256;
+
+    @Option(names = {"--host"}, description = "Loopback host", defaultValue = "localhost")
+    private String host;
+
+    @Option(names = {"-p", "--port"}, description = "Port for the stream", defaultValue = "20900")
+    private int port;
+
+    @Option(names = {"--data-loss"}, description = "Fraction of data frames dropped at the receiver", defaultValue = "0.01")
+    private double dataLossRate;
+
+    @Option(names = {"--control-loss"}, description = "Fraction of status messages and NAKs dropped by the receiver", defaultValue = "0")
+    private double controlLossRate;
+
+    @Option(names = {"--burst"}, description = "Mean number of consecutive frames dropped, 1 or less for independent loss", defaultValue = "1")
+    private double meanBurstLength;
+
+    @Option(names = {"--seed"}, description = "Seed for the loss generators", defaultValue = "42")
+    private long seed;
+
+    @Option(names = {"--delay-ms"}, description = "Delay added with tc netem, 0 for none", defaultValue = "0")
+    private double delayMs;
+
+    @Option(names = {"--jitter-ms"}, description = "Delay jitter added with tc netem", defaultValue = "0")
+    private double jitterMs;
+
+    @Option(names = {"--reorder"}, description = "Percentage of packets reordered by tc netem, needs --delay-ms", defaultValue = "0")
+    private double reorderPercent;
+
+    @Option(names = {"--netem-device"}, description = "Device to apply netem to", defaultValue = "lo")
+    private String netemDevice;
+
+    @Option(names = {"--cc"}, description = "Congestion control: " + CongestionControls.NAMES, defaultValue = "mycc")
+    private String congestionControl;
+
+    @Option(names = {"-r", "--rate"}, description = "Publish rate in msg/s", defaultValue = "10000")
+    private long rate;
+
+    @Option(names = {"-l", "--message-length"}, description = "Message length in bytes, at least 8", defaultValue = "32")
+    private int messageLength;
+
+    @Option(names = {"-d", "--duration"}, description = "Duration in seconds", defaultValue = "30")
+    private int durationSeconds;
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new ImpairmentDemo()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        SigInt.register(() -> running.set(false));
+        messageLength = ProbeCodec.messageLength(messageLength);
+        if (!"delay".equalsIgnoreCase(congestionControl) && !Boolean.getBoolean("aeron.CubicCongestionControl.measureRtt")) {
+            System.out.println("[WARN] -Daeron.CubicCongestionControl.measureRtt=true is not set, RTT will not be measured");
+        }
+
+        final BurstLossGenerator dataLoss = new BurstLossGenerator(dataLossRate, meanBurstLength, seed);
+        final BurstLossGenerator controlLoss = new BurstLossGenerator(controlLossRate, meanBurstLength, seed + 1);
+        final BurstLossGenerator noLoss = new BurstLossGenerator(0, 1, seed);
+
+        final MediaDriver.Context driverContext = new MediaDriver.Context()
+            .threadingMode(ThreadingMode.DEDICATED)
+            .conductorIdleStrategy(new BusySpinIdleStrategy())
+            .senderIdleStrategy(new BusySpinIdleStrategy())
+            .receiverIdleStrategy(new BusySpinIdleStrategy())
+            .termBufferSparseFile(false)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true)
+            .congestControlSupplier(CongestionControls.supplier(congestionControl))
+            .sendChannelEndpointSupplier((udpChannel, statusIndicator, context) ->
+                new DebugSendChannelEndpoint(udpChannel, statusIndicator, context, noLoss, noLoss))
+            .receiveChannelEndpointSupplier((udpChannel, dispatcher, statusIndicator, context) ->
+                new DebugReceiveChannelEndpoint(udpChannel, dispatcher, statusIndicator, context, dataLoss, controlLoss));
+
+        final boolean useNetem = delayMs > 0 || reorderPercent > 0;
+        final String channel = "aeron:udp?endpoint=" + host + ":" + port;
+        final LatencyRecorder recorder = new LatencyRecorder();
+        System.out.printf("[IMPAIR] %s cc %s data loss %.3f control loss %.3f burst %.1f, netem delay %.1fms jitter %.1fms reorder %.1f%%%n",
+            channel, congestionControl, dataLossRate, controlLossRate, meanBurstLength, delayMs, jitterMs, reorderPercent);
+
+        try (NetemImpairment netem = useNetem ? NetemImpairment.apply(netemDevice, delayMs, jitterMs, reorderPercent) : null;
+             RttSampleConsumer rttSampleConsumer = CongestionControls.journalConsumer(congestionControl);
+             MediaDriver driver = MediaDriver.launch(driverContext);
+             Aeron aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(driver.aeronDirectoryName()));
+             Subscription subscription = aeron.addSubscription(channel, STREAM_ID);
+             ExclusivePublication publication = aeron.addExclusivePublication(channel, STREAM_ID);
+             LatencyReporter reporter = new LatencyReporter("SUB", recorder, 1)) {
+            if (useNetem && !netem.isApplied()) {
+                System.out.println("[WARN] netem could not be applied, running without delay or reordering");
+            }
+
+            final Thread subscriberThread = new Thread(() -> runSubscriber(subscription, recorder), "impair-sub");
+            final Thread monitorThread = new Thread(
+                () -> monitor(driver.context().systemCounters(), aeron.countersReader(), dataLoss, controlLoss),
+                "impair-monitor");
+            monitorThread.setDaemon(true);
+            subscriberThread.start();
+            monitorThread.start();
+
+            while (running.get() && !publication.isConnected()) {
+                Thread.onSpinWait();
+            }
+
+            final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(messageLength));
+            new FixedRateLoadGenerator(publication, buffer, messageLength, running, 1, durationSeconds, Long.MAX_VALUE)
+                .runFor(rate);
+
+            running.set(false);
+            subscriberThread.join();
+            monitorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runSubscriber(Subscription subscription, LatencyRecorder recorder) {
+        final IdleStrategy idleStrategy = new BusySpinIdleStrategy();
+        final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+        final FragmentHandler handler = (buffer, offset, length, header) ->
+            recorder.recordValue(System.nanoTime() - decoder.wrap(buffer, offset, length).sendTimestampNs());
+        while (running.get()) {
+            idleStrategy.idle(subscription.poll(handler, FRAGMENT_LIMIT));
+        }
+    }
+
+    private void monitor(
+        SystemCounters systemCounters,
+        CountersReader countersReader,
+        BurstLossGenerator dataLoss,
+        BurstLossGenerator controlLoss) {
+        final long startNs = System.nanoTime();
+        long minCwnd = Long.MAX_VALUE;
+        long maxCwnd = 0;
+
+        System.out.printf("%6s %12s %12s %10s %10s %8s %8s %10s %10s%n",
+            "t(s)", "data drops", "ctrl drops", "srtt(us)", "rtt(us)", "cwnd", "naks", "retrans", "gap fills");
+        while (running.get()) {
+            try {
+                TimeUnit.SECONDS.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            final long cwnd = RttCounters.firstValue(countersReader, RttCounters.CWND_TYPE_ID, 0);
+            if (cwnd > 0) {
+                minCwnd = Math.min(minCwnd, cwnd);
+                maxCwnd = Math.max(maxCwnd, cwnd);
+            }
+            System.out.printf("%6d %5d/%-6d %5d/%-6d %10.1f %10.1f %8d %8d %10d %10d%n",
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNs),
+                dataLoss.dropped(), dataLoss.frames(),
+                controlLoss.dropped(), controlLoss.frames(),
+                RttCounters.firstValue(countersReader, RttCounters.SMOOTHED_RTT_TYPE_ID, 0) / 1000.0,
+                RttCounters.firstValue(countersReader, RttCounters.LAST_RTT_TYPE_ID, 0) / 1000.0,
+                cwnd,
+                systemCounters.get(SystemCounterDescriptor.NAK_MESSAGES_SENT).get(),
+                systemCounters.get(SystemCounterDescriptor.RETRANSMITS_SENT).get(),
+                systemCounters.get(SystemCounterDescriptor.LOSS_GAP_FILLS).get());
+        }
+
+        System.out.printf("[IMPAIR] cwnd ranged %d..%d bytes; dropped %d of %d data frames, %d of %d control frames%n",
+            minCwnd == Long.MAX_VALUE ? 0 : minCwnd, maxCwnd,
+            dataLoss.dropped(), dataLoss.frames(), controlLoss.dropped(), controlLoss.frames());
+    }
+}
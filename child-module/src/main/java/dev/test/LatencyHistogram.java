@@ -0,0 +1,237 @@
+package dev.test;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Fixed-memory, log-linear latency histogram in the style of HdrHistogram.
+ * <p>
+ * Values below {@code 2^subBucketBits} are counted exactly. Above that each power-of-two range is split into
+ * {@code 2^(subBucketBits - 1)} linear sub-buckets, so the relative error stays below {@code 2^-(subBucketBits - 1)}
+ * across the whole range. All state lives in a single {@code long[]} sized at construction, so recording never
+ * allocates. Not thread safe; see {@link LatencyRecorder} for handing snapshots between threads.
+ */
+public final class LatencyHistogram {
+    public static final long DEFAULT_HIGHEST_TRACKABLE_VALUE = 1L << 40;  // ~18 minutes in ns
+    public static final int DEFAULT_SUB_BUCKET_BITS = 11;                 // ~0.1% relative error
+
+    private final int subBucketBits;
+    private final int subBucketCount;
+    private final int subBucketHalfCount;
+    private final long highestTrackableValue;
+    private final long[] counts;
+
+    private long totalCount;
+    private long minValue = Long.MAX_VALUE;
+    private long maxValue;
+    private long sum;
+    private long clampedCount;
+
+    public LatencyHistogram() {
+        this(DEFAULT_HIGHEST_TRACKABLE_VALUE, DEFAULT_SUB_BUCKET_BITS);
+    }
+
+    public LatencyHistogram(long highestTrackableValue, int subBucketBits) {
+        if (subBucketBits < 2 || subBucketBits > 20) {
+            throw new IllegalArgumentException("subBucketBits must be in [2, 20]: " + subBucketBits);
+        }
+        if (highestTrackableValue < (1L << subBucketBits)) {
+            throw new IllegalArgumentException("highestTrackableValue too small: " + highestTrackableValue);
+        }
+
+        this.subBucketBits = subBucketBits;
+        this.subBucketCount = 1 << subBucketBits;
+        this.subBucketHalfCount = subBucketCount >> 1;
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new long[countsIndex(highestTrackableValue) + 1];
+    }
+
+    /**
+     * Record a single value. Negative values are recorded as zero and values above the highest trackable value are
+     * clamped to it; both are counted in {@link #clampedCount()}.
+     *
+     * @param value to record, typically a latency in nanoseconds.
+     */
+    public void recordValue(long value) {
+        if (value < 0) {
+            value = 0;
+            clampedCount++;
+        } else if (value > highestTrackableValue) {
+            value = highestTrackableValue;
+            clampedCount++;
+        }
+
+        counts[countsIndex(value)]++;
+        totalCount++;
+        sum += value;
+        if (value < minValue) {
+            minValue = value;
+        }
+        if (value > maxValue) {
+            maxValue = value;
+        }
+    }
+
+    /**
+     * Record a value a number of times, as when rebuilding a histogram from stored bucket counts.
+     *
+     * @param value to record.
+     * @param count of times to record it.
+     */
+    public void recordValueWithCount(long value, long count) {
+        if (count <= 0) {
+            return;
+        }
+        if (value < 0) {
+            value = 0;
+            clampedCount += count;
+        } else if (value > highestTrackableValue) {
+            value = highestTrackableValue;
+            clampedCount += count;
+        }
+
+        counts[countsIndex(value)] += count;
+        totalCount += count;
+        sum += value * count;
+        if (value < minValue) {
+            minValue = value;
+        }
+        if (value > maxValue) {
+            maxValue = value;
+        }
+    }
+
+    /**
+     * Add all counts from another histogram with the same geometry into this one.
+     *
+     * @param other histogram to add.
+     */
+    public void add(LatencyHistogram other) {
+        if (other.counts.length != counts.length || other.subBucketBits != subBucketBits) {
+            throw new IllegalArgumentException("histogram geometry mismatch");
+        }
+        if (other.totalCount == 0) {
+            return;
+        }
+
+        final long[] otherCounts = other.counts;
+        for (int i = 0; i < otherCounts.length; i++) {
+            counts[i] += otherCounts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        clampedCount += other.clampedCount;
+        minValue = Math.min(minValue, other.minValue);
+        maxValue = Math.max(maxValue, other.maxValue);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        clampedCount = 0;
+        minValue = Long.MAX_VALUE;
+        maxValue = 0;
+    }
+
+    public long totalCount() {
+        return totalCount;
+    }
+
+    public long clampedCount() {
+        return clampedCount;
+    }
+
+    public long minValue() {
+        return totalCount == 0 ? 0 : minValue;
+    }
+
+    public long maxValue() {
+        return maxValue;
+    }
+
+    public double mean() {
+        return totalCount == 0 ? 0.0 : (double) sum / totalCount;
+    }
+
+    /**
+     * Value at the given percentile, reported as the highest value equivalent to the bucket it falls in but never
+     * more than the exact recorded maximum.
+     *
+     * @param percentile in the range [0, 100].
+     * @return value at the percentile or 0 if the histogram is empty.
+     */
+    public long valueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        final double p = Math.min(Math.max(percentile, 0.0), 100.0);
+        final long countAtPercentile = Math.max(1, (long) Math.ceil((p / 100.0) * totalCount));
+        long runningCount = 0;
+        for (int i = 0; i < counts.length; i++) {
+            runningCount += counts[i];
+            if (runningCount >= countAtPercentile) {
+                return Math.min(highestEquivalentValue(i), maxValue);
+            }
+        }
+
+        return maxValue;
+    }
+
+    /**
+     * Print a one-line summary of count and p50/p90/p99/p99.9/p99.99/max in microseconds.
+     *
+     * @param out   to print to.
+     * @param label prefix for the line.
+     */
+    public void printSummary(PrintStream out, String label) {
+        out.printf("%s count=%d p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f p99.99=%.2f max=%.2f us%n",
+            label,
+            totalCount,
+            valueAtPercentile(50.0) / 1000.0,
+            valueAtPercentile(90.0) / 1000.0,
+            valueAtPercentile(99.0) / 1000.0,
+            valueAtPercentile(99.9) / 1000.0,
+            valueAtPercentile(99.99) / 1000.0,
+            maxValue / 1000.0);
+    }
+
+    int countsLength() {
+        return counts.length;
+    }
+
+    long countAtIndex(int index) {
+        return counts[index];
+    }
+
+    int countsIndex(long value) {
+        if (value < subBucketCount) {
+            return (int) value;
+        }
+
+        final int shift = (63 - Long.numberOfLeadingZeros(value)) - (subBucketBits - 1);
+        final int subBucketIndex = (int) (value >>> shift);
+        return subBucketCount + ((shift - 1) * subBucketHalfCount) + (subBucketIndex - subBucketHalfCount);
+    }
+
+    long lowestEquivalentValue(int index) {
+        if (index < subBucketCount) {
+            return index;
+        }
+
+        final int offset = index - subBucketCount;
+        final int shift = (offset / subBucketHalfCount) + 1;
+        final long subBucketIndex = (offset % subBucketHalfCount) + subBucketHalfCount;
+        return subBucketIndex << shift;
+    }
+
+    long highestEquivalentValue(int index) {
+        if (index < subBucketCount) {
+            return index;
+        }
+
+        final int shift = ((index - subBucketCount) / subBucketHalfCount) + 1;
+        return lowestEquivalentValue(index) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,59 @@
+package dev.test;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for a latency sample above a threshold, committed at the time the sample was taken. The sample covers
+ * the {@code latency} before the event's start time, which is the window {@link OutlierAnalysis} searches for GC,
+ * safepoint and JIT events.
+ * <p>
+ * Callers compare against the threshold before calling {@link #emit}, so samples below it cost one branch. Outliers
+ * are rare, and the event is usually scalar replaced, so emitting does not add garbage in steady state.
+ */
+@Name(LatencyOutlierEvent.NAME)
+@Label("Latency Outlier")
+@Category({"Aeron", "Latency"})
+@Description("A latency sample above the configured outlier threshold")
+@StackTrace(false)
+public final class LatencyOutlierEvent extends Event {
+    public static final String NAME = "dev.test.LatencyOutlier";
+
+    @Label("Path")
+    @Description("Where the sample was taken: sub, ping or echo")
+    String path;
+
+    @Label("Sequence")
+    long sequence;
+
+    @Label("Session Id")
+    int sessionId;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+
+    /**
+     * Commit an outlier if the event is enabled in any running recording.
+     *
+     * @param path      where the sample was taken.
+     * @param sequence  of the probe, or {@link ProbeCodec#SEQUENCE_NULL}.
+     * @param sessionId of the image the probe arrived on.
+     * @param latencyNs of the sample.
+     */
+    public static void emit(String path, long sequence, int sessionId, long latencyNs) {
+        final LatencyOutlierEvent event = new LatencyOutlierEvent();
+        if (event.isEnabled()) {
+            event.path = path;
+            event.sequence = sequence;
+            event.sessionId = sessionId;
+            event.latency = latencyNs;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package dev.test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Double-buffered {@link LatencyHistogram} for one recording thread and one reporting thread.
+ * <p>
+ * The recording thread only ever writes to the active histogram. The reporting thread swaps in a cleared spare and
+ * waits for an in-flight record, if any, to finish before reading the retired one, so the recorder never blocks or
+ * allocates. The epoch is odd while a record is in progress.
+ */
+public final class LatencyRecorder {
+    private final AtomicLong writerEpoch = new AtomicLong();
+    private volatile LatencyHistogram active;
+    private LatencyHistogram spare;
+
+    public LatencyRecorder() {
+        this(LatencyHistogram.DEFAULT_HIGHEST_TRACKABLE_VALUE, LatencyHistogram.DEFAULT_SUB_BUCKET_BITS);
+    }
+
+    public LatencyRecorder(long highestTrackableValue, int subBucketBits) {
+        this.active = new LatencyHistogram(highestTrackableValue, subBucketBits);
+        this.spare = new LatencyHistogram(highestTrackableValue, subBucketBits);
+    }
+
+    /**
+     * Record a value. Must only be called from a single thread.
+     *
+     * @param value to record.
+     */
+    public void recordValue(long value) {
+        final long epoch = writerEpoch.incrementAndGet();
+        active.recordValue(value);
+        writerEpoch.lazySet(epoch + 1);
+    }
+
+    /**
+     * Swap the active histogram for a cleared one and return the values recorded since the previous call. The returned
+     * histogram is owned by the caller until the next call. Must only be called from a single thread.
+     *
+     * @return histogram of values recorded during the interval.
+     */
+    public LatencyHistogram intervalHistogram() {
+        final LatencyHistogram fresh = spare;
+        fresh.reset();
+
+        final LatencyHistogram retired = active;
+        active = fresh;
+
+        final long epoch = writerEpoch.get();
+        if ((epoch & 1) == 1) {
+            while (writerEpoch.get() == epoch) {
+                Thread.onSpinWait();
+            }
+        }
+
+        spare = retired;
+        return retired;
+    }
+}
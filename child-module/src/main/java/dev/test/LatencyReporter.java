@@ -0,0 +1,102 @@
+package dev.test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Low priority thread that drains a {@link LatencyRecorder} at a fixed interval and prints percentile summaries,
+ * keeping all formatting and I/O off the thread doing the recording.
+ */
+public final class LatencyReporter implements AutoCloseable {
+    private final String component;
+    private final LatencyRecorder recorder;
+    private final long intervalNs;
+    private final ResultJournal journal;
+    private final int journalTag;
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final Thread thread;
+    private volatile boolean isRunning = true;
+    private long intervalStartNs = System.nanoTime();
+
+    public LatencyReporter(String component, LatencyRecorder recorder, int intervalSeconds) {
+        this(component, recorder, intervalSeconds, null, 0);
+    }
+
+    /**
+     * Report as above and also append each interval histogram to a {@link ResultJournal}.
+     *
+     * @param component       name used in the printed lines.
+     * @param recorder        to drain.
+     * @param intervalSeconds between reports.
+     * @param journal         to append intervals to, or null.
+     * @param journalTag      tag for the journaled intervals.
+     */
+    public LatencyReporter(
+        String component, LatencyRecorder recorder, int intervalSeconds, ResultJournal journal, int journalTag) {
+        this.component = component;
+        this.recorder = recorder;
+        this.intervalNs = TimeUnit.SECONDS.toNanos(Math.max(intervalSeconds, 1));
+        this.journal = journal;
+        this.journalTag = journalTag;
+
+        this.thread = new Thread(this::run);
+        this.thread.setName("latency-reporter");
+        this.thread.setDaemon(true);
+        this.thread.setPriority(Thread.MIN_PRIORITY);
+        this.thread.start();
+    }
+
+    private void run() {
+        long deadlineNs = System.nanoTime() + intervalNs;
+        while (isRunning) {
+            final long waitNs = deadlineNs - System.nanoTime();
+            if (waitNs > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                continue;
+            }
+
+            deadlineNs += intervalNs;
+            report();
+        }
+    }
+
+    private void report() {
+        final LatencyHistogram interval = drain();
+        if (interval.totalCount() > 0) {
+            interval.printSummary(System.out, "[LAT][" + component + "][interval]");
+        }
+    }
+
+    private LatencyHistogram drain() {
+        final long nowNs = System.nanoTime();
+        final LatencyHistogram interval = recorder.intervalHistogram();
+        total.add(interval);
+        if (journal != null && interval.totalCount() > 0) {
+            journal.appendInterval(journalTag, intervalStartNs, nowNs, interval);
+        }
+        intervalStartNs = nowNs;
+
+        return interval;
+    }
+
+    /**
+     * Stop the reporting thread, drain what is left in the recorder and print the summary for the whole run.
+     */
+    @Override
+    public void close() {
+        isRunning = false;
+        thread.interrupt();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        drain();
+        total.printSummary(System.out, "[LAT][" + component + "][total]");
+    }
+}
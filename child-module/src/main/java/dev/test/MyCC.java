@@ -4,18 +4,36 @@ import io.aeron.driver.CongestionControl;
 import io.aeron.driver.MediaDriver;
 import io.aeron.driver.ext.CubicCongestionControl;
 import io.aeron.driver.media.UdpChannel;
+import org.agrona.CloseHelper;
 import org.agrona.concurrent.NanoClock;
+import org.agrona.concurrent.status.AtomicCounter;
 import org.agrona.concurrent.status.CountersManager;
 
 import java.net.InetSocketAddress;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Cubic congestion control that journals every RTT sample for reporting off the driver threads. Each instance
+ * serves one image and keeps its call statistics in plain fields, so the hooks neither allocate nor do any I/O.
+ * The latest RTT, min, max, smoothed RTT, sample count and window are also published as {@link RttCounters}.
+ */
 public class MyCC extends CubicCongestionControl {
-    public static final ConcurrentHashMap<InetSocketAddress, Long> rttMeasurements = new ConcurrentHashMap<>();
-    private static final AtomicLong onRttMeasurementCounter = new AtomicLong(0);
-    private static final AtomicLong onRttMeasurementSentCounter = new AtomicLong(0);
-    private static final AtomicLong shouldMeasureRttCounter = new AtomicLong(0);
+    public static final RttSampleJournal JOURNAL = new RttSampleJournal(RttSampleJournal.DEFAULT_CAPACITY);
+
+    private final long registrationId;
+    private final int sessionId;
+    private final int streamId;
+    private final NanoClock nanoClock;
+    private final AtomicCounter lastRtt;
+    private final AtomicCounter minRtt;
+    private final AtomicCounter maxRtt;
+    private final AtomicCounter smoothedRtt;
+    private final AtomicCounter sampleCount;
+    private final AtomicCounter cwnd;
+    private long onRttMeasurementSentCount;
+    private long shouldMeasureRttCount;
+    private long smoothedRttNs;
+    private long minRttNs = Long.MAX_VALUE;
+    private int lastWindowLength;
 
     /**
      * Construct a new {@link CongestionControl} instance for a received stream image using the Cubic algorithm.
@@ -34,42 +52,71 @@ public class MyCC extends CubicCongestionControl {
      */
     public MyCC(long registrationId, UdpChannel udpChannel, int streamId, int sessionId, int termLength, int senderMtuLength, InetSocketAddress controlAddress, InetSocketAddress sourceAddress, NanoClock nanoClock, MediaDriver.Context context, CountersManager countersManager) {
         super(registrationId, udpChannel, streamId, sessionId, termLength, senderMtuLength, controlAddress, sourceAddress, nanoClock, context, countersManager);
+        this.registrationId = registrationId;
+        this.sessionId = sessionId;
+        this.streamId = streamId;
+        this.nanoClock = nanoClock;
+
+        final String channel = udpChannel.originalUriString();
+        lastRtt = RttCounters.allocate(countersManager, "mycc", RttCounters.LAST_RTT_TYPE_ID, registrationId, sessionId, streamId, channel);
+        minRtt = RttCounters.allocate(countersManager, "mycc", RttCounters.MIN_RTT_TYPE_ID, registrationId, sessionId, streamId, channel);
+        maxRtt = RttCounters.allocate(countersManager, "mycc", RttCounters.MAX_RTT_TYPE_ID, registrationId, sessionId, streamId, channel);
+        smoothedRtt = RttCounters.allocate(countersManager, "mycc", RttCounters.SMOOTHED_RTT_TYPE_ID, registrationId, sessionId, streamId, channel);
+        sampleCount = RttCounters.allocate(countersManager, "mycc", RttCounters.SAMPLE_COUNT_TYPE_ID, registrationId, sessionId, streamId, channel);
+        cwnd = RttCounters.allocate(countersManager, "mycc", RttCounters.CWND_TYPE_ID, registrationId, sessionId, streamId, channel);
+        lastWindowLength = initialWindowLength();
+        cwnd.setOrdered(lastWindowLength);
+
+        JOURNAL.appendImageOpened(nanoClock.nanoTime(), registrationId, sessionId, streamId, String.valueOf(sourceAddress));
     }
 
     @Override
     public void onRttMeasurement(long nowNs, long rttNs, InetSocketAddress srcAddress) {
         super.onRttMeasurement(nowNs, rttNs, srcAddress);
-        rttMeasurements.put(srcAddress, rttNs);
-        onRttMeasurementCounter.incrementAndGet();
-        printAllRttMeasurements();
+
+        // smoothed as in RFC 6298 with alpha = 1/8
+        smoothedRttNs = 0 == smoothedRttNs ? rttNs : smoothedRttNs + ((rttNs - smoothedRttNs) >> 3);
+        lastRtt.setOrdered(rttNs);
+        smoothedRtt.setOrdered(smoothedRttNs);
+        maxRtt.proposeMaxOrdered(rttNs);
+        if (rttNs < minRttNs) {
+            minRttNs = rttNs;
+            minRtt.setOrdered(rttNs);
+        }
+        sampleCount.incrementOrdered();
+
+        JOURNAL.appendRttSample(
+            nowNs, registrationId, sessionId, streamId, rttNs, onRttMeasurementSentCount, shouldMeasureRttCount);
     }
 
     @Override
     public void onRttMeasurementSent(long nowNs) {
         super.onRttMeasurementSent(nowNs);
-        onRttMeasurementSentCounter.incrementAndGet();
+        onRttMeasurementSentCount++;
     }
 
     @Override
     public boolean shouldMeasureRtt(long nowNs) {
-        shouldMeasureRttCounter.incrementAndGet();
+        shouldMeasureRttCount++;
         return super.shouldMeasureRtt(nowNs);
     }
 
-    /**
-     * Prints all current RTT measurements stored in the map and function call statistics.
-     * Format: "Source Address -> RTT in nanoseconds"
-     */
-    public static void printAllRttMeasurements() {
-        System.out.println("\n=== RTT Measurements and Statistics ===");
-        System.out.println("Current RTT Measurements:");
-        rttMeasurements.forEach((address, rtt) -> 
-            System.out.printf("%s -> %d ns%n", address, rtt));
-        
-        System.out.println("\nFunction Call Statistics:");
-        System.out.printf("onRttMeasurement calls: %d%n", onRttMeasurementCounter.get());
-        System.out.printf("onRttMeasurementSent calls: %d%n", onRttMeasurementSentCounter.get());
-        System.out.printf("shouldMeasureRtt calls: %d%n", shouldMeasureRttCounter.get());
-        System.out.println("=====================================\n");
+    @Override
+    public long onTrackRebuild(long nowNs, long newConsumptionPosition, long lastSmPosition, long hwmPosition, long startingRebuildPosition, long endingRebuildPosition, boolean lossOccurred) {
+        final long outcome = super.onTrackRebuild(nowNs, newConsumptionPosition, lastSmPosition, hwmPosition, startingRebuildPosition, endingRebuildPosition, lossOccurred);
+        final int windowLength = CongestionControl.receiverWindowLength(outcome);
+        if (windowLength != lastWindowLength) {
+            lastWindowLength = windowLength;
+            cwnd.setOrdered(windowLength);
+        }
+
+        return outcome;
+    }
+
+    @Override
+    public void close() {
+        CloseHelper.closeAll(lastRtt, minRtt, maxRtt, smoothedRtt, sampleCount, cwnd);
+        super.close();
+        JOURNAL.appendImageClosed(nanoClock.nanoTime(), registrationId);
     }
 }
@@ -4,18 +4,15 @@ import io.aeron.Aeron;
 import io.aeron.Publication;
 import io.aeron.Subscription;
 import io.aeron.driver.MediaDriver;
-import io.aeron.driver.ThreadingMode;
 import io.aeron.logbuffer.FragmentHandler;
 import io.aeron.driver.ext.CubicCongestionControl;
-import org.agrona.concurrent.BackoffIdleStrategy;
 import org.agrona.concurrent.SigInt;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
-import org.agrona.concurrent.UnsafeBuffer;
 
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Command(name = "NativeRTTDemo", mixinStandardHelpOptions = true,
     description = "Demonstrates RTT measurement using native Aeron capabilities")
@@ -32,6 +29,23 @@ public class NativeRTTDemo implements Runnable {
 
     private static final int STREAM_ID = 1001;
     private static final String CHANNEL_PREFIX = "aeron:udp?endpoint=";
+
+    @Option(names = {"-l", "--message-length"}, description = "Probe message length in bytes", defaultValue = "32")
+    private int messageLength;
+
+    @Option(names = {"--agent-mode"}, description = "Threads for the driver and the pub or sub agent: " + AgentHost.MODES, defaultValue = AgentHost.SHARED)
+    private String agentMode;
+
+    @Option(names = {"--idle"}, description = "Idle strategy for the pub or sub agent: " + IdleStrategies.NAMES, defaultValue = "backoff")
+    private String idleStrategyName;
+
+    private static final long PUBLISH_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+    private long lastSequence = ProbeCodec.SEQUENCE_NULL;
+    private long lastLatencyNs;
+    private long receivedCount;
+
     private final AtomicBoolean running = new AtomicBoolean(true);
 
     public static void main(String[] args) {
@@ -43,74 +57,63 @@ public class NativeRTTDemo implements Runnable {
     public void run() {
         // Configure MediaDriver with CubicCongestionControl
         final MediaDriver.Context ctx = new MediaDriver.Context()
-            .threadingMode(ThreadingMode.SHARED)
             .dirDeleteOnStart(true)
             .dirDeleteOnShutdown(true)
             .congestControlSupplier(CubicCongestionControl::new);
 
-        try (MediaDriver driver = MediaDriver.launch(ctx);
-             Aeron aeron = Aeron.connect()) {
+        try (AgentHost agentHost = AgentHost.launch(agentMode, ctx, new Aeron.Context())) {
+            System.out.println("Driver in " + agentHost.aeronDirectoryName() + ", agent mode " + agentHost.mode());
+            // Register shutdown hook
+            SigInt.register(() -> running.set(false));
 
             if ("pub".equalsIgnoreCase(mode)) {
-                runPublisher(aeron);
+                runPublisher(agentHost);
             } else if ("sub".equalsIgnoreCase(mode)) {
-                runSubscriber(aeron);
+                runSubscriber(agentHost);
             } else {
                 System.err.println("Invalid mode. Use 'pub' or 'sub'");
-                return;
             }
-
-        } finally {
-            ctx.close();
         }
     }
 
-    private void runPublisher(final Aeron aeron) {
+    private void runPublisher(final AgentHost agentHost) {
         final String channel = CHANNEL_PREFIX + host + ":" + port;
         System.out.println("Publishing to " + channel);
 
-        try (Publication publication = aeron.addPublication(channel, STREAM_ID)) {
-            // Register shutdown hook
-            SigInt.register(() -> running.set(false));
-
-            final BackoffIdleStrategy idleStrategy = new BackoffIdleStrategy();
-            final String messageStr = "RTT Test Message";
-            final UnsafeBuffer buffer = new UnsafeBuffer(new byte[messageStr.getBytes().length]);
-            buffer.putBytes(0, messageStr.getBytes());
-
-            while (running.get()) {
-                System.out.printf("Channel: %s, RTT: %d ms%n",
+        try (Publication publication = agentHost.aeron().addPublication(channel, STREAM_ID)) {
+            // channelStatus() is the channel endpoint status, not an RTT; watch RTT with rtt-stat instead
+            final PublisherAgent publisher = new PublisherAgent("native-rtt-publisher", publication,
+                ProbeCodec.messageLength(messageLength), PUBLISH_INTERVAL_NS, running,
+                (result, messagesSent) -> System.out.printf("Channel: %s, Channel status: %d, Connected: %b%n",
                     publication.channel(),
-                    TimeUnit.NANOSECONDS.toMillis(publication.channelStatus()));
-
-                idleStrategy.idle((int) publication.offer(buffer, 0, buffer.capacity()));
-                Thread.sleep(1000);
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+                    publication.channelStatus(),
+                    publication.isConnected()));
+            agentHost.start(() -> IdleStrategies.of(idleStrategyName), publisher);
+            agentHost.awaitTermination();
         }
     }
 
-    private void runSubscriber(final Aeron aeron) {
+    private void runSubscriber(final AgentHost agentHost) {
         final String channel = CHANNEL_PREFIX + host + ":" + port;
         System.out.println("Subscribing to " + channel);
 
         final FragmentHandler fragmentHandler = (buffer, offset, length, header) -> {
-            final byte[] data = new byte[length];
-            buffer.getBytes(offset, data);
-            System.out.println("Received: " + new String(data));
+            decoder.wrap(buffer, offset, length);
+            lastLatencyNs = System.nanoTime() - decoder.sendTimestampNs();
+            lastSequence = decoder.sequence();
+            receivedCount++;
         };
 
-        try (Subscription subscription = aeron.addSubscription(channel, STREAM_ID)) {
-            // Register shutdown hook
-            SigInt.register(() -> running.set(false));
-
-            while (running.get()) {
-                subscription.poll(fragmentHandler, 10);
-                Thread.sleep(100);
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        try (Subscription subscription = agentHost.aeron().addSubscription(channel, STREAM_ID)) {
+            final SubscriberAgent subscriber = new SubscriberAgent("native-rtt-subscriber", subscription,
+                fragmentHandler, 10, running, fragments -> {
+                    if (fragments > 0) {
+                        System.out.printf("Received: sequence %d, latency %.1f us, total %d%n",
+                            lastSequence, lastLatencyNs / 1000.0, receivedCount);
+                    }
+                });
+            agentHost.start(() -> IdleStrategies.of(idleStrategyName), subscriber);
+            agentHost.awaitTermination();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,98 @@
+package dev.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adds delay, jitter, reordering and a rate limit to a network device with Linux {@code tc netem}, which the driver's debug
+ * endpoints cannot do because they only drop frames. Needs {@code CAP_NET_ADMIN}, usually root. The qdisc is removed
+ * again on close, so run against a device, such as {@code lo}, that has no qdisc of its own.
+ */
+public final class NetemImpairment implements AutoCloseable {
+    private final String device;
+    private boolean applied;
+
+    private NetemImpairment(String device) {
+        this.device = device;
+    }
+
+    /**
+     * Replace the root qdisc of a device with netem.
+     *
+     * @param device         to impair, e.g. {@code lo}.
+     * @param delayMs        added one-way delay in milliseconds.
+     * @param jitterMs       random variation of the delay in milliseconds.
+     * @param reorderPercent of packets sent immediately rather than delayed, and so reordered; needs a delay.
+     * @return the impairment, which has only been applied if {@link #isApplied()}.
+     */
+    public static NetemImpairment apply(String device, double delayMs, double jitterMs, double reorderPercent) {
+        return apply(device, delayMs, jitterMs, reorderPercent, 0);
+    }
+
+    /**
+     * Replace the root qdisc of a device with netem, also limiting its rate so that a queue builds in netem.
+     *
+     * @param device         to impair, e.g. {@code lo}.
+     * @param delayMs        added one-way delay in milliseconds.
+     * @param jitterMs       random variation of the delay in milliseconds.
+     * @param reorderPercent of packets sent immediately rather than delayed, and so reordered; needs a delay.
+     * @param rateMbit       bottleneck rate in megabits per second, or 0 for no limit.
+     * @return the impairment, which has only been applied if {@link #isApplied()}.
+     */
+    public static NetemImpairment apply(
+        String device, double delayMs, double jitterMs, double reorderPercent, double rateMbit) {
+        final NetemImpairment impairment = new NetemImpairment(device);
+        final List<String> command = new ArrayList<>(List.of("tc", "qdisc", "replace", "dev", device, "root", "netem"));
+        command.add("delay");
+        command.add(delayMs + "ms");
+        if (jitterMs > 0) {
+            command.add(jitterMs + "ms");
+        }
+        if (reorderPercent > 0) {
+            command.add("reorder");
+            command.add(reorderPercent + "%");
+        }
+        if (rateMbit > 0) {
+            command.add("rate");
+            command.add(rateMbit + "mbit");
+        }
+
+        impairment.applied = run(command);
+        return impairment;
+    }
+
+    public boolean isApplied() {
+        return applied;
+    }
+
+    @Override
+    public void close() {
+        if (applied) {
+            applied = !run(List.of("tc", "qdisc", "del", "dev", device, "root"));
+        }
+    }
+
+    private static boolean run(List<String> command) {
+        try {
+            final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            final String output;
+            try (InputStream in = process.getInputStream()) {
+                output = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+            }
+            final int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                System.err.printf("[WARN][NETEM] '%s' failed with %d: %s%n", String.join(" ", command), exitCode, output);
+            }
+            return exitCode == 0;
+        } catch (IOException e) {
+            System.err.printf("[WARN][NETEM] Could not run tc: %s%n", e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package dev.test;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads {@link LatencyOutlierEvent}s from JFR recordings and attributes each one to the JVM activity that overlaps
+ * the time the sample covers: a GC pause, a safepoint, a deoptimization or a compilation of at least
+ * {@link OutlierRecording#COMPILATION_THRESHOLD}, checked in that order. An outlier that overlaps none of them points
+ * at the network, the driver or the OS and is counted as unexplained.
+ * <p>
+ * Each outlier covers {@code [start - latency, start]}, widened by {@code --slack-us} on both sides to allow for
+ * timestamp skew between the JVM's event clock and {@link System#nanoTime()}.
+ */
+@Command(name = "jfr-outliers", mixinStandardHelpOptions = true,
+    description = "Attributes latency outliers in JFR recordings to GC pauses, safepoints and JIT activity")
+public class OutlierAnalysis implements Runnable {
+    static final String GC = "gc pause";
+    static final String SAFEPOINT = "safepoint";
+    static final String DEOPTIMIZATION = "deoptimization";
+    static final String COMPILATION = "jit compilation";
+    static final String UNEXPLAINED = "unexplained";
+    static final List<String> CATEGORIES = List.of(GC, SAFEPOINT, DEOPTIMIZATION, COMPILATION);
+
+    @Parameters(arity = "1..*", description = "JFR recording files")
+    private List<File> files;
+
+    @Option(names = {"--slack-us"}, description = "Microseconds added to both sides of each outlier's window", defaultValue = "100")
+    private long slackMicros;
+
+    @Option(names = {"--path"}, description = "Only analyse outliers from this path: sub, ping or echo")
+    private String pathFilter;
+
+    @Option(names = {"--top"}, description = "Number of the largest outliers to list", defaultValue = "10")
+    private int top;
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new OutlierAnalysis()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        final Timeline timeline = new Timeline();
+        final List<Outlier> outliers = new ArrayList<>();
+        for (final File file : files) {
+            try (RecordingFile recordingFile = new RecordingFile(file.toPath())) {
+                while (recordingFile.hasMoreEvents()) {
+                    read(recordingFile.readEvent(), timeline, outliers);
+                }
+            } catch (IOException e) {
+                System.err.printf("[ERROR][OUTLIERS] Could not read %s: %s%n", file, e.getMessage());
+            }
+        }
+
+        timeline.sort();
+        final long slackNs = TimeUnit.MICROSECONDS.toNanos(slackMicros);
+        final Map<String, LatencyHistogram> byCategory = new LinkedHashMap<>();
+        for (final String category : CATEGORIES) {
+            byCategory.put(category, new LatencyHistogram());
+        }
+        byCategory.put(UNEXPLAINED, new LatencyHistogram());
+
+        for (final Outlier outlier : outliers) {
+            final String category = timeline.attribute(
+                outlier.endNs - outlier.latencyNs - slackNs, outlier.endNs + slackNs);
+            outlier.category = category == null ? UNEXPLAINED : category;
+            byCategory.get(outlier.category).recordValue(outlier.latencyNs);
+        }
+
+        printSummary(outliers.size(), byCategory, timeline);
+        printTop(outliers);
+    }
+
+    private void read(RecordedEvent event, Timeline timeline, List<Outlier> outliers) {
+        final String name = event.getEventType().getName();
+        final long startNs = epochNs(event.getStartTime());
+        final long endNs = epochNs(event.getEndTime());
+        switch (name) {
+            case LatencyOutlierEvent.NAME:
+                final String path = event.getString("path");
+                if (pathFilter == null || pathFilter.equals(path)) {
+                    outliers.add(new Outlier(
+                        path, event.getLong("sequence"), event.getInt("sessionId"), event.getLong("latency"), startNs));
+                }
+                break;
+            case OutlierRecording.GC_PAUSE:
+                timeline.add(GC, startNs, endNs);
+                break;
+            case OutlierRecording.SAFEPOINT_SYNC:
+            case OutlierRecording.SAFEPOINT_BEGIN:
+                timeline.add(SAFEPOINT, startNs, endNs);
+                break;
+            case OutlierRecording.DEOPTIMIZATION:
+                timeline.add(DEOPTIMIZATION, startNs, endNs);
+                break;
+            case OutlierRecording.COMPILATION:
+                // recordings started with other settings may hold every compilation
+                if (endNs - startNs >= OutlierRecording.COMPILATION_THRESHOLD.toNanos()) {
+                    timeline.add(COMPILATION, startNs, endNs);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static long epochNs(Instant instant) {
+        return TimeUnit.SECONDS.toNanos(instant.getEpochSecond()) + instant.getNano();
+    }
+
+    private static void printSummary(int total, Map<String, LatencyHistogram> byCategory, Timeline timeline) {
+        System.out.printf("[OUTLIERS] %d outliers; recording has %s%n", total, timeline.describe());
+        if (total == 0) {
+            return;
+        }
+
+        System.out.printf("%-16s %8s %8s %12s %12s%n", "attributed to", "count", "share", "p50(us)", "max(us)");
+        for (final Map.Entry<String, LatencyHistogram> entry : byCategory.entrySet()) {
+            final LatencyHistogram histogram = entry.getValue();
+            if (histogram.totalCount() == 0) {
+                System.out.printf("%-16s %8d %7.1f%% %12s %12s%n", entry.getKey(), 0, 0.0, "-", "-");
+                continue;
+            }
+            System.out.printf("%-16s %8d %7.1f%% %12.1f %12.1f%n",
+                entry.getKey(), histogram.totalCount(), 100.0 * histogram.totalCount() / total,
+                histogram.valueAtPercentile(50.0) / 1000.0, histogram.maxValue() / 1000.0);
+        }
+    }
+
+    private void printTop(List<Outlier> outliers) {
+        if (outliers.isEmpty() || top <= 0) {
+            return;
+        }
+
+        outliers.sort(Comparator.comparingLong((Outlier outlier) -> outlier.latencyNs).reversed());
+        System.out.printf("%n%-30s %-6s %12s %12s %12s  %s%n", "time", "path", "sequence", "session", "latency(us)", "attributed to");
+        for (int i = 0; i < Math.min(top, outliers.size()); i++) {
+            final Outlier outlier = outliers.get(i);
+            System.out.printf("%-30s %-6s %12d %12d %12.1f  %s%n",
+                Instant.ofEpochSecond(0, outlier.endNs), outlier.path, outlier.sequence, outlier.sessionId,
+                outlier.latencyNs / 1000.0, outlier.category);
+        }
+    }
+
+    private static final class Outlier {
+        private final String path;
+        private final long sequence;
+        private final int sessionId;
+        private final long latencyNs;
+        private final long endNs;
+        private String category;
+
+        private Outlier(String path, long sequence, int sessionId, long latencyNs, long endNs) {
+            this.path = path;
+            this.sequence = sequence;
+            this.sessionId = sessionId;
+            this.latencyNs = latencyNs;
+            this.endNs = endNs;
+        }
+    }
+
+    /**
+     * Intervals of JVM activity per category, searched for overlap with an outlier's window.
+     */
+    static final class Timeline {
+        private final Map<String, List<long[]>> intervals = new LinkedHashMap<>();
+        private final Map<String, long[][]> sorted = new LinkedHashMap<>();
+        private final Map<String, Long> longestNs = new LinkedHashMap<>();
+
+        Timeline() {
+            for (final String category : CATEGORIES) {
+                intervals.put(category, new ArrayList<>());
+            }
+        }
+
+        void add(String category, long startNs, long endNs) {
+            intervals.get(category).add(new long[]{startNs, Math.max(startNs, endNs)});
+            longestNs.merge(category, Math.max(0, endNs - startNs), Math::max);
+        }
+
+        void sort() {
+            for (final Map.Entry<String, List<long[]>> entry : intervals.entrySet()) {
+                final long[][] array = entry.getValue().toArray(new long[0][]);
+                Arrays.sort(array, Comparator.comparingLong(interval -> interval[0]));
+                sorted.put(entry.getKey(), array);
+            }
+        }
+
+        /**
+         * First category, in {@link #CATEGORIES} order, with an interval overlapping a window. Must be called after
+         * {@link #sort()}.
+         *
+         * @param windowStartNs start of the window.
+         * @param windowEndNs   end of the window.
+         * @return the category or null if nothing overlaps.
+         */
+        String attribute(long windowStartNs, long windowEndNs) {
+            for (final String category : CATEGORIES) {
+                final long[][] array = sorted.get(category);
+                final long longest = longestNs.getOrDefault(category, 0L);
+                for (int i = lowerBound(array, windowStartNs - longest); i < array.length; i++) {
+                    if (array[i][0] > windowEndNs) {
+                        break;
+                    }
+                    if (array[i][1] >= windowStartNs) {
+                        return category;
+                    }
+                }
+            }
+
+            return null;
+        }
+
+        String describe() {
+            final StringBuilder builder = new StringBuilder();
+            for (final String category : CATEGORIES) {
+                if (builder.length() > 0) {
+                    builder.append(", ");
+                }
+                builder.append(intervals.get(category).size()).append(' ').append(category).append(" events");
+            }
+            return builder.toString();
+        }
+
+        private static int lowerBound(long[][] array, long startNs) {
+            int low = 0;
+            int high = array.length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (array[mid][0] < startNs) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package dev.test;
+
+import jdk.jfr.Recording;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+
+/**
+ * A JFR recording with only the events {@link OutlierAnalysis} needs: {@link LatencyOutlierEvent}, GC pauses,
+ * safepoint synchronization, deoptimizations and compilations of at least {@link #COMPILATION_THRESHOLD}. No sampling
+ * or allocation events are enabled, so it is cheap enough to leave on for a whole run. The recording is written to the
+ * file on close.
+ * <p>
+ * Running with {@code -XX:StartFlightRecording} and any settings that enable the same events works as well.
+ */
+public final class OutlierRecording implements AutoCloseable {
+    static final String GC_PAUSE = "jdk.GCPhasePause";
+    static final String SAFEPOINT_SYNC = "jdk.SafepointStateSynchronization";
+    static final String SAFEPOINT_BEGIN = "jdk.SafepointBegin";
+    static final String DEOPTIMIZATION = "jdk.Deoptimization";
+    static final String COMPILATION = "jdk.Compilation";
+    // short compilations are frequent and too brief to delay a message, so only the long ones are kept
+    static final Duration COMPILATION_THRESHOLD = Duration.ofMillis(1);
+
+    private final Recording recording;
+    private final File file;
+
+    private OutlierRecording(File file) {
+        this.file = file;
+        this.recording = new Recording();
+        recording.setName("latency-outliers");
+        recording.enable(LatencyOutlierEvent.class);
+        recording.enable(GC_PAUSE);
+        recording.enable(SAFEPOINT_SYNC);
+        recording.enable(SAFEPOINT_BEGIN);
+        recording.enable(DEOPTIMIZATION).withoutStackTrace();
+        recording.enable(COMPILATION).withThreshold(COMPILATION_THRESHOLD);
+        recording.setToDisk(true);
+    }
+
+    /**
+     * Start recording.
+     *
+     * @param file the recording is written to on close.
+     * @return the running recording.
+     */
+    public static OutlierRecording start(File file) {
+        final OutlierRecording outlierRecording = new OutlierRecording(file);
+        try {
+            outlierRecording.recording.setDestination(file.toPath());
+        } catch (IOException e) {
+            outlierRecording.recording.close();
+            throw new UncheckedIOException(e);
+        }
+        outlierRecording.recording.start();
+        System.out.printf("[JFR] Recording latency outliers, GC, safepoint and JIT events to %s%n", file);
+        return outlierRecording;
+    }
+
+    @Override
+    public void close() {
+        recording.stop();
+        recording.close();
+        System.out.printf("[JFR] Wrote %s, analyse with OutlierAnalysis %s%n", file, file);
+    }
+}
@@ -0,0 +1,275 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.ExclusivePublication;
+import io.aeron.FragmentAssembler;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.FrameDescriptor;
+import io.aeron.logbuffer.Header;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SigInt;
+import org.agrona.concurrent.UnsafeBuffer;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Steps the message size from a single timestamp up to multi-fragment messages and, at each size, runs a warmup, a
+ * fixed-rate latency phase and an unthrottled throughput phase over an embedded driver.
+ * <p>
+ * Every message goes through a {@link FragmentAssembler} so its cost is measured at every size: the time spent inside
+ * the assembler per message, and for fragmented messages the span from the first fragment being polled to the
+ * reassembled message being delivered.
+ */
+@Command(name = "payload-sweep", mixinStandardHelpOptions = true,
+    description = "Measures latency, throughput and reassembly cost across message sizes")
+public class PayloadSweepDemo implements Runnable {
+    private static final int STREAM_ID = 1005;
+    private static final int FRAGMENT_LIMIT = 256;
+    private static final long DRAIN_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(5);
+
+    @Option(names = {"-s", "--sizes"}, split = ",", description = "Message sizes in bytes, at least 8",
+        defaultValue = "8,32,128,512,1024,1376,1377,2048,4096,8192,16384,32768,65536")
+    private int[] sizes;
+
+    @Option(names = {"-c", "--channel"}, description = "Channel to sweep", defaultValue = "aeron:udp?endpoint=localhost:20500")
+    private String channel;
+
+    @Option(names = {"--mtu"}, description = "MTU for the channel in bytes", defaultValue = "1408")
+    private int mtu;
+
+    @Option(names = {"--term-length"}, description = "Term length for the channel, bounds the largest message to a 1/8 of it", defaultValue = "16m")
+    private String termLength;
+
+    @Option(names = {"-r", "--rate"}, description = "Rate in msg/s for the warmup and latency phases", defaultValue = "10000")
+    private long rate;
+
+    @Option(names = {"-w", "--warmup"}, description = "Warmup seconds per size", defaultValue = "2")
+    private int warmupSeconds;
+
+    @Option(names = {"-d", "--duration"}, description = "Seconds per size for each of the latency and throughput phases", defaultValue = "5")
+    private int durationSeconds;
+
+    @Option(names = {"--idle"}, description = "Idle strategy for the subscriber thread: " + IdleStrategies.NAMES, defaultValue = "busy")
+    private String idleStrategyName;
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new PayloadSweepDemo()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        SigInt.register(() -> running.set(false));
+
+        final MediaDriver.Context driverContext = new MediaDriver.Context()
+            .threadingMode(ThreadingMode.DEDICATED)
+            .conductorIdleStrategy(new BusySpinIdleStrategy())
+            .senderIdleStrategy(new BusySpinIdleStrategy())
+            .receiverIdleStrategy(new BusySpinIdleStrategy())
+            .termBufferSparseFile(false)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true);
+
+        final String sweepChannel = channel + (channel.contains("?") ? "|" : "?") +
+            "mtu=" + mtu + "|term-length=" + termLength;
+        final List<SizeResult> results = new ArrayList<>();
+        try (MediaDriver driver = MediaDriver.launch(driverContext);
+             Aeron aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(driver.aeronDirectoryName()));
+             Subscription subscription = aeron.addSubscription(sweepChannel, STREAM_ID);
+             ExclusivePublication publication = aeron.addExclusivePublication(sweepChannel, STREAM_ID)) {
+            final SweepSubscriber subscriber = new SweepSubscriber(subscription);
+            final Thread subscriberThread = new Thread(subscriber, "payload-sweep-sub");
+            subscriberThread.start();
+
+            while (running.get() && !publication.isConnected()) {
+                Thread.onSpinWait();
+            }
+
+            System.out.printf("[SWEEP] %s max payload %d bytes per fragment, max message %d bytes%n",
+                sweepChannel, publication.maxPayloadLength(), publication.maxMessageLength());
+            try {
+                for (final int size : sizes) {
+                    if (!running.get()) {
+                        break;
+                    }
+                    if (size < ProbeCodec.MIN_LENGTH || size > publication.maxMessageLength()) {
+                        System.out.printf("[WARN][SWEEP] Skipping %d bytes, sizes must be between %d and %d%n",
+                            size, ProbeCodec.MIN_LENGTH, publication.maxMessageLength());
+                        continue;
+                    }
+
+                    results.add(runSize(publication, subscriber, size));
+                }
+            } finally {
+                running.set(false);
+                subscriberThread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        printResults(results);
+    }
+
+    private SizeResult runSize(ExclusivePublication publication, SweepSubscriber subscriber, int size) {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(size));
+        final int fragments = (size + publication.maxPayloadLength() - 1) / publication.maxPayloadLength();
+        System.out.printf("%n[SWEEP] %d bytes, %d fragment(s) per message%n", size, fragments);
+
+        new FixedRateLoadGenerator(publication, buffer, size, running, 1, warmupSeconds, Long.MAX_VALUE).runFor(rate);
+        subscriber.drain();
+        subscriber.intervalResult();
+
+        new FixedRateLoadGenerator(publication, buffer, size, running, 1, durationSeconds, Long.MAX_VALUE).runFor(rate);
+        subscriber.drain();
+        final SizeResult result = subscriber.intervalResult();
+        result.size = size;
+        result.fragments = fragments;
+
+        final long startNs = System.nanoTime();
+        final long endNs = startNs + TimeUnit.SECONDS.toNanos(durationSeconds);
+        final long receivedBefore = subscriber.received.get();
+        final ProbeCodec.Encoder encoder = new ProbeCodec.Encoder().wrap(buffer, 0, size)
+            .senderId(publication.sessionId());
+        long sequence = 0;
+        while (running.get() && System.nanoTime() < endNs) {
+            encoder.sendTimestampNs(System.nanoTime()).sequence(sequence++);
+            if (publication.offer(buffer, 0, size) < 0) {
+                Thread.onSpinWait();
+            }
+        }
+        subscriber.drain();
+        final double seconds = (System.nanoTime() - startNs) / 1e9;
+        result.messagesPerSecond = (subscriber.received.get() - receivedBefore) / seconds;
+        subscriber.intervalResult();
+
+        return result;
+    }
+
+    private static void printResults(List<SizeResult> results) {
+        System.out.printf("%n%8s %5s %10s %10s %10s %10s %12s %10s %12s %12s %12s%n",
+            "bytes", "frags", "p50(us)", "p99(us)", "p99.9(us)", "max(us)", "msgs/s", "MB/s",
+            "asm mean(ns)", "asm p99(ns)", "span p99(us)");
+        for (final SizeResult result : results) {
+            System.out.printf("%8d %5d %10.1f %10.1f %10.1f %10.1f %,12.0f %10.2f %12.0f %12d %12s%n",
+                result.size, result.fragments,
+                result.latency.valueAtPercentile(50.0) / 1000.0,
+                result.latency.valueAtPercentile(99.0) / 1000.0,
+                result.latency.valueAtPercentile(99.9) / 1000.0,
+                result.latency.maxValue() / 1000.0,
+                result.messagesPerSecond,
+                result.messagesPerSecond * result.size / (1024 * 1024),
+                result.assembly.mean(),
+                result.assembly.valueAtPercentile(99.0),
+                result.span.totalCount() == 0 ? "-" : String.format("%.1f", result.span.valueAtPercentile(99.0) / 1000.0));
+        }
+    }
+
+    private static final class SizeResult {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram assembly = new LatencyHistogram();
+        private final LatencyHistogram span = new LatencyHistogram();
+        private int size;
+        private int fragments;
+        private double messagesPerSecond;
+    }
+
+    /**
+     * Polls through a {@link FragmentAssembler}, timing the assembler separately from the end-to-end latency.
+     */
+    private final class SweepSubscriber implements Runnable, FragmentHandler {
+        private final Subscription subscription;
+        private final FragmentAssembler assembler = new FragmentAssembler(this::onMessage);
+        private final LatencyRecorder latency = new LatencyRecorder();
+        private final LatencyRecorder assembly = new LatencyRecorder();
+        private final LatencyRecorder span = new LatencyRecorder();
+        private final AtomicLong received = new AtomicLong();
+        private final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+        private long receivedCount;
+        private long firstFragmentNs;
+        private long fragmentStartNs;
+        private long assemblerNs;
+
+        private SweepSubscriber(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void run() {
+            final IdleStrategy idleStrategy = IdleStrategies.of(idleStrategyName);
+            while (running.get()) {
+                idleStrategy.idle(subscription.poll(this, FRAGMENT_LIMIT));
+            }
+        }
+
+        @Override
+        public void onFragment(DirectBuffer buffer, int offset, int length, Header header) {
+            final byte flags = header.flags();
+            fragmentStartNs = System.nanoTime();
+            if ((flags & FrameDescriptor.BEGIN_FRAG_FLAG) != 0) {
+                firstFragmentNs = fragmentStartNs;
+            }
+
+            assembler.onFragment(buffer, offset, length, header);
+            if ((flags & FrameDescriptor.END_FRAG_FLAG) == 0) {
+                assemblerNs += System.nanoTime() - fragmentStartNs;
+            }
+        }
+
+        private void onMessage(DirectBuffer buffer, int offset, int length, Header header) {
+            final long nowNs = System.nanoTime();
+            assemblerNs += nowNs - fragmentStartNs;
+            latency.recordValue(nowNs - decoder.wrap(buffer, offset, length).sendTimestampNs());
+            assembly.recordValue(assemblerNs);
+            if (firstFragmentNs != fragmentStartNs) {
+                span.recordValue(nowNs - firstFragmentNs);
+            }
+            assemblerNs = 0;
+            received.lazySet(++receivedCount);
+        }
+
+        /**
+         * Wait until nothing more has arrived for a short while so one phase does not bleed into the next.
+         */
+        private void drain() {
+            final long deadlineNs = System.nanoTime() + DRAIN_TIMEOUT_NS;
+            long last = -1;
+            long current;
+            while (running.get() && (current = received.get()) != last && System.nanoTime() < deadlineNs) {
+                last = current;
+                try {
+                    TimeUnit.MILLISECONDS.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Take what was recorded since the previous call.
+         */
+        private SizeResult intervalResult() {
+            final SizeResult result = new SizeResult();
+            result.latency.add(latency.intervalHistogram());
+            result.assembly.add(assembly.intervalHistogram());
+            result.span.add(span.intervalHistogram());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package dev.test;
+
+import io.aeron.ExclusivePublication;
+import io.aeron.Subscription;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentTerminationException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pinger side of a ping/pong round trip. Once both streams are connected it keeps up to {@code window} probes
+ * outstanding, sending each with {@link ExclusivePublication#tryClaim} and recording the round trip of each pong against
+ * its own clock. Pongs come from an {@link EchoAgent}.
+ */
+public final class PingAgent implements Agent {
+    private static final int FRAGMENT_LIMIT = 10;
+
+    private final ExclusivePublication publication;
+    private final Subscription subscription;
+    private final int messageLength;
+    private final int window;
+    private final LatencyRecorder recorder;
+    private final ResultJournal journal;
+    private final int journalStreamId;
+    private final long outlierThresholdNs;
+    private final long logIntervalNs;
+    private final AtomicBoolean running;
+    private final BufferClaim bufferClaim = new BufferClaim();
+    private final ProbeCodec.Encoder encoder = new ProbeCodec.Encoder();
+    private final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+    private final FragmentHandler pongHandler = this::onPong;
+    private boolean connected;
+    private long lastLogNs = System.nanoTime();
+    private long pingsSent;
+    private long pongsReceived;
+    private long outOfOrderPongs;
+    private long backPressureEvents;
+
+    /**
+     * @param publication        to send pings on.
+     * @param subscription       to receive pongs on.
+     * @param messageLength      of each ping, from {@link ProbeCodec#messageLength(int)}.
+     * @param window             maximum pings outstanding.
+     * @param recorder           for round trip times.
+     * @param journal            to append every sample to, or null.
+     * @param journalStreamId    samples are journalled under.
+     * @param outlierThresholdNs round trips above this emit a {@link LatencyOutlierEvent}.
+     * @param logIntervalSeconds between status lines, 0 for none.
+     * @param running            cleared to terminate the agent.
+     */
+    public PingAgent(
+        ExclusivePublication publication,
+        Subscription subscription,
+        int messageLength,
+        int window,
+        LatencyRecorder recorder,
+        ResultJournal journal,
+        int journalStreamId,
+        long outlierThresholdNs,
+        int logIntervalSeconds,
+        AtomicBoolean running) {
+        this.publication = publication;
+        this.subscription = subscription;
+        this.messageLength = messageLength;
+        this.window = window;
+        this.recorder = recorder;
+        this.journal = journal;
+        this.journalStreamId = journalStreamId;
+        this.outlierThresholdNs = outlierThresholdNs;
+        this.logIntervalNs = TimeUnit.SECONDS.toNanos(logIntervalSeconds);
+        this.running = running;
+    }
+
+    @Override
+    public int doWork() {
+        if (!running.get()) {
+            throw new AgentTerminationException();
+        }
+
+        if (!connected) {
+            connected = publication.isConnected() && subscription.isConnected();
+            return 0;
+        }
+
+        int workCount = 0;
+        while (pingsSent - pongsReceived < window && sendPing()) {
+            pingsSent++;
+            workCount++;
+        }
+        workCount += subscription.poll(pongHandler, FRAGMENT_LIMIT);
+        logStatus();
+        return workCount;
+    }
+
+    private boolean sendPing() {
+        if (publication.tryClaim(messageLength, bufferClaim) > 0) {
+            encoder.wrap(bufferClaim.buffer(), bufferClaim.offset(), messageLength)
+                .sequence(pingsSent)
+                .senderId(publication.sessionId())
+                .echoTimestampNs(ProbeCodec.ECHO_TIMESTAMP_NULL)
+                .sendTimestampNs(System.nanoTime());
+            bufferClaim.commit();
+            return true;
+        }
+
+        backPressureEvents++;
+        return false;
+    }
+
+    private void onPong(DirectBuffer buffer, int offset, int length, Header header) {
+        decoder.wrap(buffer, offset, length);
+        final long sequence = decoder.sequence();
+        final long nowNs = System.nanoTime();
+        final long rttNs = nowNs - decoder.sendTimestampNs();
+        recorder.recordValue(rttNs);
+        if (rttNs > outlierThresholdNs) {
+            LatencyOutlierEvent.emit("ping", sequence, header.sessionId(), rttNs);
+        }
+        if (journal != null) {
+            journal.appendSample(journalStreamId, nowNs, rttNs);
+        }
+        if (sequence != pongsReceived) {
+            outOfOrderPongs++;
+        }
+        pongsReceived++;
+    }
+
+    private void logStatus() {
+        final long nowNs = System.nanoTime();
+        if (logIntervalNs > 0 && nowNs - lastLogNs >= logIntervalNs) {
+            System.out.printf("[STATUS][ping] Ping/pong connected: %b/%b, Sent: %d, Received: %d, Outstanding: %d%n",
+                publication.isConnected(), subscription.isConnected(), pingsSent, pongsReceived,
+                pingsSent - pongsReceived);
+            lastLogNs = nowNs;
+        }
+    }
+
+    public long pingsSent() {
+        return pingsSent;
+    }
+
+    public long pongsReceived() {
+        return pongsReceived;
+    }
+
+    public long outOfOrderPongs() {
+        return outOfOrderPongs;
+    }
+
+    public long backPressureEvents() {
+        return backPressureEvents;
+    }
+
+    @Override
+    public String roleName() {
+        return "ping";
+    }
+}
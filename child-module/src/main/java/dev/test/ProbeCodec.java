@@ -0,0 +1,142 @@
+package dev.test;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+
+import java.nio.ByteOrder;
+
+/**
+ * Fixed layout flyweight codec, in the style of SBE, for the probe messages the demos send. Fields are read and
+ * written in place in the {@link org.agrona.concurrent.UnsafeBuffer} or {@link io.aeron.logbuffer.BufferClaim}, so
+ * neither side allocates.
+ * <pre>
+ *   0                   1                   2                   3
+ *   0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1
+ *  +---------------------------------------------------------------+
+ *  |                      Send Timestamp (ns)                      |
+ *  |                                                               |
+ *  +---------------------------------------------------------------+
+ *  |                           Sequence                            |
+ *  |                                                               |
+ *  +---------------------------------------------------------------+
+ *  |                      Echo Timestamp (ns)                      |
+ *  |                                                               |
+ *  +---------------------------------------------------------------+
+ *  |                           Sender Id                           |
+ *  +---------------------------------------------------------------+
+ *  |                           Reserved                            |
+ *  +---------------------------------------------------------------+
+ *  |                       Padding to length                      ...
+ * ...                                                              |
+ *  +---------------------------------------------------------------+
+ * </pre>
+ * The send timestamp comes first so a message can be as short as {@link #MIN_LENGTH}. As with SBE's block length,
+ * fields that do not fit in a shorter message are not written and decode as their null value. Padding is never
+ * touched, so a larger message costs the same to encode and decode. Fields are little endian.
+ */
+public final class ProbeCodec {
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    public static final int SEND_TIMESTAMP_OFFSET = 0;
+    public static final int SEQUENCE_OFFSET = SEND_TIMESTAMP_OFFSET + Long.BYTES;
+    public static final int ECHO_TIMESTAMP_OFFSET = SEQUENCE_OFFSET + Long.BYTES;
+    public static final int SENDER_ID_OFFSET = ECHO_TIMESTAMP_OFFSET + Long.BYTES;
+    public static final int BLOCK_LENGTH = SENDER_ID_OFFSET + Integer.BYTES + Integer.BYTES;
+    public static final int MIN_LENGTH = SEQUENCE_OFFSET;
+
+    public static final long SEQUENCE_NULL = -1;
+    public static final long ECHO_TIMESTAMP_NULL = 0;
+    public static final int SENDER_ID_NULL = 0;
+
+    private ProbeCodec() {
+    }
+
+    /**
+     * @param targetLength requested message length in bytes.
+     * @return the length to send, at least {@link #MIN_LENGTH}.
+     */
+    public static int messageLength(int targetLength) {
+        return Math.max(targetLength, MIN_LENGTH);
+    }
+
+    /**
+     * Writes the fields of a probe that fit in the wrapped length.
+     */
+    public static final class Encoder {
+        private MutableDirectBuffer buffer;
+        private int offset;
+        private int length;
+
+        public Encoder wrap(MutableDirectBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+            return this;
+        }
+
+        public Encoder sendTimestampNs(long value) {
+            buffer.putLong(offset + SEND_TIMESTAMP_OFFSET, value, BYTE_ORDER);
+            return this;
+        }
+
+        public Encoder sequence(long value) {
+            if (length >= SEQUENCE_OFFSET + Long.BYTES) {
+                buffer.putLong(offset + SEQUENCE_OFFSET, value, BYTE_ORDER);
+            }
+            return this;
+        }
+
+        public Encoder echoTimestampNs(long value) {
+            if (length >= ECHO_TIMESTAMP_OFFSET + Long.BYTES) {
+                buffer.putLong(offset + ECHO_TIMESTAMP_OFFSET, value, BYTE_ORDER);
+            }
+            return this;
+        }
+
+        public Encoder senderId(int value) {
+            if (length >= SENDER_ID_OFFSET + Integer.BYTES) {
+                buffer.putInt(offset + SENDER_ID_OFFSET, value, BYTE_ORDER);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Reads the fields of a probe, returning the null value for those the message is too short to hold.
+     */
+    public static final class Decoder {
+        private DirectBuffer buffer;
+        private int offset;
+        private int length;
+
+        public Decoder wrap(DirectBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+            return this;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public long sendTimestampNs() {
+            return buffer.getLong(offset + SEND_TIMESTAMP_OFFSET, BYTE_ORDER);
+        }
+
+        public long sequence() {
+            return length >= SEQUENCE_OFFSET + Long.BYTES ?
+                buffer.getLong(offset + SEQUENCE_OFFSET, BYTE_ORDER) : SEQUENCE_NULL;
+        }
+
+        public long echoTimestampNs() {
+            return length >= ECHO_TIMESTAMP_OFFSET + Long.BYTES ?
+                buffer.getLong(offset + ECHO_TIMESTAMP_OFFSET, BYTE_ORDER) : ECHO_TIMESTAMP_NULL;
+        }
+
+        public int senderId() {
+            return length >= SENDER_ID_OFFSET + Integer.BYTES ?
+                buffer.getInt(offset + SENDER_ID_OFFSET, BYTE_ORDER) : SENDER_ID_NULL;
+        }
+    }
+}
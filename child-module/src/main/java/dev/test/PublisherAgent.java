@@ -0,0 +1,90 @@
+package dev.test;
+
+import io.aeron.Publication;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentTerminationException;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Offers a {@link ProbeCodec} probe once per interval. The clock is checked on each duty cycle rather than sleeping,
+ * so the agent can share a thread with others and the runner's idle strategy decides how the time between probes is
+ * spent. A failed offer waits for the next interval.
+ */
+public final class PublisherAgent implements Agent {
+    /**
+     * Called on the agent's thread after every offer.
+     */
+    @FunctionalInterface
+    public interface OfferHandler {
+        void onOfferResult(long result, long messagesSent);
+    }
+
+    private final String roleName;
+    private final Publication publication;
+    private final int messageLength;
+    private final long intervalNs;
+    private final AtomicBoolean running;
+    private final OfferHandler offerHandler;
+    private final UnsafeBuffer buffer;
+    private final ProbeCodec.Encoder encoder;
+    private long nextOfferNs;
+    private long messagesSent;
+
+    /**
+     * @param roleName      of the agent.
+     * @param publication   to offer probes on.
+     * @param messageLength of each probe, from {@link ProbeCodec#messageLength(int)}.
+     * @param intervalNs    between offers.
+     * @param running       cleared to terminate the agent.
+     * @param offerHandler  told the result of each offer.
+     */
+    public PublisherAgent(
+        String roleName,
+        Publication publication,
+        int messageLength,
+        long intervalNs,
+        AtomicBoolean running,
+        OfferHandler offerHandler) {
+        this.roleName = roleName;
+        this.publication = publication;
+        this.messageLength = messageLength;
+        this.intervalNs = intervalNs;
+        this.running = running;
+        this.offerHandler = offerHandler;
+        this.buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(messageLength));
+        this.encoder = new ProbeCodec.Encoder().wrap(buffer, 0, messageLength).senderId(publication.sessionId());
+    }
+
+    @Override
+    public int doWork() {
+        if (!running.get()) {
+            throw new AgentTerminationException();
+        }
+
+        final long nowNs = System.nanoTime();
+        if (nowNs - nextOfferNs < 0) {
+            return 0;
+        }
+
+        encoder.sendTimestampNs(nowNs).sequence(messagesSent);
+        final long result = publication.offer(buffer, 0, messageLength);
+        if (result > 0) {
+            messagesSent++;
+        }
+        nextOfferNs = nowNs + intervalNs;
+        offerHandler.onOfferResult(result, messagesSent);
+        return 1;
+    }
+
+    public long messagesSent() {
+        return messagesSent;
+    }
+
+    @Override
+    public String roleName() {
+        return roleName;
+    }
+}
@@ -2,46 +2,79 @@ package dev.test;
 
 import io.aeron.*;
 import io.aeron.driver.MediaDriver;
-import io.aeron.logbuffer.FragmentHandler;
 import org.agrona.CloseHelper;
 import org.agrona.concurrent.*;
 import picocli.CommandLine;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.io.File;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
-
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ping/pong round trip measurement. The pinger sends a {@link ProbeCodec} probe with a sequence number and send
+ * timestamp on the ping stream, the ponger echoes it back with its own echo timestamp on a separate pong stream through
+ * {@link ExclusivePublication#tryClaim}, and the pinger records the round trip against its own clock.
+ * Up to {@code --window} pings may be outstanding at once.
+ * <p>
+ * Each side is a {@link PingAgent} or {@link EchoAgent} run by an {@link AgentHost}, so {@code --agent-mode invoker}
+ * runs the driver, the client conductor and the agent on one thread.
+ */
 @CommandLine.Command(name = "RTTObtainer", mixinStandardHelpOptions = true)
 public class RTTObtainer implements Runnable
 {
-    @CommandLine.Option(names = {"-m", "--mode"}, description = "pub/sub")
+    @CommandLine.Option(names = {"-m", "--mode"}, description = "ping/pong (pub/sub are accepted as aliases)")
     private String mode = "pub";
 
-    @CommandLine.Option(names = {"-p", "--port"}, description = "Port number")
+    @CommandLine.Option(names = {"-p", "--port"}, description = "Port number for the ping stream")
     private int port = 20121;
 
+    @CommandLine.Option(names = {"--pong-port"}, description = "Port number for the pong return stream")
+    private int pongPort = 20122;
+
     @CommandLine.Option(names = {"-c", "--channel"}, description = "Channel")
     private String channel = "aeron:udp?endpoint=localhost:";
 
+    @CommandLine.Option(names = {"--ping-stream"}, description = "Stream id pings are sent on")
+    private int pingStreamId = 1001;
+
+    @CommandLine.Option(names = {"--pong-stream"}, description = "Stream id pongs are returned on")
+    private int pongStreamId = 1002;
+
+    @CommandLine.Option(names = {"-w", "--window"}, description = "Maximum number of outstanding pings")
+    private int window = 1;
+
+    @CommandLine.Option(names = {"--message-length"}, description = "Probe message length in bytes, padded past the probe fields")
+    private int messageLength = ProbeCodec.BLOCK_LENGTH;
+
     @CommandLine.Option(names = {"-l", "--log-interval"}, description = "Log interval in seconds (0 to disable)")
     private int logIntervalSeconds = 5;
 
     @CommandLine.Option(names = {"-d", "--debug"}, description = "Enable debug logging")
     private boolean debugEnabled = false;
 
-    private static final int STREAM_ID = 1001;
-    private static final int FRAGMENT_LIMIT = 10;
-    private static final AtomicLong RTT_NANOS = new AtomicLong();
-    private static final UnsafeBuffer RTT_BUFFER = new UnsafeBuffer(new byte[64]);
-    
-    private MediaDriver mediaDriver;
-    private Aeron aeron;
-    private Subscription subscription;
-    private Publication publication;
+    @CommandLine.Option(names = {"--journal"}, description = "Append every RTT sample and interval histogram to this result journal file")
+    private File journalFile;
+
+    @CommandLine.Option(names = {"--journal-capacity"}, description = "Records the result journal can hold")
+    private long journalCapacity = ResultJournal.DEFAULT_CAPACITY;
 
-    private long lastLogTime = 0;
-    private long messagesSent = 0;  // Add counter for publisher stats
+    @CommandLine.Option(names = {"--outlier-threshold-us"}, description = "Emit a JFR event for RTT or echo times above this many microseconds")
+    private long outlierThresholdMicros = 1000;
+
+    @CommandLine.Option(names = {"--jfr"}, description = "Record outliers with GC, safepoint and JIT events to this JFR file")
+    private File jfrFile;
+
+    @CommandLine.Option(names = {"--agent-mode"}, description = "Threads for the driver and the ping or pong agent: " + AgentHost.MODES)
+    private String agentMode = AgentHost.DEDICATED;
+
+    @CommandLine.Option(names = {"--idle"}, description = "Idle strategy for the agent runner: " + IdleStrategies.NAMES)
+    private String idleStrategyName = "busy";
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    private AgentHost host;
+    private Subscription subscription;
+    private ExclusivePublication publication;
 
     private void debug(String message) {
         if (debugEnabled) {
@@ -57,100 +90,70 @@ public class RTTObtainer implements Runnable
     @Override
     public void run()
     {
-        final String fullChannel = channel + (mode.equals("pub") ? port : port);
-        debug("Starting with channel: " + fullChannel);
-        
-        try
+        final boolean isPinger = "pub".equals(mode) || "ping".equals(mode);
+        final String pingChannel = channel + port;
+        final String pongChannel = channel + pongPort;
+        debug("Ping channel: " + pingChannel + " stream " + pingStreamId);
+        debug("Pong channel: " + pongChannel + " stream " + pongStreamId);
+
+        SigInt.register(() -> running.set(false));
+
+        try (OutlierRecording outlierRecording = jfrFile == null ? null : OutlierRecording.start(jfrFile))
         {
-            mediaDriver = MediaDriver.launchEmbedded();
-            aeron = Aeron.connect(new Aeron.Context()
-                .aeronDirectoryName(mediaDriver.aeronDirectoryName()));
+            host = AgentHost.launchEmbedded(agentMode, new MediaDriver.Context(), new Aeron.Context());
+            System.out.println("Driver in " + host.aeronDirectoryName() + ", agent mode " + host.mode() +
+                ", idle strategy " + idleStrategyName);
 
-            if (mode.equals("pub"))
+            if (isPinger)
             {
-                debug("Initializing publisher");
-                publication = aeron.addPublication(fullChannel, STREAM_ID);
-                ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
-                scheduledExecutorService.scheduleAtFixedRate(this::sendRttMeasurement, 0, 1, TimeUnit.SECONDS);
+                publication = host.aeron().addExclusivePublication(pingChannel, pingStreamId);
+                subscription = host.aeron().addSubscription(pongChannel, pongStreamId);
+                System.out.println("Started ping on " + pingChannel + ", awaiting pongs on " + pongChannel +
+                    ", window " + window);
+                runPinger();
             }
             else
             {
-                debug("Initializing subscriber");
-                subscription = aeron.addSubscription(fullChannel, STREAM_ID);
-                pollForMessages();
+                subscription = host.aeron().addSubscription(pingChannel, pingStreamId);
+                publication = host.aeron().addExclusivePublication(pongChannel, pongStreamId);
+                System.out.println("Started pong on " + pingChannel + ", echoing to " + pongChannel);
+                runPonger();
             }
-
-            System.out.println("Started " + mode + " on " + fullChannel);
-            Thread.currentThread().join();
-        }
-        catch (InterruptedException ignored)
-        {
         }
         finally
         {
-            CloseHelper.closeAll(publication, subscription, aeron, mediaDriver);
+            CloseHelper.closeAll(publication, subscription, host);
         }
     }
 
-    private void sendRttMeasurement()
+    private void runPinger()
     {
-        debug("Sending RTT measurement");
-        RTT_BUFFER.putLong(0, System.nanoTime());
-        long result = publication.offer(RTT_BUFFER, 0, Long.BYTES);
-        messagesSent++;
-        debug("Send result: " + result);
-
-        long currentTime = System.nanoTime();
-        if (logIntervalSeconds > 0 && 
-            TimeUnit.NANOSECONDS.toSeconds(currentTime - lastLogTime) >= logIntervalSeconds)
+        final LatencyRecorder recorder = new LatencyRecorder();
+        try (ResultJournal journal = journalFile == null ? null : ResultJournal.create(journalFile, journalCapacity);
+            LatencyReporter reporter = new LatencyReporter("PING", recorder, logIntervalSeconds, journal, pongStreamId))
         {
-            System.out.printf("[STATUS][%s] Active on channel: %s, Messages sent: %d, Publication connected: %b%n",
-                mode, publication.channel(), messagesSent, publication.isConnected());
-            lastLogTime = currentTime;
+            final PingAgent pingAgent = new PingAgent(publication, subscription, ProbeCodec.messageLength(messageLength),
+                window, recorder, journal, pongStreamId, TimeUnit.MICROSECONDS.toNanos(outlierThresholdMicros),
+                logIntervalSeconds, running);
+
+            debug("Waiting for ping publication and pong subscription to connect");
+            host.start(() -> IdleStrategies.of(idleStrategyName), pingAgent);
+            host.awaitTermination();
+
+            System.out.printf(
+                "[SUMMARY][%s] Pings sent: %d, Pongs received: %d, Out of order: %d, Back pressured: %d%n", mode, pingAgent.pingsSent(), pingAgent.pongsReceived(), pingAgent.outOfOrderPongs(),
+                pingAgent.backPressureEvents());
         }
     }
 
-    private void pollForMessages()
+    private void runPonger()
     {
-        final FragmentHandler handler = (buffer, offset, length, header) ->
-        {
-            debug("Received message with length: " + length);
-            final long timestampNs = buffer.getLong(offset);
-            final long rttNs = System.nanoTime() - timestampNs;
-            RTT_NANOS.set(rttNs);
-            
-            if (publication == null)
-            {
-                debug("Creating publication for response");
-                publication = aeron.addPublication(channel + port, STREAM_ID);
-                long result = publication.offer(buffer, offset, length);
-                debug("Response send result: " + result);
-            }
-        };
+        final EchoAgent echoAgent = new EchoAgent(subscription, publication,
+            TimeUnit.MICROSECONDS.toNanos(outlierThresholdMicros), logIntervalSeconds, running);
+        host.start(() -> IdleStrategies.of(idleStrategyName), echoAgent);
+        host.awaitTermination();
 
-        final IdleStrategy idle = new BusySpinIdleStrategy();
-        debug("Starting message polling loop");
-        
-        while (true)
-        {
-            final int fragments = subscription.poll(handler, FRAGMENT_LIMIT);
-            idle.idle(fragments);
-            
-            long currentTime = System.nanoTime();
-            if (logIntervalSeconds > 0 && 
-                TimeUnit.NANOSECONDS.toSeconds(currentTime - lastLogTime) >= logIntervalSeconds)
-            {
-                System.out.printf("[STATUS][%s] Active on channel: %s, Fragments received: %d, Subscription connected: %b%n",
-                    mode, subscription.channel(), fragments, subscription.isConnected());
-                lastLogTime = currentTime;
-            }
-
-            final long rtt = RTT_NANOS.getAndSet(0);
-            if (rtt > 0)
-            {
-                System.out.printf("Channel: %s RTT: %,d µs%n",
-                    subscription.channel(), TimeUnit.NANOSECONDS.toMicros(rtt));
-            }
-        }
+        System.out.printf("[SUMMARY][%s] Pings echoed: %d, Back pressured: %d%n",
+            mode, echoAgent.pingsEchoed(), echoAgent.backPressureEvents());
     }
-}
\ No newline at end of file
+}
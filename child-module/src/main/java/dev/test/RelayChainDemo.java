@@ -0,0 +1,383 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.ExclusivePublication;
+import io.aeron.Publication;
+import io.aeron.Subscription;
+import io.aeron.driver.Configuration;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+import io.aeron.protocol.DataHeaderFlyweight;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SigInt;
+import org.agrona.concurrent.UnsafeBuffer;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Chain of relay processes between a source and a sink, as in a gateway, sequencer and fan-out pipeline. Hop
+ * {@code i} subscribes on port {@code base + i} and republishes on {@code base + i + 1}. Each relay forwards with
+ * {@link ExclusivePublication#tryClaim}, copying the probe straight from the received term into the outgoing one and
+ * appending the time it received it, so a probe reaching the sink carries one timestamp per hop after its
+ * {@link ProbeCodec} fields:
+ * <pre>
+ *   | probe, --message-length bytes | hop 0 receive ns | hop 1 receive ns | ... |
+ * </pre>
+ * The sink splits the total latency into legs, source to hop 0 up to the last hop to sink, and also reports latency
+ * cumulatively up to each hop, which shows which stage owns the tail and how the tail compounds. All processes must
+ * share a host so their {@link System#nanoTime()} agree.
+ * <p>
+ * Role {@code all} starts each relay as a separate JVM with its own driver and runs the source and the sink here.
+ */
+@Command(name = "relay-chain", mixinStandardHelpOptions = true,
+    description = "Measures per hop latency through a chain of relay processes")
+public class RelayChainDemo implements Runnable {
+    private static final int STREAM_ID = 1024;
+    private static final int FRAGMENT_LIMIT = 10;
+    private static final int RELAY_GRACE_SECONDS = 10;
+    private static final long DRAIN_NS = TimeUnit.SECONDS.toNanos(1);
+
+    @Option(names = {"--role"}, description = "all, source, relay or sink", defaultValue = "all")
+    private String role;
+
+    @Option(names = {"-n", "--hops"}, description = "Relays between the source and the sink", defaultValue = "3")
+    private int hops;
+
+    @Option(names = {"--hop"}, description = "Index of this relay, for --role relay", defaultValue = "0")
+    private int hop;
+
+    @Option(names = {"--host"}, description = "Host all hops run on", defaultValue = "localhost")
+    private String host;
+
+    @Option(names = {"-p", "--base-port"}, description = "Port the first relay subscribes on; each hop uses the next", defaultValue = "20300")
+    private int basePort;
+
+    @Option(names = {"-r", "--rate"}, description = "Source rate in msg/s", defaultValue = "10000")
+    private long rate;
+
+    @Option(names = {"-l", "--message-length"}, description = "Probe length in bytes at the source, before hop timestamps", defaultValue = "32")
+    private int messageLength;
+
+    @Option(names = {"-w", "--warmup"}, description = "Warmup seconds, not recorded by the sink", defaultValue = "3")
+    private int warmupSeconds;
+
+    @Option(names = {"-d", "--duration"}, description = "Measured seconds", defaultValue = "10")
+    private int durationSeconds;
+
+    @Option(names = {"--idle"}, description = "Idle strategy for relay and sink pollers: " + IdleStrategies.NAMES, defaultValue = "busy")
+    private String idleStrategyName;
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new RelayChainDemo()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        SigInt.register(() -> running.set(false));
+        messageLength = ProbeCodec.messageLength(messageLength);
+        final int maxPayloadLength = Configuration.mtuLength() - DataHeaderFlyweight.HEADER_LENGTH;
+        if (messageLength + hops * Long.BYTES > maxPayloadLength) {
+            System.err.printf("[ERROR][RELAY] %d hops grow %d byte probes to %d bytes, past the %d byte payload%n",
+                hops, messageLength, messageLength + hops * Long.BYTES, maxPayloadLength);
+            return;
+        }
+
+        switch (role.toLowerCase()) {
+            case "all":
+                runAll();
+                break;
+            case "source":
+                try (MediaDriver driver = launchDriver(); Aeron aeron = connect(driver)) {
+                    runSource(aeron);
+                }
+                break;
+            case "relay":
+                runRelay();
+                break;
+            case "sink":
+                try (MediaDriver driver = launchDriver(); Aeron aeron = connect(driver)) {
+                    final Sink sink = new Sink(aeron);
+                    sink.run();
+                    sink.printResults();
+                }
+                break;
+            default:
+                System.err.println("Invalid role. Use 'all', 'source', 'relay' or 'sink'");
+                break;
+        }
+    }
+
+    private String channel(int index) {
+        return "aeron:udp?endpoint=" + host + ":" + (basePort + index);
+    }
+
+    private static MediaDriver launchDriver() {
+        return MediaDriver.launchEmbedded(new MediaDriver.Context()
+            .threadingMode(ThreadingMode.DEDICATED)
+            .conductorIdleStrategy(new BusySpinIdleStrategy())
+            .senderIdleStrategy(new BusySpinIdleStrategy())
+            .receiverIdleStrategy(new BusySpinIdleStrategy())
+            .termBufferSparseFile(false)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true));
+    }
+
+    private static Aeron connect(MediaDriver driver) {
+        return Aeron.connect(new Aeron.Context()
+            .aeronDirectoryName(driver.aeronDirectoryName())
+            .idleStrategy(new BusySpinIdleStrategy()));
+    }
+
+    private void runAll() {
+        final List<Process> relays = new ArrayList<>();
+        try (MediaDriver driver = launchDriver(); Aeron aeron = connect(driver)) {
+            for (int i = 0; i < hops; i++) {
+                relays.add(startRelayProcess(i));
+            }
+
+            final Sink sink = new Sink(aeron);
+            final Thread sinkThread = new Thread(sink, "relay-chain-sink");
+            sinkThread.start();
+            runSource(aeron);
+            sinkThread.join();
+            sink.printResults();
+        } catch (IOException e) {
+            System.err.printf("[ERROR][RELAY] Could not start relay process: %s%n", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running.set(false);
+            for (final Process relay : relays) {
+                relay.destroy();
+            }
+        }
+    }
+
+    private Process startRelayProcess(int index) throws IOException {
+        final List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.add("--add-opens");
+        command.add("java.base/jdk.internal.misc=ALL-UNNAMED");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(RelayChainDemo.class.getName());
+        command.add("--role=relay");
+        command.add("--hop=" + index);
+        command.add("--host=" + host);
+        command.add("--base-port=" + basePort);
+        command.add("--warmup=" + warmupSeconds);
+        command.add("--duration=" + durationSeconds);
+        command.add("--idle=" + idleStrategyName);
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    private void runSource(Aeron aeron) {
+        try (ExclusivePublication publication = aeron.addExclusivePublication(channel(0), STREAM_ID)) {
+            final int finalLength = messageLength + hops * Long.BYTES;
+            if (finalLength > publication.maxPayloadLength()) {
+                System.err.printf("[ERROR][RELAY] %d hops grow probes to %d bytes, past the %d byte payload%n",
+                    hops, finalLength, publication.maxPayloadLength());
+                running.set(false);
+                return;
+            }
+
+            System.out.printf("[RELAY] Source waiting for hop 0 on %s%n", channel(0));
+            while (running.get() && !publication.isConnected()) {
+                Thread.onSpinWait();
+            }
+
+            final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(messageLength));
+            System.out.printf("[RELAY] Source sending %d byte probes at %d msg/s through %d hops%n", messageLength, rate, hops);
+            new FixedRateLoadGenerator(publication, buffer, messageLength, running, 1, warmupSeconds, Long.MAX_VALUE)
+                .runFor(rate);
+            new FixedRateLoadGenerator(publication, buffer, messageLength, running, 1, durationSeconds, Long.MAX_VALUE)
+                .runFor(rate);
+        }
+    }
+
+    private void runRelay() {
+        final long endNs = System.nanoTime() +
+            TimeUnit.SECONDS.toNanos(warmupSeconds + durationSeconds + RELAY_GRACE_SECONDS);
+
+        try (MediaDriver driver = launchDriver();
+             Aeron aeron = connect(driver);
+             Subscription subscription = aeron.addSubscription(channel(hop), STREAM_ID);
+             ExclusivePublication publication = aeron.addExclusivePublication(channel(hop + 1), STREAM_ID)) {
+            System.out.printf("[RELAY][%d] Forwarding %s to %s%n", hop, channel(hop), channel(hop + 1));
+            final Relay relay = new Relay(publication, endNs);
+            final IdleStrategy idleStrategy = IdleStrategies.of(idleStrategyName);
+            while (running.get() && System.nanoTime() < endNs) {
+                idleStrategy.idle(subscription.poll(relay, FRAGMENT_LIMIT));
+            }
+
+            System.out.printf("[RELAY][%d] Forwarded %d, back pressured claims %d, oversize dropped %d%n",
+                hop, relay.forwarded, relay.backPressured, relay.oversize);
+        } catch (IllegalArgumentException e) {
+            System.err.printf("[ERROR][RELAY][%d] %s%n", hop, e.getMessage());
+        }
+    }
+
+    /**
+     * Forwards each probe to the next hop with its receive time appended.
+     */
+    private final class Relay implements FragmentHandler {
+        private final ExclusivePublication publication;
+        private final long endNs;
+        private final BufferClaim bufferClaim = new BufferClaim();
+        private long forwarded;
+        private long backPressured;
+        private long oversize;
+
+        private Relay(ExclusivePublication publication, long endNs) {
+            this.publication = publication;
+            this.endNs = endNs;
+        }
+
+        @Override
+        public void onFragment(DirectBuffer buffer, int offset, int length, Header header) {
+            final long receivedNs = System.nanoTime();
+            if (length + Long.BYTES > publication.maxPayloadLength()) {
+                oversize++;
+                return;
+            }
+
+            long result;
+            while ((result = publication.tryClaim(length + Long.BYTES, bufferClaim)) < 0) {
+                if (result == Publication.CLOSED || result == Publication.MAX_POSITION_EXCEEDED ||
+                    !running.get() || System.nanoTime() > endNs) {
+                    return;
+                }
+                backPressured++;
+                Thread.onSpinWait();
+            }
+
+            final int claimOffset = bufferClaim.offset();
+            bufferClaim.buffer().putBytes(claimOffset, buffer, offset, length);
+            bufferClaim.buffer().putLong(claimOffset + length, receivedNs, ProbeCodec.BYTE_ORDER);
+            bufferClaim.commit();
+            forwarded++;
+        }
+    }
+
+    /**
+     * Records per leg and cumulative latency from the hop timestamps of each probe.
+     */
+    private final class Sink implements Runnable {
+        private final Aeron aeron;
+        private final LatencyHistogram total = new LatencyHistogram();
+        private final LatencyHistogram[] legs = new LatencyHistogram[hops + 1];
+        private final LatencyHistogram[] cumulative = new LatencyHistogram[hops];
+        private final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+        private long measureStartNs = Long.MAX_VALUE;
+        private long lastReceivedNs;
+        private long malformed;
+
+        private Sink(Aeron aeron) {
+            this.aeron = aeron;
+            for (int i = 0; i < legs.length; i++) {
+                legs[i] = new LatencyHistogram();
+            }
+            for (int i = 0; i < cumulative.length; i++) {
+                cumulative[i] = new LatencyHistogram();
+            }
+        }
+
+        @Override
+        public void run() {
+            final FragmentHandler handler = (buffer, offset, length, header) -> {
+                final long nowNs = System.nanoTime();
+                lastReceivedNs = nowNs;
+                if (measureStartNs == Long.MAX_VALUE) {
+                    measureStartNs = nowNs + TimeUnit.SECONDS.toNanos(warmupSeconds);
+                }
+                final long sentNs = decoder.wrap(buffer, offset, length).sendTimestampNs();
+                if (sentNs < measureStartNs) {
+                    return;
+                }
+                if (length != messageLength + hops * Long.BYTES) {
+                    malformed++;
+                    return;
+                }
+
+                long previousNs = sentNs;
+                for (int i = 0; i < hops; i++) {
+                    final long hopNs = buffer.getLong(offset + messageLength + i * Long.BYTES, ProbeCodec.BYTE_ORDER);
+                    legs[i].recordValue(hopNs - previousNs);
+                    cumulative[i].recordValue(hopNs - sentNs);
+                    previousNs = hopNs;
+                }
+                legs[hops].recordValue(nowNs - previousNs);
+                total.recordValue(nowNs - sentNs);
+            };
+
+            final IdleStrategy idleStrategy = IdleStrategies.of(idleStrategyName);
+            try (Subscription subscription = aeron.addSubscription(channel(hops), STREAM_ID)) {
+                final long durationNs = TimeUnit.SECONDS.toNanos(durationSeconds);
+                final long giveUpNs = TimeUnit.SECONDS.toNanos(warmupSeconds + durationSeconds + RELAY_GRACE_SECONDS);
+                lastReceivedNs = System.nanoTime();
+                while (running.get()) {
+                    final long nowNs = System.nanoTime();
+                    final long idleNs = nowNs - lastReceivedNs;
+                    if (measureStartNs == Long.MAX_VALUE ? idleNs > giveUpNs :
+                        nowNs - measureStartNs > durationNs && idleNs > DRAIN_NS) {
+                        break;
+                    }
+                    idleStrategy.idle(subscription.poll(handler, FRAGMENT_LIMIT));
+                }
+            }
+        }
+
+        private void printResults() {
+            System.out.printf("%n%-20s %10s %10s %10s %10s %10s %10s%n",
+                "leg", "count", "p50(us)", "p99(us)", "p99.9(us)", "max(us)", "p99 share");
+            final double totalP99 = total.valueAtPercentile(99.0);
+            for (int i = 0; i <= hops; i++) {
+                final String from = i == 0 ? "source" : "hop " + (i - 1);
+                final String to = i == hops ? "sink" : "hop " + i;
+                printRow(from + " -> " + to, legs[i], totalP99);
+            }
+            printRow("total", total, totalP99);
+
+            System.out.printf("%n%-20s %10s %10s %10s %10s %10s%n",
+                "cumulative", "count", "p50(us)", "p99(us)", "p99.9(us)", "max(us)");
+            for (int i = 0; i < hops; i++) {
+                printRow("source -> hop " + i, cumulative[i], 0);
+            }
+            printRow("source -> sink", total, 0);
+
+            if (malformed > 0) {
+                System.out.printf("[WARN][RELAY] %d probes had the wrong number of hop timestamps%n", malformed);
+            }
+        }
+
+        private void printRow(String label, LatencyHistogram histogram, double totalP99) {
+            if (histogram.totalCount() == 0) {
+                System.out.printf("%-20s %10d %10s%n", label, 0, "no data");
+                return;
+            }
+            System.out.printf("%-20s %10d %10.1f %10.1f %10.1f %10.1f %10s%n",
+                label, histogram.totalCount(),
+                histogram.valueAtPercentile(50.0) / 1000.0,
+                histogram.valueAtPercentile(99.0) / 1000.0,
+                histogram.valueAtPercentile(99.9) / 1000.0,
+                histogram.maxValue() / 1000.0,
+                totalP99 > 0 ? String.format("%.1f%%", 100.0 * histogram.valueAtPercentile(99.0) / totalP99) : "");
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package dev.test;
+
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Append-only, memory-mapped journal of fixed-length latency records, kept so that a run can be analysed after the
+ * fact with {@link RttReport}.
+ * <p>
+ * A writer claims a slot by atomically advancing the tail and commits it by writing the record type last with an
+ * ordered store, so appends are lock free, never allocate and may come from several threads. Records live in the
+ * page cache as soon as they are written, so everything committed before a JVM crash is still in the file; a slot that
+ * was claimed but not committed reads as type 0 and is skipped. When the file is full further records are counted as
+ * dropped rather than blocking the caller.
+ * <p>
+ * File layout: a {@link #HEADER_LENGTH} byte header followed by {@link #RECORD_LENGTH} byte records.
+ * <pre>
+ * SAMPLE:   type, tag, timestamp (nanoTime), latency ns, 1
+ * INTERVAL: type, tag, end timestamp, start timestamp, count of BUCKET records that follow for the same tag
+ * BUCKET:   type, tag, end timestamp, highest value of the bucket, count
+ * </pre>
+ * Timestamps are the writer's {@link System#nanoTime()}; the header holds the wall clock and nanoTime at creation so a
+ * reader can convert them.
+ */
+public final class ResultJournal implements AutoCloseable {
+    public static final int MAGIC = 0x524A524E;  // "RJRN"
+    public static final int VERSION = 1;
+    public static final long DEFAULT_CAPACITY = 1 << 22;
+
+    public static final int SAMPLE = 1;
+    public static final int INTERVAL = 2;
+    public static final int BUCKET = 3;
+
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int RECORD_LENGTH_FIELD_OFFSET = 8;
+    static final int CAPACITY_OFFSET = 16;
+    static final int START_EPOCH_NS_OFFSET = 24;
+    static final int START_NANO_TIME_OFFSET = 32;
+    static final int TAIL_OFFSET = 64;
+    static final int DROPPED_OFFSET = 72;
+    static final int HEADER_LENGTH = 128;
+
+    static final int TYPE_OFFSET = 0;
+    static final int TAG_OFFSET = 4;
+    static final int TIMESTAMP_OFFSET = 8;
+    static final int VALUE_OFFSET = 16;
+    static final int COUNT_OFFSET = 24;
+    static final int RECORD_LENGTH = 32;
+
+    private final File file;
+    private final MappedByteBuffer mappedBuffer;
+    private final UnsafeBuffer buffer;
+    private final long capacity;
+
+    private ResultJournal(File file, MappedByteBuffer mappedBuffer) {
+        this.file = file;
+        this.mappedBuffer = mappedBuffer;
+        this.buffer = new UnsafeBuffer(mappedBuffer);
+        this.capacity = buffer.getLong(CAPACITY_OFFSET);
+    }
+
+    /**
+     * Create a new journal, replacing any existing file.
+     *
+     * @param file     to create.
+     * @param capacity number of records the file can hold.
+     * @return the journal ready for appending.
+     */
+    public static ResultJournal create(File file, long capacity) {
+        final long length = HEADER_LENGTH + capacity * RECORD_LENGTH;
+        if (capacity <= 0 || length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("capacity out of range: " + capacity);
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IllegalStateException("could not replace " + file);
+        }
+
+        final MappedByteBuffer mappedBuffer = IoUtil.mapNewFile(file, length, false);
+        final UnsafeBuffer header = new UnsafeBuffer(mappedBuffer);
+        header.putInt(VERSION_OFFSET, VERSION);
+        header.putInt(RECORD_LENGTH_FIELD_OFFSET, RECORD_LENGTH);
+        header.putLong(CAPACITY_OFFSET, capacity);
+        header.putLong(START_EPOCH_NS_OFFSET, System.currentTimeMillis() * 1_000_000L);
+        header.putLong(START_NANO_TIME_OFFSET, System.nanoTime());
+        header.putIntOrdered(MAGIC_OFFSET, MAGIC);
+
+        return new ResultJournal(file, mappedBuffer);
+    }
+
+    /**
+     * Open an existing journal, which may still be being written or may have been left behind by a crash.
+     *
+     * @param file to open.
+     * @return the journal.
+     */
+    public static ResultJournal open(File file) {
+        final MappedByteBuffer mappedBuffer = IoUtil.mapExistingFile(file, "result journal");
+        final UnsafeBuffer header = new UnsafeBuffer(mappedBuffer);
+        if (header.getIntVolatile(MAGIC_OFFSET) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION ||
+            header.getInt(RECORD_LENGTH_FIELD_OFFSET) != RECORD_LENGTH) {
+            IoUtil.unmap(mappedBuffer);
+            throw new IllegalStateException("not a version " + VERSION + " result journal: " + file);
+        }
+
+        return new ResultJournal(file, mappedBuffer);
+    }
+
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Append a single latency sample.
+     *
+     * @param tag         identifying the source, e.g. the stream id.
+     * @param timestampNs {@link System#nanoTime()} when the sample was taken.
+     * @param latencyNs   the sample.
+     * @return false if the journal is full and the sample was dropped.
+     */
+    public boolean appendSample(int tag, long timestampNs, long latencyNs) {
+        return append(SAMPLE, tag, timestampNs, latencyNs, 1);
+    }
+
+    /**
+     * Append an interval histogram as an INTERVAL record followed by one BUCKET record per non-empty bucket. Other
+     * writers may interleave records, so readers match buckets to their interval by tag and end timestamp.
+     *
+     * @param tag         identifying the source.
+     * @param startNs     {@link System#nanoTime()} at the start of the interval.
+     * @param endNs       {@link System#nanoTime()} at the end of the interval.
+     * @param histogram   counts for the interval.
+     */
+    public void appendInterval(int tag, long startNs, long endNs, LatencyHistogram histogram) {
+        int buckets = 0;
+        for (int i = 0; i < histogram.countsLength(); i++) {
+            if (histogram.countAtIndex(i) > 0) {
+                buckets++;
+            }
+        }
+
+        append(INTERVAL, tag, endNs, startNs, buckets);
+        for (int i = 0; i < histogram.countsLength(); i++) {
+            final long count = histogram.countAtIndex(i);
+            if (count > 0) {
+                append(BUCKET, tag, endNs, histogram.highestEquivalentValue(i), count);
+            }
+        }
+    }
+
+    private boolean append(int type, int tag, long timestampNs, long value, long count) {
+        final long index = buffer.getAndAddLong(TAIL_OFFSET, 1);
+        if (index >= capacity) {
+            buffer.getAndAddLong(DROPPED_OFFSET, 1);
+            return false;
+        }
+
+        final int offset = HEADER_LENGTH + (int) index * RECORD_LENGTH;
+        buffer.putInt(offset + TAG_OFFSET, tag);
+        buffer.putLong(offset + TIMESTAMP_OFFSET, timestampNs);
+        buffer.putLong(offset + VALUE_OFFSET, value);
+        buffer.putLong(offset + COUNT_OFFSET, count);
+        buffer.putIntOrdered(offset + TYPE_OFFSET, type);
+        return true;
+    }
+
+    /**
+     * Visit every committed record in append order.
+     *
+     * @param handler to receive the records.
+     * @return number of records visited.
+     */
+    public long forEach(RecordHandler handler) {
+        final long limit = Math.min(buffer.getLongVolatile(TAIL_OFFSET), capacity);
+        long visited = 0;
+        for (long index = 0; index < limit; index++) {
+            final int offset = HEADER_LENGTH + (int) index * RECORD_LENGTH;
+            final int type = buffer.getIntVolatile(offset + TYPE_OFFSET);
+            if (type == 0) {
+                continue;
+            }
+
+            handler.onRecord(
+                type,
+                buffer.getInt(offset + TAG_OFFSET),
+                buffer.getLong(offset + TIMESTAMP_OFFSET),
+                buffer.getLong(offset + VALUE_OFFSET),
+                buffer.getLong(offset + COUNT_OFFSET));
+            visited++;
+        }
+
+        return visited;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public long recordCount() {
+        return Math.min(buffer.getLongVolatile(TAIL_OFFSET), capacity);
+    }
+
+    public long droppedRecords() {
+        return buffer.getLongVolatile(DROPPED_OFFSET);
+    }
+
+    /**
+     * Convert a timestamp from the writer's {@link System#nanoTime()} into nanoseconds since the epoch.
+     *
+     * @param timestampNs as stored in a record.
+     * @return wall clock time in nanoseconds.
+     */
+    public long toEpochNs(long timestampNs) {
+        return buffer.getLong(START_EPOCH_NS_OFFSET) + (timestampNs - buffer.getLong(START_NANO_TIME_OFFSET));
+    }
+
+    /**
+     * Timestamp, in the writer's {@link System#nanoTime()}, at which the journal was created.
+     *
+     * @return start timestamp.
+     */
+    public long startTimestampNs() {
+        return buffer.getLong(START_NANO_TIME_OFFSET);
+    }
+
+    /**
+     * Flush the mapped pages to storage and unmap the file.
+     */
+    @Override
+    public void close() {
+        mappedBuffer.force();
+        IoUtil.unmap(mappedBuffer);
+    }
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        void onRecord(int type, int tag, long timestampNs, long value, long count);
+    }
+}
@@ -0,0 +1,126 @@
+package dev.test;
+
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.agrona.concurrent.status.CountersManager;
+import org.agrona.concurrent.status.CountersReader;
+
+/**
+ * Type ids, key layout and labels of the per-image RTT counters {@link MyCC} and {@link DelayCC} allocate in the
+ * driver's CnC file so that {@link RttStat} or any other process can read them without touching the data path.
+ * <p>
+ * The key mirrors Aeron's per-stream counters: registration id, session id and stream id of the image. Both congestion
+ * controls share the type ids, so the label starts with the name of the one that allocated the counter.
+ */
+public final class RttCounters {
+    public static final int LAST_RTT_TYPE_ID = 1101;
+    public static final int MIN_RTT_TYPE_ID = 1102;
+    public static final int MAX_RTT_TYPE_ID = 1103;
+    public static final int SMOOTHED_RTT_TYPE_ID = 1104;
+    public static final int SAMPLE_COUNT_TYPE_ID = 1105;
+    public static final int CWND_TYPE_ID = 1106;
+    public static final int BOTTLENECK_BANDWIDTH_TYPE_ID = 1107;
+
+    public static final int REGISTRATION_ID_OFFSET = 0;
+    public static final int SESSION_ID_OFFSET = REGISTRATION_ID_OFFSET + BitUtil.SIZE_OF_LONG;
+    public static final int STREAM_ID_OFFSET = SESSION_ID_OFFSET + BitUtil.SIZE_OF_INT;
+
+    private RttCounters() {
+    }
+
+    public static boolean isRttCounter(int typeId) {
+        return typeId >= LAST_RTT_TYPE_ID && typeId <= BOTTLENECK_BANDWIDTH_TYPE_ID;
+    }
+
+    public static String name(int typeId) {
+        switch (typeId) {
+            case LAST_RTT_TYPE_ID:
+                return "rtt-last";
+            case MIN_RTT_TYPE_ID:
+                return "rtt-min";
+            case MAX_RTT_TYPE_ID:
+                return "rtt-max";
+            case SMOOTHED_RTT_TYPE_ID:
+                return "rtt-smoothed";
+            case SAMPLE_COUNT_TYPE_ID:
+                return "rtt-samples";
+            case CWND_TYPE_ID:
+                return "cwnd";
+            case BOTTLENECK_BANDWIDTH_TYPE_ID:
+                return "btlbw";
+            default:
+                return "unknown";
+        }
+    }
+
+    /**
+     * Allocate a counter for an image. Must be called on the driver conductor thread, e.g. from a congestion control
+     * constructor.
+     *
+     * @param congestionControl name of the congestion control allocating the counter, see {@link CongestionControls}.
+     */
+    public static AtomicCounter allocate(
+        CountersManager countersManager,
+        String congestionControl,
+        int typeId,
+        long registrationId,
+        int sessionId,
+        int streamId,
+        String channel) {
+        final String label = congestionControl + " " + name(typeId) + ": " + registrationId + " " + sessionId + " " + streamId + " " + channel;
+        return countersManager.newCounter(label, typeId, keyBuffer -> {
+            keyBuffer.putLong(REGISTRATION_ID_OFFSET, registrationId);
+            keyBuffer.putInt(SESSION_ID_OFFSET, sessionId);
+            keyBuffer.putInt(STREAM_ID_OFFSET, streamId);
+        });
+    }
+
+    /**
+     * Value of the first counter of a type, which identifies the image when a driver has only one.
+     *
+     * @return the counter value or {@code defaultValue} if there is no counter of the type.
+     */
+    public static long firstValue(CountersReader countersReader, int typeId, long defaultValue) {
+        final int maxCounterId = countersReader.maxCounterId();
+        for (int counterId = 0; counterId <= maxCounterId; counterId++) {
+            if (countersReader.getCounterState(counterId) == CountersReader.RECORD_ALLOCATED &&
+                countersReader.getCounterTypeId(counterId) == typeId) {
+                return countersReader.getCounterValue(counterId);
+            }
+        }
+
+        return defaultValue;
+    }
+
+    public static long registrationId(DirectBuffer keyBuffer) {
+        return keyBuffer.getLong(REGISTRATION_ID_OFFSET);
+    }
+
+    public static int sessionId(DirectBuffer keyBuffer) {
+        return keyBuffer.getInt(SESSION_ID_OFFSET);
+    }
+
+    public static int streamId(DirectBuffer keyBuffer) {
+        return keyBuffer.getInt(STREAM_ID_OFFSET);
+    }
+
+    /**
+     * Congestion control part of a counter label written by {@link #allocate}.
+     */
+    public static String congestionControl(String label) {
+        final int index = label.indexOf(' ');
+        return index < 0 ? "" : label.substring(0, index);
+    }
+
+    /**
+     * Channel part of a counter label written by {@link #allocate}.
+     */
+    public static String channel(String label) {
+        int index = label.indexOf(": ");
+        for (int i = 0; i < 4 && index >= 0; i++) {
+            index = label.indexOf(' ', index + 1);
+        }
+        return index < 0 ? "" : label.substring(index + 1);
+    }
+}
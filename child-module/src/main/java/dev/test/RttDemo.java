@@ -4,29 +4,28 @@ import io.aeron.Aeron;
 import io.aeron.Publication;
 import io.aeron.Subscription;
 import io.aeron.driver.MediaDriver;
-import io.aeron.driver.ThreadingMode;
 import io.aeron.driver.ext.CubicCongestionControl;
 import io.aeron.logbuffer.FragmentHandler;
 import org.agrona.CloseHelper;
 import org.agrona.concurrent.SigInt;
 import org.agrona.concurrent.UnsafeBuffer;
-import org.agrona.BitUtil;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
+import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 @Command(name = "rtt-demo", mixinStandardHelpOptions = true,
     description = "Demonstrates RTT measurement in Aeron with publisher and subscriber")
 public class RttDemo implements Runnable {
     private static final int STREAM_ID = 1001;
+    private static final int CLOCK_STREAM_ID = 1016;
     private static final int FRAGMENT_LIMIT = 10;
-    private static final int MESSAGE_LENGTH = BitUtil.SIZE_OF_LONG;  // Size of timestamp
-    private static final UnsafeBuffer OFFER_BUFFER = new UnsafeBuffer(new byte[MESSAGE_LENGTH]);
+    private static final long PUBLISH_INTERVAL_NS = TimeUnit.MILLISECONDS.toNanos(100);
 
     @Option(names = {"-m", "--mode"}, description = "Operation mode: 'pub' or 'sub'", required = true)
     private String mode;
@@ -37,9 +36,66 @@ public class RttDemo implements Runnable {
     @Option(names = {"-h", "--host"}, description = "Host to connect to", defaultValue = "localhost")
     private String host;
 
+    @Option(names = {"-l", "--message-length"}, description = "Probe message length in bytes, padded past the probe fields", defaultValue = "32")
+    private int messageLength;
+
     @Option(names = {"-i", "--interval"}, description = "Log interval in seconds", defaultValue = "0")
     private int logIntervalSeconds;
 
+    @Option(names = {"-r", "--rate"}, description = "Fixed publish rate in msg/s, 0 for one message every 100 ms", defaultValue = "0")
+    private long rate;
+
+    @Option(names = {"-b", "--burst"}, description = "Messages sent back to back per scheduled slot at --rate", defaultValue = "1")
+    private int burst;
+
+    @Option(names = {"--rate-step"}, description = "Raise --rate by this many msg/s each step until saturated, 0 to keep it fixed", defaultValue = "0")
+    private long rateStep;
+
+    @Option(names = {"--max-rate"}, description = "Highest rate to try when stepping, 0 for no limit", defaultValue = "0")
+    private long maxRate;
+
+    @Option(names = {"--step-seconds"}, description = "Duration of each rate step in seconds", defaultValue = "5")
+    private int stepSeconds;
+
+    @Option(names = {"--knee-lag-us"}, description = "p99 schedule lag in microseconds that marks saturation", defaultValue = "1000")
+    private long kneeLagMicros;
+
+    @Option(names = {"--journal"}, description = "Append every latency sample and interval histogram to this result journal file")
+    private File journalFile;
+
+    @Option(names = {"--journal-capacity"}, description = "Records the result journal can hold")
+    private long journalCapacity = ResultJournal.DEFAULT_CAPACITY;
+
+    @Option(names = {"--clock-sync"}, description = "Estimate the publisher's clock offset with probes and also report corrected one-way latency")
+    private boolean clockSync;
+
+    @Option(names = {"--clock-host"}, description = "Publisher host that answers clock probes", defaultValue = "localhost")
+    private String clockHost;
+
+    @Option(names = {"--clock-port"}, description = "Port the publisher receives clock probes on; replies use the next port on --host", defaultValue = "20123")
+    private int clockPort;
+
+    @Option(names = {"--outlier-threshold-us"}, description = "Emit a JFR event for latency samples above this many microseconds", defaultValue = "1000")
+    private long outlierThresholdMicros;
+
+    @Option(names = {"--jfr"}, description = "Record outliers with GC, safepoint and JIT events to this JFR file")
+    private File jfrFile;
+
+    @Option(names = {"--thread-layout"}, description = "Pin threads to CPUs: 'auto' for one CPU per thread, isolated ones first, or role=cpu pairs for conductor, sender, receiver and pub or sub")
+    private String threadLayoutSpec;
+
+    @Option(names = {"--agent-mode"}, description = "Threads for the driver and the pub or sub agent: " + AgentHost.MODES, defaultValue = AgentHost.DEDICATED)
+    private String agentMode;
+
+    @Option(names = {"--idle"}, description = "Idle strategy for the pub or sub agent: " + IdleStrategies.NAMES, defaultValue = "busy")
+    private String idleStrategyName;
+
+    private ThreadLayout threadLayout;
+
+    private final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+    private long nextSequence = ProbeCodec.SEQUENCE_NULL;
+    private long sequenceGaps;
+
     private final AtomicBoolean running = new AtomicBoolean(true);
 
     public static void main(String[] args) {
@@ -54,7 +110,6 @@ public class RttDemo implements Runnable {
         // Configure Media Driver with Cubic Congestion Control
         System.out.println("Configuring Media Driver...");
         final MediaDriver.Context mediaDriverContext = new MediaDriver.Context()
-                .threadingMode(ThreadingMode.DEDICATED)
                 .conductorIdleStrategy(new org.agrona.concurrent.BusySpinIdleStrategy())
                 .receiverIdleStrategy(new org.agrona.concurrent.BusySpinIdleStrategy())
                 .senderIdleStrategy(new org.agrona.concurrent.BusySpinIdleStrategy())
@@ -62,215 +117,141 @@ public class RttDemo implements Runnable {
                 .dirDeleteOnStart(true)
                 .dirDeleteOnShutdown(true)
                 .congestControlSupplier(CubicCongestionControl::new);
-
-        // Start Media Driver
-        System.out.println("Launching Media Driver...");
-        MediaDriver mediaDriver = MediaDriver.launch(mediaDriverContext);
-        System.out.println("Media Driver launched successfully");
+        threadLayout = ThreadLayout.parse(threadLayoutSpec,
+            ThreadLayout.CONDUCTOR, ThreadLayout.SENDER, ThreadLayout.RECEIVER, mode.toLowerCase());
+        threadLayout.printPlan(System.out);
+        threadLayout.apply(mediaDriverContext);
 
         // Configure Aeron
-        System.out.println("Configuring Aeron...");
         final Aeron.Context aeronContext = new Aeron.Context()
-            .aeronDirectoryName(mediaDriver.aeronDirectoryName())
-            .idleStrategy(new org.agrona.concurrent.BusySpinIdleStrategy());
+            .idleStrategy(new org.agrona.concurrent.BusySpinIdleStrategy())
+            .threadFactory(threadLayout.threadFactory("client"));
 
-        // Create Aeron instance
-        System.out.println("Connecting to Aeron...");
-        final Aeron aeron = Aeron.connect(aeronContext);
-        System.out.println("Connected to Aeron successfully");
+        // Start Media Driver and connect Aeron
+        System.out.println("Launching Media Driver in agent mode " + agentMode + "...");
+        final AgentHost agentHost = AgentHost.launch(agentMode, mediaDriverContext, aeronContext);
+        System.out.println("Connected to Aeron successfully, driver in " + agentHost.aeronDirectoryName());
 
         // Handle shutdown gracefully
         SigInt.register(() -> running.set(false));
 
-        try {
+        try (OutlierRecording outlierRecording = jfrFile == null ? null : OutlierRecording.start(jfrFile)) {
             final String channel = String.format("aeron:udp?endpoint=%s:%d", host, port);
 
             if ("pub".equalsIgnoreCase(mode)) {
-                runPublisher(aeron, channel);
+                runPublisher(agentHost, channel);
             } else if ("sub".equalsIgnoreCase(mode)) {
-                runSubscriber(aeron, channel);
+                runSubscriber(agentHost, channel);
             } else {
                 System.err.println("Invalid mode. Use 'pub' or 'sub'");
             }
         } finally {
-            CloseHelper.close(aeron);
-            CloseHelper.close(mediaDriver);
+            threadLayout.report(System.out);
+            CloseHelper.close(agentHost);
         }
     }
 
-    private static class AeronLogger {
-        private final int logIntervalSeconds;
-        private long lastLogTime;
-        private static final boolean DEBUG = Boolean.getBoolean("aeron.debug");
-        private final ConcurrentLinkedQueue<String> logQueue = new ConcurrentLinkedQueue<>();
-        private final Thread loggingThread;
-        private volatile boolean isRunning = true;
-
-        public AeronLogger(int logIntervalSeconds) {
-            this.logIntervalSeconds = Math.max(logIntervalSeconds, 1);
-            this.lastLogTime = System.nanoTime();
-            
-            this.loggingThread = new Thread(() -> {
-                while (isRunning && !Thread.currentThread().isInterrupted()) {
-                    String log = logQueue.poll();
-                    if (log != null) {
-                        System.out.println(log);
-                    } else {
-                        try {
-                            Thread.sleep(1);
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            break;
-                        }
-                    }
-                }
-            });
-            this.loggingThread.setName("logging-thread");
-            this.loggingThread.setPriority(Thread.MIN_PRIORITY);
-            this.loggingThread.start();
-        }
-
-        public void logPublisherStatus(Publication publication, long messagesSent) {
-            if (shouldLog()) {
-                System.out.printf("[STATUS][PUB] Channel: %s, Messages sent: %d, Connected: %b, Position: %d%n",
-                    publication.channel(), messagesSent, publication.isConnected(), publication.position());
-            }
-        }
-
-        public void logSubscriberStatus(Subscription subscription, long messagesReceived) {
-            if (shouldLog()) {
-                System.out.printf("[STATUS][SUB] Channel: %s, Messages received: %d, Connected: %b%n",
-                    subscription.channel(), messagesReceived, subscription.isConnected());
-            }
-        }
-
-        public void logPublishResult(long result, Publication publication, long messagesSent) {
-            if (result < 0 || DEBUG) {
-                System.out.printf("[PUB] Offer result: %d, Connected: %b, Messages: %d%n",
-                    result, publication.isConnected(), messagesSent);
-            }
-        }
-
-        public void logSubscribeResult(int fragments, long messagesReceived) {
-            if (fragments > 0 || DEBUG) {
-                System.out.printf("[SUB] Received fragments: %d, Total messages: %d%n",
-                    fragments, messagesReceived);
-            }
-        }
-
-        public void logRtt(long msgCount, int sessionId, long rttNs) {
-                logQueue.offer(String.format("[RTT] Message #%d - Session: %d, RTT: %.2f ms",
-                    msgCount, sessionId, rttNs / 1_000_000.0));
-        }
-
-        public void logStartup(String component, String message) {
-            System.out.printf("[STARTUP][%s] %s%n", component, message);
-        }
-
-        public void logError(String component, String message, Throwable ex) {
-            System.err.printf("[ERROR][%s] %s: %s%n", component, message, ex.getMessage());
-            if (DEBUG) {
-                ex.printStackTrace();
-            }
-        }
+    private void runPublisher(final AgentHost agentHost, final String channel) {
+        System.out.printf("[STARTUP][PUB] Starting publisher on channel: %s%n", channel);
+        final Aeron aeron = agentHost.aeron();
+        final int length = ProbeCodec.messageLength(messageLength);
 
-        private boolean shouldLog() {
-            long currentTime = System.nanoTime();
-            if (TimeUnit.NANOSECONDS.toSeconds(currentTime - lastLogTime) >= logIntervalSeconds) {
-                lastLogTime = currentTime;
-                return true;
+        try (Publication publication = aeron.addPublication(
+                channel + "|term-length=64k|sparse=false", STREAM_ID);
+             ClockSync.Responder responder = clockSync ?
+                 new ClockSync.Responder(aeron, clockRequestChannel(), clockReplyChannel(), CLOCK_STREAM_ID) : null;
+             StatusLogger logger = new StatusLogger(channel, logIntervalSeconds)) {
+            System.out.printf("[STARTUP][PUB] Publication added successfully%s%n",
+                clockSync ? ", answering clock probes on " + clockRequestChannel() : "");
+
+            if (rate > 0) {
+                // the load generator paces itself on this thread, so only the invokers, if any, go on a runner
+                Thread.currentThread().setName("aeron-publisher");
+                threadLayout.pinCurrentThread("pub");
+                agentHost.start(() -> IdleStrategies.of(idleStrategyName), threadLayout.threadFactory("client"));
+                System.out.printf("[STARTUP][PUB] Fixed rate %d msg/s, burst %d%s%n", rate, burst,
+                    rateStep > 0 ? ", stepping by " + rateStep + " msg/s" : "");
+                final UnsafeBuffer offerBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(length));
+                new FixedRateLoadGenerator(publication, offerBuffer, length, running, burst, stepSeconds,
+                    TimeUnit.MICROSECONDS.toNanos(kneeLagMicros)).run(rate, rateStep, maxRate);
+                agentHost.stop();
+                return;
             }
-            return false;
-        }
 
-        public void shutdown() {
-            isRunning = false;
-            loggingThread.interrupt();
-            try {
-                loggingThread.join(1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+            final PublisherAgent publisher = new PublisherAgent("aeron-publisher", publication, length,
+                PUBLISH_INTERVAL_NS, running, (result, messagesSent) -> {
+                    logger.offerResult(result, publication.isConnected(), messagesSent);
+                    logger.publisherStatus(messagesSent, publication.isConnected(), publication.position());
+                });
+            agentHost.start(() -> IdleStrategies.of(idleStrategyName), threadLayout.threadFactory("pub"), publisher);
+            agentHost.awaitTermination();
         }
     }
 
-    private void runPublisher(final Aeron aeron, final String channel) {
-        // Set high priority for publisher thread
-        Thread.currentThread().setPriority(Thread.MAX_PRIORITY);
-        Thread.currentThread().setName("aeron-publisher");
-        
-        AeronLogger logger = new AeronLogger(Math.max(logIntervalSeconds, 1));
-        logger.logStartup("PUB", "Starting publisher on channel: " + channel);
-        long messagesSent = 0;
-
-        try (Publication publication = aeron.addPublication(
-                channel + "|term-length=64k|sparse=false", STREAM_ID)) {
-            logger.logStartup("PUB", "Publication added successfully");
-            
-            while (running.get() && !Thread.currentThread().isInterrupted()) {
-                OFFER_BUFFER.putLong(0, System.nanoTime());
-                final long result = publication.offer(OFFER_BUFFER, 0, MESSAGE_LENGTH);
-                
-                if (result > 0) {
-                    messagesSent++;
+    private void runSubscriber(final AgentHost agentHost, final String channel) {
+        System.out.printf("[STARTUP][SUB] Starting subscriber on channel: %s%n", channel);
+        final Aeron aeron = agentHost.aeron();
+        AtomicLong messagesReceived = new AtomicLong();
+        final long outlierThresholdNs = TimeUnit.MICROSECONDS.toNanos(outlierThresholdMicros);
+        final LatencyRecorder recorder = new LatencyRecorder();
+        final LatencyRecorder oneWayRecorder = new LatencyRecorder();
+
+        try (ResultJournal journal = journalFile == null ? null : ResultJournal.create(journalFile, journalCapacity);
+             ClockSync.Client clockClient = clockSync ? new ClockSync.Client(
+                 aeron, clockRequestChannel(), clockReplyChannel(), CLOCK_STREAM_ID, logIntervalSeconds) : null;
+             Subscription subscription = aeron.addSubscription(
+                channel + "|term-length=64k|sparse=false", STREAM_ID);
+             LatencyReporter reporter = new LatencyReporter("SUB", recorder, logIntervalSeconds, journal, STREAM_ID);
+             LatencyReporter oneWayReporter = clockSync ?
+                 new LatencyReporter("SUB-ONE-WAY", oneWayRecorder, logIntervalSeconds) : null;
+             StatusLogger logger = new StatusLogger(channel, logIntervalSeconds)) {
+            System.out.println("[STARTUP][SUB] Subscription added successfully");
+
+            final ClockSync.Estimate estimate = clockClient == null ? null : clockClient.estimate();
+            final FragmentHandler fragmentHandler = (buffer, offset, length, header) -> {
+                decoder.wrap(buffer, offset, length);
+                final long sendTimeNs = decoder.sendTimestampNs();
+                final long nowNs = System.nanoTime();
+                final long sequence = decoder.sequence();
+                if (sequence != ProbeCodec.SEQUENCE_NULL) {
+                    // the first probe sets the expected sequence, so joining mid-stream is not a gap
+                    if (nextSequence != ProbeCodec.SEQUENCE_NULL && sequence != nextSequence) {
+                        sequenceGaps++;
+                    }
+                    nextSequence = sequence + 1;
                 }
-                
-                // Always log negative results
-                if (result < 0) {
-                    logger.logPublishResult(result, publication, messagesSent);
+                recorder.recordValue(nowNs - sendTimeNs);
+                if (nowNs - sendTimeNs > outlierThresholdNs) {
+                    LatencyOutlierEvent.emit("sub", sequence, header.sessionId(), nowNs - sendTimeNs);
                 }
-                // Ensure status is logged periodically
-                logger.logPublisherStatus(publication, messagesSent);
-
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ex) {
-                    Thread.currentThread().interrupt();
-                    break;
+                if (estimate != null && estimate.isValid()) {
+                    oneWayRecorder.recordValue(nowNs - estimate.toLocalNs(sendTimeNs));
                 }
-            }
-        } finally {
-            logger.shutdown();
+                if (journal != null) {
+                    journal.appendSample(STREAM_ID, nowNs, nowNs - sendTimeNs);
+                }
+                messagesReceived.incrementAndGet();
+            };
+
+            final SubscriberAgent subscriber = new SubscriberAgent("aeron-subscriber", subscription, fragmentHandler,
+                FRAGMENT_LIMIT, running, fragments -> {
+                    logger.pollResult(fragments, messagesReceived.get());
+                    logger.subscriberStatus(messagesReceived.get(), subscription.isConnected());
+                });
+            agentHost.start(() -> IdleStrategies.of(idleStrategyName), threadLayout.threadFactory("sub"), subscriber);
+            agentHost.awaitTermination();
         }
+
+        System.out.printf("[SUMMARY][SUB] Messages received: %d, Sequence gaps: %d%n",
+            messagesReceived.get(), sequenceGaps);
     }
 
-    private void runSubscriber(final Aeron aeron, final String channel) {
-        // Set high priority for subscriber thread
-        Thread.currentThread().setPriority(Thread.MAX_PRIORITY);
-        Thread.currentThread().setName("aeron-subscriber");
-        
-        AeronLogger logger = new AeronLogger(logIntervalSeconds);
-        logger.logStartup("SUB", "Starting subscriber on channel: " + channel);
-        AtomicLong messagesReceived = new AtomicLong();
+    private String clockRequestChannel() {
+        return String.format("aeron:udp?endpoint=%s:%d", clockHost, clockPort);
+    }
 
-        final FragmentHandler fragmentHandler = (buffer, offset, length, header) -> {
-            final long sendTimeNs = buffer.getLong(offset);
-            final long rttNs = System.nanoTime() - sendTimeNs;
-            long msgCount = messagesReceived.incrementAndGet();
-            logger.logRtt(msgCount, header.sessionId(), rttNs);
-        };
-
-        try (Subscription subscription = aeron.addSubscription(
-                channel + "|term-length=64k|sparse=false", STREAM_ID)) {
-            logger.logStartup("SUB", "Subscription added successfully");
-            
-            while (running.get() && !Thread.currentThread().isInterrupted()) {
-                final int fragments = subscription.poll(fragmentHandler, FRAGMENT_LIMIT);
-                logger.logSubscribeResult(fragments, messagesReceived.get());
-                logger.logSubscriberStatus(subscription, messagesReceived.get());
-                
-                try {
-                    if (fragments == 0) {
-                        Thread.sleep(1);
-                    }
-                } catch (InterruptedException ex) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
-        } finally {
-            logger.shutdown();
-        }
+    private String clockReplyChannel() {
+        return String.format("aeron:udp?endpoint=%s:%d", host, clockPort + 1);
     }
 
     private void debug(String message) {
@@ -0,0 +1,157 @@
+package dev.test;
+
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offline analysis of {@link ResultJournal} files: recomputes percentiles per tag over any time window of a run,
+ * optionally split into fixed windows, and diffs a candidate run against a baseline.
+ */
+@Command(name = "rtt-report", mixinStandardHelpOptions = true,
+    description = "Recomputes latency percentiles from result journals and compares runs")
+public class RttReport implements Runnable {
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9, 99.99};
+
+    @Parameters(arity = "1..*", description = "Result journal files; with --diff the first is the baseline")
+    private List<File> files;
+
+    @Option(names = {"--from"}, description = "Start of the window in seconds since the journal was created", defaultValue = "0")
+    private double fromSeconds;
+
+    @Option(names = {"--to"}, description = "End of the window in seconds since the journal was created, 0 for the end of the run", defaultValue = "0")
+    private double toSeconds;
+
+    @Option(names = {"-w", "--window"}, description = "Also print percentiles for consecutive windows of this many seconds", defaultValue = "0")
+    private double windowSeconds;
+
+    @Option(names = {"-t", "--tag"}, description = "Only report this tag, e.g. a stream id")
+    private Integer tag;
+
+    @Option(names = {"--intervals"}, description = "Use the journaled interval histograms instead of raw samples")
+    private boolean useIntervals;
+
+    @Option(names = {"--diff"}, description = "Compare the second journal against the first")
+    private boolean diff;
+
+    @Spec
+    private CommandSpec spec;
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new RttReport()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        if (diff && files.size() != 2) {
+            throw new ParameterException(spec.commandLine(), "--diff needs exactly two journals: baseline and candidate");
+        }
+
+        final TreeMap<Integer, Run> baseline = report(files.get(0));
+        if (diff) {
+            diff(baseline, report(files.get(1)));
+            return;
+        }
+
+        for (int i = 1; i < files.size(); i++) {
+            report(files.get(i));
+        }
+    }
+
+    private TreeMap<Integer, Run> report(File file) {
+        final TreeMap<Integer, Run> runByTag = new TreeMap<>();
+        final long fromNs = (long) (fromSeconds * TimeUnit.SECONDS.toNanos(1));
+        final long toNs = toSeconds <= 0 ? Long.MAX_VALUE : (long) (toSeconds * TimeUnit.SECONDS.toNanos(1));
+        final long windowNs = (long) (windowSeconds * TimeUnit.SECONDS.toNanos(1));
+        final int recordType = useIntervals ? ResultJournal.BUCKET : ResultJournal.SAMPLE;
+
+        try (ResultJournal journal = ResultJournal.open(file)) {
+            final long startNs = journal.startTimestampNs();
+            journal.forEach((type, recordTag, timestampNs, value, count) -> {
+                final long sinceStartNs = timestampNs - startNs;
+                if (type != recordType || (tag != null && tag != recordTag) ||
+                    sinceStartNs < fromNs || sinceStartNs >= toNs) {
+                    return;
+                }
+
+                final Run run = runByTag.computeIfAbsent(recordTag, ignore -> new Run());
+                run.total.recordValueWithCount(value, count);
+                if (windowNs > 0) {
+                    run.windows.computeIfAbsent((sinceStartNs - fromNs) / windowNs, ignore -> new LatencyHistogram())
+                        .recordValueWithCount(value, count);
+                }
+            });
+
+            System.out.printf("%n[REPORT] %s: %d record(s), %d dropped, started %s%n",
+                file, journal.recordCount(), journal.droppedRecords(),
+                Instant.ofEpochSecond(0, journal.toEpochNs(startNs)));
+        }
+
+        for (final Map.Entry<Integer, Run> entry : runByTag.entrySet()) {
+            final Run run = entry.getValue();
+            run.total.printSummary(System.out, "[REPORT][tag " + entry.getKey() + "]");
+            if (!run.windows.isEmpty()) {
+                System.out.printf("%10s %10s %10s %10s %10s %10s%n", "from(s)", "count", "p50(us)", "p99(us)", "p99.9(us)", "max(us)");
+                run.windows.forEach((index, histogram) -> System.out.printf("%10.1f %10d %10.1f %10.1f %10.1f %10.1f%n",
+                    fromSeconds + index * windowSeconds, histogram.totalCount(),
+                    histogram.valueAtPercentile(50.0) / 1000.0,
+                    histogram.valueAtPercentile(99.0) / 1000.0,
+                    histogram.valueAtPercentile(99.9) / 1000.0,
+                    histogram.maxValue() / 1000.0));
+            }
+        }
+
+        return runByTag;
+    }
+
+    private static void diff(TreeMap<Integer, Run> baseline, TreeMap<Integer, Run> candidate) {
+        for (final Map.Entry<Integer, Run> entry : baseline.entrySet()) {
+            final Run other = candidate.get(entry.getKey());
+            if (other == null) {
+                System.out.printf("%n[DIFF][tag %d] only in the baseline%n", entry.getKey());
+                continue;
+            }
+
+            final LatencyHistogram base = entry.getValue().total;
+            final LatencyHistogram cand = other.total;
+            System.out.printf("%n[DIFF][tag %d] baseline %d samples, candidate %d samples%n",
+                entry.getKey(), base.totalCount(), cand.totalCount());
+            System.out.printf("%10s %14s %14s %12s %9s%n", "", "baseline(us)", "candidate(us)", "delta(us)", "delta");
+            for (final double percentile : PERCENTILES) {
+                printDiffRow("p" + percentile, base.valueAtPercentile(percentile), cand.valueAtPercentile(percentile));
+            }
+            printDiffRow("max", base.maxValue(), cand.maxValue());
+            printDiffRow("mean", base.mean(), cand.mean());
+        }
+
+        for (final Integer candidateTag : candidate.keySet()) {
+            if (!baseline.containsKey(candidateTag)) {
+                System.out.printf("%n[DIFF][tag %d] only in the candidate%n", candidateTag);
+            }
+        }
+    }
+
+    private static void printDiffRow(String label, double baselineNs, double candidateNs) {
+        final double deltaNs = candidateNs - baselineNs;
+        System.out.printf("%10s %14.2f %14.2f %+12.2f %+8.1f%%%n",
+            label, baselineNs / 1000.0, candidateNs / 1000.0, deltaNs / 1000.0,
+            baselineNs == 0 ? 0.0 : 100.0 * deltaNs / baselineNs);
+    }
+
+    private static final class Run {
+        private final LatencyHistogram total = new LatencyHistogram();
+        private final TreeMap<Long, LatencyHistogram> windows = new TreeMap<>();
+    }
+}
@@ -0,0 +1,173 @@
+package dev.test;
+
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SleepingMillisIdleStrategy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains an {@link RttSampleJournal} on its own low priority thread, aggregates samples per image and prints the
+ * RTT measurements and call statistics at a fixed interval, well away from the driver threads that produced them.
+ */
+public final class RttSampleConsumer implements AutoCloseable {
+    private static final int READ_LIMIT = 256;
+
+    private final RttSampleJournal journal;
+    private final long intervalNs;
+    private final Long2ObjectHashMap<ImageRtt> imageByRegistrationId = new Long2ObjectHashMap<>();
+    private final Thread thread;
+    private volatile boolean isRunning = true;
+
+    public RttSampleConsumer(RttSampleJournal journal, int intervalSeconds) {
+        this.journal = journal;
+        this.intervalNs = TimeUnit.SECONDS.toNanos(Math.max(intervalSeconds, 1));
+
+        this.thread = new Thread(this::run);
+        this.thread.setName("rtt-sample-consumer");
+        this.thread.setDaemon(true);
+        this.thread.setPriority(Thread.MIN_PRIORITY);
+        this.thread.start();
+    }
+
+    private void run() {
+        final IdleStrategy idleStrategy = new SleepingMillisIdleStrategy(1);
+        long deadlineNs = System.nanoTime() + intervalNs;
+
+        while (isRunning) {
+            idleStrategy.idle(journal.read(this::onRecord, READ_LIMIT));
+
+            final long nowNs = System.nanoTime();
+            if (nowNs >= deadlineNs) {
+                deadlineNs = nowNs + intervalNs;
+                printAllRttMeasurements();
+            }
+        }
+    }
+
+    private void onRecord(int msgTypeId, MutableDirectBuffer buffer, int index, int length) {
+        final long registrationId = buffer.getLong(index + RttSampleJournal.REGISTRATION_ID_OFFSET);
+        switch (msgTypeId) {
+            case RttSampleJournal.IMAGE_OPENED_MSG_TYPE_ID:
+                imageByRegistrationId.put(registrationId, new ImageRtt(
+                    buffer.getStringAscii(index + RttSampleJournal.SOURCE_OFFSET),
+                    buffer.getInt(index + RttSampleJournal.SESSION_ID_OFFSET),
+                    buffer.getInt(index + RttSampleJournal.STREAM_ID_OFFSET)));
+                break;
+
+            case RttSampleJournal.RTT_SAMPLE_MSG_TYPE_ID:
+                ImageRtt image = imageByRegistrationId.get(registrationId);
+                if (image == null) {
+                    image = new ImageRtt(
+                        "unknown",
+                        buffer.getInt(index + RttSampleJournal.SESSION_ID_OFFSET),
+                        buffer.getInt(index + RttSampleJournal.STREAM_ID_OFFSET));
+                    imageByRegistrationId.put(registrationId, image);
+                }
+                image.onSample(
+                    buffer.getLong(index + RttSampleJournal.RTT_OFFSET),
+                    buffer.getLong(index + RttSampleJournal.RTT_MEASUREMENTS_SENT_OFFSET),
+                    buffer.getLong(index + RttSampleJournal.SHOULD_MEASURE_RTT_CALLS_OFFSET));
+                break;
+
+            case RttSampleJournal.IMAGE_CLOSED_MSG_TYPE_ID:
+                final ImageRtt closed = imageByRegistrationId.get(registrationId);
+                if (closed != null) {
+                    closed.isClosed = true;
+                }
+                break;
+        }
+    }
+
+    /**
+     * Prints the latest RTT per image with its distribution since the previous report, and function call statistics.
+     * Format: "Source Address -> RTT in nanoseconds"
+     */
+    private void printAllRttMeasurements() {
+        if (imageByRegistrationId.isEmpty()) {
+            return;
+        }
+
+        long onRttMeasurementCalls = 0;
+        long onRttMeasurementSentCalls = 0;
+        long shouldMeasureRttCalls = 0;
+
+        System.out.println("\n=== RTT Measurements and Statistics ===");
+        System.out.println("Current RTT Measurements:");
+        for (final ImageRtt image : imageByRegistrationId.values()) {
+            System.out.printf("%s session=%d stream=%d%s -> %d ns (min %d, max %d, samples %d)%n",
+                image.source, image.sessionId, image.streamId, image.isClosed ? " closed" : "",
+                image.lastRttNs, image.minRttNs, image.maxRttNs, image.sampleCount);
+            if (image.intervalRtt.totalCount() > 0) {
+                image.intervalRtt.printSummary(System.out, "  interval rtt");
+                image.intervalRtt.reset();
+            }
+
+            onRttMeasurementCalls += image.sampleCount;
+            onRttMeasurementSentCalls += image.rttMeasurementsSent;
+            shouldMeasureRttCalls += image.shouldMeasureRttCalls;
+        }
+
+        System.out.println("\nFunction Call Statistics:");
+        System.out.printf("onRttMeasurement calls: %d%n", onRttMeasurementCalls);
+        System.out.printf("onRttMeasurementSent calls: %d%n", onRttMeasurementSentCalls);
+        System.out.printf("shouldMeasureRtt calls: %d%n", shouldMeasureRttCalls);
+        System.out.printf("dropped samples: %d%n", journal.droppedRecords());
+        System.out.println("=====================================\n");
+
+        imageByRegistrationId.values().removeIf(image -> image.isClosed);
+    }
+
+    /**
+     * Stop the consumer thread, then drain what the driver wrote since the last report and print it once more.
+     */
+    @Override
+    public void close() {
+        isRunning = false;
+        if (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        int read;
+        do {
+            read = journal.read(this::onRecord, READ_LIMIT);
+        } while (read > 0);
+        printAllRttMeasurements();
+    }
+
+    private static final class ImageRtt {
+        private final String source;
+        private final int sessionId;
+        private final int streamId;
+        private final LatencyHistogram intervalRtt = new LatencyHistogram();
+        private long lastRttNs;
+        private long minRttNs = Long.MAX_VALUE;
+        private long maxRttNs;
+        private long sampleCount;
+        private long rttMeasurementsSent;
+        private long shouldMeasureRttCalls;
+        private boolean isClosed;
+
+        private ImageRtt(String source, int sessionId, int streamId) {
+            this.source = source;
+            this.sessionId = sessionId;
+            this.streamId = streamId;
+        }
+
+        private void onSample(long rttNs, long rttMeasurementsSent, long shouldMeasureRttCalls) {
+            lastRttNs = rttNs;
+            minRttNs = Math.min(minRttNs, rttNs);
+            maxRttNs = Math.max(maxRttNs, rttNs);
+            sampleCount++;
+            intervalRtt.recordValue(rttNs);
+            this.rttMeasurementsSent = rttMeasurementsSent;
+            this.shouldMeasureRttCalls = shouldMeasureRttCalls;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package dev.test;
+
+import org.agrona.BitUtil;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.ManyToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Off-heap journal of congestion control RTT samples. Driver threads append fixed-layout records with
+ * {@link ManyToOneRingBuffer#tryClaim(int, int)} so they never allocate or block, and a single consumer reads them with
+ * {@link #read(MessageHandler, int)}. Records that do not fit are dropped and counted.
+ */
+public final class RttSampleJournal {
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    public static final int RTT_SAMPLE_MSG_TYPE_ID = 1;
+    public static final int IMAGE_OPENED_MSG_TYPE_ID = 2;
+    public static final int IMAGE_CLOSED_MSG_TYPE_ID = 3;
+
+    // RTT sample layout
+    public static final int TIMESTAMP_OFFSET = 0;
+    public static final int REGISTRATION_ID_OFFSET = TIMESTAMP_OFFSET + BitUtil.SIZE_OF_LONG;
+    public static final int RTT_OFFSET = REGISTRATION_ID_OFFSET + BitUtil.SIZE_OF_LONG;
+    public static final int RTT_MEASUREMENTS_SENT_OFFSET = RTT_OFFSET + BitUtil.SIZE_OF_LONG;
+    public static final int SHOULD_MEASURE_RTT_CALLS_OFFSET = RTT_MEASUREMENTS_SENT_OFFSET + BitUtil.SIZE_OF_LONG;
+    public static final int SESSION_ID_OFFSET = SHOULD_MEASURE_RTT_CALLS_OFFSET + BitUtil.SIZE_OF_LONG;
+    public static final int STREAM_ID_OFFSET = SESSION_ID_OFFSET + BitUtil.SIZE_OF_INT;
+    public static final int RTT_SAMPLE_LENGTH = STREAM_ID_OFFSET + BitUtil.SIZE_OF_INT;
+
+    // Image opened layout, shares the registration id, session id and stream id offsets and appends the source
+    public static final int SOURCE_OFFSET = RTT_SAMPLE_LENGTH;
+
+    // Image closed layout
+    public static final int IMAGE_CLOSED_LENGTH = REGISTRATION_ID_OFFSET + BitUtil.SIZE_OF_LONG;
+
+    private final ManyToOneRingBuffer ringBuffer;
+    private final AtomicLong droppedRecords = new AtomicLong();
+
+    public RttSampleJournal(int capacity) {
+        ringBuffer = new ManyToOneRingBuffer(new UnsafeBuffer(
+            ByteBuffer.allocateDirect(BitUtil.findNextPositivePowerOfTwo(capacity) +
+                RingBufferDescriptor.TRAILER_LENGTH)));
+    }
+
+    /**
+     * Append an RTT sample. Safe to call from any thread and does not allocate.
+     *
+     * @return true if appended, false if the journal was full and the sample was dropped.
+     */
+    public boolean appendRttSample(
+        long timestampNs,
+        long registrationId,
+        int sessionId,
+        int streamId,
+        long rttNs,
+        long rttMeasurementsSent,
+        long shouldMeasureRttCalls) {
+        final int index = ringBuffer.tryClaim(RTT_SAMPLE_MSG_TYPE_ID, RTT_SAMPLE_LENGTH);
+        if (index <= 0) {
+            droppedRecords.incrementAndGet();
+            return false;
+        }
+
+        final AtomicBuffer buffer = ringBuffer.buffer();
+        buffer.putLong(index + TIMESTAMP_OFFSET, timestampNs);
+        buffer.putLong(index + REGISTRATION_ID_OFFSET, registrationId);
+        buffer.putLong(index + RTT_OFFSET, rttNs);
+        buffer.putLong(index + RTT_MEASUREMENTS_SENT_OFFSET, rttMeasurementsSent);
+        buffer.putLong(index + SHOULD_MEASURE_RTT_CALLS_OFFSET, shouldMeasureRttCalls);
+        buffer.putInt(index + SESSION_ID_OFFSET, sessionId);
+        buffer.putInt(index + STREAM_ID_OFFSET, streamId);
+        ringBuffer.commit(index);
+
+        return true;
+    }
+
+    public boolean appendImageOpened(long timestampNs, long registrationId, int sessionId, int streamId, String source) {
+        final int index = ringBuffer.tryClaim(
+            IMAGE_OPENED_MSG_TYPE_ID, SOURCE_OFFSET + BitUtil.SIZE_OF_INT + source.length());
+        if (index <= 0) {
+            droppedRecords.incrementAndGet();
+            return false;
+        }
+
+        final AtomicBuffer buffer = ringBuffer.buffer();
+        buffer.putLong(index + TIMESTAMP_OFFSET, timestampNs);
+        buffer.putLong(index + REGISTRATION_ID_OFFSET, registrationId);
+        buffer.putInt(index + SESSION_ID_OFFSET, sessionId);
+        buffer.putInt(index + STREAM_ID_OFFSET, streamId);
+        buffer.putStringAscii(index + SOURCE_OFFSET, source);
+        ringBuffer.commit(index);
+
+        return true;
+    }
+
+    public boolean appendImageClosed(long timestampNs, long registrationId) {
+        final int index = ringBuffer.tryClaim(IMAGE_CLOSED_MSG_TYPE_ID, IMAGE_CLOSED_LENGTH);
+        if (index <= 0) {
+            droppedRecords.incrementAndGet();
+            return false;
+        }
+
+        final AtomicBuffer buffer = ringBuffer.buffer();
+        buffer.putLong(index + TIMESTAMP_OFFSET, timestampNs);
+        buffer.putLong(index + REGISTRATION_ID_OFFSET, registrationId);
+        ringBuffer.commit(index);
+
+        return true;
+    }
+
+    /**
+     * Read records in order. Must only be called from a single consumer thread.
+     *
+     * @param handler for each record, keyed by msg type id.
+     * @param limit   maximum number of records to read.
+     * @return number of records read.
+     */
+    public int read(MessageHandler handler, int limit) {
+        return ringBuffer.read(handler, limit);
+    }
+
+    public long droppedRecords() {
+        return droppedRecords.get();
+    }
+}
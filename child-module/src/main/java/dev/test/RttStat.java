@@ -0,0 +1,157 @@
+package dev.test;
+
+import io.aeron.CncFileDescriptor;
+import io.aeron.CommonContext;
+import org.agrona.DirectBuffer;
+import org.agrona.IoUtil;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.SigInt;
+import org.agrona.concurrent.status.CountersReader;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reads the per-image RTT counters published by {@link MyCC} and {@link DelayCC} straight out of a running driver's CnC file, in the
+ * same way AeronStat does, so RTT can be watched from any process without connecting a client or touching the data
+ * path.
+ */
+@Command(name = "rtt-stat", mixinStandardHelpOptions = true,
+    description = "Prints the per-session RTT counters of a running media driver")
+public class RttStat implements Runnable {
+    @Option(names = {"-d", "--dir"}, description = "Aeron directory of the driver to read")
+    private String aeronDirectoryName = CommonContext.getAeronDirectoryName();
+
+    @Option(names = {"-i", "--interval"}, description = "Refresh interval in seconds", defaultValue = "1")
+    private int intervalSeconds;
+
+    @Option(names = {"--once"}, description = "Print once and exit")
+    private boolean once;
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new RttStat()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        final File cncFile = new File(aeronDirectoryName, CncFileDescriptor.CNC_FILE);
+        if (!cncFile.exists()) {
+            System.err.println("No CnC file found at " + cncFile + ", is the driver running?");
+            return;
+        }
+
+        final MappedByteBuffer cncByteBuffer = IoUtil.mapExistingFile(cncFile, "cnc");
+        try {
+            final DirectBuffer cncMetaData = CncFileDescriptor.createMetaDataBuffer(cncByteBuffer);
+            CncFileDescriptor.checkVersion(cncMetaData.getInt(CncFileDescriptor.cncVersionOffset(0)));
+
+            final CountersReader countersReader = new CountersReader(
+                CncFileDescriptor.createCountersMetaDataBuffer(cncByteBuffer, cncMetaData),
+                CncFileDescriptor.createCountersValuesBuffer(cncByteBuffer, cncMetaData),
+                StandardCharsets.US_ASCII);
+
+            SigInt.register(() -> running.set(false));
+            do {
+                print(countersReader);
+                if (once) {
+                    break;
+                }
+
+                try {
+                    TimeUnit.SECONDS.sleep(Math.max(intervalSeconds, 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            } while (running.get());
+        } finally {
+            IoUtil.unmap(cncByteBuffer);
+        }
+    }
+
+    private void print(CountersReader countersReader) {
+        final Long2ObjectHashMap<ImageRow> rowByRegistrationId = new Long2ObjectHashMap<>();
+        countersReader.forEach((counterId, typeId, keyBuffer, label) -> {
+            if (!RttCounters.isRttCounter(typeId)) {
+                return;
+            }
+
+            final long registrationId = RttCounters.registrationId(keyBuffer);
+            ImageRow row = rowByRegistrationId.get(registrationId);
+            if (row == null) {
+                row = new ImageRow(
+                    RttCounters.sessionId(keyBuffer), RttCounters.streamId(keyBuffer),
+                    RttCounters.congestionControl(label), RttCounters.channel(label));
+                rowByRegistrationId.put(registrationId, row);
+            }
+            row.set(typeId, countersReader.getCounterValue(counterId));
+        });
+
+        System.out.printf("%n%s - %s - %d image(s)%n", LocalTime.now(), aeronDirectoryName, rowByRegistrationId.size());
+        System.out.printf("%12s %10s %8s %6s %10s %10s %10s %10s %10s %11s  %s%n",
+            "registration", "session", "stream", "cc", "samples", "last(us)", "min(us)", "max(us)", "srtt(us)", "btlbw(MB/s)",
+            "cwnd channel");
+        rowByRegistrationId.forEach((registrationId, row) ->
+            System.out.printf("%12d %10d %8d %6s %10d %10.1f %10.1f %10.1f %10.1f %11.2f  %d %s%n",
+                registrationId, row.sessionId, row.streamId, row.congestionControl, row.samples,
+                row.lastRttNs / 1000.0, row.minRttNs / 1000.0, row.maxRttNs / 1000.0, row.smoothedRttNs / 1000.0,
+                row.bottleneckBandwidth / (1024.0 * 1024.0), row.cwnd, row.channel));
+    }
+
+    private static final class ImageRow {
+        private final int sessionId;
+        private final int streamId;
+        private final String congestionControl;
+        private final String channel;
+        private long lastRttNs;
+        private long minRttNs;
+        private long maxRttNs;
+        private long smoothedRttNs;
+        private long samples;
+        private long cwnd;
+        private long bottleneckBandwidth;
+
+        private ImageRow(int sessionId, int streamId, String congestionControl, String channel) {
+            this.sessionId = sessionId;
+            this.streamId = streamId;
+            this.congestionControl = congestionControl;
+            this.channel = channel;
+        }
+
+        private void set(int typeId, long value) {
+            switch (typeId) {
+                case RttCounters.LAST_RTT_TYPE_ID:
+                    lastRttNs = value;
+                    break;
+                case RttCounters.MIN_RTT_TYPE_ID:
+                    minRttNs = value;
+                    break;
+                case RttCounters.MAX_RTT_TYPE_ID:
+                    maxRttNs = value;
+                    break;
+                case RttCounters.SMOOTHED_RTT_TYPE_ID:
+                    smoothedRttNs = value;
+                    break;
+                case RttCounters.SAMPLE_COUNT_TYPE_ID:
+                    samples = value;
+                    break;
+                case RttCounters.CWND_TYPE_ID:
+                    cwnd = value;
+                    break;
+                case RttCounters.BOTTLENECK_BANDWIDTH_TYPE_ID:
+                    bottleneckBandwidth = value;
+                    break;
+            }
+        }
+    }
+}
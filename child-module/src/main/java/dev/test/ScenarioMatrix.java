@@ -0,0 +1,124 @@
+package dev.test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Expands a properties file of driver and workload settings into scenario cells. Each key takes a comma separated
+ * list of values and the cells are the cartesian product of all lists, in the order of {@link #DEFAULTS}; keys that are
+ * not given keep their default. For example:
+ * <pre>
+ * threading-mode=DEDICATED,SHARED,SHARED_NETWORK
+ * idle=busy,backoff
+ * term-length=64k,16m
+ * </pre>
+ */
+final class ScenarioMatrix {
+    static final String CHANNEL = "channel";
+    static final String THREADING_MODE = "threading-mode";
+    static final String IDLE = "idle";
+    static final String TERM_LENGTH = "term-length";
+    static final String MTU = "mtu";
+    static final String SOCKET_BUFFER = "socket-buffer";
+    static final String RECEIVER_WINDOW = "receiver-window";
+    static final String MESSAGE_LENGTH = "message-length";
+    static final String RATE = "rate";
+    static final String WARMUP_SECONDS = "warmup-seconds";
+    static final String MEASURE_SECONDS = "measure-seconds";
+
+    static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put(CHANNEL, "aeron:udp?endpoint=localhost:20800");
+        DEFAULTS.put(THREADING_MODE, "DEDICATED");
+        DEFAULTS.put(IDLE, "busy");
+        DEFAULTS.put(TERM_LENGTH, "16m");
+        DEFAULTS.put(MTU, "1408");
+        DEFAULTS.put(SOCKET_BUFFER, "0");
+        DEFAULTS.put(RECEIVER_WINDOW, "0");
+        DEFAULTS.put(MESSAGE_LENGTH, "32");
+        DEFAULTS.put(RATE, "10000");
+        DEFAULTS.put(WARMUP_SECONDS, "2");
+        DEFAULTS.put(MEASURE_SECONDS, "5");
+    }
+
+    private ScenarioMatrix() {
+    }
+
+    /**
+     * Expand the matrix into one map of settings per cell.
+     *
+     * @param properties matrix to expand.
+     * @return cells in a stable order, the last key varying fastest.
+     * @throws IllegalArgumentException if a key is not one of {@link #DEFAULTS}.
+     */
+    static List<Map<String, String>> expand(Properties properties) {
+        for (final String key : properties.stringPropertyNames()) {
+            if (!DEFAULTS.containsKey(key)) {
+                throw new IllegalArgumentException("Unknown scenario key '" + key + "', expected one of " +
+                    DEFAULTS.keySet());
+            }
+        }
+
+        List<Map<String, String>> cells = new ArrayList<>();
+        cells.add(new LinkedHashMap<>());
+        for (final Map.Entry<String, String> entry : DEFAULTS.entrySet()) {
+            final String key = entry.getKey();
+            final List<Map<String, String>> expanded = new ArrayList<>();
+            for (final Map<String, String> cell : cells) {
+                for (final String value : properties.getProperty(key, entry.getValue()).split(",")) {
+                    final Map<String, String> next = new LinkedHashMap<>(cell);
+                    next.put(key, value.trim());
+                    expanded.add(next);
+                }
+            }
+            cells = expanded;
+        }
+
+        return cells;
+    }
+
+    /**
+     * Keys whose value differs between cells, which are the only ones worth printing per cell.
+     *
+     * @param cells expanded matrix.
+     * @return the varying keys in matrix order.
+     */
+    static List<String> varyingKeys(List<Map<String, String>> cells) {
+        final List<String> keys = new ArrayList<>();
+        for (final String key : DEFAULTS.keySet()) {
+            if (cells.stream().map(cell -> cell.get(key)).distinct().count() > 1) {
+                keys.add(key);
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * Mark the cells that no other cell beats on both latency and cost, lower being better for both.
+     *
+     * @param latency per cell.
+     * @param cost    per cell.
+     * @return true for each cell on the Pareto front.
+     */
+    static boolean[] paretoFront(double[] latency, double[] cost) {
+        final boolean[] front = new boolean[latency.length];
+        for (int i = 0; i < latency.length; i++) {
+            front[i] = true;
+            for (int j = 0; j < latency.length; j++) {
+                final boolean noWorse = latency[j] <= latency[i] && cost[j] <= cost[i];
+                final boolean better = latency[j] < latency[i] || cost[j] < cost[i];
+                if (j != i && noWorse && better) {
+                    front[i] = false;
+                    break;
+                }
+            }
+        }
+
+        return front;
+    }
+}
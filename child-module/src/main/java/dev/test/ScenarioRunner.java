@@ -0,0 +1,359 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.ExclusivePublication;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.FragmentHandler;
+import org.agrona.SystemUtil;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SigInt;
+import org.agrona.concurrent.UnsafeBuffer;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs every cell of a {@link ScenarioMatrix} against a fresh embedded driver: a warmup and then a measurement phase
+ * of one-way latency at the cell's rate, with process CPU time sampled over the measurement. Results go to a table,
+ * and optionally CSV and JSON, with the Pareto-best cells for p99 latency against CPU cores used marked.
+ */
+@Command(name = "scenarios", mixinStandardHelpOptions = true,
+    description = "Runs a matrix of driver configurations and reports latency, throughput and CPU per cell")
+public class ScenarioRunner implements Runnable {
+    private static final int STREAM_ID = 1007;
+    private static final int FRAGMENT_LIMIT = 256;
+
+    @Option(names = {"-f", "--file"}, description = "Scenario matrix properties file", required = true)
+    private Path scenarioFile;
+
+    @Option(names = {"--csv"}, description = "Write results as CSV to this file")
+    private Path csvFile;
+
+    @Option(names = {"--json"}, description = "Write results as JSON to this file")
+    private Path jsonFile;
+
+    @Option(names = {"--dry-run"}, description = "Only list the expanded cells")
+    private boolean dryRun;
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final AtomicBoolean cellRunning = new AtomicBoolean();
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new ScenarioRunner()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        final Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(scenarioFile, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            System.err.printf("[ERROR][SCENARIO] Could not read %s: %s%n", scenarioFile, e.getMessage());
+            return;
+        }
+
+        final List<Map<String, String>> cells = ScenarioMatrix.expand(properties);
+        final List<String> varyingKeys = ScenarioMatrix.varyingKeys(cells);
+        System.out.printf("[SCENARIO] %d cell(s) varying %s%n", cells.size(), varyingKeys);
+        if (dryRun) {
+            for (int i = 0; i < cells.size(); i++) {
+                System.out.printf("[SCENARIO][%d] %s%n", i, cells.get(i));
+            }
+            return;
+        }
+
+        SigInt.register(() -> {
+            running.set(false);
+            cellRunning.set(false);
+        });
+        final List<CellResult> results = new ArrayList<>();
+        for (int i = 0; i < cells.size() && running.get(); i++) {
+            System.out.printf("%n[SCENARIO][%d/%d] %s%n", i + 1, cells.size(), describe(cells.get(i), varyingKeys));
+            results.add(runCell(cells.get(i)));
+        }
+
+        markParetoFront(results);
+        printTable(System.out, results, varyingKeys);
+        try {
+            if (csvFile != null) {
+                writeCsv(results);
+            }
+            if (jsonFile != null) {
+                writeJson(results);
+            }
+        } catch (IOException e) {
+            System.err.printf("[ERROR][SCENARIO] Could not write results: %s%n", e.getMessage());
+        }
+    }
+
+    private CellResult runCell(Map<String, String> cell) {
+        final CellResult result = new CellResult(cell);
+        cellRunning.set(true);
+        try {
+            measure(cell, result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running.set(false);
+        } catch (RuntimeException e) {
+            System.err.printf("[ERROR][SCENARIO] Cell failed: %s%n", e);
+            result.failed = true;
+        } finally {
+            cellRunning.set(false);
+        }
+
+        result.latency.printSummary(System.out, "[SCENARIO] latency");
+        System.out.printf("[SCENARIO] %,.0f msgs/s, %.2f CPU cores%n", result.messagesPerSecond, result.cpuCores);
+        return result;
+    }
+
+    /**
+     * Parse the cell's values and measure it. A value that does not parse fails only this cell.
+     */
+    private void measure(Map<String, String> cell, CellResult result) throws InterruptedException {
+        final String idle = cell.get(ScenarioMatrix.IDLE);
+        final int socketBuffer = (int) SystemUtil.parseSize(
+            ScenarioMatrix.SOCKET_BUFFER, cell.get(ScenarioMatrix.SOCKET_BUFFER));
+        final int receiverWindow = (int) SystemUtil.parseSize(
+            ScenarioMatrix.RECEIVER_WINDOW, cell.get(ScenarioMatrix.RECEIVER_WINDOW));
+        final int messageLength = ProbeCodec.messageLength(Integer.parseInt(cell.get(ScenarioMatrix.MESSAGE_LENGTH)));
+        final long rate = Long.parseLong(cell.get(ScenarioMatrix.RATE));
+        final int warmupSeconds = Integer.parseInt(cell.get(ScenarioMatrix.WARMUP_SECONDS));
+        final int measureSeconds = Integer.parseInt(cell.get(ScenarioMatrix.MEASURE_SECONDS));
+
+        final MediaDriver.Context driverContext = new MediaDriver.Context()
+            .threadingMode(ThreadingMode.valueOf(cell.get(ScenarioMatrix.THREADING_MODE).toUpperCase(Locale.ROOT)))
+            .conductorIdleStrategy(IdleStrategies.of(idle))
+            .senderIdleStrategy(IdleStrategies.of(idle))
+            .receiverIdleStrategy(IdleStrategies.of(idle))
+            .sharedNetworkIdleStrategy(IdleStrategies.of(idle))
+            .sharedIdleStrategy(IdleStrategies.of(idle))
+            .termBufferSparseFile(false)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true);
+        if (socketBuffer > 0) {
+            driverContext.socketRcvbufLength(socketBuffer).socketSndbufLength(socketBuffer);
+        }
+        if (receiverWindow > 0) {
+            driverContext.initialWindowLength(receiverWindow);
+        }
+
+        final String baseChannel = cell.get(ScenarioMatrix.CHANNEL);
+        final String channel = baseChannel + (baseChannel.contains("?") ? "|" : "?") +
+            "term-length=" + cell.get(ScenarioMatrix.TERM_LENGTH) + "|mtu=" + cell.get(ScenarioMatrix.MTU);
+        final LatencyRecorder recorder = new LatencyRecorder();
+        final AtomicLong received = new AtomicLong();
+
+        try (MediaDriver driver = MediaDriver.launch(driverContext);
+             Aeron aeron = Aeron.connect(new Aeron.Context()
+                 .aeronDirectoryName(driver.aeronDirectoryName())
+                 .idleStrategy(IdleStrategies.of(idle)));
+             Subscription subscription = aeron.addSubscription(channel, STREAM_ID);
+             ExclusivePublication publication = aeron.addExclusivePublication(channel, STREAM_ID)) {
+            final Thread subscriberThread = new Thread(() -> {
+                final IdleStrategy idleStrategy = IdleStrategies.of(idle);
+                final long[] count = new long[1];
+                final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+                final FragmentHandler handler = (buffer, offset, length, header) -> {
+                    recorder.recordValue(System.nanoTime() - decoder.wrap(buffer, offset, length).sendTimestampNs());
+                    received.lazySet(++count[0]);
+                };
+                while (cellRunning.get()) {
+                    idleStrategy.idle(subscription.poll(handler, FRAGMENT_LIMIT));
+                }
+            }, "scenario-sub");
+            subscriberThread.start();
+
+            try {
+                while (cellRunning.get() && !publication.isConnected()) {
+                    Thread.onSpinWait();
+                }
+
+                final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(messageLength));
+                publish(publication, buffer, messageLength, rate, warmupSeconds);
+                recorder.intervalHistogram();
+
+                final long receivedBefore = received.get();
+                final long cpuBeforeNs = processCpuTimeNs();
+                final long startNs = System.nanoTime();
+                publish(publication, buffer, messageLength, rate, measureSeconds);
+                final long elapsedNs = System.nanoTime() - startNs;
+                final long cpuNs = processCpuTimeNs() - cpuBeforeNs;
+                if (!cellRunning.get() && running.get()) {
+                    throw new IllegalStateException("publisher stopped before the end of the cell");
+                }
+
+                result.latency.add(recorder.intervalHistogram());
+                result.messagesPerSecond = (received.get() - receivedBefore) * 1e9 / elapsedNs;
+                result.bytesPerSecond = result.messagesPerSecond * messageLength;
+                result.cpuCores = cpuBeforeNs < 0 ? Double.NaN : (double) cpuNs / elapsedNs;
+            } finally {
+                cellRunning.set(false);
+                subscriberThread.join();
+            }
+        }
+    }
+
+    /**
+     * Publish for a number of seconds at a fixed rate, or flat out for a rate of 0. The fixed rate generator clears
+     * {@code cellRunning} if an offer fails, which fails the cell but not the run.
+     */
+    private void publish(ExclusivePublication publication, UnsafeBuffer buffer, int messageLength, long rate, int seconds) {
+        if (seconds <= 0) {
+            return;
+        }
+
+        if (rate > 0) {
+            new FixedRateLoadGenerator(publication, buffer, messageLength, cellRunning, 1, seconds, Long.MAX_VALUE)
+                .runFor(rate);
+            return;
+        }
+
+        final ProbeCodec.Encoder encoder = new ProbeCodec.Encoder().wrap(buffer, 0, messageLength)
+            .senderId(publication.sessionId());
+        final long endNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long sequence = 0;
+        while (cellRunning.get() && System.nanoTime() < endNs) {
+            encoder.sendTimestampNs(System.nanoTime()).sequence(sequence++);
+            if (publication.offer(buffer, 0, messageLength) < 0) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private static long processCpuTimeNs() {
+        final OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) osBean).getProcessCpuTime();
+        }
+
+        return -1;
+    }
+
+    private static String describe(Map<String, String> cell, List<String> keys) {
+        final StringBuilder builder = new StringBuilder();
+        for (final String key : keys) {
+            builder.append(builder.length() == 0 ? "" : " ").append(key).append('=').append(cell.get(key));
+        }
+
+        return builder.length() == 0 ? "defaults" : builder.toString();
+    }
+
+    private static void markParetoFront(List<CellResult> results) {
+        final double[] latency = new double[results.size()];
+        final double[] cost = new double[results.size()];
+        for (int i = 0; i < results.size(); i++) {
+            final CellResult result = results.get(i);
+            final boolean usable = !result.failed && result.latency.totalCount() > 0 && !Double.isNaN(result.cpuCores);
+            latency[i] = usable ? result.latency.valueAtPercentile(99.0) : Double.MAX_VALUE;
+            cost[i] = usable ? result.cpuCores : Double.MAX_VALUE;
+        }
+
+        final boolean[] front = ScenarioMatrix.paretoFront(latency, cost);
+        for (int i = 0; i < results.size(); i++) {
+            results.get(i).pareto = front[i] && latency[i] != Double.MAX_VALUE;
+        }
+    }
+
+    private static void printTable(PrintStream out, List<CellResult> results, List<String> keys) {
+        out.printf("%n%4s %-48s %12s %10s %10s %10s %10s %6s %s%n",
+            "cell", "settings", "msgs/s", "p50(us)", "p99(us)", "p99.9(us)", "max(us)", "cores", "pareto");
+        for (int i = 0; i < results.size(); i++) {
+            final CellResult result = results.get(i);
+            out.printf("%4d %-48s %,12.0f %10.1f %10.1f %10.1f %10.1f %6.2f %s%n",
+                i, describe(result.cell, keys), result.messagesPerSecond,
+                result.latency.valueAtPercentile(50.0) / 1000.0,
+                result.latency.valueAtPercentile(99.0) / 1000.0,
+                result.latency.valueAtPercentile(99.9) / 1000.0,
+                result.latency.maxValue() / 1000.0,
+                result.cpuCores,
+                result.pareto ? "*" : "");
+        }
+    }
+
+    private void writeCsv(List<CellResult> results) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(csvFile), false, StandardCharsets.UTF_8)) {
+            out.println(String.join(",", ScenarioMatrix.DEFAULTS.keySet()) +
+                ",messages,msgs_per_sec,bytes_per_sec,p50_ns,p90_ns,p99_ns,p99_9_ns,max_ns,cpu_cores,pareto,failed");
+            for (final CellResult result : results) {
+                for (final String key : ScenarioMatrix.DEFAULTS.keySet()) {
+                    out.print(csvField(result.cell.get(key)) + ",");
+                }
+                final LatencyHistogram latency = result.latency;
+                out.printf(Locale.ROOT, "%d,%.1f,%.1f,%d,%d,%d,%d,%d,%.4f,%b,%b%n",
+                    latency.totalCount(), result.messagesPerSecond, result.bytesPerSecond,
+                    latency.valueAtPercentile(50.0), latency.valueAtPercentile(90.0),
+                    latency.valueAtPercentile(99.0), latency.valueAtPercentile(99.9), latency.maxValue(),
+                    result.cpuCores, result.pareto, result.failed);
+            }
+        }
+        System.out.printf("[SCENARIO] Wrote %s%n", csvFile);
+    }
+
+    private static String csvField(String value) {
+        return value.contains(",") || value.contains("\"") ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+
+    private void writeJson(List<CellResult> results) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(jsonFile), false, StandardCharsets.UTF_8)) {
+            out.println("[");
+            for (int i = 0; i < results.size(); i++) {
+                final CellResult result = results.get(i);
+                final LatencyHistogram latency = result.latency;
+                out.print("  {\"settings\": {");
+                int field = 0;
+                for (final Map.Entry<String, String> entry : result.cell.entrySet()) {
+                    out.printf("%s\"%s\": \"%s\"", field++ == 0 ? "" : ", ", entry.getKey(), jsonString(entry.getValue()));
+                }
+                out.printf(Locale.ROOT, "}, \"messages\": %d, \"msgsPerSec\": %.1f, \"bytesPerSec\": %.1f, " +
+                    "\"p50Ns\": %d, \"p90Ns\": %d, \"p99Ns\": %d, \"p999Ns\": %d, \"maxNs\": %d, " +
+                    "\"cpuCores\": %s, \"pareto\": %b, \"failed\": %b}%s%n",
+                    latency.totalCount(), result.messagesPerSecond, result.bytesPerSecond,
+                    latency.valueAtPercentile(50.0), latency.valueAtPercentile(90.0),
+                    latency.valueAtPercentile(99.0), latency.valueAtPercentile(99.9), latency.maxValue(),
+                    Double.isNaN(result.cpuCores) ? "null" : String.format(Locale.ROOT, "%.4f", result.cpuCores),
+                    result.pareto, result.failed, i < results.size() - 1 ? "," : "");
+            }
+            out.println("]");
+        }
+        System.out.printf("[SCENARIO] Wrote %s%n", jsonFile);
+    }
+
+    private static String jsonString(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static final class CellResult {
+        private final Map<String, String> cell;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private double messagesPerSecond;
+        private double bytesPerSecond;
+        private double cpuCores = Double.NaN;
+        private boolean pareto;
+        private boolean failed;
+
+        private CellResult(Map<String, String> cell) {
+            this.cell = cell;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.ExclusivePublication;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.FragmentHandler;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SigInt;
+import org.agrona.concurrent.UnsafeBuffer;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs K independent shards, each a stream with its own publisher and subscriber thread, against one media driver
+ * so it shows where the driver's sender and receiver threads stop scaling. Threads can be pinned to CPUs and use any
+ * idle strategy; aggregate and per-shard msgs/s, MB/s and latency percentiles are reported.
+ */
+@Command(name = "sharded", mixinStandardHelpOptions = true,
+    description = "Measures throughput and latency of K sharded streams over one media driver")
+public class ShardedThroughputDemo implements Runnable {
+    private static final int FRAGMENT_LIMIT = 256;
+
+    @Option(names = {"-k", "--shards"}, description = "Number of shards", defaultValue = "4")
+    private int shardCount;
+
+    @Option(names = {"-c", "--channel"}, description = "Channel shared by all shards", defaultValue = "aeron:udp?endpoint=localhost:20400")
+    private String channel;
+
+    @Option(names = {"--port-per-shard"}, description = "Give shard k its own endpoint port, base port + k, instead of sharing one")
+    private boolean portPerShard;
+
+    @Option(names = {"--host"}, description = "Host used with --port-per-shard", defaultValue = "localhost")
+    private String host;
+
+    @Option(names = {"--base-port"}, description = "Base port used with --port-per-shard", defaultValue = "20400")
+    private int basePort;
+
+    @Option(names = {"--base-stream"}, description = "Shard k uses stream id base + k", defaultValue = "2001")
+    private int baseStreamId;
+
+    @Option(names = {"-l", "--message-length"}, description = "Message length in bytes, at least 8", defaultValue = "32")
+    private int messageLength;
+
+    @Option(names = {"-r", "--rate"}, description = "Fixed rate per shard in msg/s, 0 to publish as fast as possible", defaultValue = "0")
+    private long rate;
+
+    @Option(names = {"-d", "--duration"}, description = "Duration in seconds", defaultValue = "10")
+    private int durationSeconds;
+
+    @Option(names = {"--idle"}, description = "Idle strategy for shard threads: " + IdleStrategies.NAMES, defaultValue = "busy")
+    private String idleStrategyName;
+
+    @Option(names = {"--threading-mode"}, description = "Media driver threading mode: ${COMPLETION-CANDIDATES}", defaultValue = "DEDICATED")
+    private ThreadingMode threadingMode;
+
+    @Option(names = {"--cpus"}, description = "CPUs to pin shard threads to, assigned as pub0,sub0,pub1,sub1,... e.g. 2-9")
+    private String cpuList;
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new ShardedThroughputDemo()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        SigInt.register(() -> running.set(false));
+        messageLength = ProbeCodec.messageLength(messageLength);
+        final int[] cpus = ThreadAffinity.parseCpuList(cpuList);
+
+        final MediaDriver.Context driverContext = new MediaDriver.Context()
+            .threadingMode(threadingMode)
+            .conductorIdleStrategy(new BusySpinIdleStrategy())
+            .senderIdleStrategy(new BusySpinIdleStrategy())
+            .receiverIdleStrategy(new BusySpinIdleStrategy())
+            .sharedNetworkIdleStrategy(new BusySpinIdleStrategy())
+            .sharedIdleStrategy(new BusySpinIdleStrategy())
+            .termBufferSparseFile(false)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true);
+
+        final List<Shard> shards = new ArrayList<>(shardCount);
+        try (MediaDriver driver = MediaDriver.launch(driverContext);
+             Aeron aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(driver.aeronDirectoryName()))) {
+            for (int k = 0; k < shardCount; k++) {
+                final String shardChannel = (portPerShard ? "aeron:udp?endpoint=" + host + ":" + (basePort + k) : channel) +
+                    (channel.contains("?") || portPerShard ? "|" : "?") + "term-length=16m";
+                shards.add(new Shard(k, aeron, shardChannel, baseStreamId + k,
+                    cpuAt(cpus, 2 * k), cpuAt(cpus, 2 * k + 1)));
+            }
+
+            System.out.printf("[SHARDED] %d shard(s), %d byte messages, driver %s, idle %s%n",
+                shardCount, messageLength, threadingMode, idleStrategyName);
+            shards.forEach(Shard::start);
+            report(shards);
+        } finally {
+            running.set(false);
+            shards.forEach(Shard::join);
+            CloseHelper.closeAll(shards);
+        }
+    }
+
+    private static int cpuAt(int[] cpus, int index) {
+        return index < cpus.length ? cpus[index] : -1;
+    }
+
+    private void report(List<Shard> shards) {
+        final long[] lastReceived = new long[shards.size()];
+        final long startNs = System.nanoTime();
+        final long endNs = startNs + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long lastNs = startNs;
+
+        while (running.get() && System.nanoTime() < endNs) {
+            try {
+                TimeUnit.SECONDS.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            final long nowNs = System.nanoTime();
+            final double seconds = (nowNs - lastNs) / 1e9;
+            long intervalMessages = 0;
+            for (final Shard shard : shards) {
+                final long received = shard.received.get();
+                intervalMessages += received - lastReceived[shard.index];
+                lastReceived[shard.index] = received;
+                shard.total.add(shard.recorder.intervalHistogram());
+            }
+            lastNs = nowNs;
+            System.out.printf("[SHARDED][interval] %,.0f msgs/s %,.2f MB/s%n",
+                intervalMessages / seconds, intervalMessages * messageLength / seconds / (1024 * 1024));
+        }
+
+        running.set(false);
+        shards.forEach(Shard::join);
+
+        final double seconds = (System.nanoTime() - startNs) / 1e9;
+        final LatencyHistogram aggregate = new LatencyHistogram();
+        long totalReceived = 0;
+        System.out.printf("%n%6s %6s %14s %10s %14s %10s %10s %10s %10s%n",
+            "shard", "stream", "msgs/s", "MB/s", "back-pressure", "p50(us)", "p99(us)", "p99.9(us)", "max(us)");
+        for (final Shard shard : shards) {
+            shard.total.add(shard.recorder.intervalHistogram());
+            aggregate.add(shard.total);
+            final long received = shard.received.get();
+            totalReceived += received;
+            System.out.printf("%6d %6d %,14.0f %,10.2f %14d %10.1f %10.1f %10.1f %10.1f%n",
+                shard.index, shard.streamId, received / seconds, received * messageLength / seconds / (1024 * 1024),
+                shard.backPressured.get(),
+                shard.total.valueAtPercentile(50.0) / 1000.0,
+                shard.total.valueAtPercentile(99.0) / 1000.0,
+                shard.total.valueAtPercentile(99.9) / 1000.0,
+                shard.total.maxValue() / 1000.0);
+        }
+        System.out.printf("[SHARDED][total] %d shard(s) %,.0f msgs/s %,.2f MB/s%n",
+            shards.size(), totalReceived / seconds, totalReceived * messageLength / seconds / (1024 * 1024));
+        aggregate.printSummary(System.out, "[SHARDED][total] latency");
+    }
+
+    /**
+     * One stream with a dedicated publisher thread and subscriber thread.
+     */
+    private final class Shard implements AutoCloseable {
+        private final int index;
+        private final int streamId;
+        private final int publisherCpu;
+        private final int subscriberCpu;
+        private final ExclusivePublication publication;
+        private final Subscription subscription;
+        private final LatencyRecorder recorder = new LatencyRecorder();
+        private final LatencyHistogram total = new LatencyHistogram();
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicLong backPressured = new AtomicLong();
+        private final List<Thread> threads = new ArrayList<>(2);
+
+        private Shard(int index, Aeron aeron, String channel, int streamId, int publisherCpu, int subscriberCpu) {
+            this.index = index;
+            this.streamId = streamId;
+            this.publisherCpu = publisherCpu;
+            this.subscriberCpu = subscriberCpu;
+            this.subscription = aeron.addSubscription(channel, streamId);
+            this.publication = aeron.addExclusivePublication(channel, streamId);
+        }
+
+        private void start() {
+            threads.add(startThread("shard-" + index + "-sub", subscriberCpu, this::runSubscriber));
+            threads.add(startThread("shard-" + index + "-pub", publisherCpu, this::runPublisher));
+        }
+
+        private Thread startThread(String name, int cpu, Runnable task) {
+            final Thread thread = new Thread(() -> {
+                if (cpu >= 0 && !ThreadAffinity.pinCurrentThread(cpu)) {
+                    System.out.printf("[WARN] Could not pin %s to CPU %d%n", Thread.currentThread().getName(), cpu);
+                }
+                task.run();
+            });
+            thread.setName(name);
+            thread.start();
+            return thread;
+        }
+
+        private void runPublisher() {
+            final IdleStrategy idleStrategy = IdleStrategies.of(idleStrategyName);
+            while (running.get() && !publication.isConnected()) {
+                idleStrategy.idle();
+            }
+
+            final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(messageLength));
+            if (rate > 0) {
+                final FixedRateLoadGenerator generator = new FixedRateLoadGenerator(publication, buffer, messageLength,
+                    running, 1, durationSeconds, TimeUnit.MILLISECONDS.toNanos(1));
+                long backPressureCount = 0;
+                while (running.get()) {
+                    generator.runFor(rate);
+                    backPressureCount += generator.backPressured();
+                    backPressured.lazySet(backPressureCount);
+                }
+                return;
+            }
+
+            final ProbeCodec.Encoder encoder = new ProbeCodec.Encoder().wrap(buffer, 0, messageLength)
+                .senderId(publication.sessionId());
+            long backPressureCount = 0;
+            long sequence = 0;
+            while (running.get()) {
+                encoder.sendTimestampNs(System.nanoTime()).sequence(sequence);
+                if (publication.offer(buffer, 0, messageLength) > 0) {
+                    sequence++;
+                    idleStrategy.idle(1);
+                } else {
+                    backPressured.lazySet(++backPressureCount);
+                    idleStrategy.idle(0);
+                }
+            }
+        }
+
+        private void runSubscriber() {
+            final IdleStrategy idleStrategy = IdleStrategies.of(idleStrategyName);
+            final long[] count = new long[1];
+            final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+            final FragmentHandler handler = (buffer, offset, length, header) -> {
+                recorder.recordValue(System.nanoTime() - decoder.wrap(buffer, offset, length).sendTimestampNs());
+                received.lazySet(++count[0]);
+            };
+
+            while (running.get()) {
+                idleStrategy.idle(subscription.poll(handler, FRAGMENT_LIMIT));
+            }
+        }
+
+        private void join() {
+            for (final Thread thread : threads) {
+                try {
+                    thread.join(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            threads.clear();
+        }
+
+        @Override
+        public void close() {
+            CloseHelper.closeAll(publication, subscription);
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.Publication;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.FragmentHandler;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures time to first message for a freshly started JVM, split into phases: JVM start to {@code main}, driver
+ * launch, {@link Aeron#connect}, publication and subscription connected, and first message delivered.
+ * <p>
+ * Each run is a child JVM so that class loading and JIT warmup are paid every time. The variants are:
+ * <ul>
+ *     <li>{@code cold}: the child launches its own driver in a new directory, as every demo does.</li>
+ *     <li>{@code warm-dir}: the child connects to a driver that is already running on {@code --warm-dir}, in
+ *     {@code /dev/shm} by default. That driver holds a publication and subscription on the same channel and stream,
+ *     so the child's publication maps a log buffer that is already allocated and pre-touched.</li>
+ *     <li>{@code cds}: as {@code cold}, run from an AppCDS archive. The archive is dumped from a training run with
+ *     {@code -XX:ArchiveClassesAtExit} and needs a jar class path, such as the shaded jar.</li>
+ *     <li>{@code warm-dir+cds}: both.</li>
+ * </ul>
+ * The median of each phase per variant is printed along with the reduction in total time against {@code cold}.
+ */
+@Command(name = "startup", mixinStandardHelpOptions = true,
+    description = "Measures each phase of startup to the first message, cold, with a warm driver directory and with AppCDS")
+public class StartupBenchmark implements Runnable {
+    private static final int STREAM_ID = 1019;
+    private static final int FRAGMENT_LIMIT = 10;
+    private static final String RESULT_PREFIX = "[STARTUP][CHILD]";
+    private static final String[] PHASES = {"jvm", "driver", "connect", "connected", "first-message"};
+
+    @Option(names = {"-n", "--runs"}, description = "Child JVMs started per variant", defaultValue = "5")
+    private int runs;
+
+    @Option(names = {"--variants"}, split = ",", description = "Variants to run: cold, warm-dir, cds, warm-dir+cds",
+        defaultValue = "cold,warm-dir,cds,warm-dir+cds")
+    private List<String> variants;
+
+    @Option(names = {"--warm-dir"}, description = "Directory of the warm driver")
+    private String warmDir = new File(new File("/dev/shm").isDirectory() ?
+        "/dev/shm" : System.getProperty("java.io.tmpdir"), "aeron-startup-warm").getPath();
+
+    @Option(names = {"--cds-archive"}, description = "AppCDS archive, dumped by a training run if it does not exist")
+    private File cdsArchive = new File(System.getProperty("java.io.tmpdir"), "aeron-startup.jsa");
+
+    @Option(names = {"--host"}, description = "Loopback host", defaultValue = "localhost")
+    private String host;
+
+    @Option(names = {"-p", "--port"}, description = "Port for the stream", defaultValue = "20960")
+    private int port;
+
+    @Option(names = {"--timeout"}, description = "Seconds a child may take to connect and receive its probe; " +
+        "the parent destroys a child still running after twice this", defaultValue = "30")
+    private int timeoutSeconds;
+
+    @Option(names = {"--child"}, hidden = true, description = "Run one measurement and print its phases")
+    private boolean child;
+
+    @Option(names = {"--launch-epoch-ns"}, hidden = true, description = "Wall clock time the parent started the child")
+    private long launchEpochNs;
+
+    @Option(names = {"--aeron-dir"}, hidden = true, description = "Connect to the driver on this directory instead of launching one")
+    private String aeronDir;
+
+    private long mainEpochNs;
+
+    private final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+    private boolean probeReceived;
+
+    public static void main(String[] args) {
+        final long mainEpochNs = epochNs(Instant.now());
+        final StartupBenchmark benchmark = new StartupBenchmark();
+        benchmark.mainEpochNs = mainEpochNs;
+        int exitCode = new CommandLine(benchmark).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        if (child) {
+            runChild();
+            return;
+        }
+
+        final String channel = channel();
+        final Map<String, long[][]> results = new LinkedHashMap<>();
+        MediaDriver warmDriver = null;
+        Aeron warmAeron = null;
+        try {
+            for (final String variant : variants) {
+                final boolean warm = variant.contains("warm-dir");
+                final boolean cds = variant.contains("cds");
+                if (cds && !prepareCdsArchive()) {
+                    continue;
+                }
+                if (warm && warmDriver == null) {
+                    warmDriver = launchWarmDriver();
+                    warmAeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(warmDriver.aeronDirectoryName()));
+                    // keep a log buffer mapped for the children to share
+                    warmAeron.addSubscription(channel, STREAM_ID);
+                    warmAeron.addPublication(channel, STREAM_ID);
+                }
+
+                System.out.printf("[STARTUP] Running %s: %d child JVMs%n", variant, runs);
+                final long[][] phases = new long[runs][];
+                for (int i = 0; i < runs; i++) {
+                    phases[i] = runChildJvm(warm ? warmDriver.aeronDirectoryName() : null, cds);
+                }
+                results.put(variant, phases);
+            }
+        } finally {
+            CloseHelper.closeAll(warmAeron, warmDriver);
+        }
+
+        printResults(results);
+    }
+
+    private String channel() {
+        return "aeron:udp?endpoint=" + host + ":" + port;
+    }
+
+    private MediaDriver launchWarmDriver() {
+        System.out.printf("[STARTUP] Launching warm driver on %s%n", warmDir);
+        return MediaDriver.launch(new MediaDriver.Context()
+            .aeronDirectoryName(warmDir)
+            .threadingMode(ThreadingMode.DEDICATED)
+            .conductorIdleStrategy(new BusySpinIdleStrategy())
+            .senderIdleStrategy(new BusySpinIdleStrategy())
+            .receiverIdleStrategy(new BusySpinIdleStrategy())
+            .termBufferSparseFile(false)
+            .preTouchMappedMemory(true)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true));
+    }
+
+    /**
+     * Dump the AppCDS archive from a training run if there is none yet.
+     *
+     * @return true if an archive is available.
+     */
+    private boolean prepareCdsArchive() {
+        final String classPath = System.getProperty("java.class.path");
+        for (final String entry : classPath.split(File.pathSeparator)) {
+            if (new File(entry).isDirectory()) {
+                System.out.printf("[WARN][STARTUP] AppCDS needs a jar class path but %s is a directory, skipping cds%n",
+                    entry);
+                return false;
+            }
+        }
+        if (cdsArchive.exists()) {
+            return true;
+        }
+
+        System.out.printf("[STARTUP] Dumping AppCDS archive to %s%n", cdsArchive);
+        try {
+            final Process process = childProcess(null, "-XX:ArchiveClassesAtExit=" + cdsArchive).start();
+            awaitChild(process);
+        } catch (IOException e) {
+            System.err.printf("[ERROR][STARTUP] Training run failed: %s%n", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return cdsArchive.exists();
+    }
+
+    private long[] runChildJvm(String childAeronDir, boolean cds) {
+        try {
+            final Process process = childProcess(childAeronDir, cds ? "-XX:SharedArchiveFile=" + cdsArchive : null)
+                .start();
+            final long[] phases = awaitChild(process);
+            if (phases == null) {
+                System.err.printf("[ERROR][STARTUP] Child exited with %d without a result%n", process.exitValue());
+            }
+            return phases;
+        } catch (IOException e) {
+            System.err.printf("[ERROR][STARTUP] Could not start child JVM: %s%n", e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private ProcessBuilder childProcess(String childAeronDir, String jvmOption) {
+        final List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.add("--add-opens");
+        command.add("java.base/jdk.internal.misc=ALL-UNNAMED");
+        if (jvmOption != null) {
+            command.add(jvmOption);
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(StartupBenchmark.class.getName());
+        command.add("--child");
+        command.add("--host=" + host);
+        command.add("--port=" + port);
+        command.add("--timeout=" + timeoutSeconds);
+        if (childAeronDir != null) {
+            command.add("--aeron-dir=" + childAeronDir);
+        }
+        // last, so the time spent building the command is not counted as JVM start
+        command.add("--launch-epoch-ns=" + epochNs(Instant.now()));
+        return new ProcessBuilder(command).redirectErrorStream(true);
+    }
+
+    /**
+     * Read the child's output on another thread and wait for the child to exit, destroying it if it is still running
+     * after twice {@code --timeout}.
+     *
+     * @return the child's phases, or null if it printed none.
+     */
+    private long[] awaitChild(Process process) throws InterruptedException {
+        final AtomicReference<long[]> phases = new AtomicReference<>();
+        final Thread reader = new Thread(() -> {
+            try {
+                phases.set(drain(process));
+            } catch (IOException e) {
+                System.err.printf("[ERROR][STARTUP] Could not read child output: %s%n", e.getMessage());
+            }
+        }, "startup-child-output");
+        reader.setDaemon(true);
+        reader.start();
+
+        final long parentTimeoutSeconds = 2L * timeoutSeconds;
+        if (!process.waitFor(parentTimeoutSeconds, TimeUnit.SECONDS)) {
+            System.err.printf("[ERROR][STARTUP] Child still running after %d s, destroying it%n", parentTimeoutSeconds);
+            process.destroyForcibly().waitFor();
+        }
+        reader.join();
+        return phases.get();
+    }
+
+    /**
+     * Read the child's output, passing through anything that is not its result line.
+     */
+    private static long[] drain(Process process) throws IOException {
+        long[] phases = null;
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    phases = Arrays.stream(line.substring(RESULT_PREFIX.length()).trim().split("\\s+"))
+                        .mapToLong(Long::parseLong)
+                        .toArray();
+                } else if (line.startsWith("[ERROR]") || line.startsWith("[WARN]") || line.startsWith("Exception")) {
+                    System.out.println(line);
+                }
+            }
+        }
+        return phases;
+    }
+
+    private void runChild() {
+        final long mainNs = System.nanoTime();
+        final long deadlineNs = mainNs + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        final long jvmNs = launchEpochNs > 0 ? mainEpochNs - launchEpochNs : 0;
+        final String channel = channel();
+
+        MediaDriver driver = null;
+        Aeron aeron = null;
+        try {
+            if (aeronDir == null) {
+                driver = MediaDriver.launchEmbedded(new MediaDriver.Context()
+                    .threadingMode(ThreadingMode.DEDICATED)
+                    .conductorIdleStrategy(new BusySpinIdleStrategy())
+                    .senderIdleStrategy(new BusySpinIdleStrategy())
+                    .receiverIdleStrategy(new BusySpinIdleStrategy())
+                    .termBufferSparseFile(false)
+                    .dirDeleteOnStart(true)
+                    .dirDeleteOnShutdown(true));
+            }
+            final long driverNs = System.nanoTime();
+
+            aeron = Aeron.connect(new Aeron.Context()
+                .aeronDirectoryName(driver != null ? driver.aeronDirectoryName() : aeronDir)
+                .idleStrategy(new BusySpinIdleStrategy()));
+            final long connectNs = System.nanoTime();
+
+            final Subscription subscription = aeron.addSubscription(channel, STREAM_ID);
+            final Publication publication = aeron.addPublication(channel, STREAM_ID);
+            while (!publication.isConnected() || !subscription.isConnected()) {
+                checkDeadline(deadlineNs, "the publication and subscription to connect");
+                Thread.onSpinWait();
+            }
+            final long connectedNs = System.nanoTime();
+
+            final int length = ProbeCodec.BLOCK_LENGTH;
+            final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(length));
+            final long sentNs = System.nanoTime();
+            new ProbeCodec.Encoder().wrap(buffer, 0, length).sendTimestampNs(sentNs).sequence(0);
+            while (publication.offer(buffer, 0, length) < 0) {
+                checkDeadline(deadlineNs, "the probe to be sent");
+                Thread.onSpinWait();
+            }
+
+            // with a warm driver other children's probes may still be in the log, so wait for this one
+            final FragmentHandler handler = (msg, offset, msgLength, header) ->
+                probeReceived |= decoder.wrap(msg, offset, msgLength).sendTimestampNs() == sentNs;
+            while (!probeReceived) {
+                checkDeadline(deadlineNs, "the probe to arrive");
+                if (subscription.poll(handler, FRAGMENT_LIMIT) == 0) {
+                    Thread.onSpinWait();
+                }
+            }
+            final long firstMessageNs = System.nanoTime();
+
+            System.out.printf("%s %d %d %d %d %d%n", RESULT_PREFIX,
+                jvmNs, driverNs - mainNs, connectNs - driverNs, connectedNs - connectNs, firstMessageNs - connectedNs);
+        } finally {
+            CloseHelper.closeAll(aeron, driver);
+        }
+    }
+
+    /**
+     * Fail the child, so it exits non-zero without a result, once it has run past its deadline.
+     */
+    private void checkDeadline(long deadlineNs, String waitingFor) {
+        if (System.nanoTime() > deadlineNs) {
+            System.out.printf("[ERROR][STARTUP] Child timed out after %d s waiting for %s%n",
+                timeoutSeconds, waitingFor);
+            throw new IllegalStateException("timed out waiting for " + waitingFor);
+        }
+    }
+
+    private static void printResults(Map<String, long[][]> results) {
+        System.out.printf("%n%-14s %6s", "variant", "runs");
+        for (final String phase : PHASES) {
+            System.out.printf(" %14s", phase + "(ms)");
+        }
+        System.out.printf(" %12s %10s%n", "total(ms)", "vs cold");
+
+        double coldTotalMs = 0;
+        for (final Map.Entry<String, long[][]> entry : results.entrySet()) {
+            final long[][] runs = Arrays.stream(entry.getValue()).filter(phases -> phases != null).toArray(long[][]::new);
+            System.out.printf("%-14s %6d", entry.getKey(), runs.length);
+            if (runs.length == 0) {
+                System.out.println("  no data");
+                continue;
+            }
+
+            final long[] totals = new long[runs.length];
+            for (int phase = 0; phase < PHASES.length; phase++) {
+                final long[] values = new long[runs.length];
+                for (int run = 0; run < runs.length; run++) {
+                    values[run] = runs[run][phase];
+                    totals[run] += runs[run][phase];
+                }
+                System.out.printf(" %14.1f", median(values) / 1e6);
+            }
+
+            final double totalMs = median(totals) / 1e6;
+            if ("cold".equals(entry.getKey())) {
+                coldTotalMs = totalMs;
+            }
+            System.out.printf(" %12.1f %10s%n", totalMs,
+                coldTotalMs > 0 ? String.format("%+.1f%%", 100.0 * (totalMs - coldTotalMs) / coldTotalMs) : "-");
+        }
+    }
+
+    private static double median(long[] values) {
+        final long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        final int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2.0;
+    }
+
+    private static long epochNs(Instant instant) {
+        return TimeUnit.SECONDS.toNanos(instant.getEpochSecond()) + instant.getNano();
+    }
+}
@@ -0,0 +1,211 @@
+package dev.test;
+
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.SleepingMillisIdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.OneToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Garbage free status log for a publisher or subscriber thread. Each call writes a fixed-layout binary record into a
+ * {@link OneToOneRingBuffer} and returns; a low priority thread reads the records, formats them and prints them. When
+ * the ring buffer is full the record is dropped rather than waiting for the consumer, and the drops are counted and
+ * reported by the consumer.
+ * <p>
+ * All record methods must be called from a single thread.
+ */
+public final class StatusLogger implements AutoCloseable, MessageHandler {
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    static final int PUBLISHER_STATUS_TYPE_ID = 1;
+    static final int SUBSCRIBER_STATUS_TYPE_ID = 2;
+    static final int OFFER_RESULT_TYPE_ID = 3;
+    static final int POLL_RESULT_TYPE_ID = 4;
+
+    private static final int COUNT_OFFSET = 0;
+    private static final int VALUE_OFFSET = COUNT_OFFSET + Long.BYTES;
+    private static final int CONNECTED_OFFSET = VALUE_OFFSET + Long.BYTES;
+    private static final int RECORD_LENGTH = CONNECTED_OFFSET + Integer.BYTES;
+    private static final int READ_LIMIT = 64;
+    private static final boolean DEBUG = Boolean.getBoolean("aeron.debug");
+
+    private final String channel;
+    private final long intervalNs;
+    private final PrintStream out;
+    private final RingBuffer ringBuffer;
+    private final AtomicBuffer buffer;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread thread;
+    private volatile boolean isRunning = true;
+    private long droppedCount;
+    private long reportedDropped;
+    private long lastStatusNs = System.nanoTime();
+
+    public StatusLogger(String channel, int logIntervalSeconds) {
+        this(channel, logIntervalSeconds, DEFAULT_CAPACITY, System.out, true);
+    }
+
+    /**
+     * @param channel            printed in status lines.
+     * @param logIntervalSeconds minimum time between status records.
+     * @param capacity           of the ring buffer in bytes, a power of two.
+     * @param out                to print formatted records to.
+     * @param startConsumer      false to leave reading to {@link #drain()}.
+     */
+    StatusLogger(String channel, int logIntervalSeconds, int capacity, PrintStream out, boolean startConsumer) {
+        this.channel = channel;
+        this.intervalNs = TimeUnit.SECONDS.toNanos(Math.max(logIntervalSeconds, 1));
+        this.out = out;
+        this.ringBuffer = new OneToOneRingBuffer(new UnsafeBuffer(
+            ByteBuffer.allocateDirect(capacity + RingBufferDescriptor.TRAILER_LENGTH)));
+        this.buffer = ringBuffer.buffer();
+
+        this.thread = new Thread(this::run);
+        this.thread.setName("status-logger");
+        this.thread.setDaemon(true);
+        this.thread.setPriority(Thread.MIN_PRIORITY);
+        if (startConsumer) {
+            this.thread.start();
+        }
+    }
+
+    /**
+     * Record the publisher's progress if the log interval has passed since the last status record.
+     */
+    public void publisherStatus(long messagesSent, boolean connected, long position) {
+        if (intervalElapsed()) {
+            write(PUBLISHER_STATUS_TYPE_ID, messagesSent, position, connected);
+        }
+    }
+
+    /**
+     * Record the subscriber's progress if the log interval has passed since the last status record.
+     */
+    public void subscriberStatus(long messagesReceived, boolean connected) {
+        if (intervalElapsed()) {
+            write(SUBSCRIBER_STATUS_TYPE_ID, messagesReceived, 0, connected);
+        }
+    }
+
+    /**
+     * Record an offer that failed, or every offer with {@code -Daeron.debug=true}.
+     */
+    public void offerResult(long result, boolean connected, long messagesSent) {
+        if (result < 0 || DEBUG) {
+            write(OFFER_RESULT_TYPE_ID, messagesSent, result, connected);
+        }
+    }
+
+    /**
+     * Record a poll that returned fragments, or every poll with {@code -Daeron.debug=true}.
+     */
+    public void pollResult(int fragments, long messagesReceived) {
+        if (fragments > 0 || DEBUG) {
+            write(POLL_RESULT_TYPE_ID, messagesReceived, fragments, false);
+        }
+    }
+
+    /**
+     * @return records dropped because the ring buffer was full.
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    private boolean intervalElapsed() {
+        final long nowNs = System.nanoTime();
+        if (nowNs - lastStatusNs >= intervalNs) {
+            lastStatusNs = nowNs;
+            return true;
+        }
+        return false;
+    }
+
+    private void write(int typeId, long count, long value, boolean connected) {
+        final int index = ringBuffer.tryClaim(typeId, RECORD_LENGTH);
+        if (index < 0) {
+            dropped.lazySet(++droppedCount);
+            return;
+        }
+
+        buffer.putLong(index + COUNT_OFFSET, count);
+        buffer.putLong(index + VALUE_OFFSET, value);
+        buffer.putInt(index + CONNECTED_OFFSET, connected ? 1 : 0);
+        ringBuffer.commit(index);
+    }
+
+    private void run() {
+        final IdleStrategy idleStrategy = new SleepingMillisIdleStrategy(1);
+        while (isRunning) {
+            idleStrategy.idle(drain());
+        }
+    }
+
+    /**
+     * Print every record in the ring buffer and any new drops.
+     *
+     * @return the number of records printed.
+     */
+    int drain() {
+        int records = 0;
+        int read;
+        while ((read = ringBuffer.read(this, READ_LIMIT)) > 0) {
+            records += read;
+        }
+
+        final long droppedNow = dropped.get();
+        if (droppedNow != reportedDropped) {
+            out.printf("[WARN][LOG] %d status records dropped, %d in total%n", droppedNow - reportedDropped, droppedNow);
+            reportedDropped = droppedNow;
+        }
+        return records;
+    }
+
+    @Override
+    public void onMessage(int msgTypeId, MutableDirectBuffer buffer, int index, int length) {
+        final long count = buffer.getLong(index + COUNT_OFFSET);
+        final long value = buffer.getLong(index + VALUE_OFFSET);
+        final boolean connected = buffer.getInt(index + CONNECTED_OFFSET) != 0;
+        switch (msgTypeId) {
+            case PUBLISHER_STATUS_TYPE_ID:
+                out.printf("[STATUS][PUB] Channel: %s, Messages sent: %d, Connected: %b, Position: %d%n",
+                    channel, count, connected, value);
+                break;
+            case SUBSCRIBER_STATUS_TYPE_ID:
+                out.printf("[STATUS][SUB] Channel: %s, Messages received: %d, Connected: %b%n",
+                    channel, count, connected);
+                break;
+            case OFFER_RESULT_TYPE_ID:
+                out.printf("[PUB] Offer result: %d, Connected: %b, Messages: %d%n", value, connected, count);
+                break;
+            case POLL_RESULT_TYPE_ID:
+                out.printf("[SUB] Received fragments: %d, Total messages: %d%n", value, count);
+                break;
+            default:
+                out.printf("[WARN][LOG] Unknown status record type %d%n", msgTypeId);
+                break;
+        }
+    }
+
+    @Override
+    public void close() {
+        isRunning = false;
+        if (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        drain();
+    }
+}
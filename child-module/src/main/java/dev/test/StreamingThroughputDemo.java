@@ -0,0 +1,251 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.ExclusivePublication;
+import io.aeron.Image;
+import io.aeron.Publication;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.logbuffer.FragmentHandler;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SigInt;
+import org.agrona.concurrent.UnsafeBuffer;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes as fast as a single publication allows to find its sustainable rate. Small messages are written in place
+ * with {@code tryClaim} or copied with {@code offer}, optionally packing {@code --batch} messages into each frame;
+ * back pressure is handled by the idle strategy rather than sleeping. The subscriber polls with a large fragment limit
+ * and both sides report msgs/s, MB/s, the back-pressure ratio and how far the subscriber trails the publisher.
+ */
+@Command(name = "streaming", mixinStandardHelpOptions = true,
+    description = "Streams through one publication as fast as possible and reports sustained throughput")
+public class StreamingThroughputDemo implements Runnable {
+    private static final int STREAM_ID = 1006;
+
+    enum PublishMethod {
+        claim, offer
+    }
+
+    @Option(names = {"-c", "--channel"}, description = "Channel to stream over", defaultValue = "aeron:udp?endpoint=localhost:20600|term-length=64m")
+    private String channel;
+
+    @Option(names = {"-l", "--message-length"}, description = "Message length in bytes, at least 8", defaultValue = "32")
+    private int messageLength;
+
+    @Option(names = {"--publish"}, description = "How messages are written: ${COMPLETION-CANDIDATES}", defaultValue = "claim")
+    private PublishMethod publishMethod;
+
+    @Option(names = {"-b", "--batch"}, description = "Messages packed into each frame", defaultValue = "1")
+    private int batch;
+
+    @Option(names = {"-f", "--fragment-limit"}, description = "Fragment limit per subscriber poll", defaultValue = "1024")
+    private int fragmentLimit;
+
+    @Option(names = {"--idle"}, description = "Idle strategy for the publisher and subscriber: " + IdleStrategies.NAMES, defaultValue = "busy")
+    private String idleStrategyName;
+
+    @Option(names = {"-d", "--duration"}, description = "Duration in seconds", defaultValue = "10")
+    private int durationSeconds;
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong backPressured = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong receivedBytes = new AtomicLong();
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new StreamingThroughputDemo()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        SigInt.register(() -> running.set(false));
+        messageLength = Math.max(messageLength, Long.BYTES);
+        batch = Math.max(batch, 1);
+
+        final MediaDriver.Context driverContext = new MediaDriver.Context()
+            .threadingMode(ThreadingMode.DEDICATED)
+            .conductorIdleStrategy(new BusySpinIdleStrategy())
+            .senderIdleStrategy(new BusySpinIdleStrategy())
+            .receiverIdleStrategy(new BusySpinIdleStrategy())
+            .termBufferSparseFile(false)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true);
+
+        try (MediaDriver driver = MediaDriver.launch(driverContext);
+             Aeron aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(driver.aeronDirectoryName()));
+             Subscription subscription = aeron.addSubscription(channel, STREAM_ID);
+             ExclusivePublication publication = aeron.addExclusivePublication(channel, STREAM_ID)) {
+            final int frameLength = messageLength * batch;
+            // frames must fit one MTU so the subscriber sees whole batches, never fragments split mid-message
+            final int maxLength = publication.maxPayloadLength();
+            if (frameLength > maxLength) {
+                System.err.printf("[ERROR][STREAM] %d x %d bytes does not fit the %d byte MTU payload%n",
+                    batch, messageLength, maxLength);
+                return;
+            }
+
+            final Thread subscriberThread = new Thread(() -> runSubscriber(subscription), "streaming-sub");
+            final Thread publisherThread = new Thread(() -> runPublisher(publication, frameLength), "streaming-pub");
+            subscriberThread.start();
+            publisherThread.start();
+
+            System.out.printf("[STREAM] %s, %d byte messages x %d per frame via %s, fragment limit %d, idle %s%n",
+                channel, messageLength, batch, publishMethod, fragmentLimit, idleStrategyName);
+            report(publication, subscription);
+
+            running.set(false);
+            publisherThread.join();
+            subscriberThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runPublisher(ExclusivePublication publication, int frameLength) {
+        final IdleStrategy idleStrategy = IdleStrategies.of(idleStrategyName);
+        while (running.get() && !publication.isConnected()) {
+            idleStrategy.idle();
+        }
+
+        final BufferClaim bufferClaim = new BufferClaim();
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(frameLength));
+        long sequence = 0;
+        long attemptCount = 0;
+        long backPressureCount = 0;
+
+        while (running.get()) {
+            final long result;
+            attempts.lazySet(++attemptCount);
+            if (publishMethod == PublishMethod.claim) {
+                result = publication.tryClaim(frameLength, bufferClaim);
+                if (result > 0) {
+                    encode(bufferClaim.buffer(), bufferClaim.offset(), sequence);
+                    bufferClaim.commit();
+                }
+            } else {
+                encode(buffer, 0, sequence);
+                result = publication.offer(buffer, 0, frameLength);
+            }
+
+            if (result > 0) {
+                sequence += batch;
+                sent.lazySet(sequence);
+                idleStrategy.idle(1);
+            } else if (result == Publication.BACK_PRESSURED || result == Publication.ADMIN_ACTION) {
+                backPressured.lazySet(++backPressureCount);
+                idleStrategy.idle(0);
+            } else if (result == Publication.NOT_CONNECTED) {
+                idleStrategy.idle(0);
+            } else {
+                System.err.printf("[ERROR][STREAM] Publication failed with %d, stopping%n", result);
+                running.set(false);
+            }
+        }
+    }
+
+    private void encode(MutableDirectBuffer buffer, int offset, long sequence) {
+        for (int i = 0; i < batch; i++) {
+            buffer.putLong(offset + i * messageLength, sequence + i);
+        }
+    }
+
+    private void runSubscriber(Subscription subscription) {
+        final IdleStrategy idleStrategy = IdleStrategies.of(idleStrategyName);
+        final long[] totals = new long[2];
+        final FragmentHandler handler = (buffer, offset, length, header) -> {
+            received.lazySet(totals[0] += length / messageLength);
+            receivedBytes.lazySet(totals[1] += length);
+        };
+
+        while (running.get()) {
+            idleStrategy.idle(subscription.poll(handler, fragmentLimit));
+        }
+    }
+
+    private void report(ExclusivePublication publication, Subscription subscription) {
+        final long startNs = System.nanoTime();
+        final long endNs = startNs + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long lastNs = startNs;
+        long lastSent = 0;
+        long lastAttempts = 0;
+        long lastBackPressured = 0;
+        long lastReceived = 0;
+        long lastReceivedBytes = 0;
+        long maxLag = 0;
+        long lagSum = 0;
+        int intervals = 0;
+
+        while (running.get() && System.nanoTime() < endNs) {
+            try {
+                TimeUnit.SECONDS.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            final long nowNs = System.nanoTime();
+            final double seconds = (nowNs - lastNs) / 1e9;
+            final long sentNow = sent.get();
+            final long attemptsNow = attempts.get();
+            final long backPressuredNow = backPressured.get();
+            final long receivedNow = received.get();
+            final long receivedBytesNow = receivedBytes.get();
+            final long lag = subscriberLag(publication, subscription);
+
+            System.out.printf("[STREAM][PUB] %,.0f msgs/s %,.2f MB/s back-pressure %.2f%% limit headroom %,d bytes%n",
+                (sentNow - lastSent) / seconds,
+                (sentNow - lastSent) * messageLength / seconds / (1024 * 1024),
+                ratio(backPressuredNow - lastBackPressured, attemptsNow - lastAttempts),
+                publication.positionLimit() - publication.position());
+            System.out.printf("[STREAM][SUB] %,.0f msgs/s %,.2f MB/s lag %,d bytes%n",
+                (receivedNow - lastReceived) / seconds,
+                (receivedBytesNow - lastReceivedBytes) / seconds / (1024 * 1024),
+                lag);
+
+            maxLag = Math.max(maxLag, lag);
+            lagSum += lag;
+            intervals++;
+            lastNs = nowNs;
+            lastSent = sentNow;
+            lastAttempts = attemptsNow;
+            lastBackPressured = backPressuredNow;
+            lastReceived = receivedNow;
+            lastReceivedBytes = receivedBytesNow;
+        }
+
+        final double seconds = (System.nanoTime() - startNs) / 1e9;
+        System.out.printf("%n[STREAM][total] sent %,.0f msgs/s %,.2f MB/s, received %,.0f msgs/s %,.2f MB/s%n",
+            sent.get() / seconds, sent.get() * messageLength / seconds / (1024 * 1024),
+            received.get() / seconds, receivedBytes.get() / seconds / (1024 * 1024));
+        System.out.printf("[STREAM][total] back-pressure %.2f%% of %,d attempts, lag mean %,d bytes max %,d bytes%n",
+            ratio(backPressured.get(), attempts.get()), attempts.get(), intervals == 0 ? 0 : lagSum / intervals, maxLag);
+    }
+
+    private static long subscriberLag(Publication publication, Subscription subscription) {
+        if (subscription.imageCount() == 0) {
+            return 0;
+        }
+
+        final Image image = subscription.imageAtIndex(0);
+        return Math.max(0, publication.position() - image.position());
+    }
+
+    private static double ratio(long part, long whole) {
+        return whole == 0 ? 0.0 : 100.0 * part / whole;
+    }
+}
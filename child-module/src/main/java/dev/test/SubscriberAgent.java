@@ -0,0 +1,68 @@
+package dev.test;
+
+import io.aeron.Subscription;
+import io.aeron.logbuffer.FragmentHandler;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentTerminationException;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Polls a subscription once per duty cycle. Returning the fragment count lets the runner's idle strategy back off only
+ * when nothing arrived, instead of sleeping after every empty poll.
+ */
+public final class SubscriberAgent implements Agent {
+    /**
+     * Called on the agent's thread after every poll.
+     */
+    @FunctionalInterface
+    public interface PollHandler {
+        void onPollResult(int fragments);
+    }
+
+    private final String roleName;
+    private final Subscription subscription;
+    private final FragmentHandler fragmentHandler;
+    private final int fragmentLimit;
+    private final AtomicBoolean running;
+    private final PollHandler pollHandler;
+
+    /**
+     * @param roleName        of the agent.
+     * @param subscription    to poll.
+     * @param fragmentHandler for received fragments.
+     * @param fragmentLimit   per poll.
+     * @param running         cleared to terminate the agent.
+     * @param pollHandler     told the result of each poll.
+     */
+    public SubscriberAgent(
+        String roleName,
+        Subscription subscription,
+        FragmentHandler fragmentHandler,
+        int fragmentLimit,
+        AtomicBoolean running,
+        PollHandler pollHandler) {
+        this.roleName = roleName;
+        this.subscription = subscription;
+        this.fragmentHandler = fragmentHandler;
+        this.fragmentLimit = fragmentLimit;
+        this.running = running;
+        this.pollHandler = pollHandler;
+    }
+
+    @Override
+    public int doWork() {
+        if (!running.get()) {
+            throw new AgentTerminationException();
+        }
+
+        final int fragments = subscription.poll(fragmentHandler, fragmentLimit);
+        pollHandler.onPollResult(fragments);
+        return fragments;
+    }
+
+    @Override
+    public String roleName() {
+        return roleName;
+    }
+}
@@ -0,0 +1,162 @@
+package dev.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Linux CPU pinning for the calling thread without native code: the kernel thread id is read from
+ * {@code /proc/thread-self} and the affinity set with {@code taskset}. On other platforms pinning is reported as not
+ * applied and the thread keeps floating. Where a thread actually ran, and how often it was preempted, is read back from
+ * {@code /proc/self/task}.
+ */
+public final class ThreadAffinity {
+    private static final String SYS_CPU = "/sys/devices/system/cpu";
+    private static final String PROC_TASK = "/proc/self/task";
+    private static final int STAT_PROCESSOR_FIELD = 39;
+
+    private ThreadAffinity() {
+    }
+
+    /**
+     * Pin the calling thread to a single CPU.
+     *
+     * @param cpu to pin to, negative to leave the thread unpinned.
+     * @return true if the affinity was applied.
+     */
+    public static boolean pinCurrentThread(int cpu) {
+        if (cpu < 0) {
+            return false;
+        }
+
+        final long tid = currentThreadId();
+        if (tid < 0) {
+            return false;
+        }
+
+        try {
+            final Process process = new ProcessBuilder("taskset", "-p", "-c", Integer.toString(cpu), Long.toString(tid))
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Kernel thread id of the calling thread.
+     *
+     * @return the tid or -1 if it is not available.
+     */
+    public static long currentThreadId() {
+        try {
+            final Path threadSelf = Files.readSymbolicLink(Paths.get("/proc/thread-self"));
+            return Long.parseLong(threadSelf.getFileName().toString());
+        } catch (IOException | UnsupportedOperationException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * CPUs removed from the general scheduler with {@code isolcpus}, which a busy spinning thread can own.
+     *
+     * @return the isolated CPUs, empty if there are none or this is not Linux.
+     */
+    public static int[] isolatedCpus() {
+        try {
+            return parseCpuList(Files.readString(Paths.get(SYS_CPU, "isolated")));
+        } catch (IOException e) {
+            return new int[0];
+        }
+    }
+
+    /**
+     * CPUs a thread of this process may run on, as the kernel reports them.
+     *
+     * @param tid kernel thread id.
+     * @return a CPU list such as {@code 0-7}, or null if it is not available.
+     */
+    public static String allowedCpus(long tid) {
+        return statusField(tid, "Cpus_allowed_list:");
+    }
+
+    /**
+     * Times a thread of this process was descheduled while it still wanted to run, a direct count of the
+     * interruptions a busy spinning thread suffers.
+     *
+     * @param tid kernel thread id.
+     * @return the count or -1 if it is not available.
+     */
+    public static long involuntaryContextSwitches(long tid) {
+        final String value = statusField(tid, "nonvoluntary_ctxt_switches:");
+        return value == null ? -1 : Long.parseLong(value);
+    }
+
+    /**
+     * CPU a thread of this process last ran on.
+     *
+     * @param tid kernel thread id.
+     * @return the CPU or -1 if it is not available.
+     */
+    public static int lastCpu(long tid) {
+        try {
+            final String stat = Files.readString(Paths.get(PROC_TASK, Long.toString(tid), "stat"));
+            // fields after the parenthesised name, which may itself contain spaces; processor is field 39
+            final String[] fields = stat.substring(stat.lastIndexOf(')') + 2).trim().split(" ");
+            return Integer.parseInt(fields[STAT_PROCESSOR_FIELD - 3]);
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static String statusField(long tid, String name) {
+        try {
+            for (final String line : Files.readAllLines(Paths.get(PROC_TASK, Long.toString(tid), "status"))) {
+                if (line.startsWith(name)) {
+                    return line.substring(name.length()).trim();
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * Parse a Linux style CPU list such as {@code 2,3,8-11}.
+     *
+     * @param cpuList to parse, may be empty.
+     * @return CPUs in the order given.
+     */
+    public static int[] parseCpuList(String cpuList) {
+        final List<Integer> cpus = new ArrayList<>();
+        if (cpuList != null) {
+            for (final String part : cpuList.trim().split(",")) {
+                if (part.isBlank()) {
+                    continue;
+                }
+
+                final int dash = part.indexOf('-');
+                if (dash < 0) {
+                    cpus.add(Integer.parseInt(part.trim()));
+                } else {
+                    final int from = Integer.parseInt(part.substring(0, dash).trim());
+                    final int to = Integer.parseInt(part.substring(dash + 1).trim());
+                    for (int cpu = from; cpu <= to; cpu++) {
+                        cpus.add(cpu);
+                    }
+                }
+            }
+        }
+
+        return cpus.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,250 @@
+package dev.test;
+
+import io.aeron.driver.MediaDriver;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Assigns CPUs to named thread roles: the driver's {@link #CONDUCTOR}, {@link #SENDER} and {@link #RECEIVER} agents,
+ * pinned through the driver's thread factories, and application pollers, which pin themselves with
+ * {@link #pinCurrentThread(String)}. Every thread placed through the layout is remembered so {@link #report} can show
+ * where it actually ran, its CPU time and how often it was preempted.
+ * <p>
+ * A layout is given as {@code role=cpu} pairs, or as {@code auto} to give each role its own CPU, isolated ones first.
+ * An empty layout pins nothing but still reports placement.
+ */
+public final class ThreadLayout {
+    public static final String CONDUCTOR = "conductor";
+    public static final String SENDER = "sender";
+    public static final String RECEIVER = "receiver";
+    public static final String AUTO = "auto";
+
+    private final Map<String, Integer> cpus;
+    private final int[] isolatedCpus = ThreadAffinity.isolatedCpus();
+    private final List<Placement> placements = new CopyOnWriteArrayList<>();
+
+    private ThreadLayout(Map<String, Integer> cpus) {
+        this.cpus = cpus;
+    }
+
+    /**
+     * Parse a layout.
+     *
+     * @param spec  {@code role=cpu} pairs separated by commas, {@code auto}, or empty for no pinning.
+     * @param roles in the order {@code auto} hands out CPUs.
+     * @return the layout.
+     */
+    public static ThreadLayout parse(String spec, String... roles) {
+        final Map<String, Integer> cpus = new LinkedHashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return new ThreadLayout(cpus);
+        }
+
+        if (AUTO.equalsIgnoreCase(spec.trim())) {
+            final int[] candidates = autoCpus();
+            for (int i = 0; i < roles.length; i++) {
+                cpus.put(roles[i], candidates[i % candidates.length]);
+            }
+            if (roles.length > candidates.length) {
+                System.out.printf("[WARN][LAYOUT] %d roles share %d CPUs%n", roles.length, candidates.length);
+            }
+            return new ThreadLayout(cpus);
+        }
+
+        for (final String pair : spec.split(",")) {
+            final int equals = pair.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected role=cpu but got '" + pair + "'");
+            }
+            cpus.put(pair.substring(0, equals).trim(), Integer.parseInt(pair.substring(equals + 1).trim()));
+        }
+        return new ThreadLayout(cpus);
+    }
+
+    /**
+     * Isolated CPUs if there are any, otherwise every CPU but the first, which takes interrupts and housekeeping.
+     */
+    private static int[] autoCpus() {
+        final int[] isolated = ThreadAffinity.isolatedCpus();
+        if (isolated.length > 0) {
+            return isolated;
+        }
+
+        final int processors = Runtime.getRuntime().availableProcessors();
+        if (processors < 2) {
+            return new int[]{0};
+        }
+        final int[] cpus = new int[processors - 1];
+        Arrays.setAll(cpus, i -> i + 1);
+        return cpus;
+    }
+
+    /**
+     * @param role thread role.
+     * @return CPU assigned to the role or -1 if it floats.
+     */
+    public int cpu(String role) {
+        return cpus.getOrDefault(role, -1);
+    }
+
+    public boolean isEmpty() {
+        return cpus.isEmpty();
+    }
+
+    /**
+     * Start the driver's conductor, sender and receiver agents on threads that place themselves by role. The factories
+     * only take effect with {@link io.aeron.driver.ThreadingMode#DEDICATED}.
+     *
+     * @param context to set the thread factories on.
+     * @return the context.
+     */
+    public MediaDriver.Context apply(MediaDriver.Context context) {
+        return context
+            .conductorThreadFactory(threadFactory(CONDUCTOR))
+            .senderThreadFactory(threadFactory(SENDER))
+            .receiverThreadFactory(threadFactory(RECEIVER));
+    }
+
+    /**
+     * @param role of the threads the factory creates.
+     * @return a factory for threads that pin themselves to the role's CPU as they start and keep their placement stats
+     * for {@link #report} when they finish.
+     */
+    public ThreadFactory threadFactory(String role) {
+        return runnable -> new Thread(() -> {
+            final Placement placement = place(role);
+            try {
+                runnable.run();
+            } finally {
+                placement.finish();
+            }
+        });
+    }
+
+    /**
+     * Pin the calling thread to its role's CPU, if it has one, and remember it for {@link #report}.
+     *
+     * @param role of the calling thread.
+     * @return true if the thread was pinned.
+     */
+    public boolean pinCurrentThread(String role) {
+        return place(role).pinned;
+    }
+
+    private Placement place(String role) {
+        final int cpu = cpu(role);
+        final boolean pinned = ThreadAffinity.pinCurrentThread(cpu);
+        if (cpu >= 0 && !pinned) {
+            System.out.printf("[WARN][LAYOUT] Could not pin %s to CPU %d%n", role, cpu);
+        }
+        final Placement placement =
+            new Placement(role, Thread.currentThread(), ThreadAffinity.currentThreadId(), cpu, pinned);
+        placements.add(placement);
+        return placement;
+    }
+
+    /**
+     * Print the requested layout and flag CPUs that are not isolated.
+     *
+     * @param out to print to.
+     */
+    public void printPlan(PrintStream out) {
+        out.printf("[LAYOUT] Isolated CPUs: %s%n", isolatedCpus.length == 0 ? "none" : Arrays.toString(isolatedCpus));
+        if (cpus.isEmpty()) {
+            out.println("[LAYOUT] No pinning, threads float");
+            return;
+        }
+
+        out.printf("[LAYOUT] Requested %s%n", cpus);
+        for (final Map.Entry<String, Integer> entry : cpus.entrySet()) {
+            if (isolatedCpus.length > 0 && Arrays.stream(isolatedCpus).noneMatch(cpu -> cpu == entry.getValue())) {
+                out.printf("[WARN][LAYOUT] %s on CPU %d, which is not isolated%n", entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Print where each placed thread is allowed to run and last ran, its CPU time and its involuntary context
+     * switches. Threads from {@link #threadFactory} that have finished show their stats at exit; others must still be
+     * alive.
+     *
+     * @param out to print to.
+     */
+    public void report(PrintStream out) {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        out.printf("%-10s %-28s %8s %6s %7s %10s %6s %12s %10s%n",
+            "role", "thread", "tid", "cpu", "pinned", "allowed", "last", "cpu(ms)", "preempted");
+        for (final Placement placement : placements) {
+            final Thread thread = placement.thread;
+            if (placement.finished) {
+                printPlacement(out, placement, placement.allowed, placement.lastCpu, placement.cpuTimeNs,
+                    placement.involuntaryContextSwitches);
+                continue;
+            }
+
+            final long cpuTimeNs = thread.isAlive() && threads.isThreadCpuTimeSupported() ?
+                threads.getThreadCpuTime(thread.getId()) : -1;
+            printPlacement(out, placement, ThreadAffinity.allowedCpus(placement.tid), ThreadAffinity.lastCpu(placement.tid),
+                cpuTimeNs, ThreadAffinity.involuntaryContextSwitches(placement.tid));
+        }
+    }
+
+    private static void printPlacement(
+        PrintStream out, Placement placement, String allowed, long lastCpu, long cpuTimeNs, long involuntaryContextSwitches) {
+        out.printf("%-10s %-28s %8d %6s %7b %10s %6s %12s %10s%n",
+            placement.role,
+            placement.thread.getName(),
+            placement.tid,
+            placement.cpu >= 0 ? Integer.toString(placement.cpu) : "-",
+            placement.pinned,
+            allowed == null ? "-" : allowed,
+            orDash(lastCpu),
+            cpuTimeNs >= 0 ? String.format("%.1f", cpuTimeNs / 1e6) : "-",
+            orDash(involuntaryContextSwitches));
+    }
+
+    private static String orDash(long value) {
+        return value >= 0 ? Long.toString(value) : "-";
+    }
+
+    private static final class Placement {
+        private final String role;
+        private final Thread thread;
+        private final long tid;
+        private final int cpu;
+        private final boolean pinned;
+        private volatile boolean finished;
+        private String allowed;
+        private long lastCpu;
+        private long cpuTimeNs;
+        private long involuntaryContextSwitches;
+
+        private Placement(String role, Thread thread, long tid, int cpu, boolean pinned) {
+            this.role = role;
+            this.thread = thread;
+            this.tid = tid;
+            this.cpu = cpu;
+            this.pinned = pinned;
+        }
+
+        /**
+         * Snapshot the stats on the placed thread itself as it finishes.
+         */
+        private void finish() {
+            final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            allowed = ThreadAffinity.allowedCpus(tid);
+            lastCpu = ThreadAffinity.lastCpu(tid);
+            cpuTimeNs = threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+            involuntaryContextSwitches = ThreadAffinity.involuntaryContextSwitches(tid);
+            finished = true;
+        }
+    }
+}
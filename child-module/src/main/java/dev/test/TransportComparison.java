@@ -0,0 +1,366 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.CommonContext;
+import io.aeron.ExclusivePublication;
+import io.aeron.Publication;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.logbuffer.FragmentHandler;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SigInt;
+import org.agrona.concurrent.UnsafeBuffer;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the same single-outstanding ping-pong over several transports with the same driver configuration and prints
+ * one table, so the cost of the network stack and of the hop to the driver can be separated:
+ * <ul>
+ *     <li>{@code ipc}: {@code aeron:ipc} with an in-process driver.</li>
+ *     <li>{@code udp}: UDP loopback with an in-process driver.</li>
+ *     <li>{@code udp-external}: UDP loopback through a standalone driver in its own JVM.</li>
+ * </ul>
+ * Every driver is DEDICATED with busy-spin idle strategies, the same setup as {@link RttDemo}.
+ */
+@Command(name = "transport-compare", mixinStandardHelpOptions = true,
+    description = "Compares ping-pong RTT over aeron:ipc, UDP with an embedded driver and UDP with an external driver")
+public class TransportComparison implements Runnable {
+    private static final int PING_STREAM_ID = 1011;
+    private static final int PONG_STREAM_ID = 1012;
+    private static final int FRAGMENT_LIMIT = 10;
+    private static final String BUSY_SPIN = BusySpinIdleStrategy.class.getName();
+    private static final long DRIVER_TIMEOUT_MS = 10_000;
+    private static final long CONNECT_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(10);
+    private static final long ROUND_TRIP_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(5);
+
+    @Option(names = {"-t", "--transports"}, split = ",", description = "Transports to run: ipc, udp, udp-external",
+        defaultValue = "ipc,udp,udp-external")
+    private List<String> transports;
+
+    @Option(names = {"-n", "--messages"}, description = "Measured round trips per transport", defaultValue = "100000")
+    private int messages;
+
+    @Option(names = {"-w", "--warmup"}, description = "Warmup round trips per transport", defaultValue = "20000")
+    private int warmupMessages;
+
+    @Option(names = {"-l", "--message-length"}, description = "Message length in bytes, at least 8", defaultValue = "32")
+    private int messageLength;
+
+    @Option(names = {"--host"}, description = "Loopback host for the UDP transports", defaultValue = "localhost")
+    private String host;
+
+    @Option(names = {"--ping-port"}, description = "UDP port for pings", defaultValue = "20701")
+    private int pingPort;
+
+    @Option(names = {"--pong-port"}, description = "UDP port for pongs", defaultValue = "20702")
+    private int pongPort;
+
+    @Option(names = {"--external-dir"}, description = "Aeron directory of the external driver")
+    private String externalDir = new File(System.getProperty("java.io.tmpdir"), "aeron-transport-compare").getPath();
+
+    @Option(names = {"--no-launch-external"}, description = "Use a driver already running on --external-dir instead of launching one")
+    private boolean noLaunchExternal;
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new TransportComparison()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        SigInt.register(() -> running.set(false));
+        messageLength = ProbeCodec.messageLength(messageLength);
+
+        final List<Result> results = new ArrayList<>();
+        for (final String transport : transports) {
+            if (!running.get()) {
+                break;
+            }
+
+            System.out.printf("[COMPARE] Running %s: %d warmup + %d measured round trips of %d bytes%n",
+                transport, warmupMessages, messages, messageLength);
+            switch (transport) {
+                case "ipc":
+                    results.add(runEmbedded(transport, "aeron:ipc", "aeron:ipc"));
+                    break;
+                case "udp":
+                    results.add(runEmbedded(transport, udpChannel(pingPort), udpChannel(pongPort)));
+                    break;
+                case "udp-external":
+                    results.add(runExternal(transport));
+                    break;
+                default:
+                    System.err.printf("[WARN][COMPARE] Unknown transport %s%n", transport);
+            }
+        }
+
+        printResults(results);
+    }
+
+    private String udpChannel(int port) {
+        return "aeron:udp?endpoint=" + host + ":" + port;
+    }
+
+    private Result runEmbedded(String transport, String pingChannel, String pongChannel) {
+        final MediaDriver.Context driverContext = new MediaDriver.Context()
+            .threadingMode(ThreadingMode.DEDICATED)
+            .conductorIdleStrategy(new BusySpinIdleStrategy())
+            .senderIdleStrategy(new BusySpinIdleStrategy())
+            .receiverIdleStrategy(new BusySpinIdleStrategy())
+            .termBufferSparseFile(false)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true);
+
+        try (MediaDriver driver = MediaDriver.launchEmbedded(driverContext)) {
+            return pingPong(transport, driver.aeronDirectoryName(), pingChannel, pongChannel);
+        }
+    }
+
+    private Result runExternal(String transport) {
+        Process driverProcess = null;
+        try {
+            if (!noLaunchExternal) {
+                driverProcess = launchExternalDriver();
+            }
+            if (!awaitDriverActive()) {
+                System.err.printf("[ERROR][COMPARE] No active driver on %s after %d ms%n",
+                    externalDir, DRIVER_TIMEOUT_MS);
+                return Result.failed(transport);
+            }
+            return pingPong(transport, externalDir, udpChannel(pingPort), udpChannel(pongPort));
+        } catch (IOException e) {
+            System.err.printf("[ERROR][COMPARE] Could not launch the external driver: %s%n", e.getMessage());
+            return Result.failed(transport);
+        } finally {
+            if (driverProcess != null) {
+                driverProcess.destroy();
+                try {
+                    driverProcess.waitFor(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Start {@code io.aeron.driver.MediaDriver} in a child JVM on the same classpath, configured through system
+     * properties to match the embedded drivers.
+     */
+    private Process launchExternalDriver() throws IOException {
+        final String java = ProcessHandle.current().info().command().orElse("java");
+        final ProcessBuilder builder = new ProcessBuilder(
+            java,
+            "--add-opens", "java.base/jdk.internal.misc=ALL-UNNAMED",
+            "-cp", System.getProperty("java.class.path"),
+            "-Daeron.dir=" + externalDir,
+            "-Daeron.threading.mode=DEDICATED",
+            "-Daeron.conductor.idle.strategy=" + BUSY_SPIN,
+            "-Daeron.sender.idle.strategy=" + BUSY_SPIN,
+            "-Daeron.receiver.idle.strategy=" + BUSY_SPIN,
+            "-Daeron.term.buffer.sparse.file=false",
+            "-Daeron.dir.delete.on.start=true",
+            "-Daeron.dir.delete.on.shutdown=true",
+            "io.aeron.driver.MediaDriver");
+        builder.inheritIO();
+        System.out.printf("[COMPARE] Launching external driver on %s%n", externalDir);
+        return builder.start();
+    }
+
+    /**
+     * Wait for a driver heartbeat in the external directory, so a CnC file left behind by a crashed driver is not taken
+     * for a running one.
+     *
+     * @return true if the driver is active.
+     */
+    private boolean awaitDriverActive() {
+        final File directory = new File(externalDir);
+        final long deadlineNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRIVER_TIMEOUT_MS);
+        while (running.get() && System.nanoTime() < deadlineNs) {
+            try {
+                if (CommonContext.isDriverActive(directory, DRIVER_TIMEOUT_MS, message -> { })) {
+                    return true;
+                }
+            } catch (RuntimeException e) {
+                // the driver may still be writing its CnC file
+            }
+
+            try {
+                TimeUnit.MILLISECONDS.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    private Result pingPong(String transport, String aeronDirectoryName, String pingChannel, String pongChannel) {
+        final Result result = new Result(transport);
+        final AtomicBoolean echoing = new AtomicBoolean(true);
+        try (Aeron aeron = Aeron.connect(new Aeron.Context()
+                .aeronDirectoryName(aeronDirectoryName)
+                .idleStrategy(new BusySpinIdleStrategy()));
+             ExclusivePublication pingPublication = aeron.addExclusivePublication(pingChannel, PING_STREAM_ID);
+             Subscription pingSubscription = aeron.addSubscription(pingChannel, PING_STREAM_ID);
+             ExclusivePublication pongPublication = aeron.addExclusivePublication(pongChannel, PONG_STREAM_ID);
+             Subscription pongSubscription = aeron.addSubscription(pongChannel, PONG_STREAM_ID)) {
+            final Thread echoThread = new Thread(
+                () -> echo(pingSubscription, pongPublication, echoing), "transport-compare-echo");
+            echoThread.start();
+
+            try {
+                roundTrips(result, pingPublication, pongPublication, pongSubscription);
+            } finally {
+                echoing.set(false);
+                echoThread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            System.err.printf("[ERROR][COMPARE] %s failed: %s%n", transport, e);
+            result.failed = true;
+        }
+
+        result.rtt.printSummary(System.out, "[COMPARE][" + transport + "] rtt");
+        return result;
+    }
+
+    /**
+     * Run the warmup and measured round trips one at a time, recording the measured ones.
+     *
+     * @throws IllegalStateException if the streams do not connect, the ping publication is closed or full, or a pong
+     *                               does not arrive in time.
+     */
+    private void roundTrips(
+        Result result,
+        ExclusivePublication pingPublication,
+        ExclusivePublication pongPublication,
+        Subscription pongSubscription) {
+        final long connectDeadlineNs = System.nanoTime() + CONNECT_TIMEOUT_NS;
+        while (running.get() && !(pingPublication.isConnected() && pongPublication.isConnected())) {
+            if (System.nanoTime() > connectDeadlineNs) {
+                throw new IllegalStateException("ping and pong streams not connected");
+            }
+            Thread.onSpinWait();
+        }
+
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(messageLength));
+        final ProbeCodec.Encoder encoder = new ProbeCodec.Encoder().wrap(buffer, 0, messageLength)
+            .senderId(pingPublication.sessionId());
+        final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+        final long[] pongTimestamp = new long[1];
+        final FragmentHandler pongHandler = (msg, offset, length, header) ->
+            pongTimestamp[0] = decoder.wrap(msg, offset, length).sendTimestampNs();
+        final IdleStrategy idleStrategy = new BusySpinIdleStrategy();
+
+        for (int i = 0; i < warmupMessages + messages && running.get(); i++) {
+            final long sentNs = System.nanoTime();
+            encoder.sendTimestampNs(sentNs).sequence(i);
+            long position;
+            while ((position = pingPublication.offer(buffer, 0, messageLength)) < 0) {
+                if (position == Publication.CLOSED || position == Publication.MAX_POSITION_EXCEEDED) {
+                    throw new IllegalStateException("ping offer failed with " + position);
+                }
+                if (!running.get()) {
+                    break;
+                }
+                idleStrategy.idle();
+            }
+
+            pongTimestamp[0] = 0;
+            while (pongTimestamp[0] != sentNs && running.get()) {
+                if (System.nanoTime() - sentNs > ROUND_TRIP_TIMEOUT_NS) {
+                    throw new IllegalStateException("no pong for round trip " + i);
+                }
+                idleStrategy.idle(pongSubscription.poll(pongHandler, FRAGMENT_LIMIT));
+            }
+
+            if (i >= warmupMessages) {
+                result.rtt.recordValue(System.nanoTime() - sentNs);
+            }
+        }
+    }
+
+    private void echo(Subscription pingSubscription, ExclusivePublication pongPublication, AtomicBoolean echoing) {
+        final BufferClaim bufferClaim = new BufferClaim();
+        final ProbeCodec.Encoder encoder = new ProbeCodec.Encoder();
+        final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder();
+        final IdleStrategy idleStrategy = new BusySpinIdleStrategy();
+        final FragmentHandler handler = (buffer, offset, length, header) -> {
+            while (pongPublication.tryClaim(length, bufferClaim) < 0) {
+                if (!echoing.get()) {
+                    return;
+                }
+                Thread.onSpinWait();
+            }
+            decoder.wrap(buffer, offset, length);
+            encoder.wrap(bufferClaim.buffer(), bufferClaim.offset(), length)
+                .sendTimestampNs(decoder.sendTimestampNs())
+                .sequence(decoder.sequence())
+                .senderId(pongPublication.sessionId())
+                .echoTimestampNs(System.nanoTime());
+            bufferClaim.commit();
+        };
+
+        while (echoing.get()) {
+            idleStrategy.idle(pingSubscription.poll(handler, FRAGMENT_LIMIT));
+        }
+    }
+
+    private static void printResults(List<Result> results) {
+        final Result baseline = results.isEmpty() ? null : results.get(0);
+        final double baselineP50 = baseline == null || baseline.failed || baseline.rtt.totalCount() == 0 ?
+            0.0 : baseline.rtt.valueAtPercentile(50.0) / 1000.0;
+        System.out.printf("%n%-14s %10s %10s %10s %10s %10s %10s %10s %14s%n",
+            "transport", "samples", "mean(us)", "p50(us)", "p90(us)", "p99(us)", "p99.9(us)", "max(us)", "p50 delta(us)");
+        for (final Result result : results) {
+            final LatencyHistogram rtt = result.rtt;
+            if (result.failed || rtt.totalCount() == 0) {
+                System.out.printf("%-14s %10s%n", result.transport, result.failed ? "failed" : "no data");
+                continue;
+            }
+
+            final double p50 = rtt.valueAtPercentile(50.0) / 1000.0;
+            System.out.printf("%-14s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %+14.1f%n",
+                result.transport, rtt.totalCount(), rtt.mean() / 1000.0, p50,
+                rtt.valueAtPercentile(90.0) / 1000.0,
+                rtt.valueAtPercentile(99.0) / 1000.0,
+                rtt.valueAtPercentile(99.9) / 1000.0,
+                rtt.maxValue() / 1000.0,
+                p50 - baselineP50);
+        }
+    }
+
+    private static final class Result {
+        private final String transport;
+        private final LatencyHistogram rtt = new LatencyHistogram();
+        private boolean failed;
+
+        private Result(String transport) {
+            this.transport = transport;
+        }
+
+        private static Result failed(String transport) {
+            final Result result = new Result(transport);
+            result.failed = true;
+            return result;
+        }
+    }
+}
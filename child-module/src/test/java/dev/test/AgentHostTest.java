@@ -0,0 +1,66 @@
+package dev.test;
+
+import io.aeron.Aeron;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentTerminationException;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AgentHostTest {
+    private static final int DUTY_CYCLES = 100;
+
+    @Test
+    void shouldMapAgentModesToDriverThreading() {
+        assertEquals(ThreadingMode.DEDICATED, AgentHost.threadingMode(AgentHost.DEDICATED));
+        assertEquals(ThreadingMode.SHARED, AgentHost.threadingMode("Shared"));
+        assertEquals(ThreadingMode.INVOKER, AgentHost.threadingMode(AgentHost.INVOKER));
+    }
+
+    @Test
+    void shouldRejectUnknownAgentMode() {
+        assertThrows(IllegalArgumentException.class, () -> AgentHost.threadingMode("pooled"));
+    }
+
+    @Test
+    @Timeout(30)
+    void shouldRunInvokerModeOnOneThreadUntilTheAgentTerminates() {
+        final CountingAgent agent = new CountingAgent();
+        final MediaDriver.Context driverContext = new MediaDriver.Context()
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true);
+
+        try (AgentHost agentHost = AgentHost.launchEmbedded(AgentHost.INVOKER, driverContext, new Aeron.Context())) {
+            agentHost.start(BusySpinIdleStrategy::new, agent);
+            assertEquals(1, agentHost.threadCount());
+
+            agentHost.awaitTermination();
+            assertEquals(DUTY_CYCLES, agent.dutyCycles.get());
+            assertThrows(IllegalStateException.class, () -> agentHost.start(BusySpinIdleStrategy::new, agent));
+        }
+    }
+
+    private static final class CountingAgent implements Agent {
+        private final AtomicInteger dutyCycles = new AtomicInteger();
+
+        @Override
+        public int doWork() {
+            if (dutyCycles.incrementAndGet() >= DUTY_CYCLES) {
+                throw new AgentTerminationException();
+            }
+            return 1;
+        }
+
+        @Override
+        public String roleName() {
+            return "counter";
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package dev.test;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BurstLossGeneratorTest {
+    private static final int FRAMES = 2_000_000;
+    private static final long SEED = 42;
+
+    @Test
+    void shouldConvergeToLossRateAndMeanBurstLength() {
+        assertLossAndBursts(0.05, 4.0);
+    }
+
+    @Test
+    void shouldGiveIndependentLossForBurstLengthOfOne() {
+        assertIndependentLoss(0.01);
+    }
+
+    @Test
+    void shouldGiveIndependentLossAboveHalfForBurstLengthOfOne() {
+        assertIndependentLoss(0.6);
+    }
+
+    @Test
+    void shouldNeverDropWithZeroLossRate() {
+        final BurstLossGenerator generator = new BurstLossGenerator(0.0, 8.0, SEED);
+        for (int i = 0; i < FRAMES; i++) {
+            assertFalse(generator.shouldDropFrame(null, null, 64));
+        }
+
+        assertEquals(FRAMES, generator.frames());
+        assertEquals(0, generator.dropped());
+    }
+
+    @Test
+    void shouldRejectLossRateOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new BurstLossGenerator(1.0, 1.0, SEED));
+        assertThrows(IllegalArgumentException.class, () -> new BurstLossGenerator(-0.1, 1.0, SEED));
+    }
+
+    @Test
+    void shouldRejectLossRateNotReachableWithBurstLength() {
+        assertThrows(IllegalArgumentException.class, () -> new BurstLossGenerator(0.9, 2.0, SEED));
+        assertThrows(IllegalArgumentException.class, () -> new BurstLossGenerator(0.81, 4.0, SEED));
+    }
+
+    @Test
+    void shouldReachHighestLossRateForBurstLength() {
+        assertLossAndBursts(0.8, 4.0);
+    }
+
+    private static void assertLossAndBursts(double lossRate, double meanBurstLength) {
+        final BurstLossGenerator generator = new BurstLossGenerator(lossRate, meanBurstLength, SEED);
+        long bursts = 0;
+        boolean wasDropped = false;
+        for (int i = 0; i < FRAMES; i++) {
+            final boolean dropped = generator.shouldDropFrame(null, null, 64);
+            if (dropped && !wasDropped) {
+                bursts++;
+            }
+            wasDropped = dropped;
+        }
+
+        assertEquals(FRAMES, generator.frames());
+        assertEquals(lossRate, (double) generator.dropped() / FRAMES, lossRate * 0.05);
+        assertEquals(meanBurstLength, (double) generator.dropped() / bursts, meanBurstLength * 0.05);
+    }
+
+    private static void assertIndependentLoss(double lossRate) {
+        final BurstLossGenerator generator = new BurstLossGenerator(lossRate, 1.0, SEED);
+        long consecutiveDrops = 0;
+        boolean wasDropped = false;
+        for (int i = 0; i < FRAMES; i++) {
+            final boolean dropped = generator.shouldDropFrame(null, null, 64);
+            if (dropped && wasDropped) {
+                consecutiveDrops++;
+            }
+            wasDropped = dropped;
+        }
+
+        final double expectedConsecutive = lossRate * lossRate;
+        assertEquals(lossRate, (double) generator.dropped() / FRAMES, lossRate * 0.05);
+        assertEquals(expectedConsecutive, (double) consecutiveDrops / (FRAMES - 1), expectedConsecutive * 0.25);
+    }
+}
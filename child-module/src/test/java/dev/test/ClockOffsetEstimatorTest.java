@@ -0,0 +1,63 @@
+package dev.test;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClockOffsetEstimatorTest {
+    private static final long MS = 1_000_000L;
+
+    @Test
+    void shouldEstimateOffsetFromSymmetricExchange() {
+        final ClockOffsetEstimator estimator = new ClockOffsetEstimator(1000 * MS, 4);
+        assertFalse(estimator.hasEstimate());
+
+        exchange(estimator, 0, 5_000, 20_000, 20_000, 0);
+
+        assertTrue(estimator.hasEstimate());
+        assertEquals(5_000, estimator.offsetNs(0));
+        assertEquals(40_000, estimator.minDelayNs());
+        assertEquals(20_000, estimator.uncertaintyNs());
+    }
+
+    @Test
+    void shouldKeepMinimumDelaySampleOfWindow() {
+        final ClockOffsetEstimator estimator = new ClockOffsetEstimator(1000 * MS, 4);
+
+        // queued on the way out, which would skew the offset by half the extra delay
+        exchange(estimator, 0, 1_000, 500_000, 10_000, 0);
+        exchange(estimator, 10 * MS, 1_000, 10_000, 10_000, 0);
+        exchange(estimator, 20 * MS, 1_000, 10_000, 300_000, 0);
+
+        assertEquals(1_000, estimator.offsetNs(20 * MS));
+        assertEquals(20_000, estimator.minDelayNs());
+        assertEquals(3, estimator.sampleCount());
+    }
+
+    @Test
+    void shouldFitDriftAcrossWindows() {
+        final ClockOffsetEstimator estimator = new ClockOffsetEstimator(100 * MS, 8);
+        final double driftPpm = 50;
+
+        for (long t = 0; t <= 1000 * MS; t += 10 * MS) {
+            final long offsetNs = 2_000 + (long) (t * driftPpm / 1e6);
+            exchange(estimator, t, offsetNs, 15_000, 15_000 + (t / MS) % 7 * 1_000, 0);
+        }
+
+        assertEquals(driftPpm, estimator.driftPpm(), 1.0);
+        assertEquals(2_000 + (long) (1000 * MS * driftPpm / 1e6), estimator.offsetNs(1000 * MS), 1_000);
+    }
+
+    /**
+     * One probe exchange against a remote clock that is {@code offsetNs} ahead of the local one.
+     */
+    private static void exchange(
+        ClockOffsetEstimator estimator, long t1, long offsetNs, long outNs, long backNs, long processingNs) {
+        final long t2 = t1 + outNs + offsetNs;
+        final long t3 = t2 + processingNs;
+        final long t4 = t3 - offsetNs + backNs;
+        estimator.onSample(t1, t2, t3, t4);
+    }
+}
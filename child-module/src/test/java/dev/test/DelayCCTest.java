@@ -0,0 +1,179 @@
+package dev.test;
+
+import io.aeron.driver.CongestionControl;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.media.UdpChannel;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.CountersManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DelayCCTest {
+    private static final long MS = 1_000_000L;
+    private static final int TERM_LENGTH = 16 * 1024 * 1024;
+    private static final int MTU = 1408;
+    private static final int INITIAL_WINDOW = 128 * 1024;
+
+    private DelayCC congestionControl;
+
+    @BeforeEach
+    void setUp() {
+        final CountersManager countersManager = new CountersManager(
+            new UnsafeBuffer(ByteBuffer.allocateDirect(64 * 1024)),
+            new UnsafeBuffer(ByteBuffer.allocateDirect(16 * 1024)));
+        congestionControl = new DelayCC(1, UdpChannel.parse("aeron:udp?endpoint=localhost:20123"), 1001, 7,
+            TERM_LENGTH, MTU, null, null, System::nanoTime,
+            new MediaDriver.Context().initialWindowLength(INITIAL_WINDOW), countersManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        congestionControl.close();
+    }
+
+    @Test
+    void shouldKeepInitialWindowUntilRttAndBandwidthAreKnown() {
+        assertEquals(INITIAL_WINDOW, congestionControl.initialWindowLength());
+        assertEquals(TERM_LENGTH / 2, congestionControl.maxWindowLength());
+
+        assertEquals(INITIAL_WINDOW, rebuild(0, 0, false));
+        assertEquals(INITIAL_WINDOW, rebuild(MS, 100_000, false));
+        assertEquals(100_000_000, congestionControl.bottleneckBandwidthBytesPerSec());
+
+        congestionControl.onRttMeasurement(2 * MS, MS, null);
+        assertEquals(200_000, rebuild(2 * MS, 200_000, false));
+    }
+
+    @Test
+    void shouldSetWindowToTwiceBdpWithoutQueue() {
+        congestionControl.onRttMeasurement(0, MS, null);
+        sampleRate(0, 100_000);
+
+        // 100,000 bytes per 1 ms min RTT is a 100,000 byte BDP
+        assertEquals(100_000_000, congestionControl.bottleneckBandwidthBytesPerSec());
+        assertEquals(200_000, congestionControl.windowLength());
+    }
+
+    @Test
+    void shouldDropToOneBdpOnceQueueBuilds() {
+        congestionControl.onRttMeasurement(0, MS, null);
+        sampleRate(0, 100_000);
+        assertEquals(200_000, congestionControl.windowLength());
+
+        // smoothed RTT 1.25 ms or less is within the threshold
+        congestionControl.onRttMeasurement(MS, 2 * MS, null);
+        congestionControl.onRttMeasurement(2 * MS, 2 * MS, null);
+        assertTrue(congestionControl.smoothedRttNs() - MS <= MS / 4);
+        assertEquals(200_000, rebuild(2 * MS, 200_000, false));
+
+        for (int i = 0; i < 3; i++) {
+            congestionControl.onRttMeasurement((3 + i) * MS, 2 * MS, null);
+        }
+        assertTrue(congestionControl.smoothedRttNs() - MS > MS / 4);
+        assertEquals(MS, congestionControl.minRttNs());
+
+        final long outcome = onTrackRebuild(3 * MS, 300_000, false);
+        assertEquals(100_000, CongestionControl.receiverWindowLength(outcome));
+        assertFalse(CongestionControl.shouldForceStatusMessage(outcome));
+    }
+
+    @Test
+    void shouldDropToOneBdpOnLoss() {
+        congestionControl.onRttMeasurement(0, MS, null);
+        sampleRate(0, 100_000);
+
+        assertEquals(100_000, rebuild(2 * MS, 200_000, true));
+        assertEquals(200_000, rebuild(3 * MS, 300_000, false));
+    }
+
+    @Test
+    void shouldForceStatusMessageWhenWindowGrows() {
+        congestionControl.onRttMeasurement(0, MS, null);
+        rebuild(0, 0, false);
+
+        final long outcome = onTrackRebuild(MS, 200_000, false);
+        assertEquals(400_000, CongestionControl.receiverWindowLength(outcome));
+        assertTrue(CongestionControl.shouldForceStatusMessage(outcome));
+    }
+
+    @Test
+    void shouldReplaceMinRttOnceWindowExpires() {
+        congestionControl.onRttMeasurement(0, MS, null);
+        congestionControl.onRttMeasurement(DelayCC.MIN_RTT_WINDOW_NS, 5 * MS, null);
+        assertEquals(MS, congestionControl.minRttNs());
+
+        congestionControl.onRttMeasurement(DelayCC.MIN_RTT_WINDOW_NS + 1, 5 * MS, null);
+        assertEquals(5 * MS, congestionControl.minRttNs());
+
+        congestionControl.onRttMeasurement(DelayCC.MIN_RTT_WINDOW_NS + 2, 3 * MS, null);
+        assertEquals(3 * MS, congestionControl.minRttNs());
+    }
+
+    @Test
+    void shouldKeepMaxBandwidthOverSampleWindow() {
+        congestionControl.onRttMeasurement(0, MS, null);
+        rebuild(0, 0, false);
+        long nowNs = MS;
+        long position = 1_000_000;
+        rebuild(nowNs, position, false);
+        assertEquals(1_000_000_000, congestionControl.bottleneckBandwidthBytesPerSec());
+
+        for (int i = 1; i < DelayCC.BANDWIDTH_SAMPLES; i++) {
+            nowNs += MS;
+            position += 100_000;
+            rebuild(nowNs, position, false);
+        }
+        assertEquals(1_000_000_000, congestionControl.bottleneckBandwidthBytesPerSec());
+
+        rebuild(nowNs + MS, position + 100_000, false);
+        assertEquals(100_000_000, congestionControl.bottleneckBandwidthBytesPerSec());
+    }
+
+    @Test
+    void shouldNotSampleBandwidthFasterThanMinRtt() {
+        congestionControl.onRttMeasurement(0, 2 * MS, null);
+        rebuild(0, 0, false);
+        rebuild(MS, 100_000, false);
+        assertEquals(0, congestionControl.bottleneckBandwidthBytesPerSec());
+
+        rebuild(2 * MS, 200_000, false);
+        assertEquals(100_000_000, congestionControl.bottleneckBandwidthBytesPerSec());
+    }
+
+    @Test
+    void shouldClampWindowToMaxLength() {
+        congestionControl.onRttMeasurement(0, MS, null);
+        sampleRate(0, 10_000_000);
+
+        assertEquals(TERM_LENGTH / 2, congestionControl.windowLength());
+    }
+
+    @Test
+    void shouldClampWindowToFourMtus() {
+        congestionControl.onRttMeasurement(0, MS, null);
+        sampleRate(0, 1_000);
+
+        assertEquals(4 * MTU, congestionControl.windowLength());
+    }
+
+    private void sampleRate(long startNs, long bytesPerMs) {
+        rebuild(startNs, 0, false);
+        rebuild(startNs + MS, bytesPerMs, false);
+    }
+
+    private int rebuild(long nowNs, long hwmPosition, boolean lossOccurred) {
+        return CongestionControl.receiverWindowLength(onTrackRebuild(nowNs, hwmPosition, lossOccurred));
+    }
+
+    private long onTrackRebuild(long nowNs, long hwmPosition, boolean lossOccurred) {
+        return congestionControl.onTrackRebuild(
+            nowNs, hwmPosition, hwmPosition, hwmPosition, hwmPosition, hwmPosition, lossOccurred);
+    }
+}
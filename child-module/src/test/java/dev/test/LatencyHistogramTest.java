@@ -0,0 +1,96 @@
+package dev.test;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+    @Test
+    void shouldCountSmallValuesExactly() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.recordValue(i);
+        }
+
+        assertEquals(100, histogram.totalCount());
+        assertEquals(1, histogram.minValue());
+        assertEquals(100, histogram.maxValue());
+        assertEquals(50, histogram.valueAtPercentile(50.0));
+        assertEquals(99, histogram.valueAtPercentile(99.0));
+        assertEquals(100, histogram.valueAtPercentile(100.0));
+    }
+
+    @Test
+    void shouldStayWithinRelativeErrorForLargeValues() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final long value = 123_456_789L;
+        histogram.recordValue(value);
+        histogram.recordValue(value * 2);
+
+        final long p50 = histogram.valueAtPercentile(50.0);
+        assertTrue(p50 >= value && p50 - value <= value / 1000, "p50=" + p50);
+        assertEquals(value * 2, histogram.valueAtPercentile(100.0));
+    }
+
+    @Test
+    void shouldMapBucketBoundariesContiguously() {
+        final LatencyHistogram histogram = new LatencyHistogram(1L << 30, 4);
+        long expectedLowest = 0;
+        for (int i = 0; i <= histogram.countsIndex(1L << 30); i++) {
+            assertEquals(expectedLowest, histogram.lowestEquivalentValue(i));
+            assertEquals(i, histogram.countsIndex(histogram.lowestEquivalentValue(i)));
+            assertEquals(i, histogram.countsIndex(histogram.highestEquivalentValue(i)));
+            expectedLowest = histogram.highestEquivalentValue(i) + 1;
+        }
+    }
+
+    @Test
+    void shouldClampOutOfRangeValues() {
+        final LatencyHistogram histogram = new LatencyHistogram(1L << 20, 8);
+        histogram.recordValue(-5);
+        histogram.recordValue(1L << 30);
+
+        assertEquals(2, histogram.clampedCount());
+        assertEquals(0, histogram.minValue());
+        assertEquals(1L << 20, histogram.maxValue());
+    }
+
+    @Test
+    void shouldAddAndReset() {
+        final LatencyHistogram a = new LatencyHistogram();
+        final LatencyHistogram b = new LatencyHistogram();
+        a.recordValue(10);
+        b.recordValue(1_000);
+        b.recordValue(2_000);
+
+        a.add(b);
+        assertEquals(3, a.totalCount());
+        assertEquals(10, a.minValue());
+        assertEquals(2_000, a.maxValue());
+
+        a.reset();
+        assertEquals(0, a.totalCount());
+        assertEquals(0, a.valueAtPercentile(99.0));
+    }
+
+    @Test
+    void shouldHandOverIntervalsFromRecorder() {
+        final LatencyRecorder recorder = new LatencyRecorder();
+        recorder.recordValue(5);
+        recorder.recordValue(7);
+
+        final LatencyHistogram first = recorder.intervalHistogram();
+        assertEquals(2, first.totalCount());
+
+        recorder.recordValue(9);
+        final LatencyHistogram second = recorder.intervalHistogram();
+        assertEquals(1, second.totalCount());
+        assertEquals(9, second.maxValue());
+
+        final LatencyHistogram third = recorder.intervalHistogram();
+        assertSame(first, third);
+        assertEquals(0, third.totalCount());
+    }
+}
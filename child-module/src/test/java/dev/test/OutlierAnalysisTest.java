@@ -0,0 +1,42 @@
+package dev.test;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OutlierAnalysisTest {
+    @Test
+    void shouldAttributeOverlappingIntervalInPriorityOrder() {
+        final OutlierAnalysis.Timeline timeline = new OutlierAnalysis.Timeline();
+        timeline.add(OutlierAnalysis.COMPILATION, 1_000, 50_000);
+        timeline.add(OutlierAnalysis.GC, 10_000, 12_000);
+        timeline.sort();
+
+        assertEquals(OutlierAnalysis.GC, timeline.attribute(11_000, 20_000));
+        assertEquals(OutlierAnalysis.COMPILATION, timeline.attribute(13_000, 20_000));
+    }
+
+    @Test
+    void shouldFindLongIntervalStartingBeforeWindow() {
+        final OutlierAnalysis.Timeline timeline = new OutlierAnalysis.Timeline();
+        timeline.add(OutlierAnalysis.SAFEPOINT, 0, 100_000);
+        timeline.add(OutlierAnalysis.SAFEPOINT, 90_000, 91_000);
+        timeline.add(OutlierAnalysis.SAFEPOINT, 200_000, 201_000);
+        timeline.sort();
+
+        assertEquals(OutlierAnalysis.SAFEPOINT, timeline.attribute(95_000, 96_000));
+        assertEquals(OutlierAnalysis.SAFEPOINT, timeline.attribute(150_000, 200_000));
+    }
+
+    @Test
+    void shouldReturnNullWhenNothingOverlaps() {
+        final OutlierAnalysis.Timeline timeline = new OutlierAnalysis.Timeline();
+        timeline.add(OutlierAnalysis.DEOPTIMIZATION, 5_000, 5_000);
+        timeline.add(OutlierAnalysis.GC, 20_000, 30_000);
+        timeline.sort();
+
+        assertNull(timeline.attribute(6_000, 19_999));
+        assertEquals(OutlierAnalysis.DEOPTIMIZATION, timeline.attribute(4_000, 5_000));
+    }
+}
@@ -0,0 +1,55 @@
+package dev.test;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProbeCodecTest {
+    @Test
+    void shouldRoundTripAllFieldsAtOffset() {
+        final UnsafeBuffer buffer = new UnsafeBuffer(new byte[128]);
+        new ProbeCodec.Encoder().wrap(buffer, 16, 64)
+            .sendTimestampNs(123_456_789L)
+            .sequence(42)
+            .echoTimestampNs(987_654_321L)
+            .senderId(7);
+
+        final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder().wrap(buffer, 16, 64);
+
+        assertEquals(123_456_789L, decoder.sendTimestampNs());
+        assertEquals(42, decoder.sequence());
+        assertEquals(987_654_321L, decoder.echoTimestampNs());
+        assertEquals(7, decoder.senderId());
+    }
+
+    @Test
+    void shouldDecodeMissingFieldsAsNullInShortMessage() {
+        final UnsafeBuffer buffer = new UnsafeBuffer(new byte[ProbeCodec.BLOCK_LENGTH]);
+        buffer.setMemory(0, buffer.capacity(), (byte) 0x7f);
+        new ProbeCodec.Encoder().wrap(buffer, 0, ProbeCodec.MIN_LENGTH)
+            .sendTimestampNs(55)
+            .sequence(3)
+            .senderId(9);
+
+        final ProbeCodec.Decoder decoder = new ProbeCodec.Decoder().wrap(buffer, 0, ProbeCodec.MIN_LENGTH);
+
+        assertEquals(55, decoder.sendTimestampNs());
+        assertEquals(ProbeCodec.SEQUENCE_NULL, decoder.sequence());
+        assertEquals(ProbeCodec.ECHO_TIMESTAMP_NULL, decoder.echoTimestampNs());
+        assertEquals(ProbeCodec.SENDER_ID_NULL, decoder.senderId());
+        assertEquals((byte) 0x7f, buffer.getByte(ProbeCodec.SEQUENCE_OFFSET));
+    }
+
+    @Test
+    void shouldLeavePaddingUntouched() {
+        final UnsafeBuffer buffer = new UnsafeBuffer(new byte[256]);
+        buffer.setMemory(0, buffer.capacity(), (byte) 0x55);
+        new ProbeCodec.Encoder().wrap(buffer, 0, 256).sendTimestampNs(1).sequence(2).echoTimestampNs(3).senderId(4);
+
+        for (int i = ProbeCodec.BLOCK_LENGTH; i < 256; i++) {
+            assertEquals((byte) 0x55, buffer.getByte(i));
+        }
+        assertEquals(32, ProbeCodec.BLOCK_LENGTH);
+    }
+}
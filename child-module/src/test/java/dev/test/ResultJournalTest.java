@@ -0,0 +1,64 @@
+package dev.test;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultJournalTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldReadBackSamplesAndIntervalsAfterReopening() {
+        final File file = tempDir.resolve("run.journal").toFile();
+        final LatencyHistogram interval = new LatencyHistogram();
+        interval.recordValue(1_000);
+        interval.recordValue(1_000);
+        interval.recordValue(5_000_000);
+
+        try (ResultJournal journal = ResultJournal.create(file, 16)) {
+            journal.appendSample(1001, 100, 1_500);
+            journal.appendSample(1001, 200, 2_500);
+            journal.appendInterval(1001, 0, 300, interval);
+        }
+
+        final LatencyHistogram samples = new LatencyHistogram();
+        final LatencyHistogram rebuilt = new LatencyHistogram();
+        try (ResultJournal journal = ResultJournal.open(file)) {
+            assertEquals(5, journal.forEach((type, tag, timestampNs, value, count) -> {
+                assertEquals(1001, tag);
+                if (type == ResultJournal.SAMPLE) {
+                    samples.recordValueWithCount(value, count);
+                } else if (type == ResultJournal.BUCKET) {
+                    rebuilt.recordValueWithCount(value, count);
+                }
+            }));
+        }
+
+        assertEquals(2, samples.totalCount());
+        assertEquals(2_500, samples.maxValue());
+        assertEquals(interval.totalCount(), rebuilt.totalCount());
+        assertEquals(interval.valueAtPercentile(50.0), rebuilt.valueAtPercentile(50.0));
+        assertEquals(interval.countsIndex(interval.maxValue()), rebuilt.countsIndex(rebuilt.maxValue()));
+        assertTrue(rebuilt.maxValue() >= interval.maxValue());
+    }
+
+    @Test
+    void shouldDropRecordsOnceFull() {
+        final File file = tempDir.resolve("full.journal").toFile();
+        try (ResultJournal journal = ResultJournal.create(file, 2)) {
+            journal.appendSample(1, 1, 1);
+            journal.appendSample(1, 2, 2);
+
+            assertFalse(journal.appendSample(1, 3, 3));
+            assertEquals(2, journal.recordCount());
+            assertEquals(1, journal.droppedRecords());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package dev.test;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ScenarioMatrixTest {
+    @Test
+    void shouldExpandCartesianProductWithDefaults() {
+        final Properties properties = new Properties();
+        properties.setProperty(ScenarioMatrix.THREADING_MODE, "DEDICATED, SHARED");
+        properties.setProperty(ScenarioMatrix.TERM_LENGTH, "64k,16m,64m");
+
+        final List<Map<String, String>> cells = ScenarioMatrix.expand(properties);
+
+        assertEquals(6, cells.size());
+        assertEquals("DEDICATED", cells.get(0).get(ScenarioMatrix.THREADING_MODE));
+        assertEquals("64k", cells.get(0).get(ScenarioMatrix.TERM_LENGTH));
+        assertEquals("16m", cells.get(1).get(ScenarioMatrix.TERM_LENGTH));
+        assertEquals("SHARED", cells.get(5).get(ScenarioMatrix.THREADING_MODE));
+        assertEquals(ScenarioMatrix.DEFAULTS.get(ScenarioMatrix.IDLE), cells.get(5).get(ScenarioMatrix.IDLE));
+        assertEquals(List.of(ScenarioMatrix.THREADING_MODE, ScenarioMatrix.TERM_LENGTH), ScenarioMatrix.varyingKeys(cells));
+    }
+
+    @Test
+    void shouldRejectUnknownKeys() {
+        final Properties properties = new Properties();
+        properties.setProperty("threading", "SHARED");
+
+        assertThrows(IllegalArgumentException.class, () -> ScenarioMatrix.expand(properties));
+    }
+
+    @Test
+    void shouldKeepOnlyUndominatedCellsOnParetoFront() {
+        final double[] latency = {10, 20, 5, 30, 10};
+        final double[] cost = {2.0, 1.0, 3.0, 1.0, 2.5};
+
+        assertArrayEquals(
+            new boolean[]{true, true, true, false, false}, ScenarioMatrix.paretoFront(latency, cost));
+    }
+}
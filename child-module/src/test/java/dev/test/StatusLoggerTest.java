@@ -0,0 +1,50 @@
+package dev.test;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatusLoggerTest {
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final PrintStream out = new PrintStream(output, true, StandardCharsets.UTF_8);
+
+    @Test
+    void shouldFormatRecordsOffTheRecordingThread() {
+        final StatusLogger logger = new StatusLogger("aeron:udp?endpoint=localhost:20121", 1, 1024, out, false);
+
+        logger.offerResult(-2, true, 7);
+        logger.offerResult(42, true, 8);
+        logger.pollResult(3, 11);
+        logger.pollResult(0, 11);
+        assertEquals(0, output.size());
+
+        assertEquals(2, logger.drain());
+        final String lines = output.toString(StandardCharsets.UTF_8);
+        assertTrue(lines.contains("[PUB] Offer result: -2, Connected: true, Messages: 7"), lines);
+        assertTrue(lines.contains("[SUB] Received fragments: 3, Total messages: 11"), lines);
+    }
+
+    @Test
+    void shouldDropAndReportRecordsWhenFull() {
+        final StatusLogger logger = new StatusLogger("aeron:ipc", 1, 1024, out, false);
+
+        for (int i = 0; i < 100; i++) {
+            logger.pollResult(1, i);
+        }
+        assertTrue(logger.dropped() > 0);
+
+        final int records = logger.drain();
+        assertEquals(100, records + logger.dropped());
+        final String lines = output.toString(StandardCharsets.UTF_8);
+        assertTrue(lines.contains("[WARN][LOG] " + logger.dropped() + " status records dropped"), lines);
+
+        logger.pollResult(1, 100);
+        logger.close();
+        assertTrue(output.toString(StandardCharsets.UTF_8).contains("Total messages: 100"));
+    }
+}
@@ -0,0 +1,39 @@
+package dev.test;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThreadLayoutTest {
+    @Test
+    void shouldParseRoleCpuPairs() {
+        final ThreadLayout layout = ThreadLayout.parse("conductor=1, sender=2,receiver=3,sub=4");
+
+        assertEquals(1, layout.cpu(ThreadLayout.CONDUCTOR));
+        assertEquals(2, layout.cpu(ThreadLayout.SENDER));
+        assertEquals(3, layout.cpu(ThreadLayout.RECEIVER));
+        assertEquals(4, layout.cpu("sub"));
+        assertEquals(-1, layout.cpu("pub"));
+    }
+
+    @Test
+    void shouldLeaveThreadsFloatingWhenEmpty() {
+        final ThreadLayout layout = ThreadLayout.parse("", ThreadLayout.CONDUCTOR);
+
+        assertTrue(layout.isEmpty());
+        assertEquals(-1, layout.cpu(ThreadLayout.CONDUCTOR));
+        assertThrows(IllegalArgumentException.class, () -> ThreadLayout.parse("conductor:1"));
+    }
+
+    @Test
+    void shouldGiveEveryRoleACpuInAutoLayout() {
+        final ThreadLayout layout = ThreadLayout.parse(ThreadLayout.AUTO,
+            ThreadLayout.CONDUCTOR, ThreadLayout.SENDER, ThreadLayout.RECEIVER, "pub");
+
+        for (final String role : new String[]{ThreadLayout.CONDUCTOR, ThreadLayout.SENDER, ThreadLayout.RECEIVER, "pub"}) {
+            assertTrue(layout.cpu(role) >= 0, role);
+        }
+    }
+}